@@ -7,12 +7,15 @@ import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
 import htsjdk.samtools.util.OverlapDetector;
 import htsjdk.variant.variantcontext.VariantContext;
-import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
+import org.apache.spark.TaskContext;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.storage.StorageLevel;
+import org.apache.spark.util.CollectionAccumulator;
 import org.broadinstitute.barclay.argparser.*;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -30,20 +33,41 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCaller;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerArgumentCollection;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerEngine;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.ReferenceConfidenceMode;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.broadinstitute.hellbender.utils.spark.ReadDensitySharding;
+import org.broadinstitute.hellbender.utils.spark.VariantsSparkSink;
+import org.broadinstitute.hellbender.utils.tsv.TableColumnCollection;
+import org.broadinstitute.hellbender.utils.tsv.TableUtils;
+import org.broadinstitute.hellbender.utils.tsv.TableWriter;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
 import scala.Tuple2;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -64,6 +88,12 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
     @Argument(fullName= StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, doc = "Single file to which variants should be written")
     public String output;
 
+    @Argument(fullName = "partsPathPrefix", shortName = "partsPathPrefix", doc = "Path prefix of the temporary part files, one per partition, that are concatenated into the output. It must be accessible by the driver and all the executors; by default it is the output path.", optional = true)
+    public String partsPathPrefix;
+
+    @Argument(fullName = "shardTimingOutput", shortName = "shardTimingOutput", doc = "File to which the approximate processing time of each read shard is written, slowest shards first.", optional = true)
+    public File shardTimingOutput;
+
     @ArgumentCollection
     public final ShardingArgumentCollection shardingArgs = new ShardingArgumentCollection();
 
@@ -76,6 +106,24 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         @Argument(fullName="readShardPadding", shortName="readShardPadding", doc = "Each read shard has this many bases of extra context on each side. Read shards must have as much or more padding than assembly regions.", optional = true)
         public int readShardPadding = HaplotypeCaller.DEFAULT_READSHARD_PADDING;
 
+        @Argument(fullName="adaptiveReadShards", shortName="adaptiveReadShards", doc = "Size read shards according to the read density estimated from a sample of the reads, so that every shard has about as many reads as an average shard of readShardSize bases.", optional = true)
+        public boolean adaptiveReadShards = false;
+
+        @Advanced
+        @Argument(fullName="adaptiveReadShardsSampleFraction", shortName="adaptiveReadShardsSampleFraction", doc = "Fraction of the reads sampled to estimate the read density for adaptive read shards.", optional = true)
+        public double adaptiveReadShardsSampleFraction = 0.01;
+
+        @Advanced
+        @Argument(fullName="minAdaptiveReadShardSize", shortName="minAdaptiveReadShardSize", doc = "Minimum size of adaptive read shards, in bases; this is also the resolution of the read density estimate.", optional = true)
+        public int minAdaptiveReadShardSize = 500;
+
+        @Advanced
+        @Argument(fullName="maxAdaptiveReadShardSize", shortName="maxAdaptiveReadShardSize", doc = "Maximum size of adaptive read shards, in bases.", optional = true)
+        public int maxAdaptiveReadShardSize = 100 * HaplotypeCaller.DEFAULT_READSHARD_SIZE;
+
+        @Argument(fullName="assemblyRegionThreads", shortName="assemblyRegionThreads", doc = "Number of threads each task uses to call variants on its assembly regions, each thread with its own HaplotypeCaller engine. With more than one thread, the output is only reproducible if no random draws are made, e.g. by contamination downsampling.", optional = true)
+        public int assemblyRegionThreads = 1;
+
         @Argument(fullName = "minAssemblyRegionSize", shortName = "minAssemblyRegionSize", doc = "Minimum size of an assembly region", optional = true)
         public int minAssemblyRegionSize = HaplotypeCaller.DEFAULT_MIN_ASSEMBLY_REGION_SIZE;
 
@@ -112,8 +160,20 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
     @Override
     protected void runTool(final JavaSparkContext ctx) {
         final List<SimpleInterval> intervals = hasIntervals() ? getIntervals() : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(getAuthHolder(), ctx, getReads(), getHeaderForReads(), getReference(), intervals, hcArgs, shardingArgs);
-        writeVariants(variants);
+        final CollectionAccumulator<ShardTiming> shardTimings = shardTimingOutput == null ? null : ctx.sc().collectionAccumulator("shard timings");
+        final JavaRDD<GATKRead> reads = getReads();
+        if (shardingArgs.adaptiveReadShards) {
+            // the reads are sampled to size the shards before they are sharded, so keep them instead of reading them twice
+            reads.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        }
+        final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(getAuthHolder(), ctx, reads, getHeaderForReads(), getReference(), intervals, hcArgs, shardingArgs, shardTimings);
+        writeVariants(ctx, variants);
+        if (shardingArgs.adaptiveReadShards) {
+            reads.unpersist();
+        }
+        if (shardTimings != null) {
+            writeShardTimings(shardTimingOutput, shardTimings.value());
+        }
     }
 
     @Override
@@ -128,7 +188,7 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      *
      * @param authHolder authorization needed for the reading the reference
      * @param ctx the spark context
-     * @param reads the reads variants should be called from
+     * @param reads the reads variants should be called from; with adaptive read shards they are traversed twice, so they should be persisted
      * @param header the header that goes with the reads
      * @param reference the reference to use when calling
      * @param intervals the intervals to restrict calling to
@@ -145,6 +205,26 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             final List<SimpleInterval> intervals,
             final HaplotypeCallerArgumentCollection hcArgs,
             final ShardingArgumentCollection shardingArgs) {
+        return callVariantsWithHaplotypeCaller(authHolder, ctx, reads, header, reference, intervals, hcArgs, shardingArgs, null);
+    }
+
+    /**
+     * Call Variants using HaplotypeCaller on Spark and return an RDD of  {@link VariantContext}, optionally recording
+     * the time spent on each read shard as the RDD is computed.
+     *
+     * @param shardTimings accumulator to which the timing of each read shard is added, {@code null} to not time shards
+     * @see #callVariantsWithHaplotypeCaller(AuthHolder, JavaSparkContext, JavaRDD, SAMFileHeader, ReferenceMultiSource, List, HaplotypeCallerArgumentCollection, ShardingArgumentCollection)
+     */
+    public static JavaRDD<VariantContext> callVariantsWithHaplotypeCaller(
+            final AuthHolder authHolder,
+            final JavaSparkContext ctx,
+            final JavaRDD<GATKRead> reads,
+            final SAMFileHeader header,
+            final ReferenceMultiSource reference,
+            final List<SimpleInterval> intervals,
+            final HaplotypeCallerArgumentCollection hcArgs,
+            final ShardingArgumentCollection shardingArgs,
+            final CollectionAccumulator<ShardTiming> shardTimings) {
         Utils.validateArg(hcArgs.dbsnp.dbsnp == null, "HaplotypeCallerSpark does not yet support -D or --dbsnp arguments" );
         Utils.validateArg(hcArgs.comps.isEmpty(), "HaplotypeCallerSpark does not yet support -comp or --comp arguments" );
         Utils.validateArg(hcArgs.bamOutputPath == null, "HaplotypeCallerSpark does not yet support -bamout or --bamOutput");
@@ -154,7 +234,14 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
 
         final Broadcast<ReferenceMultiSource> referenceBroadcast = ctx.broadcast(reference);
         final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast = ctx.broadcast(hcArgs);
-        final OverlapDetector<ShardBoundary> overlaps = getShardBoundaryOverlapDetector(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding);
+        final List<ShardBoundary> shardBoundaries = shardingArgs.adaptiveReadShards
+                ? ReadDensitySharding.divideIntervalsByReadDensity(reads, header.getSequenceDictionary(), intervals,
+                        shardingArgs.adaptiveReadShardsSampleFraction, shardingArgs.readShardSize, shardingArgs.minAdaptiveReadShardSize,
+                        shardingArgs.maxAdaptiveReadShardSize, shardingArgs.readShardPadding)
+                : intervals.stream()
+                        .flatMap(interval -> Shard.divideIntervalIntoShards(interval, shardingArgs.readShardSize, shardingArgs.readShardPadding, header.getSequenceDictionary()).stream())
+                        .collect(Collectors.toList());
+        final OverlapDetector<ShardBoundary> overlaps = getShardBoundaryOverlapDetector(shardBoundaries);
         final Broadcast<OverlapDetector<ShardBoundary>> shardBoundariesBroadcast = ctx.broadcast(overlaps);
 
         final JavaRDD<Shard<GATKRead>> readShards = createReadShards(shardBoundariesBroadcast, reads);
@@ -162,24 +249,42 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         final JavaRDD<Tuple2<AssemblyRegion, SimpleInterval>> assemblyRegions = readShards
                 .mapPartitions(shardsToAssemblyRegions(authHolder, referenceBroadcast, hcArgsBroadcast, shardingArgs, header));
 
-        return assemblyRegions.mapPartitions(callVariantsFromAssemblyRegions(authHolder, header, referenceBroadcast, hcArgsBroadcast));
+        return assemblyRegions.mapPartitions(callVariantsFromAssemblyRegions(authHolder, header, referenceBroadcast, hcArgsBroadcast, shardingArgs.assemblyRegionThreads, shardTimings));
     }
 
     /**
      * Call variants from Tuples of AssemblyRegion and Simple Interval
      * The interval should be the non-padded shard boundary for the shard that the corresponding AssemblyRegion was
      * created in, it's used to eliminate redundant variant calls at the edge of shard boundaries.
+     *
+     * With more than one thread, the regions of a partition are called concurrently, each thread with its own engine,
+     * but the variants are still returned in the order of the regions.
      */
     private static FlatMapFunction<Iterator<Tuple2<AssemblyRegion, SimpleInterval>>, VariantContext> callVariantsFromAssemblyRegions(
             final AuthHolder authHolder,
             final SAMFileHeader header,
             final Broadcast<ReferenceMultiSource> referenceBroadcast,
-            final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast) {
+            final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast,
+            final int assemblyRegionThreads,
+            final CollectionAccumulator<ShardTiming> shardTimings) {
+        ParamUtils.isPositive(assemblyRegionThreads, "the number of assembly region threads must be positive");
         return regionAndIntervals -> {
+            final ShardTimer timer = shardTimings == null ? null : new ShardTimer(shardTimings);
+            if (timer != null) {
+                // the last shard of the partition is only complete once the partition has been consumed
+                TaskContext.get().addTaskCompletionListener(context -> timer.finishShard());
+            }
+            if (assemblyRegionThreads > 1) {
+                final ConcurrentRegionCaller regionCaller = new ConcurrentRegionCaller(regionAndIntervals, assemblyRegionThreads,
+                        () -> new HaplotypeCallerEngine(hcArgsBroadcast.value(), header, new ReferenceMultiSourceAdapter(referenceBroadcast.getValue(), authHolder)),
+                        timer);
+                TaskContext.get().addTaskCompletionListener(context -> regionCaller.shutdown());
+                return iteratorToStream(regionCaller).flatMap(List::stream).iterator();
+            }
             //HaplotypeCallerEngine isn't serializable but is expensive to instantiate, so construct and reuse one for every partition
             final ReferenceMultiSourceAdapter referenceReader = new ReferenceMultiSourceAdapter(referenceBroadcast.getValue(), authHolder);
             final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), header, referenceReader);
-            return iteratorToStream(regionAndIntervals).flatMap(regionToVariants(hcEngine)).iterator();
+            return iteratorToStream(regionAndIntervals).flatMap(regionToVariants(hcEngine, timer)).iterator();
         };
     }
 
@@ -188,33 +293,252 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         return StreamSupport.stream(regionsIterable.spliterator(), false);
     }
 
-    private static Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> regionToVariants(HaplotypeCallerEngine hcEngine) {
+    private static Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> regionToVariants(HaplotypeCallerEngine hcEngine, ShardTimer timer) {
         return regionAndInterval -> {
-            final List<VariantContext> variantContexts = hcEngine.callRegion(regionAndInterval._1(), new FeatureContext());
             final SimpleInterval shardBoundary = regionAndInterval._2();
-            return variantContexts.stream()
-                .filter(vc -> shardBoundary.contains(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart())));
+            if (timer != null) {
+                timer.startRegion(shardBoundary);
+            }
+            final List<VariantContext> variantContexts = callRegion(hcEngine, regionAndInterval);
+            if (timer != null) {
+                timer.endRegion(variantContexts.size());
+            }
+            return variantContexts.stream();
         };
     }
 
     /**
-     * WriteVariants, this is currently going to be horribly slow and explosive on a full size file since it performs a collect.
-     *
-     * This will be replaced by a parallel writer similar to what's done with {@link org.broadinstitute.hellbender.engine.spark.datasources.ReadsSparkSink}
+     * Calls the variants of an assembly region that start within the shard boundary it was created in.
      */
-    private void writeVariants(JavaRDD<VariantContext> variants) {
-        final List<VariantContext> collectedVariants = variants.collect();
-        final SAMSequenceDictionary referenceDictionary = getReferenceSequenceDictionary();
+    private static List<VariantContext> callRegion(final HaplotypeCallerEngine hcEngine, final Tuple2<AssemblyRegion, SimpleInterval> regionAndInterval) {
+        final SimpleInterval shardBoundary = regionAndInterval._2();
+        return hcEngine.callRegion(regionAndInterval._1(), new FeatureContext()).stream()
+                .filter(vc -> shardBoundary.contains(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart())))
+                .collect(Collectors.toList());
+    }
 
-        final List<VariantContext> sortedVariants = collectedVariants.stream()
-                .sorted((o1, o2) -> IntervalUtils.compareLocatables(o1, o2, referenceDictionary))
+    /**
+     * Calls variants on assembly regions with a pool of threads, each with its own {@link HaplotypeCallerEngine},
+     * and returns the variants of each region in the order of the regions.
+     * <p>
+     *     The input regions are only ever pulled from the thread that iterates, since they are lazily created from the
+     *     reads of the Spark partition. At most twice as many regions as threads are in flight at any time, so that
+     *     idle threads pick up the next region as soon as they finish while memory use stays bounded.
+     * </p>
+     * <p>
+     *     The engines draw random numbers (e.g. for contamination downsampling) from the static
+     *     {@link Utils#getRandomGenerator()}, which all threads share. {@link java.util.Random} is thread-safe, so
+     *     this is correct, but the draws each region gets depend on the scheduling of the threads; the calls are
+     *     therefore only reproducible run to run when no random draws are made.
+     * </p>
+     */
+    private static final class ConcurrentRegionCaller implements Iterator<List<VariantContext>> {
+        private final Iterator<Tuple2<AssemblyRegion, SimpleInterval>> regions;
+        private final ExecutorService executor;
+        private final ThreadLocal<HaplotypeCallerEngine> engines;
+        private final Queue<HaplotypeCallerEngine> createdEngines = new ConcurrentLinkedQueue<>();
+        private final int maxPendingRegions;
+        private final ShardTimer timer;
+        private final Deque<Tuple2<SimpleInterval, Future<List<VariantContext>>>> pendingRegions = new ArrayDeque<>();
+
+        private ConcurrentRegionCaller(final Iterator<Tuple2<AssemblyRegion, SimpleInterval>> regions, final int threads,
+                                       final Supplier<HaplotypeCallerEngine> engineFactory, final ShardTimer timer) {
+            this.regions = regions;
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "HaplotypeCallerSpark-region-caller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // engines are not thread-safe, so every thread of the pool lazily creates its own; they are also kept
+            // here so that they can be shut down once the pool is done.
+            this.engines = ThreadLocal.withInitial(() -> {
+                final HaplotypeCallerEngine engine = engineFactory.get();
+                createdEngines.add(engine);
+                return engine;
+            });
+            this.maxPendingRegions = 2 * threads;
+            this.timer = timer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            submitRegions();
+            if (pendingRegions.isEmpty()) {
+                shutdown();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public List<VariantContext> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Tuple2<SimpleInterval, Future<List<VariantContext>>> pendingRegion = pendingRegions.removeFirst();
+            if (timer != null) {
+                timer.startRegion(pendingRegion._1());
+            }
+            final List<VariantContext> result;
+            try {
+                result = pendingRegion._2().get();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("interrupted while calling variants on an assembly region", ex);
+            } catch (final ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new GATKException("failed to call variants on an assembly region", ex.getCause());
+            }
+            if (timer != null) {
+                timer.endRegion(result.size());
+            }
+            return result;
+        }
+
+        private void submitRegions() {
+            while (pendingRegions.size() < maxPendingRegions && regions.hasNext()) {
+                final Tuple2<AssemblyRegion, SimpleInterval> regionAndInterval = regions.next();
+                pendingRegions.addLast(new Tuple2<>(regionAndInterval._2(), executor.submit(() -> callRegion(engines.get(), regionAndInterval))));
+            }
+        }
+
+        /**
+         * Stops the pool and shuts down the engine of each of its threads; it can be called more than once.
+         */
+        private void shutdown() {
+            executor.shutdownNow();
+            try {
+                // engines must not be shut down while a thread may still be using them.
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("interrupted while shutting down the assembly region threads", ex);
+            }
+            HaplotypeCallerEngine engine;
+            while ((engine = createdEngines.poll()) != null) {
+                engine.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Processing time of a read shard.
+     */
+    public static final class ShardTiming implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final SimpleInterval shard;
+        private final int assemblyRegionCount;
+        private final int variantCount;
+        private final long elapsedMillis;
+
+        public ShardTiming(final SimpleInterval shard, final int assemblyRegionCount, final int variantCount, final long elapsedMillis) {
+            this.shard = Utils.nonNull(shard);
+            this.assemblyRegionCount = assemblyRegionCount;
+            this.variantCount = variantCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public SimpleInterval getShard() {
+            return shard;
+        }
+
+        public int getAssemblyRegionCount() {
+            return assemblyRegionCount;
+        }
+
+        public int getVariantCount() {
+            return variantCount;
+        }
+
+        /**
+         * @return the wall-clock time between the start of the first assembly region of the shard and the start of the
+         * next shard in the same partition, which includes the creation of the assembly regions of the shard.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    /**
+     * Times consecutive read shards in a partition as their assembly regions are called.
+     */
+    private static final class ShardTimer {
+        private final CollectionAccumulator<ShardTiming> timings;
+        private SimpleInterval shard;
+        private long shardStartNanos;
+        private int assemblyRegionCount;
+        private int variantCount;
+
+        private ShardTimer(final CollectionAccumulator<ShardTiming> timings) {
+            this.timings = timings;
+        }
+
+        private void startRegion(final SimpleInterval regionShard) {
+            if (!regionShard.equals(shard)) {
+                finishShard();
+                shard = regionShard;
+                shardStartNanos = System.nanoTime();
+            }
+        }
+
+        private void endRegion(final int regionVariantCount) {
+            assemblyRegionCount++;
+            variantCount += regionVariantCount;
+        }
+
+        private void finishShard() {
+            if (shard != null) {
+                timings.add(new ShardTiming(shard, assemblyRegionCount, variantCount, (System.nanoTime() - shardStartNanos) / 1_000_000));
+            }
+            shard = null;
+            assemblyRegionCount = 0;
+            variantCount = 0;
+        }
+    }
+
+    /**
+     * Writes the shard timings into a file, slowest shards first.
+     */
+    private void writeShardTimings(final File outputFile, final List<ShardTiming> timings) {
+        final List<ShardTiming> sortedTimings = timings.stream()
+                .sorted(Comparator.comparingLong(ShardTiming::getElapsedMillis).reversed())
                 .collect(Collectors.toList());
+        if (!sortedTimings.isEmpty()) {
+            logger.info(String.format("Timed %d shards: the slowest took %d ms and the median %d ms", sortedTimings.size(),
+                    sortedTimings.get(0).getElapsedMillis(), sortedTimings.get(sortedTimings.size() / 2).getElapsedMillis()));
+        }
+        final TableColumnCollection columns = new TableColumnCollection("contig", "start", "end", "assemblyRegions", "variants", "elapsedMillis");
+        try (final TableWriter<ShardTiming> writer = TableUtils.writer(outputFile, columns,
+                (timing, dataLine) -> dataLine.append(timing.getShard().getContig())
+                        .append(timing.getShard().getStart()).append(timing.getShard().getEnd())
+                        .append(timing.getAssemblyRegionCount()).append(timing.getVariantCount())
+                        .append(timing.getElapsedMillis()))) {
+            for (final ShardTiming timing : sortedTimings) {
+                writer.writeRecord(timing);
+            }
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(outputFile, ex.getMessage());
+        }
+    }
 
+    /**
+     * Writes the variants into the output file, sorted by coordinate, without collecting them in the driver.
+     * <p>
+     *     In GVCF mode each partition is written by its own {@link GVCFWriter}, so reference blocks are also broken at
+     *     partition boundaries.
+     * </p>
+     */
+    private void writeVariants(final JavaSparkContext ctx, final JavaRDD<VariantContext> variants) {
         final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgs, getHeaderForReads(), new ReferenceMultiSourceAdapter(getReference(), getAuthHolder()));
-        try(final VariantContextWriter writer = hcEngine.makeVCFWriter(output, getBestAvailableSequenceDictionary())) {
-            hcEngine.writeHeader(writer, getHeaderForReads().getSequenceDictionary(), Collections.emptySet());
-            sortedVariants.forEach(writer::add);
-        }
+        final VCFHeader header = hcEngine.makeVCFHeader(getHeaderForReads().getSequenceDictionary(), Collections.emptySet());
+        final boolean gvcfMode = hcArgs.emitReferenceConfidence == ReferenceConfidenceMode.GVCF;
+        final List<Integer> gqBands = hcArgs.GVCFGQBands;
+        final int ploidy = hcArgs.genotypeArgs.samplePloidy;
+        VariantsSparkSink.writeVariants(ctx, output, partsPathPrefix == null ? output : partsPathPrefix, variants, header,
+                writer -> gvcfMode ? new GVCFWriter(writer, gqBands, ploidy) : writer);
     }
 
     /**
@@ -233,14 +557,11 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
     }
 
     /**
-     * @return an {@link OverlapDetector} loaded with {@link ShardBoundary}
-     * based on the -L intervals
+     * @return an {@link OverlapDetector} loaded with {@link ShardBoundary} keyed by their padded intervals
      */
-    private static OverlapDetector<ShardBoundary> getShardBoundaryOverlapDetector(final SAMFileHeader header, final List<SimpleInterval> intervals, final int readShardSize, final int readShardPadding) {
+    private static OverlapDetector<ShardBoundary> getShardBoundaryOverlapDetector(final List<ShardBoundary> shardBoundaries) {
         final OverlapDetector<ShardBoundary> shardBoundaryOverlapDetector = new OverlapDetector<>(0, 0);
-        intervals.stream()
-                .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, header.getSequenceDictionary()).stream())
-                .forEach(boundary -> shardBoundaryOverlapDetector.addLhs(boundary, boundary.getPaddedInterval()));
+        shardBoundaries.forEach(boundary -> shardBoundaryOverlapDetector.addLhs(boundary, boundary.getPaddedInterval()));
         return shardBoundaryOverlapDetector;
     }
 
@@ -289,6 +289,10 @@ public final class CoverageModelArgumentCollection {
     public static final String NUMBER_OF_TARGET_SPACE_PARTITIONS_SHORT_NAME = "NTSP";
     public static final String NUMBER_OF_TARGET_SPACE_PARTITIONS_LONG_NAME = "numTargetSpacePartitions";
 
+    public static final int DEFAULT_NUMBER_OF_LOCAL_THREADS = 1;
+    public static final String NUMBER_OF_LOCAL_THREADS_SHORT_NAME = "NLT";
+    public static final String NUMBER_OF_LOCAL_THREADS_LONG_NAME = "numLocalThreads";
+
     public static final int DEFAULT_RDD_CHECKPOINTING_INTERVAL = 10;
     public static final String RDD_CHECKPOINTING_INTERVAL_SHORT_NAME = "RDDCPI";
     public static final String RDD_CHECKPOINTING_INTERVAL_LONG_NAME = "rddCheckpointingInterval";
@@ -314,6 +318,22 @@ public final class CoverageModelArgumentCollection {
     public static final String RUN_CHECKPOINTING_PATH_SHORT_NAME = "RCPP";
     public static final String RUN_CHECKPOINTING_PATH_LONG_NAME = "runCheckpointingPath";
 
+    public static final int DEFAULT_EM_SNAPSHOT_INTERVAL = 1;
+    public static final String EM_SNAPSHOT_INTERVAL_SHORT_NAME = "EMSI";
+    public static final String EM_SNAPSHOT_INTERVAL_LONG_NAME = "emSnapshotInterval";
+
+    public static final boolean DEFAULT_EM_SNAPSHOT_ENABLED = false;
+    public static final String EM_SNAPSHOT_ENABLED_SHORT_NAME = "EMS";
+    public static final String EM_SNAPSHOT_ENABLED_LONG_NAME = "emSnapshot";
+
+    public static final String DEFAULT_EM_SNAPSHOT_PATH = "/dev/null";
+    public static final String EM_SNAPSHOT_PATH_SHORT_NAME = "EMSP";
+    public static final String EM_SNAPSHOT_PATH_LONG_NAME = "emSnapshotPath";
+
+    public static final boolean DEFAULT_RESUME_FROM_EM_SNAPSHOT = false;
+    public static final String RESUME_FROM_EM_SNAPSHOT_SHORT_NAME = "EMSR";
+    public static final String RESUME_FROM_EM_SNAPSHOT_LONG_NAME = "resumeFromEMSnapshot";
+
     public static final boolean DEFAULT_EXTENDED_POSTERIOR_OUTPUT_ENABLED = true;
     public static final String EXTENDED_POSTERIOR_OUTPUT_ENABLED_SHORT_NAME = "XPO";
     public static final String EXTENDED_POSTERIOR_OUTPUT_ENABLED_LONG_NAME = "extendedPosteriorOutputEnabled";
@@ -721,6 +741,40 @@ public final class CoverageModelArgumentCollection {
     )
     protected String runCheckpointingPath = DEFAULT_RUN_CHECKPOINTING_PATH;
 
+    @Argument(
+            doc = "Periodically save a snapshot of the full state of the EM algorithm (posteriors, model parameters," +
+                    " and iteration state) from which an interrupted run can be resumed",
+            shortName = EM_SNAPSHOT_ENABLED_SHORT_NAME,
+            fullName = EM_SNAPSHOT_ENABLED_LONG_NAME,
+            optional = true
+    )
+    protected boolean emSnapshotEnabled = DEFAULT_EM_SNAPSHOT_ENABLED;
+
+    @Argument(
+            doc = "EM snapshot interval (in iterations)",
+            shortName = EM_SNAPSHOT_INTERVAL_SHORT_NAME,
+            fullName = EM_SNAPSHOT_INTERVAL_LONG_NAME,
+            optional = true
+    )
+    protected int emSnapshotInterval = DEFAULT_EM_SNAPSHOT_INTERVAL;
+
+    @Argument(
+            doc = "Local directory of the EM snapshot (required if EM snapshots are enabled or a run is resumed)",
+            shortName = EM_SNAPSHOT_PATH_SHORT_NAME,
+            fullName = EM_SNAPSHOT_PATH_LONG_NAME,
+            optional = true
+    )
+    protected String emSnapshotPath = DEFAULT_EM_SNAPSHOT_PATH;
+
+    @Argument(
+            doc = "Resume the EM algorithm from the latest snapshot in the EM snapshot path (if any); the input data" +
+                    " and arguments must be the same as those of the run that saved the snapshot",
+            shortName = RESUME_FROM_EM_SNAPSHOT_SHORT_NAME,
+            fullName = RESUME_FROM_EM_SNAPSHOT_LONG_NAME,
+            optional = true
+    )
+    protected boolean resumeFromEMSnapshot = DEFAULT_RESUME_FROM_EM_SNAPSHOT;
+
     @Advanced
     @Argument(
             doc = "Enable extended posterior output",
@@ -732,13 +786,23 @@ public final class CoverageModelArgumentCollection {
 
     @Advanced
     @Argument(
-            doc = "Number of target space partitions (for spark mode)",
+            doc = "Number of target space partitions (in the spark mode, or processed concurrently by " +
+                    NUMBER_OF_LOCAL_THREADS_LONG_NAME + " threads in the local mode)",
             shortName = NUMBER_OF_TARGET_SPACE_PARTITIONS_SHORT_NAME,
             fullName = NUMBER_OF_TARGET_SPACE_PARTITIONS_LONG_NAME,
             optional = true
     )
     protected int numTargetSpacePartitions = DEFAULT_NUMBER_OF_TARGET_SPACE_PARTITIONS;
 
+    @Advanced
+    @Argument(
+            doc = "Number of threads for concurrent processing of target space partitions (for local mode)",
+            shortName = NUMBER_OF_LOCAL_THREADS_SHORT_NAME,
+            fullName = NUMBER_OF_LOCAL_THREADS_LONG_NAME,
+            optional = true
+    )
+    protected int numLocalThreads = DEFAULT_NUMBER_OF_LOCAL_THREADS;
+
     @Argument(
             doc = "Enable automatic relevance determination (ARD) of bias covariates",
             shortName = ARD_ENABLED_SHORT_NAME,
@@ -933,6 +997,22 @@ public final class CoverageModelArgumentCollection {
         return rddCheckpointingPath;
     }
 
+    public boolean isEMSnapshotEnabled() {
+        return emSnapshotEnabled;
+    }
+
+    public int getEMSnapshotInterval() {
+        return emSnapshotInterval;
+    }
+
+    public String getEMSnapshotPath() {
+        return emSnapshotPath;
+    }
+
+    public boolean isResumeFromEMSnapshotEnabled() {
+        return resumeFromEMSnapshot;
+    }
+
     public boolean extendedPosteriorOutputEnabled() {
         return extendedPosteriorOutputEnabled;
     }
@@ -941,6 +1021,10 @@ public final class CoverageModelArgumentCollection {
         return numTargetSpacePartitions;
     }
 
+    public int getNumLocalThreads() {
+        return numLocalThreads;
+    }
+
     public int getSampleSpecificVarianceSolverRefinementDepth() {
         return sampleSpecificVarianceSolverRefinementDepth;
     }
@@ -1039,7 +1123,10 @@ public final class CoverageModelArgumentCollection {
         ParamUtils.isPositive(sampleSpecificVarianceUpperLimit, "Sample-specific variance upper limit must be positive");
         Utils.nonNull(runCheckpointingPath, "Run checkpointing path must be non-null");
         Utils.nonNull(rddCheckpointingPath, "RDD checkpointing path must be non-null");
+        ParamUtils.inRange(emSnapshotInterval, 1, Integer.MAX_VALUE, "EM snapshot interval must be >= 1");
+        Utils.nonNull(emSnapshotPath, "EM snapshot path must be non-null");
         ParamUtils.isPositive(numTargetSpacePartitions, "Number of target space partitions must be positive");
+        ParamUtils.isPositive(numLocalThreads, "Number of local threads must be positive");
         ParamUtils.isPositive(minLearningReadCount, "The minimum learning read count must be positive");
         ParamUtils.isPositive(minPCAInitializationReadCount, "The minimum PCA initialization read count must be positive");
         ParamUtils.isPositiveOrZero(mappingErrorRate, "The mapping error rate must be non-negative");
@@ -1052,6 +1139,8 @@ public final class CoverageModelArgumentCollection {
                 "Run checkpointing is enabled but checkpointing path is not set properly");
         Utils.validateArg(!isRDDCheckpointingEnabled() || !rddCheckpointingPath.equals("/dev/null"),
                 "RDD checkpointing is enabled but checkpointing path is not set properly");
+        Utils.validateArg(!(isEMSnapshotEnabled() || isResumeFromEMSnapshotEnabled()) || !emSnapshotPath.equals("/dev/null"),
+                "EM snapshots are enabled (or a run is resumed) but the EM snapshot path is not set properly");
         Utils.validateArg(!fourierRegularizationEnabled(), "Fourier regularization is not properly" +
                 " implemented yet");
         Utils.validateArg(numLatents > 0 || !ardEnabled, "ARD must be disabled if the dimension of the" +
@@ -4,13 +4,17 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.util.FastMath;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.hmm.interfaces.AlleleMetadataProducer;
 import org.broadinstitute.hellbender.utils.hmm.interfaces.CallStringProducer;
 import org.broadinstitute.hellbender.utils.hmm.interfaces.ScalarProducer;
 
 import javax.annotation.Nonnull;
-import java.io.File;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.function.Function;
@@ -25,6 +29,10 @@ import java.util.function.Supplier;
  * (2) Calculating posterior expectations for the model parameters already existing in the workspace
  *     via calling {@link CoverageModelEMAlgorithm {@link #runExpectation()}}
  *
+ * If enabled, a snapshot of the iteration state of the algorithm together with the state of the workspace
+ * (see {@link CoverageModelEMWorkspace#writeSnapshot}) is saved periodically; an interrupted run may be resumed
+ * from the latest snapshot.
+ *
  * (see CNV-methods.pdf for technical details).
  *
  * This class does not store or perform any of the calculations. Rather, it controls the flow of the EM
@@ -54,6 +62,11 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
      */
     private static Function<SubroutineSignal, String> NOT_APPLICABLE_EXTRACTOR = s -> "N/A";
 
+    /**
+     * Version of the binary format of EM snapshots
+     */
+    private static final int EM_SNAPSHOT_FORMAT_VERSION = 1;
+
     /**
      * Public constructor.
      *
@@ -120,6 +133,7 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
      */
     public EMAlgorithmStatus runExpectationMaximization() {
         config.validate();
+        final EMAlgorithmState resumedState = loadSnapshotIfRequested(EMAlgorithmRoutine.EXPECTATION_MAXIMIZATION);
         /* If copy ratio posterior calling is enabled, the first few iterations need to be robust.
          * Therefore, we disable the target-resolved unexplained variance estimation (if enabled) and
          * enforce isotropic unexplained variance */
@@ -136,7 +150,7 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
 
         double prevMStepLikelihood = Double.NEGATIVE_INFINITY;
         double latestMStepLikelihood = Double.NEGATIVE_INFINITY;
-        final EMAlgorithmIterationInfo iterInfo = new EMAlgorithmIterationInfo(Double.NEGATIVE_INFINITY, 0, 1);
+        final EMAlgorithmIterationInfo iterInfo;
         final boolean updateBiasCovariates = config.getNumLatents() > 0;
 
         /* initial states -- these will change over the course of the algorithm adaptively */
@@ -145,6 +159,20 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
         boolean paramEstimationConverged = false;
         boolean performMStep = true;
 
+        if (resumedState == null) {
+            iterInfo = new EMAlgorithmIterationInfo(Double.NEGATIVE_INFINITY, 0, 1);
+        } else {
+            iterInfo = new EMAlgorithmIterationInfo(resumedState.logLikelihood, resumedState.errorNorm, resumedState.iter);
+            currentTargetSpecificVarianceUpdateMode = resumedState.targetSpecificVarianceUpdateMode;
+            prevMStepLikelihood = resumedState.prevLikelihood;
+            latestMStepLikelihood = resumedState.latestLikelihood;
+            updateCopyRatioPosteriors = resumedState.updateCopyRatioPosteriors;
+            updateARDCoefficients = resumedState.updateARDCoefficients;
+            paramEstimationConverged = resumedState.paramEstimationConverged;
+            performMStep = resumedState.performMStep;
+            status = resumedState.status;
+        }
+
         while (iterInfo.iter <= config.getMaxEMIterations()) {
 
             /* cycle through E-step mean-field equations until they are satisfied to the desired degree */
@@ -304,6 +332,12 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
                 saveModel(modelOutputAbsolutePath);
                 savePosteriors(posteriorOutputAbsolutePath, CoverageModelEMWorkspace.PosteriorVerbosityLevel.BASIC);
             }
+
+            if (config.isEMSnapshotEnabled() && iterInfo.iter % config.getEMSnapshotInterval() == 0) {
+                saveSnapshot(new EMAlgorithmState(EMAlgorithmRoutine.EXPECTATION_MAXIMIZATION, iterInfo,
+                        prevMStepLikelihood, latestMStepLikelihood, currentTargetSpecificVarianceUpdateMode,
+                        updateCopyRatioPosteriors, updateARDCoefficients, paramEstimationConverged, performMStep, status));
+            }
         }
 
         if (iterInfo.iter == config.getMaxEMIterations()) {
@@ -322,14 +356,24 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
      */
     public EMAlgorithmStatus runExpectation() {
         config.validate();
+        final EMAlgorithmState resumedState = loadSnapshotIfRequested(EMAlgorithmRoutine.EXPECTATION);
         showIterationHeader();
 
         double prevEStepLikelihood;
         double latestEStepLikelihood = Double.NEGATIVE_INFINITY;
-        final EMAlgorithmIterationInfo iterInfo = new EMAlgorithmIterationInfo(Double.NEGATIVE_INFINITY, 0, 1);
+        final EMAlgorithmIterationInfo iterInfo;
         /* disable copy ratio posterior calculation until bias estimation is stabilized */
         boolean updateCopyRatioPosteriors = false;
 
+        if (resumedState == null) {
+            iterInfo = new EMAlgorithmIterationInfo(Double.NEGATIVE_INFINITY, 0, 1);
+        } else {
+            iterInfo = new EMAlgorithmIterationInfo(resumedState.logLikelihood, resumedState.errorNorm, resumedState.iter);
+            latestEStepLikelihood = resumedState.latestLikelihood;
+            updateCopyRatioPosteriors = resumedState.updateCopyRatioPosteriors;
+            status = resumedState.status;
+        }
+
         while (iterInfo.iter <= config.getMaxEMIterations()) {
 
             /* cycle through E-step mean-field equations until they are satisfied to the desired degree */
@@ -397,6 +441,12 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
                 /* the following will automatically create the directory if it doesn't exist */
                 savePosteriors(posteriorOutputAbsolutePath, CoverageModelEMWorkspace.PosteriorVerbosityLevel.BASIC);
             }
+
+            if (config.isEMSnapshotEnabled() && iterInfo.iter % config.getEMSnapshotInterval() == 0) {
+                saveSnapshot(new EMAlgorithmState(EMAlgorithmRoutine.EXPECTATION, iterInfo,
+                        Double.NEGATIVE_INFINITY, latestEStepLikelihood, config.getTargetSpecificVarianceUpdateMode(),
+                        updateCopyRatioPosteriors, false, false, false, status));
+            }
         }
 
         if (iterInfo.iter == config.getMaxEMIterations()) {
@@ -510,6 +560,158 @@ public final class CoverageModelEMAlgorithm<STATE extends AlleleMetadataProducer
         workspace.writePosteriors(posteriorOutputPath, verbosity);
     }
 
+    /**
+     * Saves a snapshot of the iteration state of the algorithm and the state of the workspace to the EM snapshot
+     * path. The snapshot is first written to a temporary file and then moved in place of the previous snapshot,
+     * so that the previous snapshot remains intact if the run is interrupted while writing.
+     *
+     * @param state the iteration state of the algorithm
+     */
+    private void saveSnapshot(@Nonnull final EMAlgorithmState state) {
+        final File snapshotPath = new File(config.getEMSnapshotPath());
+        if (!snapshotPath.exists() && !snapshotPath.mkdirs()) {
+            throw new UserException.CouldNotCreateOutputFile(snapshotPath, "Could not create the EM snapshot directory");
+        }
+        final File snapshotFile = new File(snapshotPath, CoverageModelGlobalConstants.EM_SNAPSHOT_FILE);
+        final File temporarySnapshotFile = new File(snapshotPath, CoverageModelGlobalConstants.EM_SNAPSHOT_FILE + ".tmp");
+        try (final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporarySnapshotFile)))) {
+            dos.writeInt(EM_SNAPSHOT_FORMAT_VERSION);
+            state.write(dos);
+            workspace.writeSnapshot(dos);
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(temporarySnapshotFile, "Could not write the EM snapshot", ex);
+        }
+        try {
+            Files.move(temporarySnapshotFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(snapshotFile, "Could not replace the EM snapshot", ex);
+        }
+        logger.info(String.format("EM snapshot saved (iteration %d)", state.iter));
+    }
+
+    /**
+     * If resuming from a snapshot is requested and a snapshot exists in the EM snapshot path, restores the workspace
+     * from the snapshot and returns the iteration state of the algorithm
+     *
+     * @param routine the routine that is about to run
+     * @return the iteration state of the algorithm, or {@code null} if the algorithm must start from scratch
+     */
+    @Nullable
+    private EMAlgorithmState loadSnapshotIfRequested(@Nonnull final EMAlgorithmRoutine routine) {
+        if (!config.isResumeFromEMSnapshotEnabled()) {
+            return null;
+        }
+        final File snapshotFile = new File(config.getEMSnapshotPath(), CoverageModelGlobalConstants.EM_SNAPSHOT_FILE);
+        if (!snapshotFile.isFile()) {
+            logger.warn("No EM snapshot was found in " + config.getEMSnapshotPath() + "; starting from scratch");
+            return null;
+        }
+        final EMAlgorithmState state;
+        try (final DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            final int version = dis.readInt();
+            if (version != EM_SNAPSHOT_FORMAT_VERSION) {
+                throw new UserException.BadInput(String.format("The EM snapshot format version (%d) is not supported" +
+                        " (expected %d)", version, EM_SNAPSHOT_FORMAT_VERSION));
+            }
+            state = EMAlgorithmState.read(dis);
+            if (!state.routine.equals(routine)) {
+                throw new UserException.BadInput(String.format("The EM snapshot was saved by the %s routine and can" +
+                        " not be resumed by the %s routine", state.routine.name(), routine.name()));
+            }
+            workspace.readSnapshot(dis);
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(snapshotFile, "Could not read the EM snapshot", ex);
+        }
+        logger.info(String.format("Resuming from the EM snapshot (iteration %d)", state.iter));
+        return state;
+    }
+
+    /**
+     * The routines of the EM algorithm that can be resumed from a snapshot
+     */
+    private enum EMAlgorithmRoutine {
+        EXPECTATION_MAXIMIZATION,
+        EXPECTATION
+    }
+
+    /**
+     * This class stores the iteration state of a routine of the EM algorithm, i.e. everything besides the
+     * workspace that is required to resume the routine at the beginning of an iteration
+     */
+    private static final class EMAlgorithmState {
+        private final EMAlgorithmRoutine routine;
+        private final int iter;
+        private final double logLikelihood;
+        private final double errorNorm;
+        private final double prevLikelihood;
+        private final double latestLikelihood;
+        private final CoverageModelArgumentCollection.TargetSpecificVarianceUpdateMode targetSpecificVarianceUpdateMode;
+        private final boolean updateCopyRatioPosteriors;
+        private final boolean updateARDCoefficients;
+        private final boolean paramEstimationConverged;
+        private final boolean performMStep;
+        private final EMAlgorithmStatus status;
+
+        EMAlgorithmState(@Nonnull final EMAlgorithmRoutine routine,
+                         final int iter, final double logLikelihood, final double errorNorm,
+                         final double prevLikelihood, final double latestLikelihood,
+                         @Nonnull final CoverageModelArgumentCollection.TargetSpecificVarianceUpdateMode targetSpecificVarianceUpdateMode,
+                         final boolean updateCopyRatioPosteriors, final boolean updateARDCoefficients,
+                         final boolean paramEstimationConverged, final boolean performMStep,
+                         @Nonnull final EMAlgorithmStatus status) {
+            this.routine = routine;
+            this.iter = iter;
+            this.logLikelihood = logLikelihood;
+            this.errorNorm = errorNorm;
+            this.prevLikelihood = prevLikelihood;
+            this.latestLikelihood = latestLikelihood;
+            this.targetSpecificVarianceUpdateMode = targetSpecificVarianceUpdateMode;
+            this.updateCopyRatioPosteriors = updateCopyRatioPosteriors;
+            this.updateARDCoefficients = updateARDCoefficients;
+            this.paramEstimationConverged = paramEstimationConverged;
+            this.performMStep = performMStep;
+            this.status = status;
+        }
+
+        EMAlgorithmState(@Nonnull final EMAlgorithmRoutine routine,
+                         @Nonnull final EMAlgorithmIterationInfo iterInfo,
+                         final double prevLikelihood, final double latestLikelihood,
+                         @Nonnull final CoverageModelArgumentCollection.TargetSpecificVarianceUpdateMode targetSpecificVarianceUpdateMode,
+                         final boolean updateCopyRatioPosteriors, final boolean updateARDCoefficients,
+                         final boolean paramEstimationConverged, final boolean performMStep,
+                         @Nonnull final EMAlgorithmStatus status) {
+            this(routine, iterInfo.getIterationCount(), iterInfo.getLogLikelihood(), iterInfo.getErrorNorm(),
+                    prevLikelihood, latestLikelihood, targetSpecificVarianceUpdateMode, updateCopyRatioPosteriors,
+                    updateARDCoefficients, paramEstimationConverged, performMStep, status);
+        }
+
+        void write(@Nonnull final DataOutputStream dos) throws IOException {
+            dos.writeUTF(routine.name());
+            dos.writeInt(iter);
+            dos.writeDouble(logLikelihood);
+            dos.writeDouble(errorNorm);
+            dos.writeDouble(prevLikelihood);
+            dos.writeDouble(latestLikelihood);
+            dos.writeUTF(targetSpecificVarianceUpdateMode.name());
+            dos.writeBoolean(updateCopyRatioPosteriors);
+            dos.writeBoolean(updateARDCoefficients);
+            dos.writeBoolean(paramEstimationConverged);
+            dos.writeBoolean(performMStep);
+            dos.writeUTF(status.name());
+        }
+
+        static EMAlgorithmState read(@Nonnull final DataInputStream dis) throws IOException {
+            return new EMAlgorithmState(
+                    EMAlgorithmRoutine.valueOf(dis.readUTF()),
+                    dis.readInt(), dis.readDouble(), dis.readDouble(), dis.readDouble(), dis.readDouble(),
+                    CoverageModelArgumentCollection.TargetSpecificVarianceUpdateMode.valueOf(dis.readUTF()),
+                    dis.readBoolean(), dis.readBoolean(), dis.readBoolean(), dis.readBoolean(),
+                    EMAlgorithmStatus.valueOf(dis.readUTF()));
+        }
+    }
+
     /**
      * This enum represents the status of the EM algorithm
      */
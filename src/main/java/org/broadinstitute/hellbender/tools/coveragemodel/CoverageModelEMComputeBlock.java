@@ -21,8 +21,10 @@ import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
@@ -100,6 +102,14 @@ public final class CoverageModelEMComputeBlock {
      */
     private final SubroutineSignal latestMStepSignal;
 
+    /**
+     * Data nodes that are not included in snapshots (see {@link #getSnapshotValues()})
+     */
+    private static final Set<String> SNAPSHOT_EXCLUDED_NODES = new HashSet<>(Arrays.asList(
+            CoverageModelICGCacheNode.n_st.name(),
+            CoverageModelICGCacheNode.M_st.name(),
+            CoverageModelICGCacheNode.err_st.name()));
+
     /**
      * Immutable computable graph cache nodes
      */
@@ -465,6 +475,45 @@ public final class CoverageModelEMComputeBlock {
 
     public SubroutineSignal getLatestMStepSignal() { return latestMStepSignal; }
 
+    int getNumSamples() { return numSamples; }
+
+    int getNumLatents() { return numLatents; }
+
+    boolean isARDEnabled() { return ardEnabled; }
+
+    /**
+     * Returns the up-to-date stored values of all nodes of the ICG (see {@link ImmutableComputableGraph#getStoredValues})
+     *
+     * @return a node key -> value map (values are returned by reference)
+     */
+    Map<String, Duplicable> getStoredValues() {
+        return icg.getStoredValues(node -> true);
+    }
+
+    /**
+     * Creates an instance of {@link CoverageModelEMComputeBlock} from values previously obtained from
+     * {@link #getStoredValues()} on a block with the same dimensions (used by {@link CoverageModelEMComputeBlockSerializer}).
+     * The cached values of computable nodes are restored as they are and are not re-evaluated.
+     *
+     * @param targetBlock target space block
+     * @param numSamples number of samples
+     * @param numLatents dimension of the bias latent space
+     * @param ardEnabled enable/disable ARD for bias covariates
+     * @param storedValues a node key -> value map
+     * @param latestMStepSignal the latest M-step signal
+     * @return a new instance of {@link CoverageModelEMComputeBlock}
+     */
+    static CoverageModelEMComputeBlock fromStoredValues(@Nonnull final LinearlySpacedIndexBlock targetBlock,
+                                                        final int numSamples, final int numLatents,
+                                                        final boolean ardEnabled,
+                                                        @Nonnull final Map<String, Duplicable> storedValues,
+                                                        @Nullable final SubroutineSignal latestMStepSignal) {
+        Utils.nonNull(storedValues, "The stored values must be non-null");
+        return new CoverageModelEMComputeBlock(targetBlock, numSamples, numLatents, ardEnabled,
+                createEmptyCacheGraph(numLatents > 0, ardEnabled).duplicateWithStoredValues(storedValues),
+                latestMStepSignal);
+    }
+
     /**
      * Fetch the value of a cache node and cast it to an INDArray
      *
@@ -1203,6 +1252,37 @@ public final class CoverageModelEMComputeBlock {
         return new CoverageModelEMComputeBlock(targetBlock, numSamples, numLatents, ardEnabled, icg, latestMStepSignal);
     }
 
+    /**
+     * Returns the values of the primitive and externally computable nodes of the ICG (i.e. the model parameters
+     * and posteriors stored in this block), from which the block can be restored by calling
+     * {@link #cloneWithRestoredSnapshotValues(Map)}. The data nodes are excluded since they are determined
+     * by the read counts.
+     *
+     * @return a node key -> value map
+     */
+    @QueriesICG
+    public Map<String, INDArray> getSnapshotValues() {
+        return icg.getStoredValues(CacheNode::isExternallyComputable).entrySet().stream()
+                .filter(entry -> !SNAPSHOT_EXCLUDED_NODES.contains(entry.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> DuplicableNDArray.of(entry.getValue())));
+    }
+
+    /**
+     * Creates a new instance of this compute block with the primitive and externally computable nodes set
+     * to the values obtained from {@link #getSnapshotValues()}. The automatically computable nodes will be
+     * evaluated on demand.
+     *
+     * @param snapshotValues a node key -> value map
+     * @return a new instance of {@link CoverageModelEMComputeBlock}
+     */
+    public CoverageModelEMComputeBlock cloneWithRestoredSnapshotValues(@Nonnull final Map<String, INDArray> snapshotValues) {
+        Utils.nonNull(snapshotValues, "The snapshot values must be non-null");
+        final Map<String, Duplicable> values = snapshotValues.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> new DuplicableNDArray(entry.getValue())));
+        return new CoverageModelEMComputeBlock(targetBlock, numSamples, numLatents, ardEnabled,
+                icg.setValues(values), SubroutineSignal.EMPTY_SIGNAL);
+    }
+
     /**
      * Creates a new instance of this compute block with updated caches associated to a cache tag
      *
@@ -0,0 +1,152 @@
+package org.broadinstitute.hellbender.tools.coveragemodel;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.tools.coveragemodel.CoverageModelEMComputeBlock.CoverageModelICGCacheNode;
+import org.broadinstitute.hellbender.tools.coveragemodel.cachemanager.Duplicable;
+import org.broadinstitute.hellbender.tools.coveragemodel.cachemanager.DuplicableNDArray;
+import org.broadinstitute.hellbender.tools.coveragemodel.cachemanager.DuplicableNumber;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Kryo serializer for {@link CoverageModelEMComputeBlock}.
+ *
+ * The structure of the ICG of a compute block is fully determined by its dimensions; therefore, only the
+ * dimensions and the up-to-date stored node values are written. Node keys are encoded by the ordinal of their
+ * {@link CoverageModelICGCacheNode} and the buffers of NDArray values are written raw (shape, ordering and
+ * the data as doubles). The cached values of computable nodes are written as well and are not re-evaluated
+ * after deserialization.
+ */
+final class CoverageModelEMComputeBlockSerializer extends Serializer<CoverageModelEMComputeBlock> {
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte NDARRAY_VALUE = 1;
+    private static final byte NUMBER_VALUE = 2;
+    private static final byte OTHER_VALUE = 3;
+
+    private static final CoverageModelICGCacheNode[] NODES = CoverageModelICGCacheNode.values();
+
+    private final JavaSerializer signalSerializer = new JavaSerializer();
+
+    @Override
+    public void write(final Kryo kryo, final Output output, final CoverageModelEMComputeBlock block) {
+        final LinearlySpacedIndexBlock targetBlock = block.getTargetSpaceBlock();
+        output.writeInt(targetBlock.getBegIndex(), true);
+        output.writeInt(targetBlock.getEndIndex(), true);
+        output.writeInt(targetBlock.hashCode());
+        output.writeInt(block.getNumSamples(), true);
+        output.writeInt(block.getNumLatents(), true);
+        output.writeBoolean(block.isARDEnabled());
+
+        final SubroutineSignal latestMStepSignal = block.getLatestMStepSignal();
+        output.writeBoolean(latestMStepSignal == SubroutineSignal.EMPTY_SIGNAL);
+        if (latestMStepSignal != SubroutineSignal.EMPTY_SIGNAL) {
+            kryo.writeObjectOrNull(output, latestMStepSignal, signalSerializer);
+        }
+
+        final Map<String, Duplicable> storedValues = block.getStoredValues();
+        output.writeInt(storedValues.size(), true);
+        for (final Map.Entry<String, Duplicable> entry : storedValues.entrySet()) {
+            output.writeInt(CoverageModelICGCacheNode.valueOf(entry.getKey()).ordinal(), true);
+            writeValue(kryo, output, entry.getValue());
+        }
+    }
+
+    @Override
+    public CoverageModelEMComputeBlock read(final Kryo kryo, final Input input,
+                                            final Class<CoverageModelEMComputeBlock> type) {
+        final int begIndex = input.readInt(true);
+        final int endIndex = input.readInt(true);
+        final LinearlySpacedIndexBlock targetBlock = new LinearlySpacedIndexBlock(begIndex, endIndex, input.readInt());
+        final int numSamples = input.readInt(true);
+        final int numLatents = input.readInt(true);
+        final boolean ardEnabled = input.readBoolean();
+
+        final SubroutineSignal latestMStepSignal = input.readBoolean()
+                ? SubroutineSignal.EMPTY_SIGNAL
+                : kryo.readObjectOrNull(input, SubroutineSignal.class, signalSerializer);
+
+        final int numStoredValues = input.readInt(true);
+        final Map<String, Duplicable> storedValues = new HashMap<>(numStoredValues);
+        for (int i = 0; i < numStoredValues; i++) {
+            final String nodeKey = NODES[input.readInt(true)].name();
+            storedValues.put(nodeKey, readValue(kryo, input));
+        }
+        return CoverageModelEMComputeBlock.fromStoredValues(targetBlock, numSamples, numLatents, ardEnabled,
+                storedValues, latestMStepSignal);
+    }
+
+    private static void writeValue(final Kryo kryo, final Output output, final Duplicable value) {
+        if (value instanceof DuplicableNDArray) {
+            final INDArray arr = ((DuplicableNDArray) value).value();
+            if (arr == null) {
+                output.writeByte(NULL_VALUE);
+            } else {
+                output.writeByte(NDARRAY_VALUE);
+                writeNDArray(output, arr);
+            }
+        } else if (value instanceof DuplicableNumber) {
+            output.writeByte(NUMBER_VALUE);
+            output.writeDouble(((DuplicableNumber<?>) value).value().doubleValue());
+        } else {
+            output.writeByte(OTHER_VALUE);
+            kryo.writeClassAndObject(output, value);
+        }
+    }
+
+    private static Duplicable readValue(final Kryo kryo, final Input input) {
+        final byte valueType = input.readByte();
+        switch (valueType) {
+            case NULL_VALUE:
+                return new DuplicableNDArray();
+            case NDARRAY_VALUE:
+                return new DuplicableNDArray(readNDArray(input));
+            case NUMBER_VALUE:
+                return new DuplicableNumber<>(input.readDouble());
+            case OTHER_VALUE:
+                return (Duplicable) kryo.readClassAndObject(input);
+            default:
+                throw new GATKException("Unknown compute block node value type: " + valueType);
+        }
+    }
+
+    /**
+     * Writes the shape, the ordering and the data buffer of an NDArray
+     */
+    private static void writeNDArray(final Output output, final INDArray arr) {
+        /* only views, which do not own a compact data buffer, are duplicated */
+        final int length = arr.length();
+        final INDArray compactArr = arr.isView() || arr.offset() != 0 || arr.data().length() != length ? arr.dup() : arr;
+        final int[] shape = compactArr.shape();
+        output.writeInt(shape.length, true);
+        for (final int dim : shape) {
+            output.writeInt(dim, true);
+        }
+        output.writeChar(compactArr.ordering());
+        /* the buffer is written element by element, as converting it into an array would copy it */
+        final DataBuffer data = compactArr.data();
+        for (int i = 0; i < length; i++) {
+            output.writeDouble(data.getDouble(i));
+        }
+    }
+
+    private static INDArray readNDArray(final Input input) {
+        final int[] shape = new int[input.readInt(true)];
+        int length = 1;
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = input.readInt(true);
+            length *= shape[i];
+        }
+        final char ordering = input.readChar();
+        return Nd4j.create(input.readDoubles(length), shape, ordering);
+    }
+}
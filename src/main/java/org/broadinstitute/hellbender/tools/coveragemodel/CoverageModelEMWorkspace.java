@@ -55,9 +55,13 @@ import scala.Tuple2;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -186,9 +190,15 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
     /* END --- Spark-related members */
 
     /**
-     * An instance of {@link CoverageModelEMComputeBlock} for the local mode
+     * Compute blocks for the local mode, in the same order as {@link #targetBlocks}
      */
-    private CoverageModelEMComputeBlock localComputeBlock;
+    private List<CoverageModelEMComputeBlock> localComputeBlocks;
+
+    /**
+     * The thread pool that processes {@link #localComputeBlocks} concurrently (null in the Spark mode, or if
+     * a single local thread is requested)
+     */
+    private final ForkJoinPool localComputeBlocksPool;
 
     /**
      * Number of target-space blocks
@@ -362,13 +372,13 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
                 rawReadCounts.targets().size(), numTargets));
 
         this.ctx = ctx;
-        if (ctx == null) {
-            sparkContextIsAvailable = false;
-            this.numTargetBlocks = 1;
+        sparkContextIsAvailable = ctx != null;
+        this.numTargetBlocks = ParamUtils.inRange(config.getNumTargetSpacePartitions(), 1, numTargets,
+                "Number of target blocks must be between 1 and the size of target space.");
+        if (!sparkContextIsAvailable && numTargetBlocks > 1 && config.getNumLocalThreads() > 1) {
+            localComputeBlocksPool = new ForkJoinPool(FastMath.min(config.getNumLocalThreads(), numTargetBlocks));
         } else {
-            sparkContextIsAvailable = true;
-            this.numTargetBlocks = ParamUtils.inRange(config.getNumTargetSpacePartitions(), 1, numTargets,
-                    "Number of target blocks must be between 1 and the size of target space.");
+            localComputeBlocksPool = null;
         }
 
         /* allocate memory and initialize driver-node copy of posteriors */
@@ -2054,8 +2064,8 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
     }
 
     /**
-     * Instantiate compute block(s). If Spark is disabled, a single {@link CoverageModelEMComputeBlock} is
-     * instantiated. Otherwise, a {@link JavaPairRDD} of compute nodes will be created.
+     * Instantiate compute block(s). If Spark is disabled, a list of {@link CoverageModelEMComputeBlock}, one for
+     * each target-space block, is instantiated. Otherwise, a {@link JavaPairRDD} of compute nodes will be created.
      */
     private void instantiateWorkers() {
         if (sparkContextIsAvailable) {
@@ -2067,8 +2077,11 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
                     .partitionBy(new HashPartitioner(numTargetBlocks))
                     .cache();
         } else {
-            logger.info("Initializing a local compute block");
-            localComputeBlock = new CoverageModelEMComputeBlock(targetBlocks.get(0), numSamples, numLatents, ardEnabled);
+            logger.info(String.format("Initializing %d local compute block(s) processed by %d thread(s)", numTargetBlocks,
+                    localComputeBlocksPool == null ? 1 : localComputeBlocksPool.getParallelism()));
+            localComputeBlocks = targetBlockStream()
+                    .map(tb -> new CoverageModelEMComputeBlock(tb, numSamples, numLatents, ardEnabled))
+                    .collect(Collectors.toList());
         }
         prevCheckpointedComputeRDD = null;
         cacheCallCounter = 0;
@@ -2084,9 +2097,9 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      *
      * If Spark is disabled:
      *
-     *      Only a single target-space block is assumed, such that {@code data} is a singleton. The map function
-     *      {@code mapper} will be called on the value contained in {@code data} and {@link #localComputeBlock}, and
-     *      the old instance of {@link CoverageModelEMComputeBlock} is replaced with the new instance returned
+     *      {@code data} must contain exactly one value for each target-space block. The map function {@code mapper}
+     *      will be called on each value and the corresponding element of {@link #localComputeBlocks}, and the old
+     *      instances of {@link CoverageModelEMComputeBlock} are replaced with the new instances returned
      *      by {@code mapper.}
      *
      * @param data the list to joined and mapped together with the compute block(s)
@@ -2102,12 +2115,11 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
                     ctx.parallelizePairs(data, numTargetBlocks).partitionBy(new HashPartitioner(numTargetBlocks));
             computeRDD = computeRDD.join(newRDD).mapValues(mapper);
         } else {
-            try {
-                Utils.validateArg(data.size() == 1, "Only a single data block is expected in the local mode");
-                localComputeBlock = mapper.call(new Tuple2<>(localComputeBlock, data.get(0)._2));
-            } catch (Exception e) {
-                throw new RuntimeException("Can not apply the map function to the local compute block: " + e.getMessage());
-            }
+            final Map<LinearlySpacedIndexBlock, V> dataMap = data.stream()
+                    .collect(Collectors.toMap(p -> p._1, p -> p._2));
+            Utils.validateArg(data.size() == numTargetBlocks && dataMap.keySet().containsAll(targetBlocks),
+                    "Exactly one data block is expected for each target-space block in the local mode");
+            localComputeBlocks = mapLocalComputeBlocks(cb -> mapper.call(new Tuple2<>(cb, dataMap.get(cb.getTargetSpaceBlock()))));
         }
     }
 
@@ -2121,8 +2133,8 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      *
      * If Spark is disabled:
      *
-     *      Only a single target-space block is assumed; the map is applied to {@link #localComputeBlock} and the
-     *      reference is updated accordingly
+     *      The map is applied to each element of {@link #localComputeBlocks} and the references are updated
+     *      accordingly
      *
      * @param mapper a map from {@link CoverageModelEMComputeBlock} onto itself
      */
@@ -2131,11 +2143,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
         if (sparkContextIsAvailable) {
             computeRDD = computeRDD.mapValues(mapper);
         } else {
-            try {
-                localComputeBlock = mapper.call(localComputeBlock);
-            } catch (final Exception ex) {
-                throw new RuntimeException("Can not apply the map function to the local compute block", ex);
-            }
+            localComputeBlocks = mapLocalComputeBlocks(mapper);
         }
     }
 
@@ -2148,7 +2156,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      *
      * If Spark is disabled:
      *
-     *      The list will be singleton
+     *      The size of the list is the same as the number of local compute blocks
      *
      * @param mapper a map function from {@link CoverageModelEMComputeBlock} to a generic type
      * @param <V> the return type of the map function
@@ -2159,11 +2167,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
         if (sparkContextIsAvailable) {
             return computeRDD.values().map(mapper).collect();
         } else {
-            try {
-                return Collections.singletonList(mapper.call(localComputeBlock));
-            } catch (final Exception ex) {
-                throw new RuntimeException("Can not apply the map function to the local compute block", ex);
-            }
+            return mapLocalComputeBlocks(mapper);
         }
     }
 
@@ -2176,7 +2180,8 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      *
      * If Spark is disabled:
      *
-     *      Call on the map and reduce on {@link #localComputeBlock}
+     *      Map each element of {@link #localComputeBlocks} by {@code mapper} and reduce the results in order
+     *      by {@code reducer}
      *
      * @param mapper a map from {@link CoverageModelEMComputeBlock} to a generic type
      * @param reducer a generic symmetric reducer binary function from (V, V) -> V
@@ -2189,12 +2194,16 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
         if (sparkContextIsAvailable) {
             return computeRDD.values().map(mapper).reduce(reducer);
         } else {
+            final List<V> mapped = mapLocalComputeBlocks(mapper);
             try {
-                return mapper.call(localComputeBlock);
+                V result = mapped.get(0);
+                for (int i = 1; i < mapped.size(); i++) {
+                    result = reducer.call(result, mapped.get(i));
+                }
+                return result;
             } catch (final Exception ex) {
-                throw new RuntimeException("Can not apply the map function to the local compute block", ex);
+                throw new RuntimeException("Can not apply the reduce function to the local compute blocks", ex);
             }
-
         }
     }
 
@@ -2208,7 +2217,8 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      *
      * If Spark is disabled:
      *
-     *      The {@param pusher} function will be called together with {@param obj} and {@link #localComputeBlock}
+     *      The {@param pusher} function will be called together with {@param obj} and each element of
+     *      {@link #localComputeBlocks}
      *
      * @param obj te object to broadcast
      * @param pusher a map from (V, {@link CoverageModelEMComputeBlock}) -> {@link CoverageModelEMComputeBlock} that
@@ -2224,11 +2234,38 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
                     cb -> pusher.call(broadcastedObj.value(), cb);
             mapWorkers(mapper);
         } else {
+            localComputeBlocks = mapLocalComputeBlocks(cb -> pusher.call(obj, cb));
+        }
+    }
+
+    /**
+     * Applies a map function to each element of {@link #localComputeBlocks}, concurrently on
+     * {@link #localComputeBlocksPool} if available
+     *
+     * @param mapper a map function from {@link CoverageModelEMComputeBlock} to a generic type
+     * @param <V> the return type of the map function
+     * @return the mapped values, in the same order as {@link #localComputeBlocks}
+     */
+    private <V> List<V> mapLocalComputeBlocks(@Nonnull final Function<CoverageModelEMComputeBlock, V> mapper) {
+        final java.util.function.Function<CoverageModelEMComputeBlock, V> uncheckedMapper = cb -> {
             try {
-                localComputeBlock = pusher.call(obj, localComputeBlock);
+                return mapper.call(cb);
             } catch (final Exception ex) {
                 throw new RuntimeException("Can not apply the map function to the local compute block", ex);
             }
+        };
+        if (localComputeBlocksPool == null) {
+            return localComputeBlocks.stream().map(uncheckedMapper).collect(Collectors.toList());
+        }
+        try {
+            return localComputeBlocksPool.submit(() -> localComputeBlocks.parallelStream()
+                    .map(uncheckedMapper)
+                    .collect(Collectors.toList())).get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while processing the local compute blocks", ex);
+        } catch (final ExecutionException ex) {
+            throw new RuntimeException("Can not apply the map function to the local compute blocks", ex.getCause());
         }
     }
 
@@ -2265,7 +2302,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      * Fetches the blocks of a target-distributed {@link INDArray} of shape ({@link #numTargets}, ...)
      * and assembles them together by concatenating along {@param axis} (if spark is enabled)
      *
-     * If Spark is disabled, it just fetches the {@link INDArray} from {@link #localComputeBlock}.
+     * If Spark is disabled, the blocks are fetched from {@link #localComputeBlocks} instead.
      *
      * @param key key of the array
      * @param axis axis to stack along
@@ -2275,8 +2312,11 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
     private INDArray fetchFromWorkers(final CoverageModelEMComputeBlock.CoverageModelICGCacheNode key, final int axis) {
         if (sparkContextIsAvailable) {
             return CoverageModelSparkUtils.assembleINDArrayBlocksFromRDD(computeRDD.mapValues(cb -> cb.getINDArrayFromCache(key)), axis);
+        } else if (numTargetBlocks == 1) {
+            return localComputeBlocks.get(0).getINDArrayFromCache(key);
         } else {
-            return localComputeBlock.getINDArrayFromCache(key);
+            return CoverageModelSparkUtils.assembleINDArrayBlocksFromCollection(mapLocalComputeBlocks(cb ->
+                    ImmutablePair.of(cb.getTargetSpaceBlock(), cb.getINDArrayFromCache(key))), axis);
         }
     }
 
@@ -2287,7 +2327,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      * @return list of key-value blocks
      */
     private List<Tuple2<LinearlySpacedIndexBlock, INDArray>> chopINDArrayToBlocks(final INDArray arr) {
-        if (sparkContextIsAvailable) {
+        if (numTargetBlocks > 1) {
             return CoverageModelSparkUtils.partitionINDArrayToList(targetBlocks, arr);
         } else {
             return Collections.singletonList(new Tuple2<>(targetBlocks.get(0), arr));
@@ -2301,7 +2341,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      * @return list of key-value blocks
      */
     private Map<LinearlySpacedIndexBlock, INDArray> mapINDArrayToBlocks(final INDArray arr) {
-        if (sparkContextIsAvailable) {
+        if (numTargetBlocks > 1) {
             return CoverageModelSparkUtils.partitionINDArrayToMap(targetBlocks, arr);
         } else {
             return Collections.singletonMap(targetBlocks.get(0), arr);
@@ -2317,7 +2357,7 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
      */
     private Map<LinearlySpacedIndexBlock, ImmutablePair<INDArray, INDArray>> mapINDArrayPairToBlocks(final INDArray arr1,
                                                                                                      final INDArray arr2) {
-        if (sparkContextIsAvailable) {
+        if (numTargetBlocks > 1) {
             final Map<LinearlySpacedIndexBlock, INDArray> map1 =
                     CoverageModelSparkUtils.partitionINDArrayToMap(targetBlocks, arr1);
             final Map<LinearlySpacedIndexBlock, INDArray> map2 =
@@ -2463,6 +2503,128 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
         return res.transpose();
     }
 
+    /**
+     * Writes a binary snapshot of the state of the workspace, i.e. the driver-node copy of posteriors and
+     * model parameters, and the posteriors and model parameters stored in the compute block(s).
+     *
+     * The snapshot can be restored by calling {@link #readSnapshot(DataInputStream)} on a workspace that is
+     * instantiated with the same read counts and arguments, in either local or Spark mode.
+     *
+     * @param dos the output stream
+     * @throws IOException if the snapshot can not be written
+     */
+    @EvaluatesRDD
+    public void writeSnapshot(@Nonnull final DataOutputStream dos) throws IOException {
+        Utils.nonNull(dos, "The output stream must be non-null");
+        dos.writeInt(numSamples);
+        dos.writeInt(numTargets);
+        dos.writeInt(numLatents);
+        dos.writeInt(numTargetBlocks);
+
+        /* driver-node copy of posteriors and model parameters */
+        for (final INDArray arr : getDriverNodeSnapshotArrays()) {
+            Nd4jIOUtils.writeNDArrayToStream(arr, dos);
+        }
+        dos.writeInt(logLikelihoodHistory.size());
+        for (final double logLikelihood : logLikelihoodHistory) {
+            dos.writeDouble(logLikelihood);
+        }
+        if (ardEnabled) {
+            dos.writeInt(biasCovariatesARDCoefficientsHistory.size());
+            for (final INDArray arr : biasCovariatesARDCoefficientsHistory) {
+                Nd4jIOUtils.writeNDArrayToStream(arr, dos);
+            }
+        }
+
+        /* compute blocks, in the order of target-space blocks */
+        final Map<LinearlySpacedIndexBlock, Map<String, INDArray>> computeBlockSnapshotValues;
+        if (sparkContextIsAvailable) {
+            computeBlockSnapshotValues = computeRDD.mapValues(CoverageModelEMComputeBlock::getSnapshotValues).collectAsMap();
+        } else {
+            computeBlockSnapshotValues = mapLocalComputeBlocks(cb -> ImmutablePair.of(cb.getTargetSpaceBlock(), cb.getSnapshotValues()))
+                    .stream().collect(Collectors.toMap(p -> p.left, p -> p.right));
+        }
+        for (final LinearlySpacedIndexBlock tb : targetBlocks) {
+            final Map<String, INDArray> snapshotValues = computeBlockSnapshotValues.get(tb);
+            dos.writeInt(snapshotValues.size());
+            for (final Map.Entry<String, INDArray> entry : snapshotValues.entrySet()) {
+                dos.writeUTF(entry.getKey());
+                Nd4jIOUtils.writeNDArrayToStream(entry.getValue(), dos);
+            }
+        }
+    }
+
+    /**
+     * Restores the state of the workspace from a binary snapshot written by {@link #writeSnapshot(DataOutputStream)}
+     *
+     * @param dis the input stream
+     * @throws IOException if the snapshot can not be read
+     * @throws UserException.BadInput if the snapshot was written by a workspace of different dimensions
+     */
+    @UpdatesRDD @CachesRDD
+    public void readSnapshot(@Nonnull final DataInputStream dis) throws IOException {
+        Utils.nonNull(dis, "The input stream must be non-null");
+        final int snapshotNumSamples = dis.readInt();
+        final int snapshotNumTargets = dis.readInt();
+        final int snapshotNumLatents = dis.readInt();
+        final int snapshotNumTargetBlocks = dis.readInt();
+        if (snapshotNumSamples != numSamples || snapshotNumTargets != numTargets || snapshotNumLatents != numLatents ||
+                snapshotNumTargetBlocks != numTargetBlocks) {
+            throw new UserException.BadInput(String.format("The EM snapshot (samples: %d, targets: %d, latents: %d," +
+                    " target-space blocks: %d) is not compatible with the workspace (samples: %d, targets: %d," +
+                    " latents: %d, target-space blocks: %d)", snapshotNumSamples, snapshotNumTargets, snapshotNumLatents,
+                    snapshotNumTargetBlocks, numSamples, numTargets, numLatents, numTargetBlocks));
+        }
+
+        /* driver-node copy of posteriors and model parameters */
+        for (final INDArray arr : getDriverNodeSnapshotArrays()) {
+            arr.assign(Nd4jIOUtils.readNDArrayFromStream(dis));
+        }
+        logLikelihoodHistory.clear();
+        final int logLikelihoodHistorySize = dis.readInt();
+        for (int i = 0; i < logLikelihoodHistorySize; i++) {
+            logLikelihoodHistory.add(dis.readDouble());
+        }
+        if (ardEnabled) {
+            biasCovariatesARDCoefficientsHistory.clear();
+            final int biasCovariatesARDCoefficientsHistorySize = dis.readInt();
+            for (int i = 0; i < biasCovariatesARDCoefficientsHistorySize; i++) {
+                biasCovariatesARDCoefficientsHistory.add(Nd4jIOUtils.readNDArrayFromStream(dis));
+            }
+        }
+
+        /* compute blocks, in the order of target-space blocks */
+        final List<Tuple2<LinearlySpacedIndexBlock, Map<String, INDArray>>> computeBlockSnapshotValues = new ArrayList<>();
+        for (final LinearlySpacedIndexBlock tb : targetBlocks) {
+            final int numValues = dis.readInt();
+            final Map<String, INDArray> snapshotValues = new HashMap<>();
+            for (int i = 0; i < numValues; i++) {
+                snapshotValues.put(dis.readUTF(), Nd4jIOUtils.readNDArrayFromStream(dis));
+            }
+            computeBlockSnapshotValues.add(new Tuple2<>(tb, snapshotValues));
+        }
+        joinWithWorkersAndMap(computeBlockSnapshotValues, p -> p._1.cloneWithRestoredSnapshotValues(p._2));
+        cacheWorkers("after restoring a snapshot");
+    }
+
+    /**
+     * Returns the driver-node arrays that are included in snapshots, in a fixed order
+     *
+     * @return a list of {@link INDArray}
+     */
+    private List<INDArray> getDriverNodeSnapshotArrays() {
+        final List<INDArray> arrays = new ArrayList<>(Arrays.asList(sampleMeanLogReadDepths, sampleVarLogReadDepths,
+                sampleUnexplainedVariance, sampleLogChainPosteriors));
+        if (biasCovariatesEnabled) {
+            arrays.add(sampleBiasLatentPosteriorFirstMoments);
+            arrays.add(sampleBiasLatentPosteriorSecondMoments);
+        }
+        if (ardEnabled) {
+            arrays.add(biasCovariatesARDCoefficients);
+        }
+        return arrays;
+    }
+
     /**
      * Saves the model to disk
      *
@@ -2504,6 +2666,16 @@ public final class CoverageModelEMWorkspace<STATE extends AlleleMetadataProducer
         }
     }
 
+    /**
+     * Shuts down the thread pool of the local compute blocks, if any. The workspace can not process the compute
+     * blocks afterwards, so this must be called once the posteriors and the model have been written.
+     */
+    public void shutdown() {
+        if (localComputeBlocksPool != null) {
+            localComputeBlocksPool.shutdown();
+        }
+    }
+
     /**
      * Create output path if non-existent
      *
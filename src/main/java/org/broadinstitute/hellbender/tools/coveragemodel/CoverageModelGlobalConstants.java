@@ -168,4 +168,9 @@ public final class CoverageModelGlobalConstants implements Serializable {
      * Prefix for model checkpointing output directories
      */
     public static final String MODEL_CHECKPOINT_PATH_PREFIX = "model_checkpoint";
+
+    /**
+     * File name of the EM algorithm snapshot (in the EM snapshot path)
+     */
+    public static final String EM_SNAPSHOT_FILE = "em_snapshot.bin";
 }
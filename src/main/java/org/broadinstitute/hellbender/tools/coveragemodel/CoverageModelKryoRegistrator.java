@@ -0,0 +1,15 @@
+package org.broadinstitute.hellbender.tools.coveragemodel;
+
+import com.esotericsoftware.kryo.Kryo;
+import org.apache.spark.serializer.KryoRegistrator;
+
+/**
+ * A Kryo registrator for the custom serializers of the coverage model classes that are shipped between
+ * the driver and the workers in every EM iteration
+ */
+public class CoverageModelKryoRegistrator implements KryoRegistrator {
+    @Override
+    public void registerClasses(Kryo kryo) {
+        kryo.register(CoverageModelEMComputeBlock.class, new CoverageModelEMComputeBlockSerializer());
+    }
+}
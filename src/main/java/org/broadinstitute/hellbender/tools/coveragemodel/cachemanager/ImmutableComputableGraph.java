@@ -8,6 +8,7 @@ import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -261,6 +262,77 @@ public final class ImmutableComputableGraph implements Serializable {
         return duplicateWithUpdatedNodes(ImmutableMap.of(nodeKey, oldNode.duplicateWithUpdatedValue(null)));
     }
 
+    /**
+     * Returns the values of the nodes that hold an up-to-date stored value, i.e. the initialized primitive nodes
+     * and the computable nodes with current caches, among those accepted by a filter. For example, the values of
+     * the primitive and externally computable nodes (filter {@link CacheNode#isExternallyComputable()}) determine,
+     * together with the structure of the graph, the values of all other nodes; with all nodes accepted, the graph
+     * can be restored without re-evaluating any cache (see {@link #duplicateWithStoredValues(Map)}).
+     *
+     * @param nodeFilter the nodes to consider
+     * @return a key -> value map (values are returned by reference)
+     */
+    public Map<String, Duplicable> getStoredValues(@Nonnull final Predicate<CacheNode> nodeFilter) {
+        Utils.nonNull(nodeFilter, "The node filter must be non-null");
+        final Map<String, Duplicable> values = new HashMap<>();
+        for (final String nodeKey : cgs.getNodeKeysSet()) {
+            final CacheNode node = nodesMap.get(nodeKey);
+            final boolean isAvailable = node.isPrimitive()
+                    ? node.isStoredValueAvailable()
+                    : ((ComputableCacheNode)node).isStoredValueAvailableAndCurrent();
+            if (isAvailable && nodeFilter.test(node)) {
+                values.put(nodeKey, node.get(EMPTY_MAP));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Sets the values of several primitive and externally computable nodes, e.g. those previously obtained
+     * from {@link #getStoredValues(Predicate)}. The nodes are set in topological order so that an
+     * externally computable node does not go out of date by the subsequent mutation of its parents.
+     *
+     * @param values a key -> value map (note: the values will not be duplicated)
+     * @return a new instance of {@link ImmutableComputableGraph}
+     * @throws IllegalArgumentException if a node does not exist
+     * @throws UnsupportedOperationException if a node is not externally computable
+     */
+    public ImmutableComputableGraph setValues(@Nonnull final Map<String, Duplicable> values)
+            throws IllegalArgumentException, UnsupportedOperationException {
+        Utils.nonNull(values, "The values map must be non-null");
+        values.keySet().forEach(this::assertNodeExists);
+        ImmutableComputableGraph out = this;
+        for (final String nodeKey : cgs.getTopologicalOrderForCompleteEvaluation()) {
+            if (values.containsKey(nodeKey)) {
+                out = out.setValue(nodeKey, values.get(nodeKey));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Make a new instance of {@link ImmutableComputableGraph} in which the given nodes hold the given values as
+     * up-to-date stored values, e.g. the values obtained from {@link #getStoredValues(Predicate)} on a graph of the same
+     * structure.
+     *
+     * Note: contrary to {@link #setValues(Map)}, the descendants of the given nodes are not marked as out of date
+     * and no caches are updated. It is the responsibility of the user to supply mutually consistent values.
+     *
+     * @param values a key -> value map (note: the values will not be duplicated)
+     * @return a new instance of {@link ImmutableComputableGraph}
+     * @throws IllegalArgumentException if a node does not exist
+     */
+    public ImmutableComputableGraph duplicateWithStoredValues(@Nonnull final Map<String, Duplicable> values)
+            throws IllegalArgumentException {
+        Utils.nonNull(values, "The values map must be non-null");
+        final Map<String, CacheNode> updatedNodesMap = new HashMap<>();
+        for (final Map.Entry<String, Duplicable> entry : values.entrySet()) {
+            assertNodeExists(entry.getKey());
+            updatedNodesMap.put(entry.getKey(), nodesMap.get(entry.getKey()).duplicateWithUpdatedValue(entry.getValue()));
+        }
+        return duplicateWithUpdatedNodes(updatedNodesMap);
+    }
+
     /**
      * Make a key -> node map containing new instances of the nodes that go out of date as a result of
      * updating node {@code key}
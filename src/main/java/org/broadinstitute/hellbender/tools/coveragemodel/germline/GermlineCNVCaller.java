@@ -62,10 +62,16 @@ import java.util.Map;
  *
  * <p>The tool automatically uses Spark clusters if available. Otherwise, it will run in the single-machine
  * (local) mode. If running the tool on a single machine, be sure to disable Spark
- * altogether (--disableSpark true) since a local Spark context will only add unnecessary overhead.</p>
+ * altogether (--disableSpark true) since a local Spark context will only add unnecessary overhead. To use
+ * several cores in the local mode, split the target space into several partitions (--numTargetSpacePartitions)
+ * and set the number of threads that process them concurrently (--numLocalThreads).</p>
  *
  * <p>To make an effective PoN with at least 50 samples will require use of a Spark cluster.</p>
  *
+ * <p>Long runs can save a snapshot of the state of the EM algorithm every few iterations (--emSnapshot true
+ * --emSnapshotInterval N --emSnapshotPath DIR). If a run is interrupted, rerunning the same command with
+ * --resumeFromEMSnapshot true continues the EM algorithm from the latest snapshot, in either Spark or local mode.</p>
+ *
  * <h3>Examples</h3>
  *
  * <p>To make CNV calls and simultaneously create a Panel of Normals (PoN), use --jobType LEARN_AND_CALL:</p>
@@ -231,7 +237,8 @@ public final class GermlineCNVCaller extends SparkToggleCommandLineProgram {
     /* custom serializers */
     private static final Map<String, String> coverageModellerExtraSparkProperties = ImmutableMap.of(
             "spark.kryo.registrator",
-            "org.nd4j.Nd4jRegistrator,org.broadinstitute.hellbender.utils.spark.UnmodifiableCollectionsRegistrator");
+            "org.nd4j.Nd4jRegistrator,org.broadinstitute.hellbender.utils.spark.UnmodifiableCollectionsRegistrator," +
+            "org.broadinstitute.hellbender.tools.coveragemodel.CoverageModelKryoRegistrator");
 
     /**
      * Override doWork to inject custom Nd4j serializer and set a temporary checkpointing path
@@ -319,25 +326,29 @@ public final class GermlineCNVCaller extends SparkToggleCommandLineProgram {
         final CoverageModelEMAlgorithm<IntegerCopyNumberState> algo = new CoverageModelEMAlgorithm<>(params,
                 workspace);
 
-        switch (jobType) {
-            case LEARN_AND_CALL:
-                algo.runExpectationMaximization();
-                logger.info("Saving the model to disk...");
-                workspace.writeModel(new File(outputPath, FINAL_MODEL_SUBDIR).getAbsolutePath());
-                break;
-
-            case CALL_ONLY:
-                algo.runExpectation();
-                break;
+        try {
+            switch (jobType) {
+                case LEARN_AND_CALL:
+                    algo.runExpectationMaximization();
+                    logger.info("Saving the model to disk...");
+                    workspace.writeModel(new File(outputPath, FINAL_MODEL_SUBDIR).getAbsolutePath());
+                    break;
+
+                case CALL_ONLY:
+                    algo.runExpectation();
+                    break;
+
+                default:
+                    throw new UnsupportedOperationException(String.format("\"%s\" is not recognized as a supported job type",
+                            jobType.name()));
+            }
 
-            default:
-                throw new UnsupportedOperationException(String.format("\"%s\" is not recognized as a supported job type",
-                        jobType.name()));
+            logger.info("Saving posteriors to disk...");
+            workspace.writePosteriors(new File(outputPath, FINAL_POSTERIORS_SUBDIR).getAbsolutePath(),
+                    CoverageModelEMWorkspace.PosteriorVerbosityLevel.EXTENDED);
+        } finally {
+            workspace.shutdown();
         }
-
-        logger.info("Saving posteriors to disk...");
-        workspace.writePosteriors(new File(outputPath, FINAL_POSTERIORS_SUBDIR).getAbsolutePath(),
-                CoverageModelEMWorkspace.PosteriorVerbosityLevel.EXTENDED);
     }
 
     private CoverageModelParameters getCoverageModelParameters() {
@@ -389,6 +400,15 @@ public final class GermlineCNVCaller extends SparkToggleCommandLineProgram {
     }
 
     private ReadCountCollection loadReadCountCollection(@Nullable final TargetCollection<Target> targetsCollections) {
+        final File readCountsFile = new File(readCountsURI);
+        if (readCountsFile.isFile()) {
+            /* local files may be in the binary read count format, which cannot be detected from a reader */
+            try {
+                return ReadCountCollectionUtils.parse(readCountsFile, targetsCollections, targetsCollections != null);
+            } catch (final IOException ex) {
+                throw new UserException.CouldNotReadInputFile("Could not parse the read counts table", ex);
+            }
+        }
         ReadCountCollection readCounts;
         try (final Reader readCountsReader = getReaderFromURI(readCountsURI)) {
             if (targetsCollections == null) {
@@ -53,6 +53,30 @@ public final class Nd4jIOUtils {
         }
     }
 
+    /**
+     * Writes NDArray to a binary stream in the same format as {@link #writeNDArrayToBinaryDumpFile}.
+     *
+     * @param arr an instance of {@link INDArray}
+     * @param dos the output stream
+     * @throws IOException if the array can not be written
+     */
+    public static void writeNDArrayToStream(@Nonnull final INDArray arr,
+                                            @Nonnull final DataOutputStream dos) throws IOException {
+        /* views share the data buffer of their parent array; a duplicate only holds its own elements */
+        Nd4j.write(arr.dup(), dos);
+    }
+
+    /**
+     * Reads NDArray from a binary stream written by {@link #writeNDArrayToStream}.
+     *
+     * @param dis the input stream
+     * @return an {@link INDArray}
+     * @throws IOException if the array can not be read
+     */
+    public static INDArray readNDArrayFromStream(@Nonnull final DataInputStream dis) throws IOException {
+        return Nd4j.read(dis);
+    }
+
     /**
      * Writes NDArray to a tab-separated file. The shape of {@code arr} is written as a comment line. If
      * {@code arr} is a reshaped tensor (originally rank-3 and above), the user must pass the original shape
@@ -27,9 +27,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Calculates read-counts across targets for the exome copy number variant (CNV) calling workflow.
@@ -108,6 +111,13 @@ public final class CalculateTargetCoverage extends ReadWalker {
     protected static final String TARGET_FILE_SHORT_NAME = "T";
     protected static final String TARGET_OUT_INFO_FULL_NAME = "targetInformationColumns";
     protected static final String TARGET_OUT_INFO_SHORT_NAME = "targetInfo";
+    protected static final String NUMBER_OF_THREADS_FULL_NAME = "numThreads";
+    protected static final String NUMBER_OF_THREADS_SHORT_NAME = "NT";
+
+    /**
+     * Number of reads counted as a unit by a counting thread when {@link #numThreads} is greater than 1.
+     */
+    private static final int READ_BATCH_SIZE = 10_000;
 
     private static final String PCOV_OUTPUT_DOUBLE_FORMAT = "%.4g";
 
@@ -171,6 +181,15 @@ public final class CalculateTargetCoverage extends ReadWalker {
     )
     protected TargetOutInfo targetOutInfo = TargetOutInfo.COORDS;
 
+    @Argument(
+            doc = "Number of threads used to count the reads that overlap each target. Reads are still decoded and " +
+                    "filtered by a single thread, so this mostly helps with large target collections or many count columns.",
+            shortName = NUMBER_OF_THREADS_SHORT_NAME,
+            fullName = NUMBER_OF_THREADS_FULL_NAME,
+            optional = true
+    )
+    protected int numThreads = 1;
+
     /**
      * Writer to the main output file indicated by {@link #output}.
      */
@@ -211,6 +230,11 @@ public final class CalculateTargetCoverage extends ReadWalker {
      */
     private int[][] counts;
 
+    /**
+     * Counts reads on several threads when {@link #numThreads} is greater than 1, {@code null} otherwise.
+     */
+    private ConcurrentReadCounter concurrentReadCounter;
+
     @Override
     public List<ReadFilter> getDefaultReadFilters() {
         final List<ReadFilter> filters = new ArrayList<>(super.getDefaultReadFilters());
@@ -233,7 +257,12 @@ public final class CalculateTargetCoverage extends ReadWalker {
         // Initializing count and count column management member fields:
         countColumns = groupBy.countColumns(this);
         final int columnCount = countColumns.columnCount();
-        counts = new int[columnCount][targetCollection.targetCount()];
+        ParamUtils.isPositive(numThreads, "the number of threads must be positive");
+        if (numThreads > 1) {
+            concurrentReadCounter = new ConcurrentReadCounter(targetCollection, columnCount, numThreads);
+        } else {
+            counts = new int[columnCount][targetCollection.targetCount()];
+        }
 
         // Open output files and write headers:
         outputWriter = openOutputWriter(output, composeMatrixOutputHeader(getCommandLine(), targetOutInfo, groupBy, countColumns.columnNames()));
@@ -326,20 +355,32 @@ public final class CalculateTargetCoverage extends ReadWalker {
 
         final int columnIndex = countColumns.columnIndex(read);
         if (columnIndex >= 0) { // < 0 would means that the read is to be ignored.
-            targetCollection.indexRange(readLocation).forEach(i -> counts[columnIndex][i]++);
+            if (concurrentReadCounter != null) {
+                concurrentReadCounter.add(readLocation, columnIndex);
+            } else {
+                targetCollection.indexRange(readLocation).forEach(i -> counts[columnIndex][i]++);
+            }
         }
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if (concurrentReadCounter != null) {
+            counts = concurrentReadCounter.finish();
+        }
         logger.log(Level.INFO, "Collecting read counts done.");
         logger.log(Level.INFO, "Writing counts ...");
         final long[] columnTotals = calculateColumnTotals();
 
-        IntStream.range(0, targetCollection.targetCount()).forEach(target -> {
-            final int[] countBuffer = IntStream.range(0, counts.length).map(column -> counts[column][target]).toArray();
-            writeOutputRows(countBuffer, columnTotals, target);
-        });
+        final int[] countBuffer = new int[counts.length];
+        final StringBuilder rowBuilder = new StringBuilder();
+        final Formatter rowFormatter = new Formatter(rowBuilder);
+        for (int target = 0; target < targetCollection.targetCount(); target++) {
+            for (int column = 0; column < counts.length; column++) {
+                countBuffer[column] = counts[column][target];
+            }
+            writeOutputRows(countBuffer, columnTotals, target, rowBuilder, rowFormatter);
+        }
         logger.log(Level.INFO, "Writing counts done.");
 
         writeColumnSummaryOutput();
@@ -348,6 +389,9 @@ public final class CalculateTargetCoverage extends ReadWalker {
 
     @Override
     public void closeTool() {
+        if (concurrentReadCounter != null) {
+            concurrentReadCounter.shutdown();
+        }
         if (columnSummaryOutputWriter != null) {
             columnSummaryOutputWriter.close();
         }
@@ -371,7 +415,7 @@ public final class CalculateTargetCoverage extends ReadWalker {
         final long[] result = new long[counts.length];
 
         for (int i = 0; i < counts.length; i++) {
-            result[i] = IntStream.of(counts[i]).sum();
+            result[i] = MathUtils.sum(counts[i]);
         }
         return result;
     }
@@ -388,7 +432,7 @@ public final class CalculateTargetCoverage extends ReadWalker {
 
         final List<String> columnNames = countColumns.columnNames();
         for (int i = 0; i < columnNames.size(); i++) {
-            final long sum = IntStream.of(counts[i]).sum();
+            final long sum = MathUtils.sum(counts[i]);
             columnSummaryOutputWriter.println(
                     String.join(COLUMN_SEPARATOR,
                             columnNames.get(i),
@@ -403,14 +447,19 @@ public final class CalculateTargetCoverage extends ReadWalker {
      *
      * @param countBuffer  the counts for the target.
      * @param index the index of target within the target collection.
+     * @param rowBuilder buffer reused to compose the row, its content is discarded.
+     * @param rowFormatter formatter that appends into {@code rowBuilder}.
      */
     private void writeOutputRows(final int[] countBuffer, final long[] columnTotals,
-                                 final int index) {
-        final String countString = IntStream.range(0, countBuffer.length).mapToObj(
-                i -> transform.apply(countBuffer[i], columnTotals[i])).collect(Collectors.joining(COLUMN_SEPARATOR));
+                                 final int index, final StringBuilder rowBuilder, final Formatter rowFormatter) {
         final String targetInfoString = targetOutInfo.composeTargetOutInfoString(index, targetCollection);
-
-        outputWriter.println(String.join(COLUMN_SEPARATOR, targetInfoString, countString));
+        rowBuilder.setLength(0);
+        rowBuilder.append(targetInfoString);
+        for (int i = 0; i < countBuffer.length; i++) {
+            rowBuilder.append(COLUMN_SEPARATOR);
+            transform.appendTo(countBuffer[i], columnTotals[i], rowBuilder, rowFormatter);
+        }
+        outputWriter.println(rowBuilder);
 
         if (rowSummaryOutputWriter != null) {
             final long sum = MathUtils.sum(countBuffer);
@@ -492,6 +541,127 @@ public final class CalculateTargetCoverage extends ReadWalker {
         return String.format(formatString, commandLine, groupBy.toString());
     }
 
+    /**
+     * Counts the reads overlapping each target on several threads.
+     * <p>
+     *     Read locations are collected in batches that are counted by a pool of threads, each into its own count
+     *     matrix, so that threads never contend on shared counters. The matrices are summed up when the counting is
+     *     finished. At most twice as many batches as threads are pending at any time, so that the traversal thread
+     *     waits for the counting threads rather than queueing an unbounded number of reads.
+     * </p>
+     */
+    private static final class ConcurrentReadCounter {
+
+        private final TargetCollection<Target> targetCollection;
+        private final int columnCount;
+        private final ExecutorService executor;
+        private final int maxPendingBatches;
+        private final Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+
+        /**
+         * Count matrices of every counting thread, indexed by count column and then target.
+         */
+        private final List<int[][]> threadCounts = Collections.synchronizedList(new ArrayList<>());
+        private final ThreadLocal<int[][]> counts;
+
+        private SimpleInterval[] batchLocations = new SimpleInterval[READ_BATCH_SIZE];
+        private int[] batchColumns = new int[READ_BATCH_SIZE];
+        private int batchSize = 0;
+
+        private ConcurrentReadCounter(final TargetCollection<Target> targetCollection, final int columnCount, final int numThreads) {
+            this.targetCollection = targetCollection;
+            this.columnCount = columnCount;
+            this.executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+                final Thread thread = new Thread(runnable, "CalculateTargetCoverage-counter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.maxPendingBatches = 2 * numThreads;
+            this.counts = ThreadLocal.withInitial(() -> {
+                final int[][] result = new int[columnCount][targetCollection.targetCount()];
+                threadCounts.add(result);
+                return result;
+            });
+        }
+
+        /**
+         * Adds a read to be counted.
+         * @param location the read location.
+         * @param columnIndex the read count column.
+         */
+        private void add(final SimpleInterval location, final int columnIndex) {
+            batchLocations[batchSize] = location;
+            batchColumns[batchSize] = columnIndex;
+            if (++batchSize == READ_BATCH_SIZE) {
+                submitBatch();
+            }
+        }
+
+        private void submitBatch() {
+            while (pendingBatches.size() >= maxPendingBatches) {
+                waitFor(pendingBatches.removeFirst());
+            }
+            final SimpleInterval[] locations = batchLocations;
+            final int[] columns = batchColumns;
+            final int size = batchSize;
+            pendingBatches.addLast(executor.submit(() -> {
+                final int[][] destination = counts.get();
+                for (int i = 0; i < size; i++) {
+                    final int[] columnCounts = destination[columns[i]];
+                    targetCollection.indexRange(locations[i]).forEach(target -> columnCounts[target]++);
+                }
+            }));
+            batchLocations = new SimpleInterval[READ_BATCH_SIZE];
+            batchColumns = new int[READ_BATCH_SIZE];
+            batchSize = 0;
+        }
+
+        /**
+         * Counts the remaining reads and returns the total counts.
+         * @return never {@code null}, a matrix indexed by count column and then target.
+         */
+        private int[][] finish() {
+            if (batchSize > 0) {
+                submitBatch();
+            }
+            while (!pendingBatches.isEmpty()) {
+                waitFor(pendingBatches.removeFirst());
+            }
+            shutdown();
+            final int[][] result = new int[columnCount][targetCollection.targetCount()];
+            synchronized (threadCounts) {
+                for (final int[][] partialCounts : threadCounts) {
+                    for (int column = 0; column < columnCount; column++) {
+                        final int[] resultColumn = result[column];
+                        final int[] partialColumn = partialCounts[column];
+                        for (int target = 0; target < resultColumn.length; target++) {
+                            resultColumn[target] += partialColumn[target];
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static void waitFor(final Future<?> batch) {
+            try {
+                batch.get();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("interrupted while counting reads", ex);
+            } catch (final ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new GATKException("failed to count reads", ex.getCause());
+            }
+        }
+
+        private void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
     /////////////////////////////////
     // Count column holder classes //
     /////////////////////////////////
@@ -692,15 +862,15 @@ public final class CalculateTargetCoverage extends ReadWalker {
         /**
          * Raw integer read-count (non-)transformation.
          */
-        RAW((count, columnTotal) -> Integer.toString(count)),
+        RAW((count, columnTotal, destination, formatter) -> destination.append(count)),
 
         /**
          * Proportional coverage transformation.
          * <p>Individual counts are transformed into the fraction of the total
          * count across the enclosing column.</p>
          */
-        PCOV((count, columnTotal) ->
-                String.format(PCOV_OUTPUT_DOUBLE_FORMAT, count / (double) columnTotal));
+        PCOV((count, columnTotal, destination, formatter) ->
+                formatter.format(PCOV_OUTPUT_DOUBLE_FORMAT, count / (double) columnTotal));
 
         /**
          * Functional interface for the count transformation.
@@ -710,15 +880,17 @@ public final class CalculateTargetCoverage extends ReadWalker {
 
             /**
              * Output matrix value transformer method.
-             * <p>It takes exactly two double arguments: the individual count and the column total sum.</p>
+             * <p>It takes the individual count and the column total sum, and appends the transformed value
+             * to the destination buffer either directly or through the formatter.</p>
              * <p>Implementation of this method can assume that individual input {@code count} is 0 or greater and
              * that is not greater than {@code columnTotal}.</p>
              *
              * @param count       the individual count for a target and count group
              * @param columnTotal the total count for the enclosing count group.
-             * @return never {@code null}.
+             * @param destination the buffer to append the value to.
+             * @param formatter   a formatter that appends to {@code destination}.
              */
-            String apply(final int count, final long columnTotal);
+            void apply(final int count, final long columnTotal, final StringBuilder destination, final Formatter formatter);
         }
 
         /**
@@ -736,19 +908,18 @@ public final class CalculateTargetCoverage extends ReadWalker {
         }
 
         /**
-         * Transforms and composes the string representation of an individual count.
-         * <p>The output string must be fully formatted human friendly representation of the
-         * transformed value.</p>
+         * Transforms an individual count and appends its string representation to a buffer.
          *
          * @param count       the individual count value.
          * @param columnTotal the corresponding column total sum.
-         * @return never {@code null}.
+         * @param destination the buffer to append the value to.
+         * @param formatter   a formatter that appends to {@code destination}.
          * @throws IllegalArgumentException if {@code count} is less than 0 or greater than {@code columnTotal}.
          */
-        protected String apply(final int count, final long columnTotal) {
+        protected void appendTo(final int count, final long columnTotal, final StringBuilder destination, final Formatter formatter) {
             ParamUtils.isPositiveOrZero(count, "the count cannot less than 0");
             Utils.validateArg(count <= columnTotal, "the count cannot be larger than the column total");
-            return operator.apply(count, columnTotal);
+            operator.apply(count, columnTotal, destination, formatter);
         }
     }
 
@@ -10,12 +10,14 @@ import org.broadinstitute.hellbender.cmdline.programgroups.CopyNumberProgramGrou
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.tsv.DataLine;
 import org.broadinstitute.hellbender.utils.tsv.TableColumnCollection;
 import org.broadinstitute.hellbender.utils.tsv.TableReader;
 import org.broadinstitute.hellbender.utils.tsv.TableWriter;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -41,9 +43,12 @@ import java.util.stream.IntStream;
  * </p>
  *
  * <p>
- *   In order to be able to handle a large number of input files, the tool proceeds to merge files
- *   in a balance tree fashion. The maximum number of files to merge in one go can be specified using
- *   the {@value #MAX_GROUP_SIZE_SHORT_NAME} argument that is set to {@value #DEFAULT_MAX_GROUP_SIZE} by default.
+ *   In order to be able to handle a large number of input files, the tool merges all of them in a single pass
+ *   without intermediate files, one block of targets at a time; the block size can be specified using the
+ *   {@value #TARGET_BLOCK_SIZE_SHORT_NAME} argument ({@value #DEFAULT_TARGET_BLOCK_SIZE} by default). The maximum number of input files open at any time
+ *   can be specified using the {@value #MAX_GROUP_SIZE_SHORT_NAME} argument that is set to
+ *   {@value #DEFAULT_MAX_GROUP_SIZE} by default; when there are more inputs, tab-separated files are closed and
+ *   later reopened where they were left off.
  * </p>
  *
  * <p>
@@ -83,7 +88,8 @@ import java.util.stream.IntStream;
  * </p>
  * <h2>Input and Output File Format</h2>
  * <p>
- *    Input read count file format follows the one produced by {@link CalculateTargetCoverage}.
+ *    Input read count file format follows the one produced by {@link CalculateTargetCoverage}; inputs can also be in
+ *    the binary format described in {@link ReadCountCollectionBinaryFormat}.
  *    Namely a tab separated value table file where there is a least one column, <b>NAME</b>;
  *    indicating the target name, an arbitrary number of read count columns (e.g. one per sample)
  *    and the target coordinates (<b>CONTIG</b>, <b>START</b> and <b>STOP</b>) which are optional if
@@ -114,7 +120,9 @@ import java.util.stream.IntStream;
  *
  * <p>
  *     The output file format is the same as the input file format with a one read count column for each present amongst
- *     the input files. The coordinates columns are always present.
+ *     the input files. The coordinates columns are always present. If the output file name ends with
+ *     {@value ReadCountCollectionBinaryFormat#FILE_EXTENSION} the output is written in the binary read count format
+ *     instead.
  * </p>
  *
  * @author Valentin Ruano-Rubio &lt;valentin@broadinstitute.org&gt;
@@ -134,6 +142,9 @@ public final class CombineReadCounts extends CommandLineProgram {
     public static final String MAX_GROUP_SIZE_SHORT_NAME = "MOF";
     public static final String MAX_GROUP_SIZE_FULL_NAME = "maxOpenFiles";
     public static final int DEFAULT_MAX_GROUP_SIZE = 100;
+    public static final String TARGET_BLOCK_SIZE_SHORT_NAME = "TBS";
+    public static final String TARGET_BLOCK_SIZE_FULL_NAME = "targetBlockSize";
+    public static final int DEFAULT_TARGET_BLOCK_SIZE = 1000;
 
     private static final String READ_COUNT_FILES_DOCUMENTATION =
             "Coverage files to combine, they must contain all the targets in the input file (" +
@@ -156,12 +167,20 @@ public final class CombineReadCounts extends CommandLineProgram {
     protected List<File> coverageFiles = new ArrayList<>();
 
     @Argument(
-            doc = "Maximum number of files to combine simultaneously.",
+            doc = "Maximum number of input files to keep open simultaneously.",
             shortName = MAX_GROUP_SIZE_SHORT_NAME,
             fullName = MAX_GROUP_SIZE_FULL_NAME,
             optional = false
     )
-    protected int maxMergeSize = DEFAULT_MAX_GROUP_SIZE;
+    protected int maxOpenFiles = DEFAULT_MAX_GROUP_SIZE;
+
+    @Argument(
+            doc = "Number of targets merged at a time; the memory used is proportional to this number times the total number of count columns.",
+            shortName = TARGET_BLOCK_SIZE_SHORT_NAME,
+            fullName = TARGET_BLOCK_SIZE_FULL_NAME,
+            optional = true
+    )
+    protected int targetBlockSize = DEFAULT_TARGET_BLOCK_SIZE;
 
 
     @ArgumentCollection
@@ -178,89 +197,173 @@ public final class CombineReadCounts extends CommandLineProgram {
 
     @Override
     public Object doWork() {
-        final Set<File> temporaryFiles = new HashSet<>();
         final List<File> coverageFiles = composeAndCheckInputReadCountFiles(this.coverageFiles, coverageFileList);
+        ParamUtils.isPositive(maxOpenFiles, MAX_GROUP_SIZE_FULL_NAME + " must be positive");
+        ParamUtils.isPositive(targetBlockSize, TARGET_BLOCK_SIZE_FULL_NAME + " must be positive");
 
         final TargetCollection<Target> targets = targetArguments.readTargetCollection(false);
-        final int optimalMergingFileCount = calculateOptimalMergingFileCount(coverageFiles.size());
-        logger.info(String.format("Merging %d read count files, maximum %d file at a time", coverageFiles.size(), optimalMergingFileCount));
-
-        final Queue<File> remainingFilesToMerge = new ArrayDeque<>(coverageFiles);
-        while (true) {
-            logger.debug(String.format("Merging %d of %d",
-                    Math.max(optimalMergingFileCount, remainingFilesToMerge.size()), remainingFilesToMerge.size()));
-            final List<File> filesToMerge = removeFilesToMergeNext(optimalMergingFileCount, remainingFilesToMerge);
-            final File mergeOutputFile = determineMergeOutputFile(temporaryFiles, remainingFilesToMerge);
-            doMerge(targets, filesToMerge, mergeOutputFile);
-            deleteMergedTemporaryFiles(temporaryFiles, filesToMerge);
-            if (remainingFilesToMerge.isEmpty()) {
-                break;
+        logger.info(String.format("Merging %d read count files in a single pass, keeping at most %d of them open at a time",
+                coverageFiles.size(), maxOpenFiles));
+        final List<ReadCountSource> sources = new ArrayList<>(coverageFiles.size());
+        try {
+            for (final File file : coverageFiles) {
+                sources.add(readCountFileSource(file, targets));
+            }
+            final List<String> countColumnNames = new ArrayList<>();
+            final int[][] destinationColumns = composeCountColumnNamesAndDestinations(sources, countColumnNames);
+            try (final ReadCountSink output = openOutput(sources, targets, countColumnNames)) {
+                doMerge(sources, destinationColumns, targets, countColumnNames.size(), output);
+            } catch (final IOException ex) {
+                throw new UserException.CouldNotCreateOutputFile(outputFile, "Could not create output file");
             }
-            remainingFilesToMerge.add(mergeOutputFile);
+        } finally {
+            closeSources(sources);
         }
         return "SUCCESS";
     }
 
     /**
-     * Delete temporary files within an merge file set.
-     * <p>
-     *     A file is considered to be temporary if is present in the temporary-file set provided.
-     * </p>
+     * The actual merge operation.
      * <p>
-     *     This set is modified by removed files as they are deleted.
+     *     Targets are merged in blocks of {@link #targetBlockSize}; for each block the next targets of every source
+     *     are read in turn and their counts are placed in their output columns, so that each input is only read once
+     *     and memory usage does not depend on the number of targets.
      * </p>
-     *
-     * @param temporaryFiles set of files considered to be temporary.
-     * @param alreadyMergedFiles the merged file set.
+     * @param sources the input sources.
+     * @param destinationColumns for each source, the output column of each of its count columns.
+     * @param targets the targets to merge in the input.
+     * @param columnCount the total number of count columns.
+     * @param output where to write the merged counts.
      */
-    private void deleteMergedTemporaryFiles(final Set<File> temporaryFiles, final List<File> alreadyMergedFiles) {
-        alreadyMergedFiles.stream()
-                .filter(temporaryFiles::remove)
-                .forEach(File::delete);
+    private void doMerge(final List<ReadCountSource> sources, final int[][] destinationColumns,
+                         final TargetCollection<Target> targets, final int columnCount, final ReadCountSink output) throws IOException {
+        final int targetCount = targets.targetCount();
+        final int blockSize = Math.min(targetBlockSize, targetCount);
+        final double[][] blockCounts = new double[blockSize][columnCount];
+        final Target[] blockTargets = new Target[blockSize];
+        final double[] sourceCounts = new double[Arrays.stream(destinationColumns).mapToInt(d -> d.length).max().orElse(0)];
+        // sources are always visited in the same order, so evicting the least recently opened one would suspend
+        // every source once per block; evicting the most recently opened one instead keeps the first
+        // maxOpenFiles - 1 sources open throughout and only the remaining ones take turns in the last slot.
+        final Deque<ReadCountSource> openSources = new ArrayDeque<>(Math.min(maxOpenFiles, sources.size()));
+
+        for (int blockStart = 0; blockStart < targetCount; blockStart += blockSize) {
+            final int rowCount = Math.min(blockSize, targetCount - blockStart);
+            for (int i = 0; i < sources.size(); i++) {
+                final ReadCountSource source = sources.get(i);
+                if (source.needsOpening()) {
+                    if (openSources.size() >= maxOpenFiles) {
+                        openSources.removeLast().suspend();
+                    }
+                    openSources.addLast(source);
+                }
+                final int[] destination = destinationColumns[i];
+                for (int row = 0; row < rowCount; row++) {
+                    final Target target = readNextTarget(source, targets, sourceCounts);
+                    if (i == 0) {
+                        blockTargets[row] = target;
+                    } else if (!target.equals(blockTargets[row])) {
+                        throw new UserException.BadInput(String.format("Target in file %s is %s but file %s has a different target (%s) at this position",
+                                sources.get(0).getFile().getPath(), blockTargets[row], source.getFile().getPath(), target));
+                    }
+                    final double[] rowCounts = blockCounts[row];
+                    for (int j = 0; j < destination.length; j++) {
+                        rowCounts[destination[j]] = sourceCounts[j];
+                    }
+                }
+            }
+            for (int row = 0; row < rowCount; row++) {
+                output.write(blockTargets[row], blockCounts[row]);
+            }
+            logger.debug(String.format("Merged %d of %d targets", blockStart + rowCount, targetCount));
+        }
     }
 
     /**
-     * Produces the name of the file to merge into given the remaining files-to-merge.
-     * <p>
-     * The files to be merged should have been already removed from the input files-to-merge queue, so that
-     * an empty queue indicates the last merge.
-     * </p>
-     * <p>
-     * Temporary merge output files are added to the input set.
-     * </p>
-     *
-     * @param temporaryFiles set of temporary-files. Temporary files that need to be deleted when not needed anymore
-     *                       must be added to this list.
-     * @param remainingFilesToMerge remaining files to be merged after the next merge.
+     * Reads the next target of a source that is present in the target collection.
+     * @param source the source to read from.
+     * @param targets the targets to merge.
+     * @param counts where to copy the counts of the returned target.
      * @return never {@code null}.
      */
-    private File determineMergeOutputFile(final Set<File> temporaryFiles, final Queue<File> remainingFilesToMerge) {
-        final File mergeOutputFile;
-        if (remainingFilesToMerge.isEmpty()) {
-            mergeOutputFile = outputFile;
-        } else {
-            temporaryFiles.add(mergeOutputFile = createMergeTemporalFile());
+    private static Target readNextTarget(final ReadCountSource source, final TargetCollection<Target> targets, final double[] counts) {
+        try {
+            while (true) {
+                final Target target = source.readRecord(counts);
+                if (target == null) {
+                    throw new UserException.BadInput(String.format("End of file %s reached without finding all requested targets.", source.getFile().getPath()));
+                } else if (targets.index(target) != -1) {
+                    return target;
+                }
+            }
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(source.getFile(), ex);
+        }
+    }
+
+    private static void closeSources(final List<ReadCountSource> sources) {
+        for (final ReadCountSource source : sources) {
+            try {
+                source.close();
+            } catch (final IOException ex) {
+                throw new GATKException(String.format("problems closing a read-count reader for %s", source.getFile()), ex);
+            }
         }
-        return mergeOutputFile;
     }
 
     /**
-     * Extracts from the remaining files-to-merge queue the ones to be merged next.
+     * Composes the output count column names and the output column of each count column of every source.
      * <p>
-     * This method modifies the input queue {@code filesToMerge} by removing the files to be merged next.
+     *     Output count columns are sorted by name.
      * </p>
-     * @param maximumMergingFileCount the maximum merge file group size.
-     * @param remainingFilesToMerge the file-to-merge queue.
-     * @return never {@code null}. The return list won't ever have more than {@code maximumMergingFileCount} members.
+     * @param sources the input sources.
+     * @param countColumnNames list where to add the output count column names.
+     * @return never {@code null}, one array per source with the output column of each of its count columns.
      */
-    private List<File> removeFilesToMergeNext(final int maximumMergingFileCount, final Queue<File> remainingFilesToMerge) {
-        final List<File> result = new ArrayList<>(maximumMergingFileCount);
-        for (int i = 0; i < maximumMergingFileCount && !remainingFilesToMerge.isEmpty(); i++) {
-            result.add(remainingFilesToMerge.remove());
+    private static int[][] composeCountColumnNamesAndDestinations(final List<ReadCountSource> sources, final List<String> countColumnNames) {
+        final List<String> unsortedCountColumnNames = new ArrayList<>();
+        for (final ReadCountSource source : sources) {
+            unsortedCountColumnNames.addAll(source.countColumnNames());
+        }
+        if (unsortedCountColumnNames.isEmpty()) {
+            throw new IllegalStateException("there must be at least one count column");
+        }
+        final int[] sortedOrder = IntStream.range(0, unsortedCountColumnNames.size()).boxed()
+                .sorted(Comparator.comparing(unsortedCountColumnNames::get))
+                .mapToInt(Integer::intValue).toArray();
+        final int[] destinationByUnsortedIndex = new int[sortedOrder.length];
+        for (int i = 0; i < sortedOrder.length; i++) {
+            destinationByUnsortedIndex[sortedOrder[i]] = i;
+            countColumnNames.add(unsortedCountColumnNames.get(sortedOrder[i]));
+        }
+        checkForRepeatedSampleNames(countColumnNames);
+
+        final int[][] result = new int[sources.size()][];
+        int nextIndex = 0;
+        for (int i = 0; i < result.length; i++) {
+            final int size = sources.get(i).countColumnNames().size();
+            result[i] = Arrays.copyOfRange(destinationByUnsortedIndex, nextIndex, nextIndex + size);
+            nextIndex += size;
         }
         return result;
     }
 
+    /**
+     * Makes sure that there are no repeated sample names in the input.
+     *
+     * @param countColumnNames all sample names (more than one) sorted.
+     */
+    private static void checkForRepeatedSampleNames(final List<String> countColumnNames) {
+        String previous = countColumnNames.get(0);
+        for (int i = 1; i < countColumnNames.size(); i++) {
+            final String next = countColumnNames.get(i);
+            if (next.equals(previous)) {
+                throw new UserException.BadInput("the input contains the sample repeated, e.g.:" + next);
+            }
+            previous = next;
+        }
+    }
+
     /**
      * Composes the list of input read-count files from user arguments.
      * <p>
@@ -301,40 +404,73 @@ public final class CombineReadCounts extends CommandLineProgram {
     }
 
     /**
-     * The actual merge operation.
-     * @param targets the target to merge in the input.
-     * @param filesToMerge input files to be merged.
-     * @param outputFile output file name.
+     * Destination of the merged read counts.
      */
-    private void doMerge(final TargetCollection<Target> targets, final List<File> filesToMerge, final File outputFile) {
-        try (final ReadCountReaderCollection readers = new ReadCountReaderCollection(filesToMerge, targets);
-             final TableWriter<ReadCountRecord> writer = ReadCountCollectionUtils.writerWithIntervals(new FileWriter(outputFile), readers.countColumnNames)) {
-            writer.writeAllRecords(readers);
-        } catch (final IOException ex) {
-            throw new UserException.CouldNotCreateOutputFile(outputFile, "Could not create output file");
-        }
-    }
+    private interface ReadCountSink extends Closeable {
 
-    private File createMergeTemporalFile() {
-        final File result;
-        try {
-            result = File.createTempFile("read-count-merge", ".tab");
-        } catch (final IOException e) {
-            throw new GATKException("Could not create temporal merge file", e);
-        }
-        result.deleteOnExit();
-        return result;
+        /**
+         * Writes the merged counts of the next target.
+         */
+        void write(final Target target, final double[] counts) throws IOException;
     }
 
     /**
-     * Returns the optimal number of files to merge simultaneously.
-     *
-     * @param inputSize number of coverage files to merge.
-     * @return 1 or greater but no more than {@link #maxMergeSize}.
+     * Opens the output file.
+     * <p>
+     *     If the output file name ends with {@value ReadCountCollectionBinaryFormat#FILE_EXTENSION} the output is
+     *     written in the binary read count format. As this format stores the targets before the counts, the output
+     *     targets are those of the target collection, that has already been read from the targets file or from the
+     *     first input; the merged targets are checked to come in the same order.
+     * </p>
+     * <p>
+     *     Counts are written as ints when all inputs are binary files with int counts. Otherwise they are written as
+     *     doubles and the output is converted to ints when closed if all the merged counts turn out to be integral.
+     * </p>
+     * @param sources the input sources.
+     * @param targets the targets to merge.
+     * @param countColumnNames the output count column names.
+     * @return never {@code null}.
      */
-    private int calculateOptimalMergingFileCount(final int inputSize) {
-        final double minRoundCounts = Math.max(Math.round(Math.ceil(Math.log(inputSize) / Math.log(maxMergeSize))), 1.0);
-        return (int) Math.round(Math.ceil(Math.pow(inputSize, 1.0 / minRoundCounts )));
+    private ReadCountSink openOutput(final List<ReadCountSource> sources, final TargetCollection<Target> targets, final List<String> countColumnNames) throws IOException {
+        if (outputFile.getName().endsWith(ReadCountCollectionBinaryFormat.FILE_EXTENSION)) {
+            final List<Target> outputTargets = targets.targets();
+            final boolean intCounts = sources.stream().allMatch(ReadCountSource::hasIntCounts);
+            final ReadCountCollectionBinaryFormat.RowWriter writer =
+                    new ReadCountCollectionBinaryFormat.RowWriter(outputFile, outputTargets, countColumnNames, intCounts);
+            return new ReadCountSink() {
+                private int nextTarget = 0;
+
+                @Override
+                public void write(final Target target, final double[] counts) throws IOException {
+                    final Target expected = outputTargets.get(nextTarget++);
+                    if (!target.equals(expected)) {
+                        throw new UserException.BadInput(String.format("Target %s found in the input where %s was expected; the inputs must contain the targets in the same order as the target collection",
+                                target, expected));
+                    }
+                    writer.writeRow(counts);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.close();
+                    if (!intCounts && writer.hasOnlyIntCounts()) {
+                        ReadCountCollectionBinaryFormat.convertToIntCounts(outputFile);
+                    }
+                }
+            };
+        }
+        final TableWriter<ReadCountRecord> writer = ReadCountCollectionUtils.writerWithIntervals(new FileWriter(outputFile), countColumnNames);
+        return new ReadCountSink() {
+            @Override
+            public void write(final Target target, final double[] counts) throws IOException {
+                writer.writeRecord(new ReadCountRecord(target, counts));
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
     }
 
     /**
@@ -343,238 +479,327 @@ public final class CombineReadCounts extends CommandLineProgram {
      * @param columns the input table column collection.
      * @return never {@code null} but perhaps empty.
      */
-    private List<String> readCountColumnNames(final TableColumnCollection columns) {
+    private static List<String> readCountColumnNames(final TableColumnCollection columns) {
         return columns.names().stream()
                 .filter(n -> !TargetTableColumn.isStandardTargetColumnName(n))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Creates a read-count file reader given the input files and the expected target collection.
+     * Source of the read-count records of an input file, in the order they appear in the file.
+     * <p>
+     *     Sources may hold an open file while they are being read. In order to merge more inputs than files can be
+     *     kept open, a source can be suspended at any time to release its file, and it will resume from the same
+     *     record when read again.
+     * </p>
+     */
+    private interface ReadCountSource extends Closeable {
+
+        /**
+         * @return the input file.
+         */
+        File getFile();
+
+        /**
+         * @return the count column names in the order they appear in the records.
+         */
+        List<String> countColumnNames();
+
+        /**
+         * Reads the next record.
+         * @param counts where to copy the record counts, in the order of {@link #countColumnNames()}.
+         * @return {@code null} if there are no more records, otherwise the record target.
+         */
+        Target readRecord(final double[] counts) throws IOException;
+
+        /**
+         * @return whether the input is known to contain only integral counts without reading them.
+         */
+        boolean hasIntCounts();
+
+        /**
+         * @return whether reading the next record opens a file that must be released later with {@link #suspend()}.
+         */
+        boolean needsOpening();
+
+        /**
+         * Releases the open file, if any, without losing the position of the next record.
+         */
+        void suspend() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+            suspend();
+        }
+    }
+
+    /**
+     * Creates a read-count source given the input file and the expected target collection.
      * @param file the input file.
      * @param targets the expected targets in the input file.
      * @return never {@code null}.
      */
-    private TableReader<ReadCountRecord> readCountFileReader(final File file, final TargetCollection<Target> targets) {
+    private ReadCountSource readCountFileSource(final File file, final TargetCollection<Target> targets) {
+        if (ReadCountCollectionBinaryFormat.isBinaryReadCountFile(file)) {
+            return new BinaryReadCountSource(file, targets, targetBlockSize);
+        } else {
+            return new TextReadCountSource(file, targets);
+        }
+    }
 
-        try {
-            return new TableReader<ReadCountRecord>(file) {
+    /**
+     * Resolves the target of a record with a target name.
+     * @param name the target name.
+     * @param interval the target interval in the input, {@code null} if unknown.
+     * @param targets the expected targets.
+     * @return never {@code null}.
+     */
+    private static Target resolveNamedTarget(final String name, final SimpleInterval interval, final TargetCollection<Target> targets) {
+        final Target target = targets.target(name);
+        if (target == null) {
+            return new Target(name, interval);
+        } else if (interval != null && !interval.equals(target.getInterval())) {
+            throw new UserException.BadInput(String.format("invalid target '%s' coordinates: expected %s but found %s",
+                    name, target.getInterval(), interval));
+        } else {
+            return target;
+        }
+    }
 
-                private boolean hasName;
-                private boolean hasCoordinates;
-                private int countColumnCount;
-                private int[] countColumnIndexes;
+    /**
+     * Source of a file in the binary read count format.
+     * <p>
+     *     Counts are copied from the file a block of targets at a time; the file is only open while doing so.
+     * </p>
+     */
+    private static final class BinaryReadCountSource implements ReadCountSource {
+        private final File file;
+        private final TargetCollection<Target> targets;
+        private final ReadCountCollectionBinaryFormat.RowReader reader;
+        private final double[][] buffer;
+        private int bufferStart = 0;
+        private int bufferSize = 0;
+        private int nextRow = 0;
+
+        private BinaryReadCountSource(final File file, final TargetCollection<Target> targets, final int blockSize) {
+            this.file = file;
+            this.targets = targets;
+            this.reader = new ReadCountCollectionBinaryFormat.RowReader(file);
+            this.buffer = new double[Math.min(blockSize, reader.targets().size())][reader.columnNames().size()];
+        }
 
-                @Override
-                public void processColumns(final TableColumnCollection columns) {
-                    hasCoordinates = columns.containsAll(TargetTableColumn.CONTIG.toString(), TargetTableColumn.START.toString(),
-                            TargetTableColumn.END.toString());
-                    hasName = columns.contains(TargetTableColumn.NAME.toString());
-                    if (!hasCoordinates && !hasName) {
-                        throw formatException("header contain neither coordinates nor target name columns");
-                    }
-                    final List<String> countColumnNames = readCountColumnNames(columns);
-                    countColumnCount = countColumnNames.size();
-                    countColumnIndexes = new int[countColumnCount];
-                    for (int i = 0; i < countColumnCount; i++) {
-                        countColumnIndexes[i] = columns.indexOf(countColumnNames.get(i));
-                    }
-                }
+        @Override
+        public File getFile() {
+            return file;
+        }
 
-                @Override
-                protected ReadCountRecord createRecord(final DataLine dataLine) {
-                    final double[] counts = new double[countColumnCount];
-                    final Target target = createTarget(dataLine);
-                    for (int i = 0; i < counts.length; i++) {
-                        counts[i] = dataLine.getDouble(countColumnIndexes[i]);
-                    }
-                    return new ReadCountRecord(target, counts);
-                }
+        @Override
+        public List<String> countColumnNames() {
+            return reader.columnNames();
+        }
 
-                /**
-                 * Extracts the target object out of a data input line.
-                 * @param dataLine the input data line.
-                 * @return never {@code null}.
-                 */
-                private Target createTarget(final DataLine dataLine) {
-                    if (hasName) {
-                        final String name = dataLine.get(TargetTableColumn.NAME);
-                        final Target target = targets.target(name);
-                        final SimpleInterval interval = createInterval(dataLine);
-                        if (target == null) {
-                            return new Target(name, createInterval(dataLine));
-                        } else if (interval != null && !interval.equals(target.getInterval())) {
-                            throw new UserException.BadInput(String.format("invalid target '%s' coordinates: expected %s but found %s",
-                                    name, target.getInterval(), createInterval(dataLine)));
-                        } else {
-                            return target;
-                        }
-                    } else { // hasCoordinates must be true.
-                        final SimpleInterval interval = createInterval(dataLine);
-                        final Optional<Target> target = targets.targets(interval).stream().findAny();
-                        if (!target.isPresent() || !target.get().getInterval().equals(interval)) {
-                            throw formatException("target not found with coordinates " + interval);
-                        }
-                        return target.get();
-                    }
-                }
+        @Override
+        public Target readRecord(final double[] counts) {
+            final List<Target> storedTargets = reader.targets();
+            if (nextRow >= storedTargets.size()) {
+                return null;
+            }
+            if (nextRow >= bufferStart + bufferSize) {
+                bufferStart = nextRow;
+                bufferSize = Math.min(buffer.length, storedTargets.size() - nextRow);
+                reader.readRows(bufferStart, buffer, bufferSize);
+            }
+            final double[] row = buffer[nextRow - bufferStart];
+            System.arraycopy(row, 0, counts, 0, row.length);
+            final Target stored = storedTargets.get(nextRow++);
+            return resolveNamedTarget(stored.getName(), stored.getInterval(), targets);
+        }
 
-                /**
-                 * Extract the interval out of a data line.
-                 * @param dataLine the input data line.
-                 * @return {@code null} if the interval cannot be determined from the input file alone.
-                 */
-                private SimpleInterval createInterval(final DataLine dataLine) {
-                    if (hasCoordinates) {
-                        return new SimpleInterval(dataLine.get(TargetTableColumn.CONTIG),
-                                dataLine.getInt(TargetTableColumn.START),
-                                dataLine.getInt(TargetTableColumn.END));
-                    } else {
-                        return null;
-                    }
-                }
+        @Override
+        public boolean hasIntCounts() {
+            return reader.hasIntCounts();
+        }
 
-            };
-        } catch (final IOException ex) {
-            throw new UserException.CouldNotReadInputFile(file, ex);
+        @Override
+        public boolean needsOpening() {
+            return false;
+        }
+
+        @Override
+        public void suspend() {
         }
     }
 
     /**
-     * Collection of read-count readers that simultaneously parse several input read-count files.
+     * Source of a tab-separated read count file.
      * <p>
-     * All the readers progress through their corresponding input files at the same pace; thus sharing the
-     * current target.
+     *     The file is parsed with a {@link TableReader} that is only open, together with its read buffer, while the
+     *     source is being read. When reopened after a {@link #suspend()}, the records already read are skipped
+     *     without being parsed.
      * </p>
      */
-    private final class ReadCountReaderCollection implements AutoCloseable, Iterator<ReadCountRecord>, Iterable<ReadCountRecord> {
-        private final List<TableReader<ReadCountRecord>> readers;
-        private List<String> countColumnNames;
-        private int[] countColumnSourceIndexMap;
+    private static final class TextReadCountSource implements ReadCountSource {
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        private final File file;
         private final TargetCollection<Target> targets;
-        private int targetsProcessedCount = 0;
+        private final List<String> countColumnNames;
 
-        /**
-         * Counts buffer used to accumulate counts coming from different readers.
-         */
-        private final double[] countsBuffer;
+        private TextReadCountReader reader;
+        private long recordCount = 0;
+
+        private TextReadCountSource(final File file, final TargetCollection<Target> targets) {
+            this.file = file;
+            this.targets = targets;
+            try {
+                open();
+                countColumnNames = readCountColumnNames(reader.columns());
+                suspend();
+            } catch (final IOException ex) {
+                throw new UserException.CouldNotReadInputFile(file, ex);
+            }
+        }
 
         @Override
-        public Iterator<ReadCountRecord> iterator() { return this; }
+        public File getFile() {
+            return file;
+        }
 
         @Override
-        public boolean hasNext() {
-            return targetsProcessedCount < targets.targetCount();
+        public List<String> countColumnNames() {
+            return countColumnNames;
         }
 
         @Override
-        public ReadCountRecord next() {
-            while (true) {
-                final List<ReadCountRecord> nextReadCounts = readers.stream().map(r -> getNextRecord(r)).collect(Collectors.toList());
-                final Target targetInFirstReader = nextReadCounts.get(0).getTarget();
-                if (nextReadCounts.stream().map(ReadCountRecord::getTarget).anyMatch(t -> !t.equals(targetInFirstReader))) {
-                    throw new UserException.BadInput(String.format("Target in file %s is %s but at least one input file" +
-                            "has a different target at this position", readers.get(0).getSource(), targetInFirstReader));
-                }
-                if (targets.index(targetInFirstReader) != -1) {
-                    targetsProcessedCount++;
-                    return composeMergedReadCountRecord(nextReadCounts);
+        public Target readRecord(final double[] counts) throws IOException {
+            if (reader == null) {
+                open();
+            }
+            final Target result = reader.readCounts(counts);
+            if (result != null) {
+                recordCount++;
+            }
+            return result;
+        }
+
+        /**
+         * Opens the file and skips the records that have been already read.
+         */
+        private void open() throws IOException {
+            final Reader input = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+            reader = new TextReadCountReader(file.getPath(), input, targets);
+            for (long i = 0; i < recordCount; i++) {
+                if (!reader.skipRecord()) {
+                    throw new UserException.BadInput(String.format("the input file %s has been truncated while being read", file.getPath()));
                 }
             }
         }
 
-        public ReadCountReaderCollection(final List<File> mergeGroup, final TargetCollection<Target> targets) {
-            this.targets = targets;
-            readers = mergeGroup.stream().map(f -> readCountFileReader(f, targets)).collect(Collectors.toList());
-            composeCountColumnNamesAndSourceIndexMapping();
-            // pre-allocate count array used to accumulate the counts from all readers.
-            countsBuffer = new double[countColumnNames.size()];
+        @Override
+        public boolean hasIntCounts() {
+            return false;
+        }
+
+        @Override
+        public boolean needsOpening() {
+            return reader == null;
+        }
+
+        @Override
+        public void suspend() throws IOException {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
         }
+    }
 
+    /**
+     * Table reader that copies the counts of each record into a caller provided array and returns its target.
+     */
+    private static final class TextReadCountReader extends TableReader<Target> {
 
         /**
-         * Initializes count column name data-structures.
-         * <p>
-         * Initializes {@link #countColumnNames} and {@link #countColumnSourceIndexMap}
-         * based on the input readers headers.
-         * </p>
-         * <p>
-         * This operation must be performed after we have found the first target
-         * in all sources; headers may not be yet defined before then.
-         * </p>
+         * Returned instead of parsing the record while skipping.
          */
-        private void composeCountColumnNamesAndSourceIndexMapping() {
-            final List<String> unsortedCountColumnNames = new ArrayList<>();
-            for (final TableReader<ReadCountRecord> reader : readers) {
-                unsortedCountColumnNames.addAll(readCountColumnNames(reader.columns()));
-            }
-            if (unsortedCountColumnNames.isEmpty()) {
-                throw new IllegalStateException("there must be at least one count column");
+        private static final Target SKIPPED_RECORD = new Target("skipped");
+
+        private final TargetCollection<Target> targets;
+        private final int[] countColumnIndexes;
+        private final int nameIndex;
+        private final int contigIndex;
+        private final int startIndex;
+        private final int endIndex;
+
+        private double[] counts;
+        private boolean skipping = false;
+
+        private TextReadCountReader(final String sourceName, final Reader sourceReader, final TargetCollection<Target> targets) throws IOException {
+            super(sourceName, sourceReader);
+            this.targets = targets;
+            final TableColumnCollection columns = columns();
+            final boolean hasCoordinates = columns.containsAll(TargetTableColumn.CONTIG.toString(), TargetTableColumn.START.toString(),
+                    TargetTableColumn.END.toString());
+            nameIndex = columns.indexOf(TargetTableColumn.NAME.toString());
+            if (!hasCoordinates && nameIndex < 0) {
+                throw formatException("header contain neither coordinates nor target name columns");
             }
-            countColumnSourceIndexMap = IntStream.range(0, unsortedCountColumnNames.size()).boxed()
-                    .sorted(Comparator.comparing(unsortedCountColumnNames::get))
-                    .mapToInt(Integer::intValue).toArray();
-            countColumnNames = IntStream.of(countColumnSourceIndexMap)
-                    .mapToObj(unsortedCountColumnNames::get)
-                    .collect(Collectors.toList());
-            checkForRepeatedSampleNames();
+            contigIndex = hasCoordinates ? columns.indexOf(TargetTableColumn.CONTIG.toString()) : -1;
+            startIndex = hasCoordinates ? columns.indexOf(TargetTableColumn.START.toString()) : -1;
+            endIndex = hasCoordinates ? columns.indexOf(TargetTableColumn.END.toString()) : -1;
+            countColumnIndexes = readCountColumnNames(columns).stream().mapToInt(columns::indexOf).toArray();
         }
 
         /**
-         * Makes sure that there are no repeated sample names in the input.
-         *
-         * <p>
-         *     At this point {@link #countColumnNames} is assumed to have all sample names (more than one) sorted.
-         * </p>
+         * Reads the next record.
+         * @param counts where to copy the record counts.
+         * @return {@code null} if there are no more records, otherwise the record target.
          */
-        private void checkForRepeatedSampleNames() {
-            String previous = countColumnNames.get(0);
-            for (int i = 1; i < countColumnNames.size(); i++) {
-                final String next = countColumnNames.get(i);
-                if (next.equals(previous)) {
-                    throw new UserException.BadInput("the input contains the sample repeated, e.g.:" + next);
-                }
-                previous = next;
+        private Target readCounts(final double[] counts) throws IOException {
+            this.counts = counts;
+            return readRecord();
+        }
+
+        /**
+         * Skips the next record without parsing its values.
+         * @return {@code false} if there are no more records.
+         */
+        private boolean skipRecord() throws IOException {
+            skipping = true;
+            try {
+                return readRecord() != null;
+            } finally {
+                skipping = false;
             }
         }
 
         @Override
-        public void close() {
-            for (final TableReader<ReadCountRecord> reader : readers) {
-                try {
-                    reader.close();
-                } catch (final IOException ex) {
-                    throw new GATKException(String.format("problems closing a read-count reader for %s", reader.getSource()), ex);
-                }
+        protected Target createRecord(final DataLine dataLine) {
+            if (skipping) {
+                return SKIPPED_RECORD;
+            }
+            for (int i = 0; i < countColumnIndexes.length; i++) {
+                counts[i] = dataLine.getDouble(countColumnIndexes[i]);
             }
+            return createTarget(dataLine);
         }
 
         /**
-         * Compose a merged ReadCountRecord from a List of records, assuming these records share the same target
-         *
+         * Extracts the target object out of a data line.
          * @return never {@code null}.
          */
-        private ReadCountRecord composeMergedReadCountRecord(final List<ReadCountRecord> records) {
-            int nextIndex = 0;
-            for (final ReadCountRecord record : records) {
-                final int size = record.size();
-                record.copyCountsTo(countsBuffer, nextIndex);
-                nextIndex += size;
-            }
-            final double[] counts = Arrays.stream(countColumnSourceIndexMap).mapToDouble(idx -> countsBuffer[idx]).toArray();
-            return new ReadCountRecord(records.get(0).getTarget(), counts);
-        }
-    }
-
-    private static ReadCountRecord getNextRecord(final TableReader<ReadCountRecord> reader) {
-        try {
-            final ReadCountRecord record = reader.readRecord();
-            if (record == null) {
-                throw new UserException.BadInput(String.format("End of file %s reached without finding all requested targets.", reader.getSource()));
+        private Target createTarget(final DataLine dataLine) {
+            final SimpleInterval interval = contigIndex < 0 ? null
+                    : new SimpleInterval(dataLine.get(contigIndex), dataLine.getInt(startIndex), dataLine.getInt(endIndex));
+            if (nameIndex >= 0) {
+                return resolveNamedTarget(dataLine.get(nameIndex), interval, targets);
+            } else { // the interval cannot be null.
+                final Optional<Target> target = targets.targets(interval).stream().findAny();
+                if (!target.isPresent() || !target.get().getInterval().equals(interval)) {
+                    throw formatException("target not found with coordinates " + interval);
+                }
+                return target.get();
             }
-            return record;
-        } catch (final IOException e) {
-            throw new UserException.BadInput(String.format("End of file %s reached without finding all requested targets.", reader.getSource()));
         }
     }
 }
@@ -59,6 +59,18 @@ import java.util.stream.DoubleStream;
  * To disable Spark processing, add the --disableSpark option to the command.
  * </p>
  *
+ * <p>
+ *     The following command adds the samples in new_coverages.tsv to an existing PoN, writing the result to a new PoN
+ *     without recreating it from scratch.  New samples are not QC'ed in this mode.
+ * </p>
+ *
+ * <pre>
+ * java -Xmx4g -jar $gatk_jar CreatePanelOfNormals \
+ *   --input new_coverages.tsv \
+ *   --panelOfNormalsToUpdate panel_of_normals.pon \
+ *   --output updated_panel_of_normals.pon
+ * </pre>
+ *
  */
 @CommandLineProgramProperties(
         summary = "Create a coverage panel of normals (PoN) given the proportional read counts " +
@@ -115,6 +127,17 @@ public class CreatePanelOfNormals extends SparkToggleCommandLineProgram {
                     "By default it will infer the appropriate number of eigensamples (value " + INFER_NUMBER_OF_EIGENSAMPLES + ")";
 
 
+    public static final String TRUNCATED_SVD_DOCUMENTATION =
+            "Compute only the leading singular vectors of the panel with a randomized truncated SVD rather than a full SVD. " +
+                    "This is much faster and uses much less memory on large panels, at the cost of a small approximation error " +
+                    "(reported in the log).  Requires an explicit " + NUMBER_OF_EIGENSAMPLES_FULL_NAME + ".";
+
+    public static final String PON_TO_UPDATE_DOCUMENTATION =
+            "Existing PoN to add the input samples to.  If given, the target factors and reduction of this PoN are updated " +
+                    "with the input samples rather than a PoN created from them alone, and the QC step is skipped.  " +
+                    "Only the options concerning samples (" + MAXIMUM_PERCENT_ZEROS_IN_COLUMN_FULL_NAME + " and " +
+                    COUNT_TRUNCATE_PERCENTILE_FULL_NAME + ") apply to the input samples.";
+
     public static final String TARGET_FACTOR_THRESHOLD_PERCENTILE_SHORT_NAME = "minTFPcTh";
     public static final String TARGET_FACTOR_THRESHOLD_PERCENTILE_FULL_NAME = "minimumTargetFactorPercentileThreshold";
     public static final String MAXIMUM_PERCENT_ZEROS_IN_COLUMN_SHORT_NAME = "maxCol0sPc";
@@ -127,6 +150,10 @@ public class CreatePanelOfNormals extends SparkToggleCommandLineProgram {
     public static final String COUNT_TRUNCATE_PERCENTILE_FULL_NAME = "truncatePercentileThreshold";
     public static final String NUMBER_OF_EIGENSAMPLES_SHORT_NAME = "numEigen";
     public static final String NUMBER_OF_EIGENSAMPLES_FULL_NAME = "numberOfEigensamples";
+    public static final String TRUNCATED_SVD_SHORT_NAME = "truncSVD";
+    public static final String TRUNCATED_SVD_FULL_NAME = "useTruncatedSVD";
+    public static final String PON_TO_UPDATE_SHORT_NAME = "updatePON";
+    public static final String PON_TO_UPDATE_FULL_NAME = "panelOfNormalsToUpdate";
     public static final String DRY_RUN_SHORT_NAME = "dryRun";
     public static final String DRY_RUN_FULL_NAME = DRY_RUN_SHORT_NAME;
     public static final String NO_QC_SHORT_NAME = "noQC";
@@ -188,6 +215,14 @@ public class CreatePanelOfNormals extends SparkToggleCommandLineProgram {
     )
     protected String numberOfEigensamplesString = DEFAULT_NUMBER_OF_EIGENSAMPLES;
 
+    @Argument(
+            doc = TRUNCATED_SVD_DOCUMENTATION,
+            shortName = TRUNCATED_SVD_SHORT_NAME,
+            fullName = TRUNCATED_SVD_FULL_NAME,
+            optional = true
+    )
+    protected boolean useTruncatedSVD = false;
+
     @Argument(
             doc = "Skip the QC step.  PoN creation will be substantially faster, but greater risk of bad samples being introduced into the PoN.",
             shortName = NO_QC_SHORT_NAME,
@@ -204,6 +239,14 @@ public class CreatePanelOfNormals extends SparkToggleCommandLineProgram {
     )
     protected File inputFile = null;
 
+    @Argument(
+            doc = PON_TO_UPDATE_DOCUMENTATION,
+            shortName = PON_TO_UPDATE_SHORT_NAME,
+            fullName = PON_TO_UPDATE_FULL_NAME,
+            optional = true
+    )
+    protected File ponToUpdateFile = null;
+
     @ArgumentCollection
     protected TargetArgumentCollection targetArguments = new TargetArgumentCollection(() -> inputFile);
 
@@ -261,14 +304,21 @@ public class CreatePanelOfNormals extends SparkToggleCommandLineProgram {
         validateArguments();
         final TargetCollection<Target> targets = targetArguments.readTargetCollection(true);
         final OptionalInt numberOfEigensamples = parseNumberOfEigensamples(numberOfEigensamplesString);
+        Utils.validateArg(!useTruncatedSVD || numberOfEigensamples.isPresent(),
+                () -> TRUNCATED_SVD_FULL_NAME + " requires " + NUMBER_OF_EIGENSAMPLES_FULL_NAME + " to be set to an integer value.");
 
         // Create the PoN, including QC, if specified.
-        if (!isNoQc && !dryRun) {
+        if (ponToUpdateFile != null) {
+            Utils.validateArg(!dryRun, () -> DRY_RUN_FULL_NAME + " cannot be used when updating a PoN.");
+            logger.info("Updating PoN " + ponToUpdateFile + " with the input samples (skipping QC)...");
+            HDF5PCACoveragePoNCreationUtils.update(ctx, ponToUpdateFile, inputFile, maximumPercentZerosInColumn,
+                    outlierTruncatePercentileThresh, outFile, HDF5File.OpenMode.CREATE);
+        } else if (!isNoQc && !dryRun) {
             logger.info("QC:  Beginning creation of QC PoN...");
             final File outputQCFile = IOUtils.createTempFile("qc-pon-",".hd5");
             HDF5PCACoveragePoNCreationUtils.create(ctx, outputQCFile, HDF5File.OpenMode.READ_WRITE, inputFile, targets, new ArrayList<>(),
                     targetFactorThreshold, maximumPercentZerosInColumn, maximumPercentZerosInTarget,
-                    columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, OptionalInt.of(NUM_QC_EIGENSAMPLES), dryRun
+                    columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, OptionalInt.of(NUM_QC_EIGENSAMPLES), useTruncatedSVD, dryRun
             );
             logger.info("QC:  QC PoN created...");
 
@@ -284,18 +334,18 @@ public class CreatePanelOfNormals extends SparkToggleCommandLineProgram {
                     logger.info("Creating final PoN with " + failingSampleNames.size() + " suspicious samples removed...");
                     HDF5PCACoveragePoNCreationUtils.create(ctx, outFile, HDF5File.OpenMode.CREATE, inputFile, targets, failingSampleNames,
                             targetFactorThreshold, maximumPercentZerosInColumn, maximumPercentZerosInTarget,
-                            columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, numberOfEigensamples, dryRun);
+                            columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, numberOfEigensamples, useTruncatedSVD, dryRun);
                 } else {
                     logger.info("QC:  No suspicious samples found ...");
                     logger.info("Creating final PoN only redo'ing the reduction step ...");
-                    HDF5PCACoveragePoNCreationUtils.redoReduction(ctx, numberOfEigensamples, outputQCFile, outFile, HDF5File.OpenMode.CREATE);
+                    HDF5PCACoveragePoNCreationUtils.redoReduction(ctx, numberOfEigensamples, useTruncatedSVD, outputQCFile, outFile, HDF5File.OpenMode.CREATE);
                 }
             }
         } else {
             logger.info("Creating PoN directly (skipping QC)...");
             HDF5PCACoveragePoNCreationUtils.create(ctx, outFile, HDF5File.OpenMode.CREATE, inputFile, targets, new ArrayList<>(),
                     targetFactorThreshold, maximumPercentZerosInColumn, maximumPercentZerosInTarget,
-                    columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, numberOfEigensamples, dryRun
+                    columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, numberOfEigensamples, useTruncatedSVD, dryRun
             );
         }
 
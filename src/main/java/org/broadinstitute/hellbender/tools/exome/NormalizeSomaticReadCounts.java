@@ -13,12 +13,18 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.pon.coverage.pca.HDF5PCACoveragePoN;
 import org.broadinstitute.hellbender.tools.pon.coverage.pca.PCACoveragePoN;
 import org.broadinstitute.hellbender.tools.pon.coverage.pca.PCATangentNormalizationResult;
+import org.broadinstitute.hellbender.tools.pon.coverage.pca.PCATangentNormalizer;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Normalizes read counts given the PanelOfNormals (PoN).
@@ -41,6 +47,21 @@ import java.util.List;
  *   --tangentNormalized tumor.tn.tsv \
  *   --preTangentNormalized tumor.preTN.tsv
  * </pre>
+ *
+ * <p>
+ *     Many case samples can be normalized against the same PoN in a single run, so that the PoN is read only once.
+ *     The read-count files are listed one per line in the file given to {@code --inputList}, and the tangent
+ *     normalized and pre-tangent normalized counts of each sample are written to
+ *     {@code <sample>.tn.tsv} and {@code <sample>.preTN.tsv} in the {@code --outputDirectory}.
+ * </p>
+ *
+ * <pre>
+ * java -Xmx4g -jar $gatk_jar NormalizeSomaticReadCounts \
+ *   --inputList tumors.list \
+ *   --targets padded_targets.tsv \
+ *   --panelOfNormals panel_of_normals.pon \
+ *   --outputDirectory normalized
+ * </pre>
  */
 @CommandLineProgramProperties(
         summary = "Normalize PCOV read counts using a panel of normals",
@@ -59,14 +80,39 @@ public final class NormalizeSomaticReadCounts extends CommandLineProgram {
     public static final String FACTOR_NORMALIZED_COUNTS_LONG_NAME = "factorNormalizedOutput";
     public static final String FACTOR_NORMALIZED_COUNTS_SHORT_NAME = "FNO";
 
+    public static final String READ_COUNTS_FILE_LIST_FULL_NAME = "inputList";
+    public static final String READ_COUNTS_FILE_LIST_SHORT_NAME = READ_COUNTS_FILE_LIST_FULL_NAME;
+
+    public static final String OUTPUT_DIRECTORY_FULL_NAME = "outputDirectory";
+    public static final String OUTPUT_DIRECTORY_SHORT_NAME = "outputDir";
+
+    public static final String TANGENT_NORMALIZED_FILE_SUFFIX = ".tn.tsv";
+    public static final String PRE_TANGENT_NORMALIZED_FILE_SUFFIX = ".preTN.tsv";
+
     @Argument(
             doc = "read counts input file.  This can only contain one sample.",
             shortName = READ_COUNTS_FILE_SHORT_NAME,
             fullName = READ_COUNTS_FILE_FULL_NAME,
-            optional = false
+            optional = true
     )
     protected File readCountsFile;
 
+    @Argument(
+            doc = "file listing read counts input files, one per line, to normalize in a single run.  Each can only contain one sample.",
+            shortName = READ_COUNTS_FILE_LIST_SHORT_NAME,
+            fullName = READ_COUNTS_FILE_LIST_FULL_NAME,
+            optional = true
+    )
+    protected File readCountsFileList;
+
+    @Argument(
+            doc = "output directory for the normalized counts of each sample in the input list",
+            shortName = OUTPUT_DIRECTORY_SHORT_NAME,
+            fullName = OUTPUT_DIRECTORY_FULL_NAME,
+            optional = true
+    )
+    protected File outputDirectory;
+
     @Argument(
             doc = "target file -- not a BED file.  Should be formatted as a tsv with at least the following header columns: contig, start, stop, name.",
             shortName = ExomeStandardArgumentDefinitions.TARGET_FILE_SHORT_NAME,
@@ -87,7 +133,7 @@ public final class NormalizeSomaticReadCounts extends CommandLineProgram {
             doc = "Tangent normalized counts output",
             shortName = ExomeStandardArgumentDefinitions.TANGENT_NORMALIZED_COUNTS_FILE_SHORT_NAME,
             fullName = ExomeStandardArgumentDefinitions.TANGENT_NORMALIZED_COUNTS_FILE_LONG_NAME,
-            optional = false
+            optional = true
     )
     protected File tangentNormalizationOutFile;
 
@@ -122,6 +168,13 @@ public final class NormalizeSomaticReadCounts extends CommandLineProgram {
                     "HDF5 is currently supported on x86-64 architecture and Linux or OSX systems.");
         }
         IOUtils.canReadFile(ponFile);
+        if (readCountsFileList != null) {
+            return doBatchWork();
+        }
+        if (readCountsFile == null || tangentNormalizationOutFile == null) {
+            throw new CommandLineException.MissingArgument(readCountsFile == null ? READ_COUNTS_FILE_FULL_NAME : ExomeStandardArgumentDefinitions.TANGENT_NORMALIZED_COUNTS_FILE_LONG_NAME,
+                    String.format("the input read counts and tangent normalized output are required unless an input list (--%s) is given", READ_COUNTS_FILE_LIST_FULL_NAME));
+        }
         try (final HDF5File hdf5PoNFile = new HDF5File(ponFile)) {
             final PCACoveragePoN pon = new HDF5PCACoveragePoN(hdf5PoNFile, logger);
             final TargetCollection<Target> targetCollection = readTargetCollection(targetFile);
@@ -132,6 +185,69 @@ public final class NormalizeSomaticReadCounts extends CommandLineProgram {
         }
     }
 
+    /**
+     * Normalizes every read-count file in the input list, reading the PoN only once.
+     * <p>
+     *     Samples are processed one at a time, so the memory used does not depend on the number of samples.
+     * </p>
+     */
+    private Object doBatchWork() {
+        if (readCountsFile != null || tangentNormalizationOutFile != null || preTangentNormalizationOutFile != null
+                || betaHatsOutFile != null || fntOutFile != null) {
+            throw new CommandLineException.BadArgumentValue(READ_COUNTS_FILE_LIST_FULL_NAME,
+                    "single-sample inputs and outputs cannot be combined with an input list");
+        }
+        if (outputDirectory == null) {
+            throw new CommandLineException.MissingArgument(OUTPUT_DIRECTORY_FULL_NAME,
+                    String.format("an output directory is required with an input list (--%s)", READ_COUNTS_FILE_LIST_FULL_NAME));
+        }
+        final List<File> readCountsFiles = readReadCountsFileList(readCountsFileList);
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new UserException.CouldNotCreateOutputFile(outputDirectory, "Could not create the output directory");
+        }
+        final PCATangentNormalizer normalizer;
+        try (final HDF5File hdf5PoNFile = new HDF5File(ponFile)) {
+            normalizer = new PCATangentNormalizer(new HDF5PCACoveragePoN(hdf5PoNFile, logger));
+        }
+        final TargetCollection<Target> targetCollection = readTargetCollection(targetFile);
+        final Set<String> sampleNames = new HashSet<>(readCountsFiles.size());
+        for (final File file : readCountsFiles) {
+            final ReadCountCollection proportionalCoverageProfile = readInputReadCounts(file, targetCollection);
+            final String sampleName = proportionalCoverageProfile.columnNames().get(0);
+            if (!sampleNames.add(sampleName)) {
+                throw new UserException.BadInput(String.format("Sample %s in %s appears in more than one input file", sampleName, file));
+            }
+            logger.info(String.format("Normalizing sample %s (%d of %d) ...", sampleName, sampleNames.size(), readCountsFiles.size()));
+            normalizer.normalize(proportionalCoverageProfile).write(getCommandLine(),
+                    new File(outputDirectory, sampleName + TANGENT_NORMALIZED_FILE_SUFFIX),
+                    new File(outputDirectory, sampleName + PRE_TANGENT_NORMALIZED_FILE_SUFFIX), null, null);
+        }
+        return "SUCCESS";
+    }
+
+    /**
+     * Reads the list of read-count files, skipping blank and comment (#) lines.
+     * @param listFile the list file.
+     * @return never {@code null}, nor empty.
+     */
+    private static List<File> readReadCountsFileList(final File listFile) {
+        IOUtils.canReadFile(listFile);
+        final List<File> result;
+        try (final BufferedReader reader = new BufferedReader(new FileReader(listFile))) {
+            result = reader.lines()
+                    .filter(l -> !l.startsWith("#") && l.matches(".*\\S.*"))
+                    .map(l -> new File(l.trim()))
+                    .collect(Collectors.toList());
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(listFile, ex);
+        }
+        if (result.isEmpty()) {
+            throw new UserException.BadInput(String.format("The input list %s does not contain any read counts file", listFile));
+        }
+        result.forEach(IOUtils::canReadFile);
+        return result;
+    }
+
     /**
      * Reads the target collection from a file.
      * @param targetFile the input target file.
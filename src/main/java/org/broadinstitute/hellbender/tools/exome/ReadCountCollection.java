@@ -86,15 +86,7 @@ public final class ReadCountCollection implements Serializable {
      */
     private ReadCountCollection(final List<Target> targets, final List<String> columnNames, final RealMatrix counts, final boolean verifyInput) {
         if (verifyInput) {
-            Utils.nonNull(targets,"the input targets cannot be null");
-            Utils.nonNull(columnNames,"the column names cannot be null");
-            Utils.nonNull(counts,"the counts cannot be null");
-            Utils.containsNoNull(columnNames, "column names contain nulls");
-            Utils.containsNoNull(targets, "there are some null targets");
-            Utils.validateArg(counts.getRowDimension() == targets.size(), "number of count rows does not match the number of targets");
-            Utils.validateArg(counts.getColumnDimension() == columnNames.size(), "number of count columns does not match the number of column names");
-            Utils.validateArg(new HashSet<>(targets).size() == targets.size(), "targets contain duplicates");
-            Utils.validateArg(new HashSet<>(columnNames).size() == columnNames.size(), "column names contain duplicates");
+            checkInput(targets, columnNames, counts);
             this.targets = Collections.unmodifiableList(new ArrayList<>(targets));
             this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
             this.counts = counts.copy();
@@ -106,6 +98,37 @@ public final class ReadCountCollection implements Serializable {
         targetIndexMap = createTargetIndexMap(this.targets);
     }
 
+    /**
+     * Creates a new collection that takes ownership of the input arguments rather than copying them.
+     * <p>
+     *     The input is checked as in {@link #ReadCountCollection(List, List, RealMatrix)}, but no defensive copies are
+     *     made so the caller must not modify the arguments afterwards. This is meant for freshly loaded collections,
+     *     where copying would double the memory footprint of the counts.
+     * </p>
+     *
+     * @param targets the targets.
+     * @param columnNames the count column names.
+     * @param counts the read counts.
+     * @return never {@code null}.
+     * @throws IllegalArgumentException under the same conditions as {@link #ReadCountCollection(List, List, RealMatrix)}.
+     */
+    static ReadCountCollection withoutCopying(final List<Target> targets, final List<String> columnNames, final RealMatrix counts) {
+        checkInput(targets, columnNames, counts);
+        return new ReadCountCollection(Collections.unmodifiableList(targets), Collections.unmodifiableList(columnNames), counts, false);
+    }
+
+    private static void checkInput(final List<Target> targets, final List<String> columnNames, final RealMatrix counts) {
+        Utils.nonNull(targets,"the input targets cannot be null");
+        Utils.nonNull(columnNames,"the column names cannot be null");
+        Utils.nonNull(counts,"the counts cannot be null");
+        Utils.containsNoNull(columnNames, "column names contain nulls");
+        Utils.containsNoNull(targets, "there are some null targets");
+        Utils.validateArg(counts.getRowDimension() == targets.size(), "number of count rows does not match the number of targets");
+        Utils.validateArg(counts.getColumnDimension() == columnNames.size(), "number of count columns does not match the number of column names");
+        Utils.validateArg(new HashSet<>(targets).size() == targets.size(), "targets contain duplicates");
+        Utils.validateArg(new HashSet<>(columnNames).size() == columnNames.size(), "column names contain duplicates");
+    }
+
     /**
      * Returns the targets in the order they are found in this collection.
      * @return never {@code null}, and unmodifiable and immutable list of non-null targets.
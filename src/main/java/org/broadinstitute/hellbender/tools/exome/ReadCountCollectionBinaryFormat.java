@@ -0,0 +1,617 @@
+package org.broadinstitute.hellbender.tools.exome;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Binary file format for {@link ReadCountCollection} instances.
+ * <p>
+ * Parsing the tab-separated read count format costs a number of string allocations per count and several times the
+ * size of the count matrix in heap. This format instead stores a column-wise target table followed by a dense
+ * count block that is memory-mapped and bulk-copied into the count matrix rows when read.
+ * </p>
+ * <p>
+ * Layout (all numbers are big-endian, strings are an {@code int} byte length followed by their UTF-8 bytes):
+ * </p>
+ * <pre>
+ *     magic             8 bytes, {@code GATKRCB1}
+ *     version           int
+ *     count type        byte, 0 for double and 1 for int counts
+ *     has intervals     byte, 0 or 1
+ *     target count      int
+ *     column count      int
+ *     comments          int count followed by that many strings
+ *     column names      column count strings
+ *     contig names      int count followed by that many strings
+ *     target names      target count strings
+ *     contig indices    target count ints, only if there are intervals
+ *     starts            target count ints, only if there are intervals
+ *     ends              target count ints, only if there are intervals
+ *     padding           zeros up to the next multiple of 8 bytes
+ *     counts            target count x column count doubles or ints, one target after another
+ * </pre>
+ * <p>
+ * Counts are stored as ints whenever all of them are integral values in the int range, which halves the file size of
+ * raw coverage.
+ * </p>
+ */
+public final class ReadCountCollectionBinaryFormat {
+
+    /**
+     * Extension of read count files written in this format by {@link ReadCountCollectionUtils#write(File, ReadCountCollection, String...)}.
+     */
+    public static final String FILE_EXTENSION = ".rcb";
+
+    private static final byte[] MAGIC = "GATKRCB1".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final byte DOUBLE_COUNTS = 0;
+    private static final byte INT_COUNTS = 1;
+
+    /**
+     * Upper bound on the size of each memory-mapped region of the count block.
+     */
+    private static final long MAX_MAPPED_REGION_SIZE = Integer.MAX_VALUE - Long.BYTES;
+
+    // Prevents instantiation of the class.
+    private ReadCountCollectionBinaryFormat() {}
+
+    /**
+     * Checks whether a file is in this format by looking at its first bytes.
+     *
+     * @param file the file to check.
+     * @return {@code true} iff {@code file} is a regular file that starts with this format's magic bytes.
+     * @throws IllegalArgumentException if {@code file} is {@code null}.
+     */
+    public static boolean isBinaryReadCountFile(final File file) {
+        Utils.nonNull(file, "the input file cannot be null");
+        if (!file.isFile() || file.length() < MAGIC.length) {
+            return false;
+        }
+        try (final InputStream input = new FileInputStream(file)) {
+            final byte[] start = new byte[MAGIC.length];
+            int read = 0;
+            while (read < start.length) {
+                final int n = input.read(start, read, start.length - read);
+                if (n < 0) {
+                    return false;
+                }
+                read += n;
+            }
+            return Arrays.equals(start, MAGIC);
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(file, ex);
+        }
+    }
+
+    /**
+     * Writes a read count collection into a file.
+     *
+     * @param file the output file.
+     * @param collection the collection to write.
+     * @param headerComments header comments.
+     * @throws IllegalArgumentException if any of the input parameters is {@code null}
+     *                                  or {@code collection} has a mixture of targets with and without intervals
+     *                                  defined.
+     * @throws IOException if there is some IO issue when writing into the output file.
+     */
+    public static void write(final File file, final ReadCountCollection collection, final String... headerComments) throws IOException {
+        Utils.nonNull(file, "output file cannot be null");
+        Utils.nonNull(collection, "input collection cannot be null");
+        Utils.nonNull(headerComments, "header comments cannot be null");
+
+        final RealMatrix counts = collection.counts();
+        try (final RowWriter writer = new RowWriter(file, collection.targets(), collection.columnNames(), hasOnlyIntCounts(counts), headerComments)) {
+            for (int i = 0; i < counts.getRowDimension(); i++) {
+                writer.writeRow(counts.getRow(i));
+            }
+        }
+    }
+
+    private static boolean hasOnlyIntCounts(final RealMatrix counts) {
+        for (int i = 0; i < counts.getRowDimension(); i++) {
+            for (int j = 0; j < counts.getColumnDimension(); j++) {
+                final double value = counts.getEntry(i, j);
+                if (value != (int) value) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites a file with double counts so that they are stored as ints.
+     * <p>
+     * The count block is converted in place, one region at a time, and the file is then truncated to its new size, so
+     * that a file can be written with double counts when the count type is not known in advance and shrunk afterwards
+     * without holding the counts in memory.
+     * </p>
+     *
+     * @param file the file to rewrite.
+     * @throws IllegalArgumentException if {@code file} is {@code null} or any count is not an integral value in the
+     *                                  int range.
+     * @throws UserException.BadInput if the file is not in this format or is truncated.
+     */
+    public static void convertToIntCounts(final File file) {
+        Utils.nonNull(file, "the file cannot be null");
+        final Header header = mapHeader(file, true);
+        if (header.countType == INT_COUNTS) {
+            return;
+        }
+        final long valueCount = (long) header.targets.size() * header.columnNames.size();
+        final int regionValueCount = (int) Math.min(valueCount, MAX_MAPPED_REGION_SIZE / Double.BYTES);
+        try (final FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            final ByteBuffer doubles = ByteBuffer.allocate(regionValueCount * Double.BYTES);
+            final ByteBuffer ints = ByteBuffer.allocate(regionValueCount * Integer.BYTES);
+            // ints are written behind the doubles that are still to be read, as they take half the space.
+            for (long done = 0; done < valueCount; done += regionValueCount) {
+                final int count = (int) Math.min(regionValueCount, valueCount - done);
+                doubles.clear().limit(count * Double.BYTES);
+                readFully(channel, doubles, header.countsOffset + done * Double.BYTES);
+                doubles.flip();
+                ints.clear();
+                for (int i = 0; i < count; i++) {
+                    final double value = doubles.getDouble();
+                    Utils.validateArg(value == (int) value, () -> "non-integer count " + value + " cannot be stored as an int");
+                    ints.putInt((int) value);
+                }
+                ints.flip();
+                writeFully(channel, ints, header.countsOffset + done * Integer.BYTES);
+            }
+            writeFully(channel, ByteBuffer.wrap(new byte[] {INT_COUNTS}), MAGIC.length + Integer.BYTES);
+            channel.truncate(header.countsOffset + valueCount * Integer.BYTES);
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(file, "could not convert the counts to ints", ex);
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static void writeStrings(final DataOutputStream output, final List<String> strings, final boolean withCount) throws IOException {
+        if (withCount) {
+            output.writeInt(strings.size());
+        }
+        for (final String string : strings) {
+            writeString(output, string);
+        }
+    }
+
+    private static void writeString(final DataOutputStream output, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads the count column names of a file in this format without reading its targets or counts.
+     *
+     * @param file the input file.
+     * @return never {@code null}.
+     * @throws UserException.BadInput if the file is not in this format or is truncated.
+     */
+    public static List<String> readCountColumnNames(final File file) {
+        Utils.nonNull(file, "the input file cannot be null");
+        return mapHeader(file, false).columnNames;
+    }
+
+    /**
+     * Reads a read count collection from a file.
+     * <p>
+     * If a target collection is provided, targets are resolved against it in the same way as
+     * {@link ReadCountCollectionUtils#parse(File, TargetCollection, boolean)} does for the tab-separated format.
+     * </p>
+     *
+     * @param file the input file.
+     * @param targets collection of targets, possibly {@code null}.
+     * @param ignoreMissingTargets whether to drop the counts of targets that are not present in {@code targets}.
+     * @return never {@code null}.
+     * @throws UserException.BadInput if the file is not in this format, is truncated or its targets cannot be resolved.
+     */
+    public static ReadCountCollection read(final File file, final TargetCollection<Target> targets, final boolean ignoreMissingTargets) {
+        Utils.nonNull(file, "the input file cannot be null");
+        Utils.validateArg(!(targets == null && ignoreMissingTargets), "When ignore missing targets is true, targets cannot be null");
+        final Header header = mapHeader(file, true);
+        final double[][] counts = readCounts(file, header);
+
+        final List<Target> resultTargets = new ArrayList<>(header.targets.size());
+        final List<double[]> resultCounts = new ArrayList<>(header.targets.size());
+        for (int i = 0; i < header.targets.size(); i++) {
+            final Target target = targets == null ? header.targets.get(i)
+                    : resolveTarget(file, header.targets.get(i), targets, ignoreMissingTargets);
+            if (target != null) {
+                resultTargets.add(target);
+                resultCounts.add(counts[i]);
+            }
+        }
+        if (resultTargets.isEmpty()) {
+            throw new UserException.BadInput("there is no counts (zero targets) in the input source " + file.getPath());
+        }
+        if (new HashSet<>(resultTargets).size() != resultTargets.size()) {
+            throw new UserException.BadInput("duplicated targets in " + file.getPath());
+        }
+        return ReadCountCollection.withoutCopying(resultTargets, header.columnNames,
+                new Array2DRowRealMatrix(resultCounts.toArray(new double[resultCounts.size()][]), false));
+    }
+
+    /**
+     * Resolves a stored target against a target collection.
+     * @return {@code null} if the target must be ignored.
+     */
+    private static Target resolveTarget(final File file, final Target stored, final TargetCollection<Target> targets,
+                                        final boolean ignoreMissingTargets) {
+        final SimpleInterval interval = stored.getInterval();
+        if (interval == null) {
+            final Target target = targets.target(stored.getName());
+            if (target == null) {
+                if (ignoreMissingTargets) {
+                    return null;
+                }
+                throw new UserException.BadInput(String.format("unknown target '%s' in %s not present in the target collection", stored.getName(), file.getPath()));
+            }
+            return new Target(stored.getName(), targets.location(target));
+        }
+        final Target target = targets.target(interval);
+        if (target == null) {
+            return ignoreMissingTargets ? null : stored;
+        } else if (!target.getInterval().equals(interval)) {
+            throw new UserException.BadInput(String.format("mismatching yet overlapping intervals in %s (%s) and the target collection (%s)", file.getPath(), interval, target.getInterval()));
+        } else if (!target.getName().equals(stored.getName())) {
+            throw new UserException.BadInput(String.format("conflicting target resolution in %s from the name (%s) and interval (%s) provided", file.getPath(), stored.getName(), interval));
+        }
+        return new Target(target.getName(), target.getInterval());
+    }
+
+    /**
+     * Maps the start of the file and parses the header and, optionally, the target table.
+     */
+    private static Header mapHeader(final File file, final boolean readTargets) {
+        try (final FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), MAX_MAPPED_REGION_SIZE));
+            final byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new UserException.BadInput(String.format("%s is not a binary read count file", file.getPath()));
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new UserException.BadInput(String.format("unsupported binary read count file version %d in %s", version, file.getPath()));
+            }
+            final byte countType = buffer.get();
+            if (countType != DOUBLE_COUNTS && countType != INT_COUNTS) {
+                throw new UserException.BadInput(String.format("unknown count type %d in %s", countType, file.getPath()));
+            }
+            final boolean withIntervals = buffer.get() != 0;
+            final int targetCount = readNonNegativeInt(buffer, file);
+            final int columnCount = readNonNegativeInt(buffer, file);
+            readStrings(buffer, readNonNegativeInt(buffer, file), file); // header comments are not part of the collection.
+            final List<String> columnNames = readStrings(buffer, columnCount, file);
+            if (!readTargets) {
+                return new Header(countType, columnNames, null, 0);
+            }
+
+            final List<String> contigs = readStrings(buffer, readNonNegativeInt(buffer, file), file);
+            final List<String> names = readStrings(buffer, targetCount, file);
+            final List<Target> targets = new ArrayList<>(targetCount);
+            if (withIntervals) {
+                final int[] contigIndices = readInts(buffer, targetCount);
+                final int[] starts = readInts(buffer, targetCount);
+                final int[] ends = readInts(buffer, targetCount);
+                for (int i = 0; i < targetCount; i++) {
+                    if (contigIndices[i] < 0 || contigIndices[i] >= contigs.size() || starts[i] <= 0 || starts[i] > ends[i]) {
+                        throw new UserException.BadInput(String.format("invalid interval for target '%s' in %s", names.get(i), file.getPath()));
+                    }
+                    targets.add(new Target(names.get(i), new SimpleInterval(contigs.get(contigIndices[i]), starts[i], ends[i])));
+                }
+            } else {
+                names.forEach(name -> targets.add(new Target(name)));
+            }
+            final long countsOffset = (buffer.position() + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+            final long countsSize = (long) targetCount * columnCount * (countType == INT_COUNTS ? Integer.BYTES : Double.BYTES);
+            if (countsOffset + countsSize != channel.size()) {
+                throw new UserException.BadInput(String.format("%s has %d bytes but %d were expected", file.getPath(), channel.size(), countsOffset + countsSize));
+            }
+            return new Header(countType, columnNames, targets, countsOffset);
+        } catch (final BufferUnderflowException ex) {
+            throw new UserException.BadInput(String.format("%s is truncated", file.getPath()));
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(file, ex);
+        }
+    }
+
+    /**
+     * Maps the count block region by region and copies it into one array per target.
+     */
+    private static double[][] readCounts(final File file, final Header header) {
+        final double[][] result = new double[header.targets.size()][header.columnNames.size()];
+        readRows(file, header, 0, result, result.length);
+        return result;
+    }
+
+    /**
+     * Copies consecutive rows of the count block into an array, mapping the block in regions no larger than
+     * {@link #MAX_MAPPED_REGION_SIZE}.
+     */
+    private static void readRows(final File file, final Header header, final int firstRow, final double[][] destination, final int rowCount) {
+        final int columnCount = header.columnNames.size();
+        final int valueSize = header.countType == INT_COUNTS ? Integer.BYTES : Double.BYTES;
+        final long rowSize = (long) columnCount * valueSize;
+        if (rowSize == 0 || rowCount == 0) {
+            return;
+        }
+        final int rowsPerRegion = (int) Math.max(1, Math.min(rowCount, MAX_MAPPED_REGION_SIZE / rowSize));
+        final int[] intRow = header.countType == INT_COUNTS ? new int[columnCount] : null;
+        try (final FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            for (int done = 0; done < rowCount; done += rowsPerRegion) {
+                final int regionRowCount = Math.min(rowsPerRegion, rowCount - done);
+                final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                        header.countsOffset + (firstRow + done) * rowSize, regionRowCount * rowSize);
+                if (intRow == null) {
+                    final DoubleBuffer values = region.asDoubleBuffer();
+                    for (int i = 0; i < regionRowCount; i++) {
+                        values.get(destination[done + i], 0, columnCount);
+                    }
+                } else {
+                    final IntBuffer values = region.asIntBuffer();
+                    for (int i = 0; i < regionRowCount; i++) {
+                        values.get(intRow);
+                        final double[] row = destination[done + i];
+                        for (int j = 0; j < columnCount; j++) {
+                            row[j] = intRow[j];
+                        }
+                    }
+                }
+            }
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(file, ex);
+        }
+    }
+
+    private static int readNonNegativeInt(final ByteBuffer buffer, final File file) {
+        final int value = buffer.getInt();
+        if (value < 0) {
+            throw new UserException.BadInput(String.format("negative size %d in %s", value, file.getPath()));
+        }
+        return value;
+    }
+
+    private static int[] readInts(final ByteBuffer buffer, final int count) {
+        final int[] result = new int[count];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return result;
+    }
+
+    private static List<String> readStrings(final ByteBuffer buffer, final int count, final File file) {
+        final List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final byte[] bytes = new byte[readNonNegativeInt(buffer, file)];
+            buffer.get(bytes);
+            result.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    /**
+     * Random access reader of the counts of a file, one range of targets at a time.
+     * <p>
+     *     The file is only open while rows are being read, so any number of instances can be kept around without
+     *     holding file descriptors.
+     * </p>
+     */
+    public static final class RowReader {
+        private final File file;
+        private final Header header;
+
+        /**
+         * Reads the header and target table of a file.
+         * @param file the input file.
+         * @throws UserException.BadInput if the file is not in this format or is truncated.
+         */
+        public RowReader(final File file) {
+            this.file = Utils.nonNull(file, "the input file cannot be null");
+            this.header = mapHeader(file, true);
+        }
+
+        /**
+         * @return an unmodifiable list of the targets in the file, in the order of the rows.
+         */
+        public List<Target> targets() {
+            return Collections.unmodifiableList(header.targets);
+        }
+
+        /**
+         * @return an unmodifiable list of the count column names.
+         */
+        public List<String> columnNames() {
+            return Collections.unmodifiableList(header.columnNames);
+        }
+
+        /**
+         * @return whether the counts are stored as ints.
+         */
+        public boolean hasIntCounts() {
+            return header.countType == INT_COUNTS;
+        }
+
+        /**
+         * Copies the counts of a range of targets.
+         * @param firstRow index of the first target to read.
+         * @param destination where to copy the counts of each target; the first {@link #columnNames()}{@code .size()}
+         *                    elements of each of the first {@code rowCount} arrays are overwritten.
+         * @param rowCount number of targets to read.
+         */
+        public void readRows(final int firstRow, final double[][] destination, final int rowCount) {
+            Utils.nonNull(destination, "the destination cannot be null");
+            Utils.validateArg(firstRow >= 0 && rowCount >= 0 && firstRow + rowCount <= header.targets.size(), "row range out of bounds");
+            Utils.validateArg(destination.length >= rowCount, "the destination has too few rows");
+            ReadCountCollectionBinaryFormat.readRows(file, header, firstRow, destination, rowCount);
+        }
+    }
+
+    /**
+     * Writer of files in this format, one target at a time.
+     * <p>
+     *     The targets and column names are fixed when the writer is created, so that counts can be written as they
+     *     are computed without holding the whole count matrix in memory.
+     * </p>
+     */
+    public static final class RowWriter implements Closeable {
+        private final DataOutputStream output;
+        private final ByteBuffer rowBuffer;
+        private final boolean intCounts;
+        private final int columnCount;
+        private final int targetCount;
+        private int rowsWritten;
+        private boolean onlyIntCounts = true;
+
+        /**
+         * Creates a writer and writes the file header and target table.
+         *
+         * @param file the output file.
+         * @param targets the targets, in the order their counts will be written.
+         * @param columnNames the count column names.
+         * @param intCounts whether to store counts as ints; if so all counts written must be integral values in the
+         *                  int range.
+         * @param headerComments header comments.
+         * @throws IllegalArgumentException if any of the input parameters is {@code null} or {@code targets} has a
+         *                                  mixture of targets with and without intervals defined.
+         * @throws IOException if there is some IO issue when writing into the output file.
+         */
+        public RowWriter(final File file, final List<Target> targets, final List<String> columnNames, final boolean intCounts,
+                         final String... headerComments) throws IOException {
+            Utils.nonNull(file, "output file cannot be null");
+            Utils.nonNull(targets, "the targets cannot be null");
+            Utils.nonNull(columnNames, "the column names cannot be null");
+            Utils.nonNull(headerComments, "header comments cannot be null");
+            final long targetsWithIntervals = targets.stream().filter(t -> t.getInterval() != null).count();
+            Utils.validateArg(targetsWithIntervals == 0 || targetsWithIntervals == targets.size(),
+                    "invalid combination of targets with and without intervals defined");
+            final boolean withIntervals = targetsWithIntervals > 0;
+            this.intCounts = intCounts;
+            this.columnCount = columnNames.size();
+            this.targetCount = targets.size();
+            this.rowBuffer = ByteBuffer.allocate(columnCount * (intCounts ? Integer.BYTES : Double.BYTES));
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+            output.write(MAGIC);
+            output.writeInt(VERSION);
+            output.writeByte(intCounts ? INT_COUNTS : DOUBLE_COUNTS);
+            output.writeByte(withIntervals ? 1 : 0);
+            output.writeInt(targets.size());
+            output.writeInt(columnNames.size());
+            writeStrings(output, Arrays.asList(headerComments), true);
+            writeStrings(output, columnNames, false);
+
+            final Map<String, Integer> contigIndices = new LinkedHashMap<>();
+            if (withIntervals) {
+                targets.forEach(t -> contigIndices.putIfAbsent(t.getContig(), contigIndices.size()));
+            }
+            writeStrings(output, new ArrayList<>(contigIndices.keySet()), true);
+            for (final Target target : targets) {
+                writeString(output, target.getName());
+            }
+            if (withIntervals) {
+                for (final Target target : targets) {
+                    output.writeInt(contigIndices.get(target.getContig()));
+                }
+                for (final Target target : targets) {
+                    output.writeInt(target.getStart());
+                }
+                for (final Target target : targets) {
+                    output.writeInt(target.getEnd());
+                }
+            }
+            while (output.size() % Long.BYTES != 0) {
+                output.writeByte(0);
+            }
+        }
+
+        /**
+         * Writes the counts of the next target.
+         * @param counts the counts, one per column.
+         * @throws IOException if there is some IO issue when writing into the output file.
+         */
+        public void writeRow(final double[] counts) throws IOException {
+            Utils.nonNull(counts, "the counts cannot be null");
+            Utils.validateArg(counts.length == columnCount, "the number of counts does not match the number of columns");
+            if (rowsWritten == targetCount) {
+                throw new IllegalStateException("all targets have already been written");
+            }
+            rowBuffer.clear();
+            for (final double value : counts) {
+                if (intCounts) {
+                    Utils.validateArg(value == (int) value, () -> "non-integer count " + value + " cannot be stored as an int");
+                    rowBuffer.putInt((int) value);
+                } else {
+                    onlyIntCounts &= value == (int) value;
+                    rowBuffer.putDouble(value);
+                }
+            }
+            output.write(rowBuffer.array(), 0, rowBuffer.position());
+            rowsWritten++;
+        }
+
+        /**
+         * @return whether all the counts written so far are integral values in the int range, so that the file can be
+         * converted with {@link #convertToIntCounts(File)} once closed.
+         */
+        public boolean hasOnlyIntCounts() {
+            return onlyIntCounts;
+        }
+
+        /**
+         * Closes the output file.
+         * @throws IllegalStateException if fewer rows than targets were written.
+         * @throws IOException if there is some IO issue when closing the output file.
+         */
+        @Override
+        public void close() throws IOException {
+            output.close();
+            if (rowsWritten != targetCount) {
+                throw new IllegalStateException(String.format("only %d out of %d targets were written", rowsWritten, targetCount));
+            }
+        }
+    }
+
+    /**
+     * Parsed file header.
+     */
+    private static final class Header {
+        private final byte countType;
+        private final List<String> columnNames;
+        private final List<Target> targets;
+        private final long countsOffset;
+
+        private Header(final byte countType, final List<String> columnNames, final List<Target> targets, final long countsOffset) {
+            this.countType = countType;
+            this.columnNames = columnNames;
+            this.targets = targets;
+            this.countsOffset = countsOffset;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package org.broadinstitute.hellbender.tools.exome;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.primitives.Doubles;
-import htsjdk.samtools.util.Locatable;
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
@@ -73,6 +72,11 @@ import java.util.stream.IntStream;
  * If there is any formatting problems the appropriate exception will be thrown
  * as described in {@link #parse}.
  * </p>
+ * <p>
+ * Files can also be in the binary format described in {@link ReadCountCollectionBinaryFormat}, which is detected
+ * automatically when parsing a file and used when writing into a file with the
+ * {@value ReadCountCollectionBinaryFormat#FILE_EXTENSION} extension.
+ * </p>
  *
  * @author Valentin Ruano-Rubio &lt;valentin@broadinstitute.org&gt;
  * @author Mehrtash Babadi &lt;mehrtash@broadinstitute.org&gt;
@@ -104,6 +108,10 @@ public final class ReadCountCollectionUtils {
 
     /**
      * Writes the content of a collection into a file.
+     * <p>
+     * Files with the {@value ReadCountCollectionBinaryFormat#FILE_EXTENSION} extension are written in the binary format
+     * described in {@link ReadCountCollectionBinaryFormat}, any other file as a tab-separated table.
+     * </p>
      *
      * @param file           the output file.
      * @param collection     the output collection.
@@ -115,6 +123,10 @@ public final class ReadCountCollectionUtils {
      */
     public static void write(final File file, final ReadCountCollection collection, final String... headerComments) throws IOException {
         Utils.nonNull(file, "output file cannot be null");
+        if (file.getName().endsWith(ReadCountCollectionBinaryFormat.FILE_EXTENSION)) {
+            ReadCountCollectionBinaryFormat.write(file, collection, headerComments);
+            return;
+        }
         try (final Writer writer = new FileWriter(file)) {
             write(writer, collection, headerComments);
         }
@@ -222,6 +234,10 @@ public final class ReadCountCollectionUtils {
      * If no target name is included in the input but intervals are present, the {@code exons} collection provided
      * will be utilized to resolve those names.
      * </p>
+     * <p>
+     * Files in the binary format described in {@link ReadCountCollectionBinaryFormat} are detected and loaded
+     * without any text parsing.
+     * </p>
      *
      * @param file  the source file.
      * @param targets collection of exons (targets). This parameter can be {@code null}, to indicate that no exon
@@ -238,8 +254,12 @@ public final class ReadCountCollectionUtils {
     public static ReadCountCollection parse(final File file, final TargetCollection<Target> targets,
                                                 final boolean ignoreMissingTargets) throws IOException {
         Utils.nonNull(file, "the input file cannot be null");
-        final ReadCountsReader reader = new ReadCountsReader(file, targets, ignoreMissingTargets);
-        return readCounts(file.getPath(), reader, reader.getCountColumnNames());
+        if (ReadCountCollectionBinaryFormat.isBinaryReadCountFile(file)) {
+            return ReadCountCollectionBinaryFormat.read(file, targets, ignoreMissingTargets);
+        }
+        try (final ReadCountsReader reader = new ReadCountsReader(file, targets, ignoreMissingTargets)) {
+            return readCounts(file.getPath(), reader, reader.getCountColumnNames());
+        }
     }
 
     /**
@@ -296,7 +316,8 @@ public final class ReadCountCollectionUtils {
         if (buffer.getTargets().isEmpty()) {
             throw new UserException.BadInput("there is no counts (zero targets) in the input source " + sourceName);
         }
-        return new ReadCountCollection(buffer.getTargets(), columnNames, new Array2DRowRealMatrix(buffer.getCounts(), false));
+        // the buffer is discarded, so the collection can take ownership of its content without a defensive copy.
+        return ReadCountCollection.withoutCopying(buffer.getTargets(), new ArrayList<>(columnNames), new Array2DRowRealMatrix(buffer.getCounts(), false));
     }
 
     /**
@@ -306,6 +327,9 @@ public final class ReadCountCollectionUtils {
      * targets themselves.
      */
     public static List<String> retrieveSampleNamesFromReadCountsFile(final File readCountsFile) {
+        if (ReadCountCollectionBinaryFormat.isBinaryReadCountFile(readCountsFile)) {
+            return ReadCountCollectionBinaryFormat.readCountColumnNames(readCountsFile);
+        }
         try  {
             return new ReadCountsReader(readCountsFile).getCountColumnNames();
         } catch (final IOException e) {
@@ -364,62 +388,6 @@ public final class ReadCountCollectionUtils {
         return sampleNames.get(0);
     }
 
-    /**
-     * Write a read counts file of targets with coverage to file with dummy names
-     * @param outFile File to write targets with coverage. Never {@code null}
-     * @param sampleName Name of sample being written. Never {@code null}
-     * @param byKeySorted Map of simple-intervals to their copy-ratio. Never {@code null}
-     * @param comments Comments to add to header of coverage file.
-     */
-    public static <N extends Number> void writeReadCountsFromSimpleInterval(final File outFile, final String sampleName,
-                                                                            final SortedMap<SimpleInterval, N> byKeySorted,
-                                                                            final String[] comments) {
-        try (final Writer outWriter = new FileWriter(outFile)) {
-            writeReadCountsFromSimpleInterval(outWriter, outFile.getPath(), sampleName, byKeySorted, comments);
-        } catch (final IOException e) {
-            throw new UserException.CouldNotCreateOutputFile(outFile, e);
-        }
-    }
-
-    /**
-     * Write a read counts file of targets with coverage to file with dummy names
-     * @param outWriter Writer to write targets with coverage. Never {@code null}
-     * @param outName Name of the output writer. Never {@code null}
-     * @param sampleName Name of sample being written. Never {@code null}
-     * @param byKeySorted Map of simple-intervals to their copy-ratio. Never {@code null}
-     * @param comments Comments to add to header of coverage file.
-     */
-    public static <N extends Number> void writeReadCountsFromSimpleInterval(final Writer outWriter, final String outName,
-                                                                            final String sampleName, final SortedMap<SimpleInterval, N> byKeySorted,
-                                                                            final String[] comments) {
-
-        Utils.nonNull(outWriter, "Output writer cannot be null.");
-        Utils.nonNull(sampleName, "Sample name cannot be null.");
-        Utils.nonNull(byKeySorted, "Targets cannot be null.");
-        Utils.nonNull(comments, "Comments cannot be null.");
-
-        final boolean areTargetIntervalsAllPopulated = byKeySorted.keySet().stream().allMatch(t -> t != null);
-        if (!areTargetIntervalsAllPopulated) {
-            throw new UserException("Cannot write target coverage file with any null intervals.");
-        }
-
-        try (final TableWriter<ReadCountRecord> writer =
-                     writerWithIntervals(outWriter, Collections.singletonList(sampleName))) {
-            for (String comment : comments) {
-                writer.writeComment(comment);
-            }
-
-            for (final Locatable locatable : byKeySorted.keySet()) {
-                final SimpleInterval interval = new SimpleInterval(locatable);
-                final double coverage = byKeySorted.get(locatable).doubleValue();
-                writer.writeRecord(new ReadCountRecord.SingleSampleRecord(new Target(interval), coverage));
-            }
-        } catch (final IOException e) {
-            throw new UserException.CouldNotCreateOutputFile(outName, e);
-        }
-
-    }
-
     /**
      * Impute zero counts to the median of non-zero values in the enclosing target row.
      *
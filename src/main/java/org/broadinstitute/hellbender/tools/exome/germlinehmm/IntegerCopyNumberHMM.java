@@ -5,7 +5,7 @@ import org.broadinstitute.hellbender.tools.coveragemodel.germline.IntegerCopyNum
 import org.broadinstitute.hellbender.tools.coveragemodel.interfaces.TargetLikelihoodCalculator;
 import org.broadinstitute.hellbender.tools.exome.Target;
 import org.broadinstitute.hellbender.utils.Utils;
-import org.broadinstitute.hellbender.utils.hmm.HMM;
+import org.broadinstitute.hellbender.utils.hmm.DenseHMM;
 
 import javax.annotation.Nonnull;
 import java.io.Serializable;
@@ -23,7 +23,7 @@ import java.util.stream.IntStream;
  * @author Mehrtash Babadi &lt;mehrtash@broadinstitute.org&gt;
  */
 public final class IntegerCopyNumberHMM<DATA>
-        implements HMM<DATA, Target, IntegerCopyNumberState>, Serializable {
+        implements DenseHMM<DATA, Target, IntegerCopyNumberState>, Serializable {
 
     private static final long serialVersionUID = 4013800307709357540L;
 
@@ -93,6 +93,32 @@ public final class IntegerCopyNumberHMM<DATA>
         }
     }
 
+    /**
+     * Calculates the distance between the two targets once for all pairs of states.
+     */
+    @Override
+    public void logTransitionProbabilities(@Nonnull final Target currentPosition,
+                                           @Nonnull final Target nextPosition,
+                                           @Nonnull final double[] result) {
+        final double distance = Target.calculateDistance(currentPosition, nextPosition);
+        final int numStates = hiddenStates.size();
+        if (distance == Double.POSITIVE_INFINITY) {
+            logPriorProbabilities(nextPosition, result);
+            for (int offset = numStates; offset < numStates * numStates; offset += numStates) {
+                System.arraycopy(result, 0, result, offset, numStates);
+            }
+        } else {
+            final String contig = currentPosition.getContig();
+            for (int i = 0, offset = 0; i < numStates; i++, offset += numStates) {
+                final IntegerCopyNumberState currentState = hiddenStates.get(i);
+                for (int j = 0; j < numStates; j++) {
+                    result[offset + j] = transitionProbabilityCacheCollection.logTransitionProbability((int) distance,
+                            sampleSexGenotype, contig, hiddenStates.get(j), currentState);
+                }
+            }
+        }
+    }
+
     @Override
     public double logEmissionProbability(@Nonnull final DATA data,
                                          @Nonnull final IntegerCopyNumberState state,
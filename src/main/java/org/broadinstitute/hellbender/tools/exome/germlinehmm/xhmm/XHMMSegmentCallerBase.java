@@ -103,7 +103,11 @@ public abstract class XHMMSegmentCallerBase extends CommandLineProgram {
     }
 
     /**
-     * Run forward-backward algorithm and Viterbi algorithm on each sample
+     * Run forward-backward algorithm and Viterbi algorithm on each sample.
+     * <p>
+     *     The forward-backward results of all samples are kept until the calls are made, so they are checkpointed
+     *     to keep their memory footprint proportional to the square root of the number of targets.
+     * </p>
      *
      * @param model an instance of {@link XHMMModel}
      * @param targets input target collection
@@ -118,7 +122,7 @@ public abstract class XHMMSegmentCallerBase extends CommandLineProgram {
                     .mapToObj(XHMMEmissionData::new)
                     .collect(Collectors.toList());
             final ForwardBackwardAlgorithm.Result<XHMMEmissionData, Target, CopyNumberTriState> fbResult =
-                    ForwardBackwardAlgorithm.apply(emissionData, targets.targets(), model);
+                    ForwardBackwardAlgorithm.applyCheckpointed(emissionData, targets.targets(), model);
             final List<CopyNumberTriState> bestPath = ViterbiAlgorithm.apply(emissionData, targets.targets(), model);
             sampleForwardBackwardResults.add(fbResult);
             sampleBestPaths.add(bestPath);
@@ -6,7 +6,7 @@ import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
-import org.broadinstitute.hellbender.utils.hmm.HMM;
+import org.broadinstitute.hellbender.utils.hmm.DenseHMM;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
 import java.util.ArrayList;
@@ -28,11 +28,12 @@ import java.util.stream.IntStream;
  * is chosen with probabilities given by an array of weights.
  *
  * Thus our transition probabilities are P(i -> j) = exp(-d/D) delta_{ij} + (1 - exp(-d/D)) weights[j]
- * where delta is the Kronecker delta and D is the memory length.
+ * where delta is the Kronecker delta and D is the memory length.  This is the "stay or jump" form of
+ * {@link DenseHMM#logStayOrJumpProbabilities}, which lets Viterbi run in time linear in the number of states.
  *
  * @author David Benjamin &lt;davidben@broadinstitute.org&gt;
  */
-public abstract class ClusteringGenomicHMM<DATA, HIDDEN> implements HMM<DATA, SimpleInterval, Integer> {
+public abstract class ClusteringGenomicHMM<DATA, HIDDEN> implements DenseHMM<DATA, SimpleInterval, Integer> {
     private final double memoryLength;
     private final List<HIDDEN> hiddenStateValues;
     private final List<Double> weights;
@@ -69,6 +70,32 @@ public abstract class ClusteringGenomicHMM<DATA, HIDDEN> implements HMM<DATA, Si
                                            final Integer nextState, final SimpleInterval nextPosition) {
         return logTransitionProbability(currentState, nextState, calculateDistance(currentPosition, nextPosition));
     }
+
+    @Override
+    public void logTransitionProbabilities(final SimpleInterval currentPosition, final SimpleInterval nextPosition,
+                                           final double[] result) {
+        final double pRemember = Math.exp(-calculateDistance(currentPosition, nextPosition) / memoryLength);
+        final int numStates = weights.size();
+        for (int j = 0; j < numStates; j++) {
+            final double pJump = (1 - pRemember) * weights.get(j);
+            final double logJump = Math.log(pJump);
+            for (int i = 0; i < numStates; i++) {
+                result[i * numStates + j] = i == j ? Math.log(pRemember + pJump) : logJump;
+            }
+        }
+    }
+
+    @Override
+    public boolean logStayOrJumpProbabilities(final SimpleInterval currentPosition, final SimpleInterval nextPosition,
+                                              final double[] logStayProbabilities, final double[] logJumpProbabilities) {
+        final double pRemember = Math.exp(-calculateDistance(currentPosition, nextPosition) / memoryLength);
+        for (int j = 0; j < weights.size(); j++) {
+            final double pJump = (1 - pRemember) * weights.get(j);
+            logStayProbabilities[j] = Math.log(pRemember + pJump);
+            logJumpProbabilities[j] = Math.log(pJump);
+        }
+        return true;
+    }
     // Done with implementation ----------------------------------------------------------------------------------------
 
     private double logTransitionProbability(final Integer currentState, final Integer nextState, final double distance) {
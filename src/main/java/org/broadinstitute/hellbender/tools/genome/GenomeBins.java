@@ -0,0 +1,268 @@
+package org.broadinstitute.hellbender.tools.genome;
+
+import org.broadinstitute.hellbender.tools.exome.Target;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Bins of fixed size that tile a list of genome intervals, as {@link org.broadinstitute.hellbender.utils.IntervalUtils#cutToShards}
+ * would cut them, and the index that finds the bin of a position with a binary search.
+ * <p>
+ *     Bins are identified by their index: those of each interval are numbered consecutively, in the order of the
+ *     intervals. Only the intervals are stored, in primitive arrays, and bins are computed from them when needed, so
+ *     that memory does not depend on the number of bins and the index is cheap to broadcast.
+ * </p>
+ */
+final class GenomeBins implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int binSize;
+    private final String[] contigs;
+    private final int[] starts;
+    private final int[] ends;
+
+    /**
+     * Index of the first bin of each interval, followed by the number of bins.
+     */
+    private final int[] firstBins;
+
+    private final Map<String, ContigIntervals> intervalsByContig;
+
+    /**
+     * Creates the bins.
+     * @param intervals the intervals to cut in bins, they must not overlap.
+     * @param binSize the length of every bin, but the last of each interval that may be shorter.
+     */
+    GenomeBins(final List<SimpleInterval> intervals, final int binSize) {
+        Utils.nonNull(intervals, "the intervals cannot be null");
+        ParamUtils.isPositive(binSize, "the bin size must be positive");
+        this.binSize = binSize;
+        final int intervalCount = intervals.size();
+        contigs = new String[intervalCount];
+        starts = new int[intervalCount];
+        ends = new int[intervalCount];
+        firstBins = new int[intervalCount + 1];
+        final Map<String, List<Integer>> indicesByContig = new LinkedHashMap<>();
+        long binCount = 0;
+        for (int i = 0; i < intervalCount; i++) {
+            final SimpleInterval interval = Utils.nonNull(intervals.get(i), "the intervals cannot contain null");
+            contigs[i] = interval.getContig();
+            starts[i] = interval.getStart();
+            ends[i] = interval.getEnd();
+            firstBins[i] = (int) binCount;
+            binCount += ((long) interval.size() + binSize - 1) / binSize;
+            Utils.validateArg(binCount <= Integer.MAX_VALUE, "there are too many bins, the bin size must be larger");
+            indicesByContig.computeIfAbsent(contigs[i], contig -> new ArrayList<>()).add(i);
+        }
+        firstBins[intervalCount] = (int) binCount;
+        intervalsByContig = new HashMap<>(indicesByContig.size() * 2);
+        indicesByContig.forEach((contig, indices) -> intervalsByContig.put(contig, new ContigIntervals(intervals, indices, starts, ends)));
+    }
+
+    /**
+     * @return the number of bins.
+     */
+    int binCount() {
+        return firstBins[firstBins.length - 1];
+    }
+
+    /**
+     * Returns a bin.
+     * @param binIndex the bin index.
+     * @return never {@code null}.
+     */
+    SimpleInterval bin(final int binIndex) {
+        Utils.validIndex(binIndex, binCount());
+        final int searchResult = Arrays.binarySearch(firstBins, binIndex);
+        final int interval = searchResult >= 0 ? searchResult : -searchResult - 2;
+        final int start = starts[interval] + (binIndex - firstBins[interval]) * binSize;
+        return new SimpleInterval(contigs[interval], start, (int) Math.min((long) start + binSize - 1, ends[interval]));
+    }
+
+    /**
+     * Returns a view of the targets of the bins, that creates the target of a bin each time it is requested.
+     * @return never {@code null}.
+     */
+    List<Target> targets() {
+        return new AbstractList<Target>() {
+            @Override
+            public Target get(final int binIndex) {
+                return new Target(bin(binIndex));
+            }
+
+            @Override
+            public int size() {
+                return binCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the bin indices sorted by contig name and then position.
+     * <p>
+     *     Only the intervals are sorted, as the bins of an interval are already in order.
+     * </p>
+     * @return never {@code null}.
+     */
+    int[] binIndicesInLexicographicalOrder() {
+        final int[] sortedIntervals = IntStream.range(0, starts.length).boxed()
+                .sorted(Comparator.comparing((Integer i) -> contigs[i]).thenComparingInt(i -> starts[i]))
+                .mapToInt(Integer::intValue).toArray();
+        final int[] result = new int[binCount()];
+        int next = 0;
+        for (final int interval : sortedIntervals) {
+            for (int binIndex = firstBins[interval]; binIndex < firstBins[interval + 1]; binIndex++) {
+                result[next++] = binIndex;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the bin that contains a position.
+     * @param contig the contig of the position.
+     * @param position the position.
+     * @return -1 if no bin contains the position.
+     */
+    int binIndex(final String contig, final int position) {
+        final ContigIntervals contigIntervals = intervalsByContig.get(contig);
+        if (contigIntervals == null) {
+            return -1;
+        }
+        final int interval = contigIntervals.intervalIndex(position);
+        return interval < 0 || ends[interval] < position ? -1 : firstBins[interval] + (position - starts[interval]) / binSize;
+    }
+
+    /**
+     * The intervals of a contig sorted by start.
+     */
+    private static final class ContigIntervals implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] starts;
+        private final int[] indices;
+
+        private ContigIntervals(final List<SimpleInterval> intervals, final List<Integer> contigIndices, final int[] allStarts, final int[] allEnds) {
+            indices = contigIndices.stream().sorted(Comparator.comparingInt(i -> allStarts[i])).mapToInt(Integer::intValue).toArray();
+            starts = Arrays.stream(indices).map(i -> allStarts[i]).toArray();
+            for (int i = 1; i < indices.length; i++) {
+                final int previous = indices[i - 1];
+                final int current = indices[i];
+                Utils.validateArg(allStarts[current] > allEnds[previous], () -> "the intervals cannot overlap: " + intervals.get(previous) + " and " + intervals.get(current));
+            }
+        }
+
+        /**
+         * @return the index of the last interval that starts at or before the position, -1 if there is none.
+         */
+        private int intervalIndex(final int position) {
+            final int searchResult = Arrays.binarySearch(starts, position);
+            final int candidate = searchResult >= 0 ? searchResult : -searchResult - 2;
+            return candidate >= 0 ? indices[candidate] : -1;
+        }
+    }
+
+    /**
+     * Read counts of a range of consecutive bins.
+     * <p>
+     *     The range grows as counts are added so that it only spans the bins seen so far; when the reads come sorted,
+     *     as they do in most partitions, it covers little more than the part of the genome they overlap.
+     * </p>
+     */
+    static final class BinCounts implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int offset;
+        private long[] counts = new long[0];
+        private long unbinnedCount;
+
+        /**
+         * Adds one to the count of a bin.
+         * @param binIndex the bin index, non-negative.
+         * @return this object.
+         */
+        BinCounts increment(final int binIndex) {
+            ensureRange(binIndex, binIndex + 1);
+            counts[binIndex - offset]++;
+            return this;
+        }
+
+        /**
+         * Adds one to the count of the items that are not in any bin, which only contributes to {@link #total()}.
+         * @return this object.
+         */
+        BinCounts incrementUnbinned() {
+            unbinnedCount++;
+            return this;
+        }
+
+        /**
+         * Adds the counts of another object to this one.
+         * @param other the other counts.
+         * @return this object.
+         */
+        BinCounts add(final BinCounts other) {
+            Utils.nonNull(other, "the other counts cannot be null");
+            unbinnedCount += other.unbinnedCount;
+            if (other.counts.length == 0) {
+                return this;
+            }
+            ensureRange(other.offset, other.offset + other.counts.length);
+            for (int i = 0, j = other.offset - offset; i < other.counts.length; i++, j++) {
+                counts[j] += other.counts[i];
+            }
+            return this;
+        }
+
+        /**
+         * @param binIndex the bin index.
+         * @return the count of the bin, 0 if no count was added to it.
+         */
+        long get(final int binIndex) {
+            final int i = binIndex - offset;
+            return i >= 0 && i < counts.length ? counts[i] : 0;
+        }
+
+        /**
+         * @return the sum of all counts, including the count of items not in any bin.
+         */
+        long total() {
+            return Arrays.stream(counts).sum() + unbinnedCount;
+        }
+
+        /**
+         * Extends the range so that it includes the bins {@code [from, to)}, growing it at least by its current length
+         * on the side that needs it so that increments cause an amortized constant number of copies.
+         */
+        private void ensureRange(final int from, final int to) {
+            Utils.validateArg(from >= 0, "bin indices must be non-negative");
+            if (counts.length == 0) {
+                offset = from;
+                counts = new long[to - from];
+                return;
+            }
+            final int end = offset + counts.length;
+            if (from >= offset && to <= end) {
+                return;
+            }
+            final int newOffset = from < offset ? Math.max(0, Math.min(from, offset - counts.length)) : offset;
+            final int newEnd = to > end ? (int) Math.min(Integer.MAX_VALUE, Math.max((long) to, (long) end + counts.length)) : end;
+            final long[] newCounts = new long[newEnd - newOffset];
+            System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+            offset = newOffset;
+            counts = newCounts;
+        }
+    }
+}
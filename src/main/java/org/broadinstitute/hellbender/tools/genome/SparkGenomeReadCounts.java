@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
@@ -14,16 +15,23 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionBinaryFormat;
 import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionUtils;
+import org.broadinstitute.hellbender.tools.exome.ReadCountRecord;
 import org.broadinstitute.hellbender.tools.exome.SampleCollection;
 import org.broadinstitute.hellbender.tools.exome.Target;
 import org.broadinstitute.hellbender.tools.exome.TargetWriter;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.tsv.TableWriter;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
+import java.util.function.IntToDoubleFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -91,7 +99,8 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
 
     public static final String RAW_COV_OUTPUT_EXTENSION = ".raw_cov";
 
-    @Argument(doc = "Output tsv file for the proportional coverage counts.  Raw coverage counts will also be written with extension '" + RAW_COV_OUTPUT_EXTENSION + "'",
+    @Argument(doc = "Output tsv file for the proportional coverage counts.  Raw coverage counts will also be written with extension '" + RAW_COV_OUTPUT_EXTENSION + "'.  " +
+            "If the name ends with '" + ReadCountCollectionBinaryFormat.FILE_EXTENSION + "', both files are written in the binary read count format instead.",
             fullName = OUTPUT_FILE_LONG_NAME,
             shortName = OUTPUT_FILE_SHORT_NAME,
             optional = false
@@ -129,7 +138,7 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
                 .collect(Collectors.toList());
     }
 
-    private void collectReads() {
+    private void collectReads(final JavaSparkContext ctx) {
         if ( readArguments.getReadFilesNames().size() != 1 ) {
             throw new UserException("This tool only accepts a single bam/sam/cram as input");
         }
@@ -144,7 +153,16 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
                 String.format("##title = Coverage counts in %d base bins for WGS", binsize)};
 
         final ReadFilter filter = makeGenomeReadFilter();
-        final SAMSequenceDictionary sequenceDictionary = getReferenceSequenceDictionary();
+
+        logger.info("Creating full genome bins...");
+        final long createGenomeBinsStartTime = System.currentTimeMillis();
+        // bins are computed from the intervals when needed, so the driver never holds a list of all of them
+        final GenomeBins genomeBins = new GenomeBins(getIntervals(), binsize);
+        final List<Target> fullGenomeTargetCollection = genomeBins.targets();
+        TargetWriter.writeTargetsToFile(new File(outputFile.getAbsolutePath() + ".targets.tsv"), fullGenomeTargetCollection);
+        final long createGenomeBinsEndTime = System.currentTimeMillis();
+        logger.info(String.format("Finished creating genome bins. Elapse of %d seconds",
+                (createGenomeBinsEndTime - createGenomeBinsStartTime) / 1000));
 
         logger.info("Starting Spark coverage collection...");
         final long coverageCollectionStartTime = System.currentTimeMillis();
@@ -156,89 +174,119 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
         // Serializable - closures always use java Serializable and not Kryo)
         //Solution here is to use a temp variable for binsize because it's just an int.
         final int binsize_tmp = binsize;
-        final JavaRDD<SimpleInterval> readIntervals = reads
+        final SAMSequenceDictionary sequenceDictionary = getReferenceSequenceDictionary();
+        final Broadcast<GenomeBins> genomeBinsBroadcast = ctx.broadcast(genomeBins);
+        // Every partition counts its reads into a primitive array that only spans the bins it has seen, and these are
+        // then combined pairwise on the executors, so neither a key per bin nor per read is ever shuffled.
+        // The proportional coverage is relative to all the reads on the reference contigs, including those that
+        // overlap the intervals but start outside of every bin.
+        final GenomeBins.BinCounts binCounts = reads
                 .filter(read -> sequenceDictionary.getSequence(read.getContig()) != null)
-                .map(read -> SparkGenomeReadCounts.createKey(read, sequenceDictionary, binsize_tmp));
-        final Map<SimpleInterval, Long> byKey = readIntervals.countByValue();
-        final Set<SimpleInterval> readIntervalKeySet = byKey.keySet();
-        final long totalReads = byKey.values().stream().mapToLong(v -> v).sum();
+                .treeAggregate(new GenomeBins.BinCounts(),
+                        (counts, read) -> {
+                            final int binIndex = SparkGenomeReadCounts.binIndex(read, genomeBinsBroadcast.getValue(), binsize_tmp);
+                            return binIndex < 0 ? counts.incrementUnbinned() : counts.increment(binIndex);
+                        },
+                        GenomeBins.BinCounts::add);
+        final long totalReads = binCounts.total();
         final long coverageCollectionEndTime = System.currentTimeMillis();
         logger.info(String.format("Finished the spark coverage collection with %d targets and %d reads. Elapse of %d seconds",
-                readIntervalKeySet.size(), totalReads, (coverageCollectionEndTime - coverageCollectionStartTime) / 1000));
+                genomeBins.binCount(), totalReads, (coverageCollectionEndTime - coverageCollectionStartTime) / 1000));
 
         final String[] commentsForProportionalCoverage = {commentsForRawCoverage[0], commentsForRawCoverage[1],
                 String.format("##title = Proportional coverage counts in %d base bins for WGS (total reads: %d)",
                         binsize, totalReads)};
 
-        logger.info("Creating full genome bins...");
-        final long createGenomeBinsStartTime = System.currentTimeMillis();
-        final List<SimpleInterval> fullGenomeBins = createFullGenomeBins(binsize);
-        List<Target> fullGenomeTargetCollection = createTargetListFromSimpleInterval(fullGenomeBins);
-        TargetWriter.writeTargetsToFile(new File(outputFile.getAbsolutePath() + ".targets.tsv"), fullGenomeTargetCollection);
-        final long createGenomeBinsEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating genome bins. Elapse of %d seconds",
-                (createGenomeBinsEndTime - createGenomeBinsStartTime) / 1000));
-
-        logger.info("Creating missing genome bins...");
-        final long createMissingGenomeBinsStartTime = System.currentTimeMillis();
-        logger.info("Creating missing genome bins: Creating a mutable mapping...");
-        final Map<SimpleInterval, Long> byKeyMutable = new HashMap<>();
-        byKeyMutable.putAll(byKey);
-
-        logger.info("Creating missing genome bins: Populating mutable mapping with zero counts for empty regions...");
-        fullGenomeBins.stream().forEach(b -> byKeyMutable.putIfAbsent(b, 0l));
-
-        final long createMissingGenomeBinsEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating missing genome bins. Elapse of %d seconds",
-                (createMissingGenomeBinsEndTime - createMissingGenomeBinsStartTime) / 1000));
-
-        logger.info("Creating final map...");
-        final long createFinalMapStartTime = System.currentTimeMillis();
-        final SortedMap<SimpleInterval, Long> byKeySorted = new TreeMap<>(IntervalUtils.LEXICOGRAPHICAL_ORDER_COMPARATOR);
-        byKeySorted.putAll(byKeyMutable);
-        final long createFinalMapEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating final map. Elapse of %d seconds",
-                (createFinalMapEndTime - createFinalMapStartTime) / 1000));
-
-        logger.info("Creating proportional coverage... ");
-        final long pCovFileStartTime = System.currentTimeMillis();
-        final SortedMap<SimpleInterval, Double> byKeyProportionalSorted = new TreeMap<>(IntervalUtils.LEXICOGRAPHICAL_ORDER_COMPARATOR);
-        byKeySorted.entrySet().stream().forEach(e -> byKeyProportionalSorted.put(e.getKey(), (double) e.getValue() / totalReads));
-        final long pCovFileEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating proportional coverage map. Elapse of %d seconds",
-                (pCovFileEndTime - pCovFileStartTime) / 1000));
+        // Coverage files list the bins in lexicographical order, by contig name and then position.
+        final int[] sortedBinIndices = genomeBins.binIndicesInLexicographicalOrder();
+        final boolean binaryOutput = outputFile.getName().endsWith(ReadCountCollectionBinaryFormat.FILE_EXTENSION);
 
         logger.info("Writing raw coverage file ...");
         final long writingCovFileStartTime = System.currentTimeMillis();
-        ReadCountCollectionUtils.writeReadCountsFromSimpleInterval(new File(outputFile.getAbsolutePath() + RAW_COV_OUTPUT_EXTENSION), sampleName, byKeySorted, commentsForRawCoverage);
+        writeCoverage(new File(outputFile.getAbsolutePath() + RAW_COV_OUTPUT_EXTENSION), binaryOutput, sampleName,
+                fullGenomeTargetCollection, sortedBinIndices, binIndex -> binCounts.get(binIndex), commentsForRawCoverage);
         final long writingCovFileEndTime = System.currentTimeMillis();
         logger.info(String.format("Finished writing coverage file. Elapse of %d seconds",
                 (writingCovFileEndTime - writingCovFileStartTime) / 1000));
 
         logger.info("Writing proportional coverage file ...");
         final long writingPCovFileStartTime = System.currentTimeMillis();
-        ReadCountCollectionUtils.writeReadCountsFromSimpleInterval(outputFile, sampleName, byKeyProportionalSorted,
-                commentsForProportionalCoverage);
+        writeCoverage(outputFile, binaryOutput, sampleName, fullGenomeTargetCollection, sortedBinIndices,
+                binIndex -> (double) binCounts.get(binIndex) / totalReads, commentsForProportionalCoverage);
         final long writingPCovFileEndTime = System.currentTimeMillis();
         logger.info(String.format("Finished writing proportional coverage file. Elapse of %d seconds",
                 (writingPCovFileEndTime - writingPCovFileStartTime) / 1000));
     }
 
-    private List<SimpleInterval> createFullGenomeBins(final int binsize){
-        return IntervalUtils.cutToShards(getIntervals(), binsize);
+    /**
+     * Writes the coverage of the bins as they are computed, as a tab-separated table or in the binary read count
+     * format.
+     *
+     * @param file the output file.
+     * @param binary whether to write the file in the format described in {@link ReadCountCollectionBinaryFormat}.
+     * @param sampleName the name of the count column.
+     * @param targets the targets of all bins.
+     * @param binIndices the indices of the bins to write, in output order.
+     * @param coverage returns the coverage of a bin given its index.
+     * @param comments header comments.
+     */
+    private static void writeCoverage(final File file, final boolean binary, final String sampleName, final List<Target> targets,
+                                      final int[] binIndices, final IntToDoubleFunction coverage, final String[] comments) {
+        try {
+            if (binary) {
+                final List<Target> sortedTargets = new AbstractList<Target>() {
+                    @Override
+                    public Target get(final int index) {
+                        return targets.get(binIndices[index]);
+                    }
+
+                    @Override
+                    public int size() {
+                        return binIndices.length;
+                    }
+                };
+                final boolean intCounts = Arrays.stream(binIndices).mapToDouble(coverage).allMatch(c -> c == (int) c);
+                try (final ReadCountCollectionBinaryFormat.RowWriter writer = new ReadCountCollectionBinaryFormat.RowWriter(file,
+                        sortedTargets, Collections.singletonList(sampleName), intCounts, comments)) {
+                    for (final int binIndex : binIndices) {
+                        writer.writeRow(new double[] {coverage.applyAsDouble(binIndex)});
+                    }
+                }
+            } else {
+                try (final Writer outWriter = new FileWriter(file);
+                     final TableWriter<ReadCountRecord> writer = ReadCountCollectionUtils.writerWithIntervals(outWriter, Collections.singletonList(sampleName))) {
+                    for (final String comment : comments) {
+                        writer.writeComment(comment);
+                    }
+                    for (final int binIndex : binIndices) {
+                        writer.writeRecord(new ReadCountRecord.SingleSampleRecord(targets.get(binIndex), coverage.applyAsDouble(binIndex)));
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(file, e);
+        }
     }
 
-    private static SimpleInterval createKey(final GATKRead read, final SAMSequenceDictionary sequenceDictionary, final int binsize){
+    /**
+     * Returns the bin of a read.
+     * <p>
+     *     Reads are placed in the bin that contains the first position of the {@code binsize}-aligned window their
+     *     start falls into, which is the bin they start in when bins are aligned to contig starts. Otherwise,
+     *     e.g. for bins of an interval that does not start at a multiple of {@code binsize} plus one, reads are
+     *     placed in the bin they start in.
+     * </p>
+     * @return -1 if the read does not start in any bin.
+     */
+    private static int binIndex(final GATKRead read, final GenomeBins genomeBins, final int binsize) {
         final String contig = read.getContig();
-        final int newStart = (read.getStart()/binsize)*binsize+1;
-        final int newEnd = Math.min(newStart + binsize - 1, sequenceDictionary.getSequence(contig).getSequenceLength());
-
-        return new SimpleInterval(contig, newStart, newEnd);
+        final int alignedBinIndex = genomeBins.binIndex(contig, (read.getStart() / binsize) * binsize + 1);
+        return alignedBinIndex >= 0 ? alignedBinIndex : genomeBins.binIndex(contig, read.getStart());
     }
 
     @Override
     protected void runTool(JavaSparkContext ctx) {
-        collectReads();
+        collectReads(ctx);
     }
 
     /**
@@ -252,9 +300,5 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
                 .and(ReadFilterLibrary.NON_ZERO_REFERENCE_LENGTH_ALIGNMENT)
                 .and(ReadFilterLibrary.PASSES_VENDOR_QUALITY_CHECK);
     }
-
-    private List<Target> createTargetListFromSimpleInterval(final List<SimpleInterval> intervalList){
-        return intervalList.stream().map(Target::new).collect(Collectors.toList());
-    }
 }
 
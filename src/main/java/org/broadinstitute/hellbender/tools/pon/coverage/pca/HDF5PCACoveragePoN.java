@@ -37,7 +37,9 @@ import java.util.stream.Collectors;
  * In these cases, the samples are the rows and the targets are the columns.  No transposing is performed for
  * pseudoinverses since they already have dimensions of samples x targets.
  *
- * This is only for storage.  When saving/loading the above attributes, the transposing is handled transparently.
+ * This is only for storage.  When saving/loading the above attributes, the transposing is handled transparently:
+ * transposed attributes are loaded as {@link TransposedRealMatrix} views of the stored data, so no copy of the
+ * matrix is made, and are written with a single copy into the transposed layout.
  *
  * @author Valentin Ruano-Rubio &lt;valentin@broadinstitute.org&gt;
  * @author Samuel Lee &lt;slee@broadinstitute.org&gt;
@@ -210,16 +212,14 @@ public final class HDF5PCACoveragePoN implements PCACoveragePoN {
     public RealMatrix getNormalizedCounts() {
         // Note the check uses sample names as number of rows and targets as number of columns.  This is due to the
         //  transposed storage.  The returned matrix is still targets (rows) x samples (columns).
-        return readMatrixAndCheckDimensions(NORMALIZED_COUNTS_PATH, sampleNames.get().size(), targetNames.get().size())
-                .transpose();
+        return readTransposedMatrixAndCheckDimensions(NORMALIZED_COUNTS_PATH, sampleNames.get().size(), targetNames.get().size());
     }
 
     @Override
     public RealMatrix getLogNormalizedCounts() {
         // Note the check uses sample names as number of rows and targets as number of columns.  This is due to the
         //  transposed storage.  The returned matrix is still targets (rows) x samples (columns).
-        return readMatrixAndCheckDimensions(LOG_NORMALIZED_COUNTS_PATH, getPanelSampleNames().size(), getPanelTargetNames().size())
-                .transpose();
+        return readTransposedMatrixAndCheckDimensions(LOG_NORMALIZED_COUNTS_PATH, getPanelSampleNames().size(), getPanelTargetNames().size());
     }
 
     @Override
@@ -234,14 +234,14 @@ public final class HDF5PCACoveragePoN implements PCACoveragePoN {
         //  transposed storage.  The returned matrix is still targets (rows) x pseudo-samples (columns).
         return readMatrixAndCheckDimensions(REDUCED_PANEL_COUNTS_PATH,
                 c -> c <= getPanelSampleNames().size(),
-                r -> r == panelTargetNames.get().size()).transpose();
+                r -> r == panelTargetNames.get().size(), true);
     }
 
     @Override
     public RealMatrix getReducedPanelPInverseCounts() {
         return readMatrixAndCheckDimensions(REDUCED_PANEL_PINV_PATH,
                 r -> r <= getPanelSampleNames().size(),
-                c -> c == panelTargetNames.get().size());
+                c -> c == panelTargetNames.get().size(), false);
     }
 
     @Override
@@ -420,23 +420,23 @@ public final class HDF5PCACoveragePoN implements PCACoveragePoN {
     }
 
     private void setNormalizedCounts(final RealMatrix counts) {
-        file.makeDoubleMatrix(NORMALIZED_COUNTS_PATH, counts.transpose().getData());
+        file.makeDoubleMatrix(NORMALIZED_COUNTS_PATH, TransposedRealMatrix.transposedData(counts));
     }
 
     private void setLogNormalizedCounts(final RealMatrix counts) {
-        file.makeDoubleMatrix(LOG_NORMALIZED_COUNTS_PATH, counts.transpose().getData());
+        file.makeDoubleMatrix(LOG_NORMALIZED_COUNTS_PATH, TransposedRealMatrix.transposedData(counts));
     }
 
     private void setLogNormalizedPInverseCounts(final RealMatrix counts) {
-        file.makeDoubleMatrix(LOG_NORMALIZED_PINV_PATH, counts.getData());
+        file.makeDoubleMatrix(LOG_NORMALIZED_PINV_PATH, data(counts));
     }
 
     private void setReducedPanelCounts(final RealMatrix counts) {
-        file.makeDoubleMatrix(REDUCED_PANEL_COUNTS_PATH, counts.transpose().getData());
+        file.makeDoubleMatrix(REDUCED_PANEL_COUNTS_PATH, TransposedRealMatrix.transposedData(counts));
     }
 
     private void setReducedPanelPInverseCounts(final RealMatrix counts) {
-        file.makeDoubleMatrix(REDUCED_PANEL_PINV_PATH, counts.getData());
+        file.makeDoubleMatrix(REDUCED_PANEL_PINV_PATH, data(counts));
     }
 
     private void setTargetNames(final List<String> names) {
@@ -487,54 +487,69 @@ public final class HDF5PCACoveragePoN implements PCACoveragePoN {
         file.makeStringArray(path, names.toArray(new String[names.size()]));
     }
 
-    //TODO: https://github.com/broadinstitute/gatk-protected/issues/637 move below methods to hdf5-java-bindings repo
-
     /**
-     * Reads a matrix from the underlying PoN file.
-     * @param fullPath the full path to the matrix data-set within the HDF5 file.
-     * @return never {@code null}.
-     * @throws GATKException if the matrix does not exist or any other HDF5 level error occurred.
+     * Returns the data of a matrix to be written, without copying it if it is already held in an array.
      */
-    private RealMatrix readMatrix(final String fullPath) {
-        final double[][] values = file.readDoubleMatrix(fullPath);
-        return new Array2DRowRealMatrix(values,false);
+    private static double[][] data(final RealMatrix matrix) {
+        return matrix instanceof Array2DRowRealMatrix ? ((Array2DRowRealMatrix) matrix).getDataRef() : matrix.getData();
     }
 
+    //TODO: https://github.com/broadinstitute/gatk-protected/issues/637 move below methods to hdf5-java-bindings repo
+
     /**
      * Reads a matrix from the underlying PoN file and check its dimensions.
      * @param fullPath the target data-set full path within the HDF5 file.
      * @param expectedRowCount the expected number of rows.
      * @param expectedColumnCount the expected number of columns.
      * @return GATKException if the result matrix dimensions do not match the expectations or
-     *  any other cause as described in {@link #readMatrix(String)}.
+     *  any other cause as described in {@link #readMatrixAndCheckDimensions(String, IntPredicate, IntPredicate, boolean)}.
      */
     private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final int expectedRowCount, final int expectedColumnCount) {
-        return readMatrixAndCheckDimensions(fullPath, r -> r == expectedRowCount, c -> c == expectedColumnCount);
+        return readMatrixAndCheckDimensions(fullPath, r -> r == expectedRowCount, c -> c == expectedColumnCount, false);
+    }
+
+    /**
+     * Reads a matrix stored transposed from the underlying PoN file, checks the dimensions of the stored matrix and
+     * returns its transpose.
+     * @param fullPath the target data-set full path within the HDF5 file.
+     * @param expectedRowCount the expected number of rows of the stored matrix.
+     * @param expectedColumnCount the expected number of columns of the stored matrix.
+     * @return GATKException if the result matrix dimensions do not match the expectations or
+     *  any other cause as described in {@link #readMatrixAndCheckDimensions(String, IntPredicate, IntPredicate, boolean)}.
+     */
+    private RealMatrix readTransposedMatrixAndCheckDimensions(final String fullPath, final int expectedRowCount, final int expectedColumnCount) {
+        return readMatrixAndCheckDimensions(fullPath, r -> r == expectedRowCount, c -> c == expectedColumnCount, true);
     }
 
     /**
      * Reads a matrix from the underlying PoN file and check its dimensions.
+     * <p>
+     *     If the data-set dimensions do not match the expectations but those of its transpose do, the transpose is
+     *     taken as the stored matrix. Transposes are views of the data read from the file, so no copy is ever made.
+     * </p>
      * @param fullPath the target data-set full path within the HDF5 file.
      * @param expectedRowCount a predicate that returns true iff its argument is an expected number of rows.
      * @param expectedColumnCount a predicate that returns true iff its argument is an expected number of columns.
-     * @return GATKException if the result matrix dimensions do not match the expectations or
-     *  any other cause as described in {@link #readMatrix(String)}.
+     * @param returnTranspose whether to return the transpose of the stored matrix rather than the matrix itself.
+     * @return GATKException if the result matrix dimensions do not match the expectations, the matrix does not exist
+     *  or any other HDF5 level error occurred.
      */
-    private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final IntPredicate expectedRowCount, final IntPredicate expectedColumnCount) {
-        final RealMatrix result = readMatrix(fullPath);
-        if (expectedRowCount.test(result.getRowDimension())
-                && expectedColumnCount.test(result.getColumnDimension())) {
-            return result;
-        }
-        final RealMatrix transpose = result.transpose();
-        if (!expectedRowCount.test(transpose.getRowDimension())) {
-            throw new GATKException(String.format("wrong number of rows in '%s' matrix from file '%s': %d",
-                    fullPath, file.getFile(), result.getRowDimension()));
-        }
-        if (!expectedColumnCount.test(transpose.getColumnDimension())) {
-            throw new GATKException(String.format("wrong number of columns in '%s' from file '%s': %d",
-                    fullPath, file.getFile(), result.getColumnDimension()));
+    private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final IntPredicate expectedRowCount,
+                                                    final IntPredicate expectedColumnCount, final boolean returnTranspose) {
+        final double[][] values = file.readDoubleMatrix(fullPath);
+        final int rowCount = values.length;
+        final int columnCount = values.length == 0 ? 0 : values[0].length;
+        final boolean storedAsIs = expectedRowCount.test(rowCount) && expectedColumnCount.test(columnCount);
+        if (!storedAsIs) {
+            if (!expectedRowCount.test(columnCount)) {
+                throw new GATKException(String.format("wrong number of rows in '%s' matrix from file '%s': %d",
+                        fullPath, file.getFile(), rowCount));
+            }
+            if (!expectedColumnCount.test(rowCount)) {
+                throw new GATKException(String.format("wrong number of columns in '%s' from file '%s': %d",
+                        fullPath, file.getFile(), columnCount));
+            }
         }
-        return transpose;
+        return storedAsIs != returnTranspose ? new Array2DRowRealMatrix(values, false) : new TransposedRealMatrix(values);
     }
 }
@@ -4,6 +4,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.DefaultRealMatrixChangingVisitor;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.stat.descriptive.rank.Median;
@@ -19,6 +21,8 @@ import org.broadinstitute.hellbender.utils.MatrixSummaryUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.svd.LowRankSVD;
+import org.broadinstitute.hellbender.utils.svd.RandomizedTruncatedSVD;
 import org.broadinstitute.hellbender.utils.svd.SVD;
 import org.broadinstitute.hellbender.utils.svd.SVDFactory;
 
@@ -72,6 +76,35 @@ public final class HDF5PCACoveragePoNCreationUtils {
                               final double countTruncatePercentile,
                               final OptionalInt numberOfEigensamples,
                               final boolean isDryRun) {
+        create(ctx, outputHDF5Filename, openMode, inputPCovFile, initialTargets, sampleNameBlacklist, targetFactorPercentileThreshold,
+                maximumPercentageZeroColumns, maximumPercentageZeroTargets, extremeColumnMedianCountPercentileThreshold,
+                countTruncatePercentile, numberOfEigensamples, false, isDryRun);
+    }
+
+    /**
+     * Create an HDF5 coverage PoN file with the output from {@link CombineReadCounts}, optionally computing only the
+     * leading singular vectors of the log-normalized counts.
+     *
+     * See {@link #create(JavaSparkContext, File, HDF5File.OpenMode, File, TargetCollection, List, double, double, double, double, double, OptionalInt, boolean)}
+     * for the other parameters.
+     *
+     * @param useTruncatedSVD  whether to reduce the panel with a randomized truncated SVD (see {@link RandomizedTruncatedSVD})
+     *                         rather than a full one.  Requires {@code numberOfEigensamples} to be present.
+     */
+    public static void create(final JavaSparkContext ctx,
+                              final File outputHDF5Filename,
+                              final HDF5File.OpenMode openMode,
+                              final File inputPCovFile,
+                              final TargetCollection<Target> initialTargets,
+                              final List<String> sampleNameBlacklist,
+                              final double targetFactorPercentileThreshold,
+                              final double maximumPercentageZeroColumns,
+                              final double maximumPercentageZeroTargets,
+                              final double extremeColumnMedianCountPercentileThreshold,
+                              final double countTruncatePercentile,
+                              final OptionalInt numberOfEigensamples,
+                              final boolean useTruncatedSVD,
+                              final boolean isDryRun) {
         Utils.nonNull(outputHDF5Filename);
         IOUtils.canReadFile(inputPCovFile);
         Utils.nonNull(initialTargets, "Target collection cannot be null.");
@@ -93,8 +126,11 @@ public final class HDF5PCACoveragePoNCreationUtils {
         final double[] targetFactors = inputSubsetByUsableTargets.getRight();
         PCATangentNormalizationUtils.factorNormalize(normalizedCounts.counts(), targetFactors);
 
-        // Impute zeros as median values for columns and targets with too many zeros, remove targets with extreme medians, and truncate extreme counts
-        final ReadCountCollection logNormalizedCounts = cleanNormalizedCounts(normalizedCounts, logger, maximumPercentageZeroColumns, maximumPercentageZeroTargets, extremeColumnMedianCountPercentileThreshold, countTruncatePercentile);
+        // Impute zeros as median values for columns and targets with too many zeros, remove targets with extreme medians, and truncate extreme counts.
+        // The cleaning and normalization below are partly in-place and the filters return their input when nothing is dropped, so work on a copy
+        // to keep the normalized counts that are written to the PoN (and recovered by update) intact
+        final ReadCountCollection logNormalizedCounts = cleanNormalizedCounts(
+                new ReadCountCollection(normalizedCounts.targets(), normalizedCounts.columnNames(), normalizedCounts.counts()), logger, maximumPercentageZeroColumns, maximumPercentageZeroTargets, extremeColumnMedianCountPercentileThreshold, countTruncatePercentile);
 
         // Normalize by the median and log_2 scale the read counts.
         normalizeAndLogReadCounts(logNormalizedCounts, logger);
@@ -103,7 +139,7 @@ public final class HDF5PCACoveragePoNCreationUtils {
         subtractMedianOfMedians(logNormalizedCounts, logger);
 
         // Perform the SVD and calculate the pseudoinverse
-        final ReductionResult reduction = calculateReducedPanelAndPInverses(logNormalizedCounts, numberOfEigensamples, logger, ctx);
+        final ReductionResult reduction = calculateReducedPanelAndPInverses(logNormalizedCounts, numberOfEigensamples, useTruncatedSVD, logger, ctx);
 
         // Calculate the target variances
         final List<String> panelTargetNames = logNormalizedCounts.targets().stream().map(Target::getName).collect(Collectors.toList());
@@ -128,6 +164,17 @@ public final class HDF5PCACoveragePoNCreationUtils {
      * @param openMode            desired {@link HDF5File.OpenMode} (if {@code HDF5File.OpenMode.READ_ONLY}, an exception will be thrown)
      */
     public static void redoReduction(final JavaSparkContext ctx, final OptionalInt newNumberOfEigensamples, final File inputHDF5Filename, final File outputHDF5Filename, final HDF5File.OpenMode openMode) {
+        redoReduction(ctx, newNumberOfEigensamples, false, inputHDF5Filename, outputHDF5Filename, openMode);
+    }
+
+    /**
+     * Same as {@link #redoReduction(JavaSparkContext, OptionalInt, File, File, HDF5File.OpenMode)}, optionally using a
+     * randomized truncated SVD for the new reduction.
+     *
+     * @param useTruncatedSVD  whether to reduce the panel with a randomized truncated SVD (see {@link RandomizedTruncatedSVD})
+     *                         rather than a full one.  Requires {@code newNumberOfEigensamples} to be present.
+     */
+    public static void redoReduction(final JavaSparkContext ctx, final OptionalInt newNumberOfEigensamples, final boolean useTruncatedSVD, final File inputHDF5Filename, final File outputHDF5Filename, final HDF5File.OpenMode openMode) {
         Utils.nonNull(newNumberOfEigensamples);
         IOUtils.canReadFile(inputHDF5Filename);
         Utils.nonNull(outputHDF5Filename);
@@ -139,7 +186,7 @@ public final class HDF5PCACoveragePoNCreationUtils {
             final PCACoveragePoN inputPoN = new HDF5PCACoveragePoN(ponReader);
             final ReadCountCollection normalizedCounts = new ReadCountCollection(inputPoN.getTargets(), inputPoN.getSampleNames(), inputPoN.getNormalizedCounts());
             final ReadCountCollection logNormalizedCounts = new ReadCountCollection(inputPoN.getPanelTargets(), inputPoN.getPanelSampleNames(), inputPoN.getLogNormalizedCounts());
-            final ReductionResult newReduction = calculateReducedPanelAndPInverses(logNormalizedCounts, newNumberOfEigensamples, logger, ctx);
+            final ReductionResult newReduction = calculateReducedPanelAndPInverses(logNormalizedCounts, newNumberOfEigensamples, useTruncatedSVD, logger, ctx);
             final List<String> panelTargetNames = logNormalizedCounts.targets().stream().map(Target::getName).collect(Collectors.toList());
             final double[] targetVariances = calculateTargetVariances(normalizedCounts, panelTargetNames, newReduction, ctx);
 
@@ -147,6 +194,148 @@ public final class HDF5PCACoveragePoNCreationUtils {
         }
     }
 
+    /**
+     * Creates a new PoN file by adding new normals to a given PoN file, without redoing the whole creation.
+     *
+     * <p>
+     *     The target factors are recomputed over the samples of the input PoN and the new normals, and the
+     *     normalized counts of the former are rescaled accordingly.  The new normals are cleaned on their own
+     *     (columns with too many zeros are dropped, zeros imputed and extreme counts truncated) over the panel targets
+     *     of the input PoN, and log-normalized.  In log space, the change of target factors adds a term to every row of
+     *     the panel and the re-centering of the samples a term to every column, so the new panel is the old one plus a
+     *     rank-2 update, with the new normals as additional columns.  The reduction of the input PoN is updated
+     *     accordingly with {@link LowRankSVD#update} rather than recomputed, and keeps its number of eigensamples.
+     * </p>
+     * <p>
+     *     Since the input reduction only retains the leading eigensamples, the result is the best approximation of
+     *     the new panel that can be built from them and the update, not its exact truncated SVD; its relative error
+     *     is logged.  Targets are not filtered again, and neither is the panel against extreme sample medians.  As with
+     *     truncated SVDs, the log-normalized pseudoinverse is that of the reduced approximation of the panel.
+     * </p>
+     *
+     * @param ctx  {@code null} is okay if not using Spark
+     * @param inputHDF5Filename  input PoN file
+     * @param newNormalsPCovFile  pcov file from {@link CombineReadCounts} with the new normals as columns.  It must
+     *                            include all the targets of the input PoN and none of its samples.
+     * @param maximumPercentageZeroColumns  the maximum percentage of zero values in a new normal (across panel targets)
+     *                                      before it is left out of the panel.
+     * @param countTruncatePercentile  percentile (on either end) to truncate extreme values of the new normals.
+     * @param outputHDF5Filename  output PoN file, which will contain all the samples of the input and the new normals
+     * @param openMode            desired {@link HDF5File.OpenMode} (if {@code HDF5File.OpenMode.READ_ONLY}, an exception will be thrown)
+     */
+    public static void update(final JavaSparkContext ctx,
+                              final File inputHDF5Filename,
+                              final File newNormalsPCovFile,
+                              final double maximumPercentageZeroColumns,
+                              final double countTruncatePercentile,
+                              final File outputHDF5Filename,
+                              final HDF5File.OpenMode openMode) {
+        IOUtils.canReadFile(inputHDF5Filename);
+        IOUtils.canReadFile(newNormalsPCovFile);
+        Utils.nonNull(outputHDF5Filename);
+        ParamUtils.inRange(maximumPercentageZeroColumns, 0, 100, "Maximum percentage of zero-columns must be in range [0, 100].");
+        ParamUtils.inRange(countTruncatePercentile, 0, 50, "Count truncation threshold percentile threshold must be in range [0, 50].");
+        if (inputHDF5Filename.getAbsolutePath().equals(outputHDF5Filename.getAbsolutePath())) {
+            throw new UserException.CouldNotCreateOutputFile(outputHDF5Filename, "Cannot create a new PoN overwriting an old one.");
+        }
+
+        try (final HDF5File ponReader = new HDF5File(inputHDF5Filename, HDF5File.OpenMode.READ_ONLY)) {
+            final PCACoveragePoN inputPoN = new HDF5PCACoveragePoN(ponReader);
+            final List<Target> targets = inputPoN.getTargets();
+            final List<String> inputSampleNames = inputPoN.getSampleNames();
+            final ReadCountCollection newNormals = readNewNormalsFromFile(newNormalsPCovFile, targets, inputSampleNames);
+            logger.info(String.format("Adding %d new normals to a PoN with %d samples ...", newNormals.columnNames().size(), inputSampleNames.size()));
+
+            // Recover the coverage of the PoN samples from their normalized counts and recompute the target factors
+            final double[] inputTargetFactors = inputPoN.getTargetFactors();
+            final RealMatrix inputNormalizedCounts = inputPoN.getNormalizedCounts();
+            final int numberOfInputSamples = inputNormalizedCounts.getColumnDimension();
+            final RealMatrix counts = new Array2DRowRealMatrix(targets.size(), numberOfInputSamples + newNormals.columnNames().size());
+            counts.setSubMatrix(inputNormalizedCounts.getData(), 0, 0);
+            counts.setSubMatrix(newNormals.counts().getData(), 0, numberOfInputSamples);
+            counts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+                @Override
+                public double visit(final int row, final int column, final double value) {
+                    return column < numberOfInputSamples ? value * inputTargetFactors[row] : value;
+                }
+            });
+            final double[] targetFactors = MatrixSummaryUtils.getRowMedians(counts);
+            PCATangentNormalizationUtils.factorNormalize(counts, targetFactors);
+            final ReadCountCollection normalizedCounts = new ReadCountCollection(targets, concatenate(inputSampleNames, newNormals.columnNames()), counts);
+
+            // Clean and log-normalize the new normals on the panel targets
+            final List<Target> panelTargets = inputPoN.getPanelTargets();
+            final ReadCountCollection newLogNormalizedCounts = logNormalizeNewNormals(
+                    normalizedCounts.subsetColumns(new HashSet<>(newNormals.columnNames())).arrangeTargets(panelTargets),
+                    maximumPercentageZeroColumns, countTruncatePercentile, logger);
+
+            // Update the panel in log space: rows shift by the change of target factor, then all columns are re-centered
+            final Map<String, Integer> targetIndexByName = IntStream.range(0, targets.size()).boxed()
+                    .collect(Collectors.toMap(i -> targets.get(i).getName(), i -> i));
+            final double[] rowShifts = panelTargets.stream().mapToInt(t -> targetIndexByName.get(t.getName()))
+                    .mapToDouble(i -> Math.log(Math.max(EPSILON, inputTargetFactors[i]) / Math.max(EPSILON, targetFactors[i])) * INV_LN_2)
+                    .toArray();
+            final RealMatrix inputLogNormalizedCounts = inputPoN.getLogNormalizedCounts();
+            final RealMatrix shiftedInputCounts = inputLogNormalizedCounts.copy();
+            shiftedInputCounts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+                @Override
+                public double visit(final int row, final int column, final double value) { return value + rowShifts[row]; }
+            });
+            final double[] inputColumnMedians = MatrixSummaryUtils.getColumnMedians(shiftedInputCounts);
+            final double[] newColumnMedians = MatrixSummaryUtils.getColumnMedians(newLogNormalizedCounts.counts());
+            final double medianOfMedians = new Median().evaluate(DoubleStream.concat(
+                    DoubleStream.generate(() -> 0.0).limit(inputColumnMedians.length), DoubleStream.of(newColumnMedians)).toArray());
+            final double[] columnShifts = DoubleStream.of(inputColumnMedians).map(m -> -m - medianOfMedians).toArray();
+            newLogNormalizedCounts.counts().walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+                @Override
+                public double visit(final int row, final int column, final double value) { return value - medianOfMedians; }
+            });
+
+            final int numberOfInputPanelSamples = inputLogNormalizedCounts.getColumnDimension();
+            final int numberOfNewPanelSamples = newLogNormalizedCounts.columnNames().size();
+            final RealMatrix logNormalizedCountsMatrix = new Array2DRowRealMatrix(panelTargets.size(), numberOfInputPanelSamples + numberOfNewPanelSamples);
+            logNormalizedCountsMatrix.setSubMatrix(inputLogNormalizedCounts.getData(), 0, 0);
+            logNormalizedCountsMatrix.setSubMatrix(newLogNormalizedCounts.counts().getData(), 0, numberOfInputPanelSamples);
+            logNormalizedCountsMatrix.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+                @Override
+                public double visit(final int row, final int column, final double value) {
+                    return column < numberOfInputPanelSamples ? value + rowShifts[row] + columnShifts[column] : value;
+                }
+            });
+            final ReadCountCollection logNormalizedCounts = new ReadCountCollection(panelTargets,
+                    concatenate(inputPoN.getPanelSampleNames(), newLogNormalizedCounts.columnNames()), logNormalizedCountsMatrix);
+
+            // The same changes, as a low-rank update X Y^T of the reduction: [L, 0] + [a, 1, C] [[1, b, 0]; [0, 0, I]]^T
+            logger.info("Updating the reduction of the PoN ...");
+            final long updateStartTime = System.currentTimeMillis();
+            final LowRankSVD inputSVD = recoverTruncatedSVD(inputPoN.getReducedPanelCounts(), inputLogNormalizedCounts, numberOfNewPanelSamples);
+            final int updateRank = numberOfNewPanelSamples + 2;
+            final RealMatrix x = new Array2DRowRealMatrix(panelTargets.size(), updateRank);
+            x.setColumn(0, rowShifts);
+            x.setColumnVector(1, new ArrayRealVector(panelTargets.size(), 1.0));
+            x.setSubMatrix(newLogNormalizedCounts.counts().getData(), 0, 2);
+            final RealMatrix y = new Array2DRowRealMatrix(numberOfInputPanelSamples + numberOfNewPanelSamples, updateRank);
+            for (int i = 0; i < numberOfInputPanelSamples; i++) {
+                y.setEntry(i, 0, 1);
+                y.setEntry(i, 1, columnShifts[i]);
+            }
+            for (int i = 0; i < numberOfNewPanelSamples; i++) {
+                y.setEntry(numberOfInputPanelSamples + i, i + 2, 1);
+            }
+            final LowRankSVD logNormalizedSVD = inputSVD.update(x, y, inputSVD.getSingularValues().length);
+            final long updateEndTime = System.currentTimeMillis();
+            logger.info(String.format("Finished updating the reduction of the PoN. Elapse of %d seconds", (updateEndTime - updateStartTime) / 1000));
+            logger.info(String.format("Relative approximation error (Frobenius norm) of the reduced panel: %.6f",
+                    calculateRelativeApproximationError(logNormalizedCountsMatrix, logNormalizedSVD)));
+
+            final ReductionResult reduction = reductionFromTruncatedSVD(logNormalizedSVD);
+            final List<String> panelTargetNames = panelTargets.stream().map(Target::getName).collect(Collectors.toList());
+            final double[] targetVariances = calculateTargetVariances(normalizedCounts, panelTargetNames, reduction, ctx);
+
+            HDF5PCACoveragePoN.write(outputHDF5Filename, openMode, inputPoN.getRawTargets(), normalizedCounts, logNormalizedCounts, targetFactors, targetVariances, reduction);
+        }
+    }
+
     /*===============================================================================================================*
      * PRIVATE METHODS (SOME VISIBLE FOR TESTING)                                                                    *
      * These methods perform all of the steps needed to calculate the fields of the coverage panel of normals.       *
@@ -282,10 +471,35 @@ public final class HDF5PCACoveragePoNCreationUtils {
                                                              final OptionalInt requestedNumberOfEigensamples,
                                                              final Logger logger,
                                                              final JavaSparkContext ctx) {
+        return calculateReducedPanelAndPInverses(logNormalized, requestedNumberOfEigensamples, false, logger, ctx);
+    }
+
+    /**
+     * SVD and Pseudo inverse calculation, optionally with a randomized truncated SVD.
+     *
+     * <p>With {@code useTruncatedSVD}, only the requested number of singular values and vectors are computed.  The
+     * log-normalized counts pseudoinverse is then that of their rank-reduced approximation and only that many singular
+     * values are reported.</p>
+     *
+     * @param logNormalized the input counts for the SVD and reduction steps, fully normalized and already logged.
+     * @param requestedNumberOfEigensamples user requested number of eigensamples for the reduced panel.  Must be present
+     *                                      if {@code useTruncatedSVD} is {@code true}.
+     * @param useTruncatedSVD whether to use {@link RandomizedTruncatedSVD} rather than a full SVD.
+     * @return never {@code null}.
+     */
+    @VisibleForTesting
+    static ReductionResult calculateReducedPanelAndPInverses(final ReadCountCollection logNormalized,
+                                                             final OptionalInt requestedNumberOfEigensamples,
+                                                             final boolean useTruncatedSVD,
+                                                             final Logger logger,
+                                                             final JavaSparkContext ctx) {
 
         if (ctx == null) {
             logger.warn("No Spark context provided, not going to use Spark...");
         }
+        if (useTruncatedSVD) {
+            return calculateReducedPanelAndPInversesWithTruncatedSVD(logNormalized, requestedNumberOfEigensamples, logger, ctx);
+        }
 
         final RealMatrix logNormalizedCounts = logNormalized.counts();
         final int numberOfCountColumns = logNormalizedCounts.getColumnDimension();
@@ -317,6 +531,135 @@ public final class HDF5PCACoveragePoNCreationUtils {
         return new ReductionResult(logNormalizedPseudoInverse, reducedCounts, reducedCountsPseudoInverse, logNormalizedSVD.getSingularValues());
     }
 
+    private static ReductionResult calculateReducedPanelAndPInversesWithTruncatedSVD(final ReadCountCollection logNormalized,
+                                                                                     final OptionalInt requestedNumberOfEigensamples,
+                                                                                     final Logger logger,
+                                                                                     final JavaSparkContext ctx) {
+        Utils.validateArg(requestedNumberOfEigensamples.isPresent(),
+                "The number of eigensamples must be given explicitly to use a truncated SVD.");
+        final RealMatrix logNormalizedCounts = logNormalized.counts();
+        final int numberOfEigensamples = Math.min(logNormalizedCounts.getRowDimension(),
+                determineNumberOfEigensamples(requestedNumberOfEigensamples, logNormalizedCounts.getColumnDimension(), null, logger));
+        logger.info(String.format("Including %d eigensamples in the reduced PoN", numberOfEigensamples));
+
+        logger.info("Starting the truncated SVD decomposition of the log-normalized counts ...");
+        final long svdStartTime = System.currentTimeMillis();
+        final RandomizedTruncatedSVD logNormalizedSVD = SVDFactory.createTruncatedSVD(logNormalizedCounts, numberOfEigensamples, ctx);
+        final long svdEndTime = System.currentTimeMillis();
+        logger.info(String.format("Finished the truncated SVD decomposition of the log-normal counts. Elapse of %d seconds", (svdEndTime - svdStartTime) / 1000));
+        logger.info(String.format("Relative approximation error (Frobenius norm) of the reduced panel: %.6f", logNormalizedSVD.getRelativeApproximationError()));
+
+        return reductionFromTruncatedSVD(logNormalizedSVD);
+    }
+
+    /**
+     * Composes the reduction from an SVD that only contains the eigensamples to keep.
+     */
+    private static ReductionResult reductionFromTruncatedSVD(final SVD logNormalizedSVD) {
+        // U has orthonormal columns, so U*S has (S^+)*U^T as pseudoinverse and there is no need for a second SVD.
+        final double[] singularValues = logNormalizedSVD.getSingularValues();
+        final RealMatrix reducedCounts = logNormalizedSVD.getU().copy();
+        reducedCounts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) { return singularValues[column]*value; }
+        });
+        final RealMatrix logNormalizedPseudoInverse = logNormalizedSVD.getPinv();
+        final RealMatrix reducedCountsPseudoInverse = logNormalizedSVD.getU().transpose();
+        reducedCountsPseudoInverse.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) { return singularValues[row] > 0 ? value / singularValues[row] : 0; }
+        });
+        return new ReductionResult(logNormalizedPseudoInverse, reducedCounts, reducedCountsPseudoInverse, singularValues);
+    }
+
+    /**
+     * Reads the new normals for a PoN update, with the targets of the PoN in the same order.
+     */
+    private static ReadCountCollection readNewNormalsFromFile(final File newNormalsPCovFile, final List<Target> targets,
+                                                              final List<String> sampleNames) {
+        final ReadCountCollection newNormals = readReadCountsFromFile(newNormalsPCovFile, new HashedListTargetCollection<>(targets));
+        if (newNormals.targets().size() != targets.size()) {
+            throw new UserException.BadInput(String.format("The new normals in %s lack %d of the targets of the PoN.",
+                    newNormalsPCovFile.getAbsolutePath(), targets.size() - newNormals.targets().size()));
+        }
+        final Set<String> repeatedSampleNames = Sets.intersection(new HashSet<>(sampleNames), new HashSet<>(newNormals.columnNames()));
+        if (!repeatedSampleNames.isEmpty()) {
+            throw new UserException.BadInput(String.format("Some of the new normals are already in the PoN: %s.",
+                    String.join(", ", repeatedSampleNames)));
+        }
+        return newNormals.arrangeTargets(targets);
+    }
+
+    /**
+     * Cleans and log-normalizes the factor normalized counts of new normals, already restricted to the panel targets.
+     */
+    private static ReadCountCollection logNormalizeNewNormals(final ReadCountCollection newNormalizedCounts,
+                                                              final double maximumPercentageZeroColumns,
+                                                              final double countTruncatePercentile,
+                                                              final Logger logger) {
+        final int maximumColumnZerosCount = calculateMaximumZerosCount(newNormalizedCounts.targets().size(), maximumPercentageZeroColumns);
+        final ReadCountCollection cleanedCounts = ReadCountCollectionUtils.removeColumnsWithTooManyZeros(newNormalizedCounts, maximumColumnZerosCount, true, logger);
+        ReadCountCollectionUtils.imputeZeroCountsAsTargetMedians(cleanedCounts, logger);
+        ReadCountCollectionUtils.truncateExtremeCounts(cleanedCounts, countTruncatePercentile, logger);
+        normalizeAndLogReadCounts(cleanedCounts, logger);
+        return cleanedCounts;
+    }
+
+    /**
+     * Recovers the truncated SVD of the log-normalized counts of a PoN from its reduced panel, which is {@code U S},
+     * with extra rows of zeros in {@code V} for the columns to be appended.
+     */
+    private static LowRankSVD recoverTruncatedSVD(final RealMatrix reducedCounts, final RealMatrix logNormalizedCounts,
+                                                  final int numberOfAppendedColumns) {
+        final int numberOfEigensamples = reducedCounts.getColumnDimension();
+        final double[] singularValues = IntStream.range(0, numberOfEigensamples)
+                .mapToDouble(j -> reducedCounts.getColumnVector(j).getNorm()).toArray();
+        final RealMatrix u = reducedCounts.copy();
+        u.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) { return singularValues[column] > 0 ? value / singularValues[column] : 0; }
+        });
+        // V = L^T U S^-1
+        final RealMatrix v = new Array2DRowRealMatrix(logNormalizedCounts.getColumnDimension() + numberOfAppendedColumns, numberOfEigensamples);
+        v.setSubMatrix(logNormalizedCounts.transpose().multiply(u).getData(), 0, 0);
+        v.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) { return singularValues[column] > 0 ? value / singularValues[column] : 0; }
+        });
+        return new LowRankSVD(u, singularValues, v);
+    }
+
+    /**
+     * Calculates the Frobenius norm of {@code M - U S V^T} relative to that of {@code M}, one row at a time.
+     */
+    private static double calculateRelativeApproximationError(final RealMatrix m, final SVD svd) {
+        final double[] singularValues = svd.getSingularValues();
+        final RealMatrix scaledU = svd.getU().copy();
+        scaledU.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) { return singularValues[column]*value; }
+        });
+        final RealMatrix vTranspose = svd.getV().transpose();
+        double residualNormSquared = 0;
+        double normSquared = 0;
+        for (int i = 0; i < m.getRowDimension(); i++) {
+            final double[] row = m.getRow(i);
+            final double[] approximation = vTranspose.preMultiply(scaledU.getRow(i));
+            for (int j = 0; j < row.length; j++) {
+                residualNormSquared += (row[j] - approximation[j]) * (row[j] - approximation[j]);
+                normSquared += row[j] * row[j];
+            }
+        }
+        return normSquared == 0 ? 0 : Math.sqrt(residualNormSquared / normSquared);
+    }
+
+    private static List<String> concatenate(final List<String> first, final List<String> second) {
+        final List<String> result = new ArrayList<>(first.size() + second.size());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
     /**
      * Determine the variance for each target in the PoN (panel targets).
      *
@@ -85,7 +85,8 @@ public final class PCATangentNormalizationUtils {
         ParamUtils.isPositive(profile.columnNames().size(), "Column names cannot be an empty list.");
 
         //normals stored in a PoN may already be factor normalized
-        final ReadCountCollection factorNormalizedCoverage = doFactorNormalization ? mapTargetsToPoNAndFactorNormalize(profile, pon) : profile;
+        final ReadCountCollection factorNormalizedCoverage = doFactorNormalization
+                ? mapTargetsToPoNAndFactorNormalize(profile, pon.getTargetNames(), pon.getTargetFactors()) : profile;
 
         return tangentNormalize(factorNormalizedCoverage, pon.getPanelTargetNames(), pon.getReducedPanelCounts(), pon.getReducedPanelPInverseCounts(), ctx);
     }
@@ -111,23 +112,25 @@ public final class PCATangentNormalizationUtils {
     }
 
     /**
-     * Returns a target-factor-normalized {@link ReadCountCollection} given a {@link PCACoveragePoN}..
+     * Returns a target-factor-normalized {@link ReadCountCollection} given the target names and factors of a {@link PCACoveragePoN}.
      */
-    private static ReadCountCollection mapTargetsToPoNAndFactorNormalize(final ReadCountCollection input, final PCACoveragePoN pon) {
-        final CaseToPoNTargetMapper targetMapper = new CaseToPoNTargetMapper(input.targets(), pon.getTargetNames());
+    static ReadCountCollection mapTargetsToPoNAndFactorNormalize(final ReadCountCollection input,
+                                                                 final List<String> targetNames,
+                                                                 final double[] targetFactors) {
+        final CaseToPoNTargetMapper targetMapper = new CaseToPoNTargetMapper(input.targets(), targetNames);
         final RealMatrix inputCounts = targetMapper.fromCaseToPoNCounts(input.counts());
-        factorNormalize(inputCounts, pon.getTargetFactors());   //factor normalize in-place
+        factorNormalize(inputCounts, targetFactors);   //factor normalize in-place
         return targetMapper.fromPoNtoCaseCountCollection(inputCounts, input.columnNames());
     }
 
     /**
      * Tangent normalize given the raw PoN data.  Non-Spark or Spark implementation automatically chosen.
      */
-    private static PCATangentNormalizationResult tangentNormalize(final ReadCountCollection targetFactorNormalizedCounts,
-                                                                  final List<String> panelTargetNames,
-                                                                  final RealMatrix reducedPanelCounts,
-                                                                  final RealMatrix reducedPanelPInvCounts,
-                                                                  final JavaSparkContext ctx) {
+    static PCATangentNormalizationResult tangentNormalize(final ReadCountCollection targetFactorNormalizedCounts,
+                                                          final List<String> panelTargetNames,
+                                                          final RealMatrix reducedPanelCounts,
+                                                          final RealMatrix reducedPanelPInvCounts,
+                                                          final JavaSparkContext ctx) {
         final CaseToPoNTargetMapper targetMapper = new CaseToPoNTargetMapper(targetFactorNormalizedCounts.targets(), panelTargetNames);
 
         // The input counts with rows (targets) sorted so that they match the PoN's order.
@@ -0,0 +1,62 @@
+package org.broadinstitute.hellbender.tools.pon.coverage.pca;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollection;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tangent normalizes case samples against a {@link PCACoveragePoN} whose data is read only once.
+ * <p>
+ *     {@link PCACoveragePoN#normalize} retrieves the target factors, the reduced panel and its pseudoinverse from the
+ *     PoN on every call, which for a {@link HDF5PCACoveragePoN} means reading them from disk again. This class keeps
+ *     them in memory, so that it can normalize many case samples in a row after a single load; the PoN file can be
+ *     closed as soon as the normalizer is created.
+ * </p>
+ * <p>
+ *     Normalizing does not modify the cached data, so an instance can be shared by several threads.
+ * </p>
+ */
+public final class PCATangentNormalizer {
+
+    private final List<String> targetNames;
+    private final double[] targetFactors;
+    private final List<String> panelTargetNames;
+    private final RealMatrix reducedPanelCounts;
+    private final RealMatrix reducedPanelPInverseCounts;
+
+    /**
+     * Loads the data needed to tangent normalize from a PoN.
+     * @param pon the panel of normals, never {@code null}.
+     */
+    public PCATangentNormalizer(final PCACoveragePoN pon) {
+        Utils.nonNull(pon, "PoN cannot be null.");
+        targetNames = Collections.unmodifiableList(new ArrayList<>(pon.getTargetNames()));
+        targetFactors = pon.getTargetFactors().clone();
+        panelTargetNames = Collections.unmodifiableList(new ArrayList<>(pon.getPanelTargetNames()));
+        reducedPanelCounts = pon.getReducedPanelCounts();
+        reducedPanelPInverseCounts = pon.getReducedPanelPInverseCounts();
+    }
+
+    /**
+     * Target-factor normalizes and then tangent normalizes a proportional-coverage profile.
+     * <p>
+     *     The result is the same as that of {@link PCACoveragePoN#normalize(ReadCountCollection)} on the PoN this
+     *     normalizer was created from.
+     * </p>
+     * @param proportionalCoverageProfile the profile to normalize, never {@code null}. Must contain at least one sample.
+     * @return never {@code null}.
+     */
+    public PCATangentNormalizationResult normalize(final ReadCountCollection proportionalCoverageProfile) {
+        Utils.nonNull(proportionalCoverageProfile, "Proportional coverages cannot be null.");
+        ParamUtils.isPositive(proportionalCoverageProfile.columnNames().size(), "Column names cannot be an empty list.");
+        final ReadCountCollection factorNormalizedCoverage =
+                PCATangentNormalizationUtils.mapTargetsToPoNAndFactorNormalize(proportionalCoverageProfile, targetNames, targetFactors);
+        return PCATangentNormalizationUtils.tangentNormalize(factorNormalizedCoverage, panelTargetNames,
+                reducedPanelCounts, reducedPanelPInverseCounts, null);
+    }
+}
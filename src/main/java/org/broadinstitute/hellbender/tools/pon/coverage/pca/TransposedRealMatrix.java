@@ -0,0 +1,173 @@
+package org.broadinstitute.hellbender.tools.pon.coverage.pca;
+
+import org.apache.commons.math3.linear.AbstractRealMatrix;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * Matrix backed by the rows of its transpose, so that a matrix stored transposed can be used without copying it.
+ * <p>
+ *     Entry {@code (i, j)} of this matrix is {@code storage[j][i]}, and changes to the matrix write through to the
+ *     storage array. {@link #transpose()} returns the storage itself wrapped in an {@link Array2DRowRealMatrix}, so it
+ *     aliases this matrix too, and
+ *     the products with other matrices and vectors traverse the storage row by row.
+ * </p>
+ */
+final class TransposedRealMatrix extends AbstractRealMatrix {
+
+    private final double[][] storage;
+    private final int rowCount;
+
+    /**
+     * Creates a matrix given the rows of its transpose.
+     * @param storage the rows of the transpose, which become the columns of this matrix. It is not copied.
+     */
+    TransposedRealMatrix(final double[][] storage) {
+        this.storage = Utils.nonNull(storage, "the storage cannot be null");
+        rowCount = storage.length == 0 ? 0 : storage[0].length;
+        for (final double[] column : storage) {
+            Utils.validateArg(column != null && column.length == rowCount, "the storage must be a non-ragged matrix");
+        }
+    }
+
+    @Override
+    public int getRowDimension() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnDimension() {
+        return storage.length;
+    }
+
+    @Override
+    public RealMatrix createMatrix(final int rowDimension, final int columnDimension) {
+        return new Array2DRowRealMatrix(rowDimension, columnDimension);
+    }
+
+    @Override
+    public RealMatrix copy() {
+        final double[][] storageCopy = new double[storage.length][];
+        for (int j = 0; j < storage.length; j++) {
+            storageCopy[j] = storage[j].clone();
+        }
+        return new TransposedRealMatrix(storageCopy);
+    }
+
+    @Override
+    public double getEntry(final int row, final int column) {
+        return storage[column][row];
+    }
+
+    @Override
+    public void setEntry(final int row, final int column, final double value) {
+        storage[column][row] = value;
+    }
+
+    @Override
+    public void addToEntry(final int row, final int column, final double increment) {
+        storage[column][row] += increment;
+    }
+
+    @Override
+    public void multiplyEntry(final int row, final int column, final double factor) {
+        storage[column][row] *= factor;
+    }
+
+    @Override
+    public double[] getColumn(final int column) {
+        return storage[column].clone();
+    }
+
+    /**
+     * Returns the transpose of this matrix without copying it.
+     * <p>
+     *     Unlike most {@link RealMatrix} implementations, the result is a view that shares the storage of this matrix:
+     *     changes to either of them are visible in the other. Call {@link #copy()} on the result if an independent
+     *     matrix is needed.
+     * </p>
+     */
+    @Override
+    public RealMatrix transpose() {
+        return new Array2DRowRealMatrix(storage, false);
+    }
+
+    @Override
+    public double[] operate(final double[] vector) {
+        Utils.nonNull(vector, "the vector cannot be null");
+        Utils.validateArg(vector.length == storage.length, "the vector length does not match the number of columns");
+        final double[] result = new double[rowCount];
+        for (int j = 0; j < storage.length; j++) {
+            final double[] column = storage[j];
+            final double factor = vector[j];
+            for (int i = 0; i < rowCount; i++) {
+                result[i] += column[i] * factor;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double[] preMultiply(final double[] vector) {
+        Utils.nonNull(vector, "the vector cannot be null");
+        Utils.validateArg(vector.length == rowCount, "the vector length does not match the number of rows");
+        final double[] result = new double[storage.length];
+        for (int j = 0; j < storage.length; j++) {
+            final double[] column = storage[j];
+            double sum = 0;
+            for (int i = 0; i < rowCount; i++) {
+                sum += column[i] * vector[i];
+            }
+            result[j] = sum;
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies this matrix by another.
+     * <p>
+     *     The result is returned transposed as well, so that each of its storage rows is a linear combination of the
+     *     storage rows of this matrix and the innermost loop runs over contiguous arrays.
+     * </p>
+     */
+    @Override
+    public RealMatrix multiply(final RealMatrix other) {
+        Utils.nonNull(other, "the other matrix cannot be null");
+        Utils.validateArg(other.getRowDimension() == storage.length, "the other matrix row count does not match the number of columns");
+        final int resultColumnCount = other.getColumnDimension();
+        final double[][] resultStorage = new double[resultColumnCount][rowCount];
+        for (int k = 0; k < storage.length; k++) {
+            final double[] column = storage[k];
+            for (int j = 0; j < resultColumnCount; j++) {
+                final double factor = other.getEntry(k, j);
+                final double[] resultColumn = resultStorage[j];
+                for (int i = 0; i < rowCount; i++) {
+                    resultColumn[i] += column[i] * factor;
+                }
+            }
+        }
+        return new TransposedRealMatrix(resultStorage);
+    }
+
+    /**
+     * Returns the data of the transpose of a matrix, avoiding intermediate copies.
+     * @param matrix the input matrix.
+     * @return never {@code null}, a new array unless {@code matrix} is a {@link TransposedRealMatrix}, in which case its
+     *  storage is returned.
+     */
+    static double[][] transposedData(final RealMatrix matrix) {
+        Utils.nonNull(matrix, "the matrix cannot be null");
+        if (matrix instanceof TransposedRealMatrix) {
+            return ((TransposedRealMatrix) matrix).storage;
+        }
+        final double[][] result = new double[matrix.getColumnDimension()][matrix.getRowDimension()];
+        for (int i = 0; i < matrix.getRowDimension(); i++) {
+            final double[] row = matrix.getRow(i);
+            for (int j = 0; j < row.length; j++) {
+                result[j][i] = row[j];
+            }
+        }
+        return result;
+    }
+}
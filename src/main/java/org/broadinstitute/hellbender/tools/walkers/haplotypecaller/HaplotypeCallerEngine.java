@@ -330,7 +330,17 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     public void writeHeader( final VariantContextWriter vcfWriter, final SAMSequenceDictionary sequenceDictionary,
                              final Set<VCFHeaderLine>  defaultToolHeaderLines) {
         Utils.nonNull(vcfWriter);
+        vcfWriter.writeHeader(makeVCFHeader(sequenceDictionary, defaultToolHeaderLines));
+    }
 
+    /**
+     * Creates an appropriate VCF header, given our arguments
+     *
+     * @param sequenceDictionary sequence dictionary of the header
+     * @param defaultToolHeaderLines additional header lines
+     * @return never {@code null}
+     */
+    public VCFHeader makeVCFHeader( final SAMSequenceDictionary sequenceDictionary, final Set<VCFHeaderLine>  defaultToolHeaderLines ) {
         final Set<VCFHeaderLine> headerInfo = new HashSet<>();
         headerInfo.addAll(defaultToolHeaderLines);
 
@@ -363,7 +373,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         final VCFHeader vcfHeader = new VCFHeader(headerInfo, sampleSet);
         vcfHeader.setSequenceDictionary(sequenceDictionary);
-        vcfWriter.writeHeader(vcfHeader);
+        return vcfHeader;
     }
 
 
@@ -635,6 +645,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      */
     public void shutdown() {
         likelihoodCalculationEngine.close();
+        assemblyEngine.shutdown();
 
         if ( haplotypeBAMWriter.isPresent() ) {
             haplotypeBAMWriter.get().close();
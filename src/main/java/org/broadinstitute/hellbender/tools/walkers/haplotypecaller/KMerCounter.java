@@ -9,14 +9,25 @@ import java.util.*;
  * generic utility class that counts kmers
  *
  * Basically you add kmers to the counter, and it tells you how many occurrences of each kmer it's seen.
+ *
+ * Kmers that can be packed by {@link PackedKmer} are counted in a {@link PackedKmerTable} of primitive {@code long}
+ * keys with {@code int} counts, so counting the kmers of a read does not allocate any objects.  Other kmers
+ * (too long, or containing bases other than upper-case ACGT) are counted in a regular {@link Kmer}-keyed map.
  */
 public final class KMerCounter {
 
+    private final int kmerLength;
+
     /**
-     * A map of for each kmer to its num occurrences in addKmers
+     * The packable kmers, with their counts by id in {@link #packedCounts}
      */
-    private final Map<Kmer, CountedKmer> countsByKMer = new HashMap<>();
-    private final int kmerLength;
+    private final PackedKmerTable packedKmers;
+    private int[] packedCounts;
+
+    /**
+     * A map of for each unpackable kmer to its num occurrences in addKmers
+     */
+    private final Map<Kmer, CountedKmer> unpackedCountsByKMer = new HashMap<>();
 
     /**
      * Create a new kmer counter
@@ -26,6 +37,8 @@ public final class KMerCounter {
     public KMerCounter(final int kmerLength) {
         Utils.validateArg( kmerLength > 0, () -> "kmerLength must be > 0 but got " + kmerLength);
         this.kmerLength = kmerLength;
+        packedKmers = new PackedKmerTable(0);
+        packedCounts = new int[packedKmers.capacity()];
     }
 
     /**
@@ -35,16 +48,42 @@ public final class KMerCounter {
      */
     public int getKmerCount(final Kmer kmer) {
         Utils.nonNull(kmer, "kmer cannot be null");
-        final CountedKmer counted = countsByKMer.get(kmer);
-        return counted == null ? 0 : counted.count;
+        return kmer.length() == kmerLength ? getKmerCount(kmer.bases(), 0) : 0;
+    }
+
+    /**
+     * Get the count of the kmer bases[start, start + kmerLength) in this kmer counter, without allocating a {@link Kmer}
+     * @param bases the bases containing the kmer
+     * @param start the first base of the kmer
+     * @return a positive integer
+     */
+    public int getKmerCount(final byte[] bases, final int start) {
+        checkRange(bases, start);
+        final long packed = PackedKmer.pack(bases, start, kmerLength);
+        if (packed == PackedKmer.UNPACKABLE) {
+            final CountedKmer counted = unpackedCountsByKMer.get(new Kmer(bases, start, kmerLength));
+            return counted == null ? 0 : counted.count;
+        }
+        return getPackedKmerCount(packed);
     }
 
     /**
      * Get an unordered collection of the counted kmers in this counter
+     *
+     * Packed kmers are unpacked into new {@link CountedKmer} objects, so this is meant for reporting and testing
+     * rather than for inner loops.
+     *
      * @return a non-null collection
      */
     public Collection<CountedKmer> getCountedKmers() {
-        return countsByKMer.values();
+        final List<CountedKmer> result = new ArrayList<>(size());
+        for (int id = 0; id < packedKmers.size(); id++) {
+            final CountedKmer counted = new CountedKmer(new Kmer(PackedKmer.unpack(packedKmers.kmer(id), kmerLength)));
+            counted.count = packedCounts[id];
+            result.add(counted);
+        }
+        result.addAll(unpackedCountsByKMer.values());
+        return result;
     }
 
     /**
@@ -53,8 +92,13 @@ public final class KMerCounter {
      * @return a non-null collection of kmers
      */
     public Collection<Kmer> getKmersWithCountsAtLeast(final int minCount) {
-        final List<Kmer> result = new LinkedList<>();
-        for ( final CountedKmer countedKmer : getCountedKmers() ) {
+        final List<Kmer> result = new ArrayList<>();
+        for (int id = 0; id < packedKmers.size(); id++) {
+            if (packedCounts[id] >= minCount) {
+                result.add(new Kmer(PackedKmer.unpack(packedKmers.kmer(id), kmerLength)));
+            }
+        }
+        for ( final CountedKmer countedKmer : unpackedCountsByKMer.values() ) {
             if ( countedKmer.count >= minCount ) {
                 result.add(countedKmer.kmer);
             }
@@ -62,11 +106,26 @@ public final class KMerCounter {
         return result;
     }
 
+    /**
+     * @return the number of distinct kmers in this counter
+     */
+    public int size() {
+        return packedKmers.size() + unpackedCountsByKMer.size();
+    }
+
+    /**
+     * @return the length of the kmers counted by this counter
+     */
+    public int getKmerLength() {
+        return kmerLength;
+    }
+
     /**
      * Remove all current counts, resetting the counter to an empty state
      */
     public void clear() {
-        countsByKMer.clear();
+        packedKmers.clear();
+        unpackedCountsByKMer.clear();
     }
 
     /**
@@ -77,20 +136,86 @@ public final class KMerCounter {
      */
     public void addKmer(final Kmer kmer, final int kmerCount) {
         Utils.validateArg(kmer.length() == kmerLength, () -> "bad kmer length " + kmer + " expected size " + kmerLength);
+        addKmer(kmer.bases(), 0, kmerCount);
+    }
+
+    /**
+     * Add the kmer bases[start, start + kmerLength) that occurred kmerCount times, without allocating a {@link Kmer}
+     * unless the kmer cannot be packed
+     *
+     * @param bases the bases containing the kmer.  The array is not retained unless the kmer cannot be packed
+     * @param start the first base of the kmer
+     * @param kmerCount the number of occurrences
+     */
+    public void addKmer(final byte[] bases, final int start, final int kmerCount) {
+        checkRange(bases, start);
         Utils.validateArg( kmerCount >= 0, () -> "bad kmerCount " + kmerCount);
 
-        CountedKmer countFromMap = countsByKMer.get(kmer);
-        if ( countFromMap == null ) {
-            countFromMap = new CountedKmer(kmer);
-            countsByKMer.put(kmer, countFromMap);
+        final long packed = PackedKmer.pack(bases, start, kmerLength);
+        if (packed == PackedKmer.UNPACKABLE) {
+            final Kmer kmer = new Kmer(bases, start, kmerLength);
+            CountedKmer countFromMap = unpackedCountsByKMer.get(kmer);
+            if ( countFromMap == null ) {
+                countFromMap = new CountedKmer(kmer);
+                unpackedCountsByKMer.put(kmer, countFromMap);
+            }
+            countFromMap.count += kmerCount;
+            return;
+        }
+
+        final int sizeBefore = packedKmers.size();
+        final int id = packedKmers.add(packed);
+        if (packedKmers.size() == sizeBefore) {
+            packedCounts[id] += kmerCount;
+        } else {
+            if (id >= packedCounts.length) {
+                packedCounts = Arrays.copyOf(packedCounts, packedKmers.capacity());
+            }
+            packedCounts[id] = kmerCount;
+        }
+    }
+
+    /**
+     * Get the packed kmers in this counter, in no particular order
+     * @return a new array
+     */
+    long[] getPackedKmers() {
+        final long[] result = new long[packedKmers.size()];
+        for (int id = 0; id < result.length; id++) {
+            result[id] = packedKmers.kmer(id);
+        }
+        return result;
+    }
+
+    /**
+     * Get the count of a packed kmer
+     * @param packed a packed kmer of length kmerLength
+     * @return a positive integer
+     */
+    int getPackedKmerCount(final long packed) {
+        final int id = packedKmers.find(packed);
+        return id == -1 ? 0 : packedCounts[id];
+    }
+
+    /**
+     * Get the counted kmers that could not be packed
+     * @return a non-null unmodifiable collection
+     */
+    Collection<CountedKmer> getUnpackedCountedKmers() {
+        return Collections.unmodifiableCollection(unpackedCountsByKMer.values());
+    }
+
+    private void checkRange(final byte[] bases, final int start) {
+        Utils.nonNull(bases, "bases cannot be null");
+        if (start < 0 || start + kmerLength > bases.length) {
+            throw new IllegalArgumentException("kmer at " + start + " with length " + kmerLength + " is out of bounds for " + bases.length + " bases");
         }
-        countFromMap.count += kmerCount;
     }
 
     @Override
     public String toString() {
         final StringBuilder b = new StringBuilder("KMerCounter{");
-        b.append("counting ").append(countsByKMer.size()).append(" distinct kmers");
+        b.append("counting ").append(size()).append(" distinct kmers");
         b.append("\n}");
         return b.toString();
     }
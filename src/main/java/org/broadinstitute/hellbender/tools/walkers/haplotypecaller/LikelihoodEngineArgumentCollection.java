@@ -67,6 +67,31 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     @Argument(fullName="phredScaledGlobalReadMismappingRate", shortName="globalMAPQ", doc="The global assumed mismapping rate for reads", optional = true)
     public int phredScaledGlobalReadMismappingRate = 45;
 
+    /**
+     * Number of threads used to compute the PairHMM likelihoods of each region. Reads are split by sample and into
+     * batches of at most {@code pairHMMReadBatchSize} reads, and each thread evaluates batches with its own PairHMM
+     * instance. The resulting likelihoods are identical to the single-threaded computation.
+     *
+     * Note that native PairHMM implementations may use their own threads as well (see {@code nativePairHmmThreads}).
+     */
+    @Advanced
+    @Argument(fullName = "pairHMMThreads", shortName = "pairHMMThreads", doc = "Number of threads used to compute the PairHMM likelihoods of each region", optional = true)
+    public int pairHMMThreads = 1;
+
+    @Advanced
+    @Argument(fullName = "pairHMMReadBatchSize", shortName = "pairHMMReadBatchSize", doc = "Maximum number of reads of a sample evaluated together by one PairHMM thread", optional = true)
+    public int pairHMMReadBatchSize = PairHMMLikelihoodCalculationEngine.DEFAULT_READ_BATCH_SIZE;
+
+    /**
+     * Maximum size in megabytes of a cache of PairHMM likelihoods shared across active regions. Reads that are
+     * evaluated again against the same haplotypes, for example in overlapping padded regions, reuse the cached
+     * likelihoods instead of running the PairHMM. The cache hit rate is logged at the end of the traversal.
+     * 0 disables the cache.
+     */
+    @Advanced
+    @Argument(fullName = "pairHMMLikelihoodCacheSizeInMB", shortName = "pairHMMLikelihoodCacheSizeInMB", doc = "Maximum size in megabytes of the cache of PairHMM likelihoods shared across regions; 0 disables the cache", optional = true)
+    public int pairHMMLikelihoodCacheSizeInMB = 0;
+
     @ArgumentCollection
     public PairHMMNativeArgumentCollection pairHMMNativeArgs = new PairHMMNativeArgumentCollection();
 
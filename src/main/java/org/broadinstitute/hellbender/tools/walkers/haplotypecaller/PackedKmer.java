@@ -0,0 +1,152 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Encodes short kmers into a single {@code long} using 2 bits per base.
+ *
+ * <p>
+ *     Only the upper-case bases {@code A}, {@code C}, {@code G} and {@code T} are packable, so that two kmers
+ *     have the same packed value if and only if their {@link Kmer} representations are equal. Kmers longer than
+ *     {@link #MAX_PACKED_LENGTH} or containing any other base (e.g. {@code N} or lower-case bases) cannot be packed
+ *     and callers are expected to fall back to {@link Kmer}.
+ * </p>
+ * <p>
+ *     Every packed value is non-negative, so {@link #UNPACKABLE} can be used as a sentinel.
+ * </p>
+ */
+public final class PackedKmer {
+
+    /**
+     * Largest kmer length that fits into a packed {@code long}.
+     */
+    public static final int MAX_PACKED_LENGTH = 31;
+
+    /**
+     * Value returned when a kmer cannot be packed.
+     */
+    public static final long UNPACKABLE = -1L;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private static final int[] BASE_TO_CODE = new int[256];
+
+    static {
+        Arrays.fill(BASE_TO_CODE, -1);
+        for (int i = 0; i < BASES.length; i++) {
+            BASE_TO_CODE[BASES[i]] = i;
+        }
+    }
+
+    private PackedKmer() {}
+
+    /**
+     * Checks whether kmers of a given length can be packed (provided that their bases are packable).
+     * @param length the kmer length.
+     * @return {@code true} iff {@code 0 <= length <= } {@link #MAX_PACKED_LENGTH}.
+     */
+    public static boolean isPackableLength(final int length) {
+        return length >= 0 && length <= MAX_PACKED_LENGTH;
+    }
+
+    /**
+     * Returns the 2-bit code for a base.
+     * @param base the query base.
+     * @return 0 to 3 for {@code A}, {@code C}, {@code G} and {@code T} respectively, -1 for any other base.
+     */
+    public static int baseCode(final byte base) {
+        return BASE_TO_CODE[base & 0xFF];
+    }
+
+    /**
+     * Packs the kmer {@code bases[start, start + length)}.
+     *
+     * @param bases the bases array.
+     * @param start the first base of the kmer in {@code bases}.
+     * @param length the kmer length.
+     * @return a non-negative value, or {@link #UNPACKABLE} if the kmer is too long or contains non-packable bases.
+     */
+    public static long pack(final byte[] bases, final int start, final int length) {
+        if (!isPackableLength(length)) {
+            return UNPACKABLE;
+        }
+        long result = 0;
+        for (int i = start, stop = start + length; i < stop; i++) {
+            final int code = BASE_TO_CODE[bases[i] & 0xFF];
+            if (code < 0) {
+                return UNPACKABLE;
+            }
+            result = (result << 2) | code;
+        }
+        return result;
+    }
+
+    /**
+     * Packs all the bases of a kmer.
+     * @param kmer the kmer to pack.
+     * @return a non-negative value, or {@link #UNPACKABLE} if the kmer is too long or contains non-packable bases.
+     */
+    public static long pack(final Kmer kmer) {
+        Utils.nonNull(kmer);
+        return pack(kmer.bases(), 0, kmer.length());
+    }
+
+    /**
+     * Unpacks a kmer into a new byte array.
+     * @param packed the packed kmer.
+     * @param length the length of the kmer.
+     * @return never {@code null}.
+     */
+    public static byte[] unpack(final long packed, final int length) {
+        Utils.validateArg(packed >= 0, "cannot unpack an unpackable kmer");
+        Utils.validateArg(isPackableLength(length), () -> "invalid packed kmer length " + length);
+        final byte[] result = new byte[length];
+        long remaining = packed;
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = BASES[(int) (remaining & 3)];
+            remaining >>>= 2;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a single base of a packed kmer.
+     * @param packed the packed kmer.
+     * @param length the length of the kmer.
+     * @param index the offset of the base in the kmer, between 0 and {@code length - 1}.
+     * @return one of {@code A}, {@code C}, {@code G} or {@code T}.
+     */
+    public static byte baseAt(final long packed, final int length, final int index) {
+        return BASES[(int) ((packed >>> (2 * (length - 1 - index))) & 3)];
+    }
+
+    /**
+     * Computes the Hamming distance between two packed kmers of the same length.
+     * @param packed1 the first packed kmer.
+     * @param packed2 the second packed kmer.
+     * @return the number of differing bases.
+     */
+    public static int hammingDistance(final long packed1, final long packed2) {
+        return Long.bitCount(differingBases(packed1, packed2));
+    }
+
+    /**
+     * Returns a mask with the lowest bit of every 2-bit base that differs between two packed kmers set.
+     */
+    static long differingBases(final long packed1, final long packed2) {
+        final long diff = packed1 ^ packed2;
+        return (diff | (diff >>> 1)) & 0x5555555555555555L;
+    }
+
+    /**
+     * Hashes a packed kmer into a bucket index using Fibonacci hashing.
+     * @param packed the packed kmer.
+     * @param bits the number of bits of the resulting index, between 1 and 31.
+     * @return a value in {@code [0, 2^bits)}.
+     */
+    static int bucket(final long packed, final int bits) {
+        return (int) ((packed * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+}
@@ -0,0 +1,244 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Map from fixed-length kmers to non-null values that avoids allocating a {@link Kmer} per lookup.
+ *
+ * <p>
+ *     Kmers that can be packed by {@link PackedKmer} are kept in a {@link PackedKmerTable} of primitive
+ *     {@code long} keys; lookups read the kmer directly from the caller's base array. Kmers that cannot
+ *     be packed (too long or containing bases other than upper-case {@code ACGT}) fall back to a regular
+ *     {@link Kmer}-keyed map, so the behavior is exactly that of a {@code Map<Kmer, V>}.
+ * </p>
+ *
+ * <p>
+ *     Iteration order is unspecified.
+ * </p>
+ *
+ * @param <V> the value type.
+ */
+public final class PackedKmerIndex<V> {
+
+    private final int kmerLength;
+
+    private final PackedKmerTable packedKmers;
+
+    /**
+     * Values of the packed kmers by their id in {@link #packedKmers}
+     */
+    private Object[] packedValues;
+
+    private final Map<Kmer, V> unpackedEntries = new HashMap<>();
+
+    /**
+     * Creates an empty index.
+     * @param kmerLength the length of all kmers in this index, must be 1 or greater.
+     */
+    public PackedKmerIndex(final int kmerLength) {
+        this(kmerLength, 0);
+    }
+
+    /**
+     * Creates an empty index with capacity for a number of entries without resizing.
+     * @param kmerLength the length of all kmers in this index, must be 1 or greater.
+     * @param expectedSize the expected number of entries, 0 or greater.
+     */
+    public PackedKmerIndex(final int kmerLength, final int expectedSize) {
+        Utils.validateArg(kmerLength > 0, () -> "kmerLength must be > 0 but got " + kmerLength);
+        Utils.validateArg(expectedSize >= 0, () -> "expectedSize must be >= 0 but got " + expectedSize);
+        this.kmerLength = kmerLength;
+        packedKmers = new PackedKmerTable(PackedKmer.isPackableLength(kmerLength) ? expectedSize : 0);
+        packedValues = new Object[packedKmers.capacity()];
+    }
+
+    /**
+     * @return the length of the kmers in this index.
+     */
+    public int kmerLength() {
+        return kmerLength;
+    }
+
+    /**
+     * @return the number of kmers in this index.
+     */
+    public int size() {
+        return packedKmers.size() + unpackedEntries.size();
+    }
+
+    /**
+     * @return {@code true} iff this index has no kmers.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all kmers from this index.
+     */
+    public void clear() {
+        Arrays.fill(packedValues, 0, packedKmers.size(), null);
+        packedKmers.clear();
+        unpackedEntries.clear();
+    }
+
+    /**
+     * Returns the value for the kmer {@code bases[start, start + kmerLength)}.
+     * @param bases the bases containing the kmer.
+     * @param start the first base of the kmer.
+     * @return {@code null} if the kmer is not in this index.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final byte[] bases, final int start) {
+        checkRange(bases, start);
+        final long packed = PackedKmer.pack(bases, start, kmerLength);
+        if (packed == PackedKmer.UNPACKABLE) {
+            return unpackedEntries.get(new Kmer(bases, start, kmerLength));
+        }
+        final int id = packedKmers.find(packed);
+        return id == -1 ? null : (V) packedValues[id];
+    }
+
+    /**
+     * Returns the value for a kmer.
+     * @param kmer the query kmer.
+     * @return {@code null} if the kmer is not in this index or has a different length.
+     */
+    public V get(final Kmer kmer) {
+        Utils.nonNull(kmer);
+        return kmer.length() == kmerLength ? get(kmer.bases(), 0) : null;
+    }
+
+    /**
+     * Checks whether the kmer {@code bases[start, start + kmerLength)} is in this index.
+     * @param bases the bases containing the kmer.
+     * @param start the first base of the kmer.
+     * @return {@code true} iff the kmer is present.
+     */
+    public boolean containsKey(final byte[] bases, final int start) {
+        return get(bases, start) != null;
+    }
+
+    /**
+     * Checks whether a kmer is in this index.
+     * @param kmer the query kmer.
+     * @return {@code true} iff the kmer is present.
+     */
+    public boolean containsKey(final Kmer kmer) {
+        return get(kmer) != null;
+    }
+
+    /**
+     * Associates the kmer {@code bases[start, start + kmerLength)} with a value.
+     * @param bases the bases containing the kmer. The array is not retained unless the kmer cannot be packed.
+     * @param start the first base of the kmer.
+     * @param value the new non-null value.
+     * @return the previous value, or {@code null} if the kmer was not present.
+     */
+    public V put(final byte[] bases, final int start, final V value) {
+        return put(bases, start, value, true);
+    }
+
+    /**
+     * Associates the kmer {@code bases[start, start + kmerLength)} with a value, unless the kmer is already present.
+     * @param bases the bases containing the kmer. The array is not retained unless the kmer cannot be packed.
+     * @param start the first base of the kmer.
+     * @param value the new non-null value.
+     * @return the current value, or {@code null} if the kmer was not present and {@code value} was inserted.
+     */
+    public V putIfAbsent(final byte[] bases, final int start, final V value) {
+        return put(bases, start, value, false);
+    }
+
+    /**
+     * Removes the kmer {@code bases[start, start + kmerLength)} from this index.
+     * @param bases the bases containing the kmer.
+     * @param start the first base of the kmer.
+     * @return the removed value, or {@code null} if the kmer was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final byte[] bases, final int start) {
+        checkRange(bases, start);
+        final long packed = PackedKmer.pack(bases, start, kmerLength);
+        if (packed == PackedKmer.UNPACKABLE) {
+            return unpackedEntries.remove(new Kmer(bases, start, kmerLength));
+        }
+        final int id = packedKmers.remove(packed);
+        if (id == -1) {
+            return null;
+        }
+        // the kmer with the last id has taken the id of the removed one
+        final V result = (V) packedValues[id];
+        final int lastId = packedKmers.size();
+        packedValues[id] = packedValues[lastId];
+        packedValues[lastId] = null;
+        return result;
+    }
+
+    /**
+     * Returns the values in this index.
+     * @return never {@code null}, a new collection that the caller can modify.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        final List<V> result = new ArrayList<>(size());
+        for (int id = 0; id < packedKmers.size(); id++) {
+            result.add((V) packedValues[id]);
+        }
+        result.addAll(unpackedEntries.values());
+        return result;
+    }
+
+    /**
+     * Performs an action on each kmer-value pair. Packed kmers are unpacked into new {@link Kmer} instances.
+     * @param action the action to perform.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final BiConsumer<? super Kmer, ? super V> action) {
+        Utils.nonNull(action);
+        for (int id = 0; id < packedKmers.size(); id++) {
+            action.accept(new Kmer(PackedKmer.unpack(packedKmers.kmer(id), kmerLength)), (V) packedValues[id]);
+        }
+        unpackedEntries.forEach(action);
+    }
+
+    @Override
+    public String toString() {
+        return "PackedKmerIndex{kmerLength=" + kmerLength + ", size=" + size() + '}';
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(final byte[] bases, final int start, final V value, final boolean replace) {
+        checkRange(bases, start);
+        Utils.nonNull(value, "value cannot be null");
+        final long packed = PackedKmer.pack(bases, start, kmerLength);
+        if (packed == PackedKmer.UNPACKABLE) {
+            final Kmer kmer = new Kmer(bases, start, kmerLength);
+            return replace ? unpackedEntries.put(kmer, value) : unpackedEntries.putIfAbsent(kmer, value);
+        }
+        final int sizeBefore = packedKmers.size();
+        final int id = packedKmers.add(packed);
+        if (packedKmers.size() == sizeBefore) {
+            final V previous = (V) packedValues[id];
+            if (replace) {
+                packedValues[id] = value;
+            }
+            return previous;
+        }
+        if (id >= packedValues.length) {
+            packedValues = Arrays.copyOf(packedValues, packedKmers.capacity());
+        }
+        packedValues[id] = value;
+        return null;
+    }
+
+    private void checkRange(final byte[] bases, final int start) {
+        Utils.nonNull(bases, "bases cannot be null");
+        if (start < 0 || start + kmerLength > bases.length) {
+            throw new IllegalArgumentException("kmer at " + start + " with length " + kmerLength + " is out of bounds for " + bases.length + " bases");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) hash table of kmers packed by {@link PackedKmer}, shared by the kmer maps and
+ * counters that avoid allocating a {@link Kmer} per lookup.
+ *
+ * <p>
+ *     The table assigns every packed kmer a dense id in {@code [0, size())}, so that the owner keeps the associated
+ *     values in its own (primitive) arrays indexed by id, which never move when the table is resized. Removing a
+ *     kmer gives its id to the kmer that had the highest id, see {@link #remove(long)}.
+ * </p>
+ */
+final class PackedKmerTable {
+
+    private static final long EMPTY = PackedKmer.UNPACKABLE;
+    private static final int MIN_BITS = 4;
+    private static final int MAX_BITS = 30;
+
+    private long[] slotKmers;
+    private int[] slotIds;
+    private int bits;
+
+    /**
+     * Packed kmers by id
+     */
+    private long[] kmers;
+    private int size;
+
+    /**
+     * Creates an empty table with capacity for a number of kmers without resizing.
+     * @param expectedSize the expected number of kmers, 0 or greater.
+     */
+    PackedKmerTable(final int expectedSize) {
+        Utils.validateArg(expectedSize >= 0, () -> "expectedSize must be >= 0 but got " + expectedSize);
+        int initialBits = MIN_BITS;
+        while (initialBits < MAX_BITS && (1 << initialBits) < 2L * expectedSize) {
+            initialBits++;
+        }
+        allocate(initialBits);
+        kmers = new long[1 << (initialBits - 1)];
+    }
+
+    /**
+     * @return the number of kmers in this table.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the capacity of the id range that does not require the owner to grow its value arrays.
+     */
+    int capacity() {
+        return kmers.length;
+    }
+
+    /**
+     * @param id a kmer id in {@code [0, size())}.
+     * @return the packed kmer with that id.
+     */
+    long kmer(final int id) {
+        return kmers[id];
+    }
+
+    /**
+     * @param packed a packed kmer.
+     * @return the id of the kmer, or -1 if it is not in this table.
+     */
+    int find(final long packed) {
+        return slotIds[findSlot(packed)];
+    }
+
+    /**
+     * Adds a kmer unless it is already present. A newly added kmer gets the id {@code size() - 1}.
+     * @param packed a packed kmer.
+     * @return the id of the kmer.
+     */
+    int add(final long packed) {
+        final int slot = findSlot(packed);
+        if (slotIds[slot] != -1) {
+            return slotIds[slot];
+        }
+        if (size == kmers.length) {
+            kmers = Arrays.copyOf(kmers, 2 * kmers.length);
+        }
+        final int id = size++;
+        kmers[id] = packed;
+        slotKmers[slot] = packed;
+        slotIds[slot] = id;
+        if (size * 2 > slotKmers.length) {
+            resize();
+        }
+        return id;
+    }
+
+    /**
+     * Removes a kmer. The kmer that had the highest id, i.e. {@code size()} after the removal, takes the id of the
+     * removed kmer, so the owner must move its value accordingly.
+     * @param packed a packed kmer.
+     * @return the id of the removed kmer, or -1 if it was not present.
+     */
+    int remove(final long packed) {
+        final int slot = findSlot(packed);
+        final int id = slotIds[slot];
+        if (id == -1) {
+            return -1;
+        }
+        removeSlot(slot);
+        final int lastId = --size;
+        if (id != lastId) {
+            kmers[id] = kmers[lastId];
+            slotIds[findSlot(kmers[id])] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Removes all kmers.
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slotKmers, EMPTY);
+            Arrays.fill(slotIds, -1);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the slot that contains the packed kmer, or the empty slot where it would be inserted.
+     */
+    private int findSlot(final long packed) {
+        final int mask = slotKmers.length - 1;
+        int slot = PackedKmer.bucket(packed, bits);
+        while (slotKmers[slot] != EMPTY && slotKmers[slot] != packed) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot shifting back any later entries of the same probe run so that lookups do not need tombstones.
+     */
+    private void removeSlot(final int slot) {
+        final int mask = slotKmers.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; slotKmers[i] != EMPTY; i = (i + 1) & mask) {
+            final int home = PackedKmer.bucket(slotKmers[i], bits);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                slotKmers[hole] = slotKmers[i];
+                slotIds[hole] = slotIds[i];
+                hole = i;
+            }
+        }
+        slotKmers[hole] = EMPTY;
+        slotIds[hole] = -1;
+    }
+
+    private void resize() {
+        if (bits >= MAX_BITS) {
+            throw new IllegalStateException("too many kmers in the table");
+        }
+        allocate(bits + 1);
+        for (int id = 0; id < size; id++) {
+            final int slot = findSlot(kmers[id]);
+            slotKmers[slot] = kmers[id];
+            slotIds[slot] = id;
+        }
+    }
+
+    private void allocate(final int newBits) {
+        bits = newBits;
+        slotKmers = new long[1 << newBits];
+        slotIds = new int[slotKmers.length];
+        Arrays.fill(slotKmers, EMPTY);
+        Arrays.fill(slotIds, -1);
+    }
+}
@@ -0,0 +1,327 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of PairHMM log10 likelihoods shared across assembly regions.
+ *
+ * <p>
+ *     Overlapping regions (e.g. due to region padding) evaluate the same reads against the same haplotypes again.
+ *     Entries are keyed by the exact content that determines a PairHMM likelihood: the processed read bases,
+ *     base, insertion and deletion qualities and gap continuation penalties, and the haplotype bases. Keys carry a
+ *     pre-computed hash but are compared by content, so a cache hit always returns the value the PairHMM would have
+ *     computed.
+ * </p>
+ *
+ * <p>
+ *     Entries are grouped per read and evicted in least-recently-used order of the reads once the estimated memory
+ *     footprint exceeds the maximum size. The estimate is conservative: haplotype bases are counted once for each read
+ *     they are cached with even though they are shared.
+ * </p>
+ *
+ * <p>
+ *     This class is thread-safe.
+ * </p>
+ */
+public final class PairHMMLikelihoodCache {
+
+    /**
+     * Rough per-object overhead used to estimate the size of the cache entries.
+     */
+    private static final long OBJECT_OVERHEAD_IN_BYTES = 16;
+    private static final long READ_ENTRY_OVERHEAD_IN_BYTES = 8 * OBJECT_OVERHEAD_IN_BYTES;
+    private static final long HAPLOTYPE_ENTRY_OVERHEAD_IN_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+    private final long maxSizeInBytes;
+
+    private long sizeInBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    // access-ordered, so that iteration starts at the least recently used read
+    private final LinkedHashMap<ReadKey, ReadEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates an empty cache.
+     * @param maxSizeInBytes the maximum estimated memory footprint of the cached likelihoods, must be positive.
+     */
+    public PairHMMLikelihoodCache(final long maxSizeInBytes) {
+        this.maxSizeInBytes = ParamUtils.isPositive(maxSizeInBytes, "the likelihood cache size must be positive");
+    }
+
+    /**
+     * Creates the key for a processed read.
+     *
+     * @param bases the read bases.
+     * @param baseQualities the base qualities as passed to the PairHMM.
+     * @param insertionQualities the base insertion qualities as passed to the PairHMM.
+     * @param deletionQualities the base deletion qualities as passed to the PairHMM.
+     * @param gapContinuationPenalties the gap continuation penalties as passed to the PairHMM.
+     * @return never {@code null}. The key does not retain any of the input arrays.
+     */
+    public static ReadKey readKey(final byte[] bases, final byte[] baseQualities, final byte[] insertionQualities,
+                                  final byte[] deletionQualities, final byte[] gapContinuationPenalties) {
+        Utils.nonNull(bases, "bases cannot be null");
+        final int length = bases.length;
+        Utils.validateArg(Utils.nonNull(baseQualities).length == length
+                && Utils.nonNull(insertionQualities).length == length
+                && Utils.nonNull(deletionQualities).length == length
+                && Utils.nonNull(gapContinuationPenalties).length == length, "read bases and qualities must have the same length");
+        final byte[] content = new byte[5 * length];
+        System.arraycopy(bases, 0, content, 0, length);
+        System.arraycopy(baseQualities, 0, content, length, length);
+        System.arraycopy(insertionQualities, 0, content, 2 * length, length);
+        System.arraycopy(deletionQualities, 0, content, 3 * length, length);
+        System.arraycopy(gapContinuationPenalties, 0, content, 4 * length, length);
+        return new ReadKey(content);
+    }
+
+    /**
+     * Creates the key for a haplotype.
+     * @param bases the haplotype bases. They are retained by the key and must not be modified afterwards.
+     * @return never {@code null}.
+     */
+    public static HaplotypeKey haplotypeKey(final byte[] bases) {
+        return new HaplotypeKey(Utils.nonNull(bases, "bases cannot be null"));
+    }
+
+    /**
+     * Looks up the likelihoods of a read against a list of haplotypes.
+     *
+     * @param read the read key.
+     * @param haplotypes the haplotype keys.
+     * @param destination array where to store the likelihood of each haplotype, in the same order. It may be modified
+     *                    even if not all likelihoods are cached.
+     * @return {@code true} iff the likelihoods of all haplotypes were cached.
+     */
+    public synchronized boolean get(final ReadKey read, final List<HaplotypeKey> haplotypes, final double[] destination) {
+        Utils.nonNull(read);
+        Utils.nonNull(haplotypes);
+        Utils.validateArg(destination.length >= haplotypes.size(), "the destination array is too short");
+        final ReadEntry entry = entries.get(read);
+        boolean allCached = entry != null;
+        for (int i = 0; allCached && i < haplotypes.size(); i++) {
+            final int index = entry.indexOf(haplotypes.get(i));
+            if (index < 0) {
+                allCached = false;
+            } else {
+                destination[i] = entry.likelihoods[index];
+            }
+        }
+        if (allCached) {
+            hitCount += haplotypes.size();
+        } else {
+            missCount += haplotypes.size();
+        }
+        return allCached;
+    }
+
+    /**
+     * Adds the likelihoods of a read against a list of haplotypes, evicting the least recently used reads if
+     * necessary.
+     *
+     * @param read the read key.
+     * @param haplotypes the haplotype keys.
+     * @param likelihoods the log10 likelihood of the read given each haplotype, in the same order.
+     */
+    public synchronized void put(final ReadKey read, final List<HaplotypeKey> haplotypes, final double[] likelihoods) {
+        Utils.nonNull(read);
+        Utils.nonNull(haplotypes);
+        Utils.validateArg(likelihoods.length >= haplotypes.size(), "the likelihoods array is too short");
+        ReadEntry entry = entries.get(read);
+        if (entry == null) {
+            entry = new ReadEntry(haplotypes.size());
+            entries.put(read, entry);
+            sizeInBytes += read.sizeInBytes();
+        }
+        for (int i = 0; i < haplotypes.size(); i++) {
+            sizeInBytes += entry.put(haplotypes.get(i), likelihoods[i]);
+        }
+        evictIfNecessary();
+    }
+
+    private void evictIfNecessary() {
+        final Iterator<Map.Entry<ReadKey, ReadEntry>> iterator = entries.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            final Map.Entry<ReadKey, ReadEntry> eldest = iterator.next();
+            sizeInBytes -= eldest.getKey().sizeInBytes() + eldest.getValue().sizeInBytes;
+            evictionCount += eldest.getValue().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all cached likelihoods. The hit, miss and eviction counts are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * @return the maximum estimated size of this cache in bytes.
+     */
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * @return the current estimated size of this cache in bytes.
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return the number of read-haplotype likelihoods served from this cache.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of read-haplotype likelihoods requested but not served from this cache.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of read-haplotype likelihoods evicted from this cache.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the fraction of requested read-haplotype likelihoods served from this cache, or 0 if there were no
+     * requests.
+     */
+    public synchronized double getHitRate() {
+        final long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0.0 : hitCount / (double) requestCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PairHMM likelihood cache: %d hits, %d misses (hit rate %.2f%%), %d evictions, %d of %d bytes used",
+                hitCount, missCount, 100 * getHitRate(), evictionCount, sizeInBytes, maxSizeInBytes);
+    }
+
+    /**
+     * Key for the processed bases, qualities and gap continuation penalties of a read.
+     */
+    public static final class ReadKey {
+        private final byte[] content;
+        private final int hashCode;
+
+        private ReadKey(final byte[] content) {
+            this.content = content;
+            this.hashCode = Arrays.hashCode(content);
+        }
+
+        private long sizeInBytes() {
+            return 2 * OBJECT_OVERHEAD_IN_BYTES + content.length;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ReadKey)) {
+                return false;
+            }
+            final ReadKey other = (ReadKey) o;
+            return hashCode == other.hashCode && Arrays.equals(content, other.content);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Key for the bases of a haplotype.
+     */
+    public static final class HaplotypeKey {
+        private final byte[] bases;
+        private final int hashCode;
+
+        private HaplotypeKey(final byte[] bases) {
+            this.bases = bases;
+            this.hashCode = Arrays.hashCode(bases);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HaplotypeKey)) {
+                return false;
+            }
+            final HaplotypeKey other = (HaplotypeKey) o;
+            return hashCode == other.hashCode && Arrays.equals(bases, other.bases);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The cached likelihoods of a read; haplotypes are looked up by linear search as there are few per region.
+     */
+    private static final class ReadEntry {
+        private HaplotypeKey[] haplotypes;
+        private double[] likelihoods;
+        private int size;
+        private long sizeInBytes = READ_ENTRY_OVERHEAD_IN_BYTES;
+
+        private ReadEntry(final int initialCapacity) {
+            haplotypes = new HaplotypeKey[Math.max(initialCapacity, 1)];
+            likelihoods = new double[haplotypes.length];
+        }
+
+        private int indexOf(final HaplotypeKey haplotype) {
+            for (int i = 0; i < size; i++) {
+                if (haplotypes[i].equals(haplotype)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the increase of the estimated size of this entry in bytes.
+         */
+        private long put(final HaplotypeKey haplotype, final double likelihood) {
+            final int index = indexOf(haplotype);
+            if (index >= 0) {
+                likelihoods[index] = likelihood;
+                return 0;
+            }
+            if (size == haplotypes.length) {
+                haplotypes = Arrays.copyOf(haplotypes, 2 * size);
+                likelihoods = Arrays.copyOf(likelihoods, 2 * size);
+            }
+            haplotypes[size] = haplotype;
+            likelihoods[size] = likelihood;
+            size++;
+            final long increase = HAPLOTYPE_ENTRY_OVERHEAD_IN_BYTES + haplotype.bases.length;
+            sizeInBytes += increase;
+            return increase;
+        }
+    }
+}
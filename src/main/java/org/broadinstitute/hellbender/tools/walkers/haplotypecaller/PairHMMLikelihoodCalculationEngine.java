@@ -2,7 +2,6 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
@@ -13,6 +12,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.*;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
@@ -22,9 +22,15 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /*
@@ -47,6 +53,36 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
     private final PairHMM pairHMM;
 
+    public static final int DEFAULT_READ_BATCH_SIZE = 64;
+
+    /**
+     * Pool used to evaluate batches of reads concurrently; {@code null} when likelihoods are computed on the calling thread
+     */
+    private final ForkJoinPool pairHMMThreadPool;
+
+    /**
+     * One PairHMM instance per thread of {@link #pairHMMThreadPool}, as PairHMM instances are not thread-safe
+     */
+    private final List<PairHMM> threadPairHMMs;
+    private final BlockingQueue<PairHMM> availableThreadPairHMMs;
+
+    private final int readBatchSize;
+
+    /**
+     * Likelihoods of previously evaluated reads and haplotypes; {@code null} if caching is disabled
+     */
+    private final PairHMMLikelihoodCache likelihoodCache;
+
+    /**
+     * Sample name used for the scratch matrices that hold the likelihoods of the reads missing from {@link #likelihoodCache}
+     */
+    private static final String UNCACHED_READS_SAMPLE = "uncachedReads";
+
+    /**
+     * Reusable storage for the processed qualities of the reads evaluated by each thread, cleared after each region
+     */
+    private final ThreadLocal<ProcessedReadBatch> processedReadBatches;
+
     @VisibleForTesting
     static boolean writeLikelihoodsToFile = false;
 
@@ -130,6 +166,59 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final double log10globalReadMismappingRate,
                                               final PCRErrorModel pcrErrorModel,
                                               final byte baseQualityScoreThreshold) {
+        this( constantGCP, arguments, hmmType, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold, 1, DEFAULT_READ_BATCH_SIZE );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     * @param numPairHMMThreads number of threads used to evaluate the reads of each region, each with its own
+     *                          PairHMM instance. 1 evaluates all reads serially on the calling thread.
+     * @param readBatchSize maximum number of reads of a sample evaluated together by one thread when
+     *                      {@code numPairHMMThreads} is greater than 1.
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final int numPairHMMThreads,
+                                              final int readBatchSize) {
+        this( constantGCP, arguments, hmmType, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold, numPairHMMThreads, readBatchSize, 0 );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     * @param numPairHMMThreads number of threads used to evaluate the reads of each region, each with its own
+     *                          PairHMM instance. 1 evaluates all reads serially on the calling thread.
+     * @param readBatchSize maximum number of reads of a sample evaluated together by one thread when
+     *                      {@code numPairHMMThreads} is greater than 1.
+     * @param likelihoodCacheSizeInBytes maximum size of the cache of likelihoods shared across calls to
+     *                                   {@link #computeReadLikelihoods}. 0 disables the cache.
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final int numPairHMMThreads,
+                                              final int readBatchSize,
+                                              final long likelihoodCacheSizeInBytes) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
         if (constantGCP < 0){
@@ -143,6 +232,24 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         this.pcrErrorModel = pcrErrorModel;
         this.pairHMM = hmmType.makeNewHMM(arguments);
 
+        ParamUtils.isPositive(numPairHMMThreads, "the number of PairHMM threads must be positive");
+        this.readBatchSize = ParamUtils.isPositive(readBatchSize, "the PairHMM read batch size must be positive");
+        if ( numPairHMMThreads > 1 ) {
+            pairHMMThreadPool = new ForkJoinPool(numPairHMMThreads);
+            threadPairHMMs = new ArrayList<>(numPairHMMThreads);
+            for ( int i = 0; i < numPairHMMThreads; i++ ) {
+                threadPairHMMs.add(hmmType.makeNewHMM(arguments));
+            }
+            availableThreadPairHMMs = new ArrayBlockingQueue<>(numPairHMMThreads, false, threadPairHMMs);
+        } else {
+            pairHMMThreadPool = null;
+            threadPairHMMs = Collections.emptyList();
+            availableThreadPairHMMs = null;
+        }
+        ParamUtils.isPositiveOrZero(likelihoodCacheSizeInBytes, "the likelihood cache size cannot be negative");
+        likelihoodCache = likelihoodCacheSizeInBytes > 0 ? new PairHMMLikelihoodCache(likelihoodCacheSizeInBytes) : null;
+        processedReadBatches = ThreadLocal.withInitial(() -> new ProcessedReadBatch(constantGCP));
+
         initializePCRErrorModel();
 
         this.likelihoodsStream = makeLikelihoodStream();
@@ -167,6 +274,20 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
             likelihoodsStream.close();
         }
         pairHMM.close();
+        if ( pairHMMThreadPool != null ) {
+            pairHMMThreadPool.shutdown();
+        }
+        threadPairHMMs.forEach(PairHMM::close);
+        if ( likelihoodCache != null ) {
+            logger.info(likelihoodCache.toString());
+        }
+    }
+
+    /**
+     * @return the cache of likelihoods shared across regions, or {@code null} if caching is disabled.
+     */
+    public PairHMMLikelihoodCache getLikelihoodCache() {
+        return likelihoodCache;
     }
 
     @Override
@@ -178,13 +299,16 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         final List<Haplotype> haplotypeList = assemblyResultSet.getHaplotypeList();
         final AlleleList<Haplotype> haplotypes = new IndexedAlleleList<>(haplotypeList);
 
-        initializePairHMM(haplotypeList, perSampleReadList);
-
         // Add likelihoods for each sample's reads to our result
         final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
-        final int sampleCount = result.numberOfSamples();
-        for (int i = 0; i < sampleCount; i++) {
-            computeReadLikelihoods(result.sampleMatrix(i));
+        if ( pairHMMThreadPool == null ) {
+            initializePairHMM(pairHMM, haplotypeList, perSampleReadList);
+            final int sampleCount = result.numberOfSamples();
+            for (int i = 0; i < sampleCount; i++) {
+                computeReadLikelihoods(result.sampleMatrix(i));
+            }
+        } else {
+            computeReadLikelihoodsConcurrently(result, haplotypeList, haplotypes, perSampleReadList);
         }
 
         result.normalizeLikelihoods(false, log10globalReadMismappingRate);
@@ -235,10 +359,11 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
      * After calling this routine the PairHMM will be configured to best evaluate all reads in the samples
      * against the set of haplotypes
      *
+     * @param pairHMM the PairHMM to initialize
      * @param haplotypes a non-null list of haplotypes
      * @param perSampleReadList a mapping from sample -> reads
      */
-    private void initializePairHMM(final List<Haplotype> haplotypes, final Map<String, List<GATKRead>> perSampleReadList) {
+    private static void initializePairHMM(final PairHMM pairHMM, final List<Haplotype> haplotypes, final Map<String, List<GATKRead>> perSampleReadList) {
         final int readMaxLength = perSampleReadList.entrySet().stream().flatMap(e -> e.getValue().stream()).mapToInt(read -> read.getLength()).max().orElse(0);
         final int haplotypeMaxLength = haplotypes.stream().mapToInt(h -> h.getBases().length).max().orElse(0);
 
@@ -247,49 +372,230 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
     }
 
     private void computeReadLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
-        // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
+        computeReadLikelihoods(pairHMM, likelihoods);
+        writeDebugLikelihoods(likelihoods);
+    }
 
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+    private void computeReadLikelihoods(final PairHMM pairHMM, final LikelihoodMatrix<Haplotype> likelihoods) {
+        // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
+        final ProcessedReadBatch processedReads = processedReadBatches.get();
+        modifyReadQualities(likelihoods.reads(), processedReads);
 
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        try {
+            if ( likelihoodCache == null ) {
+                computeLog10Likelihoods(pairHMM, likelihoods, processedReads, null);
+            } else {
+                computeReadLikelihoodsWithCache(pairHMM, likelihoods, processedReads);
+            }
+        } finally {
+            // keep the quality arrays for the next region but don't hold on to this region's reads
+            processedReads.clear();
+        }
+    }
 
-        writeDebugLikelihoods(likelihoods);
+    /**
+     * Runs the PairHMM on some of the processed reads.
+     *
+     * @param likelihoods the matrix where to store the likelihoods, with one read per read index in {@code readIndices}.
+     * @param processedReads the processed reads.
+     * @param readIndices the indices of the reads to evaluate in {@code processedReads}, {@code null} to evaluate all.
+     */
+    private static void computeLog10Likelihoods(final PairHMM pairHMM, final LikelihoodMatrix<Haplotype> likelihoods,
+                                                final ProcessedReadBatch processedReads, final List<Integer> readIndices) {
+        final int readCount = readIndices == null ? processedReads.size() : readIndices.size();
+        final List<GATKRead> qualityModifiedReads = new ArrayList<>(readCount);
+        // the PairHMM looks up the penalties of the very read instances it is given, so there is no need to hash reads
+        final Map<GATKRead, byte[]> gapContinuationPenalties = new IdentityHashMap<>(readCount);
+        for ( int i = 0; i < readCount; i++ ) {
+            final int r = readIndices == null ? i : readIndices.get(i);
+            final GATKRead qualityModifiedRead = createQualityModifiedRead(processedReads.getRead(r), processedReads.getBases(r),
+                    processedReads.getBaseQualities(r), processedReads.getInsertionQualities(r), processedReads.getDeletionQualities(r));
+            qualityModifiedReads.add(qualityModifiedRead);
+            gapContinuationPenalties.put(qualityModifiedRead, processedReads.getGapContinuationPenalties(r));
+        }
+        pairHMM.computeLog10Likelihoods(likelihoods, qualityModifiedReads, gapContinuationPenalties);
+    }
+
+    /**
+     * Fills in the likelihoods of reads found in {@link #likelihoodCache} and runs the PairHMM only on the remaining
+     * reads, whose likelihoods are then added to the cache.
+     */
+    private void computeReadLikelihoodsWithCache(final PairHMM pairHMM, final LikelihoodMatrix<Haplotype> likelihoods,
+                                                 final ProcessedReadBatch processedReads) {
+        final List<Haplotype> haplotypes = likelihoods.alleles();
+        final List<PairHMMLikelihoodCache.HaplotypeKey> haplotypeKeys = haplotypes.stream()
+                .map(h -> PairHMMLikelihoodCache.haplotypeKey(h.getBases())).collect(Collectors.toList());
+        final int readCount = processedReads.size();
+        final int haplotypeCount = haplotypes.size();
+        final double[] readLikelihoods = new double[haplotypeCount];
+
+        final PairHMMLikelihoodCache.ReadKey[] readKeys = new PairHMMLikelihoodCache.ReadKey[readCount];
+        final List<Integer> uncachedReadIndices = new ArrayList<>();
+        for ( int r = 0; r < readCount; r++ ) {
+            readKeys[r] = PairHMMLikelihoodCache.readKey(processedReads.getBases(r), processedReads.getBaseQualities(r),
+                    processedReads.getInsertionQualities(r), processedReads.getDeletionQualities(r),
+                    processedReads.getGapContinuationPenalties(r));
+            if ( likelihoodCache.get(readKeys[r], haplotypeKeys, readLikelihoods) ) {
+                for ( int a = 0; a < haplotypeCount; a++ ) {
+                    likelihoods.set(a, r, readLikelihoods[a]);
+                }
+            } else {
+                uncachedReadIndices.add(r);
+            }
+        }
+        if ( uncachedReadIndices.isEmpty() ) {
+            return;
+        }
+
+        // evaluate the uncached reads in a scratch matrix, unless there are no cached reads at all
+        final LikelihoodMatrix<Haplotype> uncachedLikelihoods;
+        if ( uncachedReadIndices.size() == readCount ) {
+            uncachedLikelihoods = likelihoods;
+        } else {
+            final List<GATKRead> uncachedReads = uncachedReadIndices.stream().map(likelihoods.reads()::get).collect(Collectors.toList());
+            uncachedLikelihoods = new ReadLikelihoods<>(new IndexedSampleList(UNCACHED_READS_SAMPLE), new IndexedAlleleList<>(haplotypes),
+                    Collections.singletonMap(UNCACHED_READS_SAMPLE, uncachedReads)).sampleMatrix(0);
+        }
+        computeLog10Likelihoods(pairHMM, uncachedLikelihoods, processedReads, uncachedReadIndices);
+
+        for ( int i = 0; i < uncachedReadIndices.size(); i++ ) {
+            final int r = uncachedReadIndices.get(i);
+            for ( int a = 0; a < haplotypeCount; a++ ) {
+                readLikelihoods[a] = uncachedLikelihoods.get(a, i);
+                likelihoods.set(a, r, readLikelihoods[a]);
+            }
+            likelihoodCache.put(readKeys[r], haplotypeKeys, readLikelihoods);
+        }
+    }
+
+    /**
+     * Computes the likelihoods of all samples splitting their reads in batches of at most {@link #readBatchSize} reads
+     * that are evaluated concurrently, each by a thread with its own PairHMM.
+     *
+     * <p>
+     *     The likelihood of a read and haplotype pair does not depend on which other reads are evaluated in the same
+     *     call to the PairHMM, so the result is identical to computing each sample's likelihoods in one go.
+     * </p>
+     */
+    private void computeReadLikelihoodsConcurrently(final ReadLikelihoods<Haplotype> result, final List<Haplotype> haplotypeList,
+                                                    final AlleleList<Haplotype> haplotypes, final Map<String, List<GATKRead>> perSampleReadList) {
+        for ( final PairHMM threadPairHMM : threadPairHMMs ) {
+            initializePairHMM(threadPairHMM, haplotypeList, perSampleReadList);
+        }
+
+        // sample matrices are fetched here, on the calling thread, so that the workers only write likelihood values
+        final int sampleCount = result.numberOfSamples();
+        final List<LikelihoodMatrix<Haplotype>> sampleMatrices = new ArrayList<>(sampleCount);
+        final List<ReadBatch> batches = new ArrayList<>();
+        for ( int i = 0; i < sampleCount; i++ ) {
+            final LikelihoodMatrix<Haplotype> sampleMatrix = result.sampleMatrix(i);
+            sampleMatrices.add(sampleMatrix);
+            for ( int from = 0; from < sampleMatrix.numberOfReads(); from += readBatchSize ) {
+                batches.add(new ReadBatch(result.getSample(i), sampleMatrix, from, Math.min(from + readBatchSize, sampleMatrix.numberOfReads())));
+            }
+        }
+
+        final List<Future<?>> futures = new ArrayList<>(batches.size());
+        for ( final ReadBatch batch : batches ) {
+            futures.add(pairHMMThreadPool.submit(() -> computeReadLikelihoods(batch, haplotypes)));
+        }
+        try {
+            for ( final Future<?> future : futures ) {
+                future.get();
+            }
+        } catch ( final InterruptedException e ) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while computing the PairHMM likelihoods concurrently", e);
+        } catch ( final ExecutionException e ) {
+            futures.forEach(f -> f.cancel(true));
+            // let GATKException, UserException and other unchecked exceptions raised by the workers through unchanged
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new GATKException("Failure in concurrent PairHMM likelihood calculation", cause);
+        }
+
+        sampleMatrices.forEach(this::writeDebugLikelihoods);
+    }
+
+    private void computeReadLikelihoods(final ReadBatch batch, final AlleleList<Haplotype> haplotypes) {
+        final List<GATKRead> reads = batch.sampleMatrix.reads().subList(batch.from, batch.to);
+        final ReadLikelihoods<Haplotype> batchLikelihoods = new ReadLikelihoods<>(new IndexedSampleList(batch.sample), haplotypes, Collections.singletonMap(batch.sample, reads));
+        final LikelihoodMatrix<Haplotype> batchMatrix = batchLikelihoods.sampleMatrix(0);
+
+        final PairHMM threadPairHMM = borrowThreadPairHMM();
+        try {
+            computeReadLikelihoods(threadPairHMM, batchMatrix);
+        } finally {
+            availableThreadPairHMMs.add(threadPairHMM);
+        }
+
+        final int alleleCount = batchMatrix.numberOfAlleles();
+        for ( int r = 0; r < reads.size(); r++ ) {
+            for ( int a = 0; a < alleleCount; a++ ) {
+                batch.sampleMatrix.set(a, batch.from + r, batchMatrix.get(a, r));
+            }
+        }
+    }
+
+    private PairHMM borrowThreadPairHMM() {
+        try {
+            return availableThreadPairHMMs.take();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for a PairHMM instance", e);
+        }
+    }
+
+    /**
+     * A contiguous range of reads of one sample that is evaluated by a single thread
+     */
+    private static final class ReadBatch {
+        private final String sample;
+        private final LikelihoodMatrix<Haplotype> sampleMatrix;
+        private final int from;
+        private final int to;
+
+        private ReadBatch(final String sample, final LikelihoodMatrix<Haplotype> sampleMatrix, final int from, final int to) {
+            this.sample = sample;
+            this.sampleMatrix = sampleMatrix;
+            this.from = from;
+            this.to = to;
+        }
     }
 
     /**
      * Pre-processing of the reads to be evaluated at the current location from the current sample.
      * We apply the PCR Error Model, and cap the minimum base, insertion, and deletion qualities of each read.
-     * Modified copies of reads are packed into a new list, while original reads are retained for downstream use
+     * The modified qualities are stored in a reusable batch, while original reads are retained for downstream use
      *
      * @param reads The original list of unmodified reads
-     * @return processedReads. A new list of reads, in the same order, whose qualities have been altered by PCR error model and minimal quality thresholding
+     * @param processedReads the batch where to store the qualities, in the same order, as altered by PCR error model and minimal quality thresholding
      */
-    private List<GATKRead> modifyReadQualities(final List<GATKRead> reads) {
-        final List<GATKRead> result = new ArrayList<>(reads.size());
-
-        for (final GATKRead read : reads) {
-            final byte[] readBases = read.getBases();
+    private void modifyReadQualities(final List<GATKRead> reads, final ProcessedReadBatch processedReads) {
+        // the batch holds its own copies of the qualities so we don't screw up future uses of the read
+        processedReads.load(reads);
 
-            // NOTE -- must clone anything that gets modified here so we don't screw up future uses of the read
-            //Using close here is justified - it's an array of primitives.
-            final byte[] readQuals = read.getBaseQualities().clone();
-            final byte[] readInsQuals = ReadUtils.getBaseInsertionQualities(read).clone();
-            final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read).clone();
+        for ( int r = 0; r < processedReads.size(); r++ ) {
+            final byte[] readBases = processedReads.getBases(r);
+            final byte[] readQuals = processedReads.getBaseQualities(r);
+            final byte[] readInsQuals = processedReads.getInsertionQualities(r);
+            final byte[] readDelQuals = processedReads.getDeletionQualities(r);
 
             applyPCRErrorModel(readBases, readInsQuals, readDelQuals);
-            capMinimumReadQualities(read, readQuals, readInsQuals, readDelQuals, baseQualityScoreThreshold);
-
-            // Create a new copy of the read and sets its base qualities to the modified versions.
-            result.add(createQualityModifiedRead(read, readBases, readQuals, readInsQuals, readDelQuals));
+            capMinimumReadQualities(processedReads.getRead(r), readQuals, readInsQuals, readDelQuals, baseQualityScoreThreshold);
         }
-        return result;
     }
 
     private static void capMinimumReadQualities(final GATKRead read, final byte[] readQuals, final byte[] readInsQuals, final byte[] readDelQuals, final byte baseQualityScoreThreshold) {
+        final int mappingQuality = read.getMappingQuality();
         for( int i = 0; i < readQuals.length; i++ ) {
-            readQuals[i] = (byte) Math.min(0xff & readQuals[i], read.getMappingQuality()); // cap base quality by mapping quality, as in UG
+            readQuals[i] = (byte) Math.min(0xff & readQuals[i], mappingQuality); // cap base quality by mapping quality, as in UG
             readQuals[i] =    setToFixedValueIfTooLow( readQuals[i],    baseQualityScoreThreshold,             QualityUtils.MIN_USABLE_Q_SCORE );
             readInsQuals[i] = setToFixedValueIfTooLow( readInsQuals[i], QualityUtils.MIN_USABLE_Q_SCORE,       QualityUtils.MIN_USABLE_Q_SCORE );
             readDelQuals[i] = setToFixedValueIfTooLow( readDelQuals[i], QualityUtils.MIN_USABLE_Q_SCORE,       QualityUtils.MIN_USABLE_Q_SCORE );
@@ -300,11 +606,6 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         return currentVal < minQual ? fixedQual : currentVal;
     }
 
-    private static Map<GATKRead, byte[]> buildGapContinuationPenalties(final List<GATKRead> reads, final byte gapPenalty) {
-        return reads.stream().collect(Collectors.toMap(read -> read,
-                                                       read -> Utils.dupBytes(gapPenalty, read.getLength())));
-    }
-
     private void writeDebugLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
         if (!writeLikelihoodsToFile || likelihoodsStream == null) {
             return;
@@ -365,16 +666,26 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         }
 
         for ( int i = 1; i < readBases.length; i++ ) {
-            final int repeatLength = findTandemRepeatUnits(readBases, i-1).getRight();
+            final int repeatLength = findTandemRepeatLength(readBases, i-1);
             readInsQuals[i-1] = (byte) Math.min(0xff & readInsQuals[i - 1], 0xff & pcrIndelErrorModelCache[repeatLength]);
             readDelQuals[i-1] = (byte) Math.min(0xff & readDelQuals[i - 1], 0xff & pcrIndelErrorModelCache[repeatLength]);
         }
     }
 
+    /**
+     * Finds the length of the tandem repeat (in repeat units, capped at {@link #MAX_REPEAT_LENGTH}) at a given offset of
+     * the read, looking for the shortest repeat unit that ends at {@code offset} and the shortest one that starts right
+     * after it. Repeat units are compared as index ranges of the read bases, so nothing is allocated.
+     *
+     * @param readBases the read bases
+     * @param offset the offset of the base in {@code readBases}
+     * @return the repeat length
+     */
     @VisibleForTesting
-    static Pair<byte[], Integer> findTandemRepeatUnits(final byte[] readBases, final int offset) {
+    static int findTandemRepeatLength(final byte[] readBases, final int offset) {
         int maxBW = 0;
-        byte[] bestBWRepeatUnit = {readBases[offset]};
+        int bestBWRepeatUnitStart = offset;
+        int bestBWRepeatUnitLength = 1;
         for (int str = 1; str <= MAX_STR_UNIT_LENGTH; str++) {
             // fix repeat unit length
             //edge case: if candidate tandem repeat unit falls beyond edge of read, skip
@@ -385,15 +696,16 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
             // get backward repeat unit and # repeats
             maxBW = GATKVariantContextUtils.findNumberOfRepetitions(readBases, offset - str + 1,  str , readBases, 0, offset + 1, false);
             if (maxBW > 1) {
-                bestBWRepeatUnit = Arrays.copyOfRange(readBases, offset - str + 1, offset + 1);
+                bestBWRepeatUnitStart = offset - str + 1;
+                bestBWRepeatUnitLength = str;
                 break;
             }
         }
-        byte[] bestRepeatUnit = bestBWRepeatUnit;
         int maxRL = maxBW;
 
         if (offset < readBases.length-1) {
-            byte[] bestFWRepeatUnit = {readBases[offset+1]};
+            final int bestFWRepeatUnitStart = offset + 1;
+            int bestFWRepeatUnitLength = 1;
             int maxFW = 0;
 
             for (int str = 1; str <= MAX_STR_UNIT_LENGTH; str++) {
@@ -406,14 +718,14 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                 // get forward repeat unit and # repeats
                 maxFW = GATKVariantContextUtils.findNumberOfRepetitions(readBases, offset + 1, str, readBases, offset + 1, readBases.length-offset -1, true);
                 if (maxFW > 1) {
-                    bestFWRepeatUnit = Arrays.copyOfRange(readBases, offset + 1, offset+str+1);
+                    bestFWRepeatUnitLength = str;
                     break;
                 }
             }
             // if FW repeat unit = BW repeat unit it means we're in the middle of a tandem repeat - add FW and BW components
-            if (Arrays.equals(bestFWRepeatUnit, bestBWRepeatUnit)) {
+            if (bestFWRepeatUnitLength == bestBWRepeatUnitLength
+                    && Utils.equalRange(readBases, bestFWRepeatUnitStart, readBases, bestBWRepeatUnitStart, bestFWRepeatUnitLength)) {
                 maxRL = maxBW + maxFW;
-                bestRepeatUnit = bestFWRepeatUnit; // arbitrary
             } else {
                 // tandem repeat starting forward from current offset.
                 // It could be the case that best BW unit was different from FW unit, but that BW still contains FW unit.
@@ -421,16 +733,11 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                 // but correct representation at that place might be (C)4.
                 // Hence, if the FW and BW units don't match, check if BW unit can still be a part of FW unit and add
                 // representations to total
-                final byte[] testString = Arrays.copyOfRange(readBases, 0, offset + 1);
-                maxBW = GATKVariantContextUtils.findNumberOfRepetitions(bestFWRepeatUnit, testString, false);
+                maxBW = GATKVariantContextUtils.findNumberOfRepetitions(readBases, bestFWRepeatUnitStart, bestFWRepeatUnitLength, readBases, 0, offset + 1, false);
                 maxRL = maxFW + maxBW;
-                bestRepeatUnit = bestFWRepeatUnit;
             }
         }
 
-        if(maxRL > MAX_REPEAT_LENGTH) {
-            maxRL = MAX_REPEAT_LENGTH;
-        }
-        return Pair.of(bestRepeatUnit, maxRL);
+        return Math.min(maxRL, MAX_REPEAT_LENGTH);
     }
 }
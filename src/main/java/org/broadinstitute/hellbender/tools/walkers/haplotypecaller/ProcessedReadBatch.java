@@ -0,0 +1,171 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable struct-of-arrays holding the bases, qualities and gap continuation penalties of a list of reads as they
+ * are evaluated by the PairHMM.
+ *
+ * <p>
+ *     The quality arrays are owned by the batch and may be modified in place by the caller; the arrays of a read slot
+ *     are reused by the next {@link #load} when the read in that slot has the same length, so processing
+ *     consecutive regions of equal-length reads does not allocate new quality arrays. As a consequence any array
+ *     returned by this class is only valid until the next call to {@link #load}.
+ * </p>
+ *
+ * <p>
+ *     Gap continuation penalties are constant, so a single array per read length is shared by all reads.
+ * </p>
+ *
+ * <p>
+ *     This class is not thread-safe.
+ * </p>
+ */
+public final class ProcessedReadBatch {
+
+    private final byte gapContinuationPenalty;
+
+    private List<GATKRead> reads;
+    private byte[][] bases = new byte[0][];
+    private byte[][] baseQualities = new byte[0][];
+    private byte[][] insertionQualities = new byte[0][];
+    private byte[][] deletionQualities = new byte[0][];
+
+    // indexed by read length
+    private byte[][] gapContinuationPenaltiesByLength = new byte[0][];
+
+    /**
+     * Creates an empty batch.
+     * @param gapContinuationPenalty the constant gap continuation penalty of every base.
+     */
+    public ProcessedReadBatch(final byte gapContinuationPenalty) {
+        this.gapContinuationPenalty = gapContinuationPenalty;
+    }
+
+    /**
+     * Replaces the content of this batch with the bases and original qualities of a list of reads.
+     * @param reads the reads to load, they are not modified.
+     */
+    public void load(final List<GATKRead> reads) {
+        Utils.nonNull(reads, "reads cannot be null");
+        this.reads = reads;
+        final int size = reads.size();
+        if (size > bases.length) {
+            final int capacity = Math.max(size, 2 * bases.length);
+            bases = Arrays.copyOf(bases, capacity);
+            baseQualities = Arrays.copyOf(baseQualities, capacity);
+            insertionQualities = Arrays.copyOf(insertionQualities, capacity);
+            deletionQualities = Arrays.copyOf(deletionQualities, capacity);
+        }
+        for (int i = 0; i < size; i++) {
+            final GATKRead read = reads.get(i);
+            // the read bases are never modified, so there is no need to hold a private copy
+            bases[i] = read.getBases();
+            baseQualities[i] = copyInto(read.getBaseQualities(), baseQualities[i]);
+            insertionQualities[i] = copyInto(ReadUtils.getBaseInsertionQualities(read), insertionQualities[i]);
+            deletionQualities[i] = copyInto(ReadUtils.getBaseDeletionQualities(read), deletionQualities[i]);
+        }
+        // drop references to reads from previous, larger batches
+        for (int i = size; i < bases.length && bases[i] != null; i++) {
+            bases[i] = null;
+        }
+    }
+
+    /**
+     * Drops the references to the reads of the last {@link #load}, leaving the batch empty.
+     * <p>
+     *     The quality arrays are kept to be reused by the next {@link #load}.
+     * </p>
+     */
+    public void clear() {
+        reads = null;
+        Arrays.fill(bases, null);
+    }
+
+    private static byte[] copyInto(final byte[] source, final byte[] destination) {
+        if (destination == null || destination.length != source.length) {
+            return source.clone();
+        }
+        System.arraycopy(source, 0, destination, 0, source.length);
+        return destination;
+    }
+
+    /**
+     * @return the number of reads in this batch.
+     */
+    public int size() {
+        return reads == null ? 0 : reads.size();
+    }
+
+    /**
+     * @param index the read index.
+     * @return the original read.
+     */
+    public GATKRead getRead(final int index) {
+        checkIndex(index);
+        return reads.get(index);
+    }
+
+    /**
+     * @param index the read index.
+     * @return the read bases, must not be modified.
+     */
+    public byte[] getBases(final int index) {
+        checkIndex(index);
+        return bases[index];
+    }
+
+    /**
+     * @param index the read index.
+     * @return the base qualities, may be modified in place.
+     */
+    public byte[] getBaseQualities(final int index) {
+        checkIndex(index);
+        return baseQualities[index];
+    }
+
+    /**
+     * @param index the read index.
+     * @return the base insertion qualities, may be modified in place.
+     */
+    public byte[] getInsertionQualities(final int index) {
+        checkIndex(index);
+        return insertionQualities[index];
+    }
+
+    /**
+     * @param index the read index.
+     * @return the base deletion qualities, may be modified in place.
+     */
+    public byte[] getDeletionQualities(final int index) {
+        checkIndex(index);
+        return deletionQualities[index];
+    }
+
+    /**
+     * @param index the read index.
+     * @return the gap continuation penalties, shared with other reads of the same length and must not be modified.
+     */
+    public byte[] getGapContinuationPenalties(final int index) {
+        checkIndex(index);
+        final int length = bases[index].length;
+        if (length >= gapContinuationPenaltiesByLength.length) {
+            gapContinuationPenaltiesByLength = Arrays.copyOf(gapContinuationPenaltiesByLength, Math.max(length + 1, 2 * gapContinuationPenaltiesByLength.length));
+        }
+        if (gapContinuationPenaltiesByLength[length] == null) {
+            gapContinuationPenaltiesByLength[length] = Utils.dupBytes(gapContinuationPenalty, length);
+        }
+        return gapContinuationPenaltiesByLength[length];
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size()) {
+            throw new IllegalArgumentException("read index " + index + " is out of bounds for a batch of " + size() + " reads");
+        }
+    }
+}
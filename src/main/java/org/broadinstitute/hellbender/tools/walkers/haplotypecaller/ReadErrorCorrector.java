@@ -1,6 +1,5 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.utils.BaseUtils;
@@ -57,8 +56,10 @@ public final class ReadErrorCorrector {
      */
     final KMerCounter countsByKMer;
 
-    private final Map<Kmer,Kmer> kmerCorrectionMap = new HashMap<>();
-    private final Map<Kmer,Pair<int[],byte[]>> kmerDifferingBases = new HashMap<>();
+    /**
+     * Differing positions and bases for each correctable kmer; solid and uncorrectable kmers are not stored
+     */
+    private final PackedKmerIndex<KmerCorrection> kmerCorrections;
     private final int kmerLength;
     private final boolean debug;
     private final boolean trimLowQualityBases;
@@ -103,6 +104,7 @@ public final class ReadErrorCorrector {
                 () -> "qualityOfCorrectedBases must be >= 2 and <= MAX_REASONABLE_Q_SCORE but got " + qualityOfCorrectedBases);
 
         countsByKMer = new KMerCounter(kmerLength);
+        kmerCorrections = new PackedKmerIndex<>(kmerLength);
         this.kmerLength = kmerLength;
         this.maxMismatchesToCorrect = maxMismatchesToCorrect;
         this.qualityOfCorrectedBases = qualityOfCorrectedBases;
@@ -139,7 +141,7 @@ public final class ReadErrorCorrector {
 
         final byte[] readBases = read.getBases();
         for (int offset = 0; offset <= readBases.length-kmerLength; offset++ )  {
-            countsByKMer.addKmer(new Kmer(readBases,offset,kmerLength),1);
+            countsByKMer.addKmer(readBases,offset,1);
         }
     }
 
@@ -243,17 +245,12 @@ public final class ReadErrorCorrector {
         final CorrectionSet correctionSet = new CorrectionSet(correctedBases.length);
 
         for (int offset = 0; offset <= correctedBases.length-kmerLength; offset++ )  {
-            final Kmer kmer = new Kmer(correctedBases,offset,kmerLength);
-            final Kmer newKmer = kmerCorrectionMap.get(kmer);
-            if (newKmer != null && !newKmer.equals(kmer)){
-                final Pair<int[],byte[]> differingPositions = kmerDifferingBases.get(kmer);
-                final int[] differingIndeces = differingPositions.getLeft();
-                final byte[] differingBases = differingPositions.getRight();
-
-                for (int k=0; k < differingIndeces.length; k++) {
+            final KmerCorrection correction = kmerCorrections.get(correctedBases, offset);
+            if (correction != null){
+                for (int k=0; k < correction.differingIndices.length; k++) {
                     // get list of differing positions for corrected kmer
                     // for each of these, add correction candidate to correction set
-                    correctionSet.add(offset + differingIndeces[k],differingBases[k]);
+                    correctionSet.add(offset + correction.differingIndices[k],correction.differingBases[k]);
                 }
             }
         }
@@ -282,85 +279,157 @@ public final class ReadErrorCorrector {
 
     /**
      * For each kmer we've seen, do the following:
-     * a) If kmer count > threshold1, this kmer is good, so correction map will be to itself.
+     * a) If kmer count > threshold1, this kmer is good, so it needs no correction.
      * b) If kmer count <= threshold2, this kmer is bad.
-     *    In that case, loop through all other kmers. If kmer is good, compute distance, and get minimal distance.
-     *    If such distance is < some threshold, map to this kmer, and record differing positions and bases.
+     *    In that case, loop through all other kmers, compute distance, and get minimal distance.
+     *    If such distance is < some threshold, record differing positions and bases.
      *
      */
     private void computeKmerCorrectionMap() {
-        for (final KMerCounter.CountedKmer storedKmer : countsByKMer.getCountedKmers()) {
-            if (storedKmer.getCount() >= minObservationsForKmerToBeSolid) {
-                // this kmer is good: map to itself
-                kmerCorrectionMap.put(storedKmer.getKmer(),storedKmer.getKmer());
-                kmerDifferingBases.put(storedKmer.getKmer(), Pair.of(new int[0],new byte[0])); // dummy empty array
+        kmerCorrections.clear();
+        final long[] packedKmers = countsByKMer.getPackedKmers();
+        final Collection<KMerCounter.CountedKmer> unpackedKmers = countsByKMer.getUnpackedCountedKmers();
+
+        for (final long packedKmer : packedKmers) {
+            final int count = countsByKMer.getPackedKmerCount(packedKmer);
+            if (isSolid(count)) {
+                // this kmer is good: nothing to correct
                 readErrorCorrectionStats.numSolidKmers++;
+            } else if (isCorrectable(count)) {
+                final byte[] bases = PackedKmer.unpack(packedKmer, kmerLength);
+                addCorrection(bases, findNearestNeighbor(packedKmer, bases, packedKmers, unpackedKmers, maxMismatchesToCorrect));
             }
-            else if (storedKmer.getCount() <= maxObservationsForKmerToBeCorrectable) {
-                // loop now thru all other kmers to find nearest neighbor
-                final Pair<Kmer,Pair<int[],byte[]>> nearestNeighbor = findNearestNeighbor(storedKmer.getKmer(),countsByKMer,maxMismatchesToCorrect);
-
-                // check if nearest neighbor lies in a close vicinity. If so, log the new bases and the correction map
-                if (nearestNeighbor != null) { // ok, found close neighbor
-                    kmerCorrectionMap.put(storedKmer.getKmer(), nearestNeighbor.getLeft());
-                    kmerDifferingBases.put(storedKmer.getKmer(), nearestNeighbor.getRight());
-                    readErrorCorrectionStats.numCorrectedKmers++;
-//                    if (debug)
-//                        logger.info("Original kmer:" + storedKmer + "\tCorrected kmer:" + nearestNeighbor.first + "\tDistance:" + dist);
-                }
-                else {
-                    readErrorCorrectionStats.numUncorrectableKmers++;
-                }
+        }
+        for (final KMerCounter.CountedKmer storedKmer : unpackedKmers) {
+            if (isSolid(storedKmer.getCount())) {
+                readErrorCorrectionStats.numSolidKmers++;
+            } else if (isCorrectable(storedKmer.getCount())) {
+                final byte[] bases = storedKmer.getKmer().bases();
+                addCorrection(bases, findNearestNeighbor(PackedKmer.UNPACKABLE, bases, packedKmers, unpackedKmers, maxMismatchesToCorrect));
+            }
+        }
+    }
+
+    /**
+     * @return true if a kmer with a given count is solid, i.e. needs no correction
+     */
+    private boolean isSolid(final int count) {
+        return count >= minObservationsForKmerToBeSolid;
+    }
 
+    /**
+     * @return true if a kmer with a given count that is not solid is weak enough to be corrected
+     */
+    private boolean isCorrectable(final int count) {
+        return count <= maxObservationsForKmerToBeCorrectable;
+    }
+
+    private void addCorrection(final byte[] kmerBases, final KmerCorrection nearestNeighbor) {
+        // check if nearest neighbor lies in a close vicinity. If so, log the new bases
+        if (nearestNeighbor != null) { // ok, found close neighbor
+            if (nearestNeighbor.differingIndices.length > 0) {
+                kmerCorrections.put(kmerBases, 0, nearestNeighbor);
             }
-         }
+            readErrorCorrectionStats.numCorrectedKmers++;
+        }
+        else {
+            readErrorCorrectionStats.numUncorrectableKmers++;
+        }
     }
 
     /**
      * Finds nearest neighbor of a given k-mer, among a list of counted K-mers, up to a given distance.
      * If many k-mers share same closest distance, an arbitrary k-mer is picked
-     * @param kmer                        K-mer of interest
-     * @param countsByKMer                KMerCounter storing set of counted k-mers (may include kmer of interest)
+     *
+     * Packed candidates are compared to a packed k-mer of interest with a few bit operations per candidate; any other
+     * combination is compared base by base.
+     *
+     * @param packedKmer                  K-mer of interest in packed form, or {@link PackedKmer#UNPACKABLE}
+     * @param kmerBases                   Bases of the k-mer of interest
+     * @param packedCandidates            Packed candidate k-mers (may include kmer of interest)
+     * @param unpackedCandidates          Candidate k-mers that cannot be packed (may include kmer of interest)
      * @param maxDistance                 Maximum distance to search
-     * @return                            Pair of values: closest K-mer in Hamming distance and list of differing bases.
+     * @return                            Differing positions and bases of the closest K-mer in Hamming distance.
      *                                      If no neighbor can be found up to given distance, returns null
      */
-    private Pair<Kmer,Pair<int[],byte[]>> findNearestNeighbor(final Kmer kmer,
-                                                             final KMerCounter  countsByKMer,
-                                                             final int maxDistance) {
-        Utils.nonNull(kmer, "KMER");
-        Utils.nonNull(countsByKMer, "countsByKMer");
-        Utils.validateArg(maxDistance >= 1, "countsByKMer");
+    private KmerCorrection findNearestNeighbor(final long packedKmer,
+                                               final byte[] kmerBases,
+                                               final long[] packedCandidates,
+                                               final Collection<KMerCounter.CountedKmer> unpackedCandidates,
+                                               final int maxDistance) {
+        Utils.nonNull(kmerBases, "kmerBases");
+        Utils.validateArg(maxDistance >= 1, "maxDistance must be >= 1");
 
         int minimumDistance = Integer.MAX_VALUE;
-        Kmer closestKmer = null;
-
-        final int[] differingIndeces = new int[maxDistance+1];
-        final byte[] differingBases = new byte[maxDistance+1];
+        long closestPackedKmer = PackedKmer.UNPACKABLE;
+        byte[] closestKmerBases = null;
 
-        final int[] closestDifferingIndices = new int[maxDistance+1];
-        final byte[] closestDifferingBases = new byte[maxDistance+1];
-
-        for (final KMerCounter.CountedKmer candidateKmer : countsByKMer.getCountedKmers()) {
+        for (final long candidate : packedCandidates) {
             // skip if candidate set includes test kmer
-            if (candidateKmer.getKmer().equals(kmer)) {
+            if (candidate == packedKmer) {
                 continue;
             }
+            final int hammingDistance = packedKmer != PackedKmer.UNPACKABLE ? PackedKmer.hammingDistance(packedKmer, candidate)
+                    : hammingDistance(kmerBases, candidate, maxDistance);
+            if (hammingDistance <= maxDistance && hammingDistance < minimumDistance) {
+                minimumDistance = hammingDistance;
+                closestPackedKmer = candidate;
+            }
+        }
 
-            final int hammingDistance  = kmer.getDifferingPositions(candidateKmer.getKmer(), maxDistance, differingIndeces, differingBases);
-            if (hammingDistance < 0) // can't compare kmer? skip
-            {
+        for (final KMerCounter.CountedKmer candidateKmer : unpackedCandidates) {
+            final byte[] candidateBases = candidateKmer.getKmer().bases();
+            // skip if candidate set includes test kmer
+            if (Arrays.equals(candidateBases, kmerBases)) {
                 continue;
             }
-
-            if (hammingDistance < minimumDistance)  {
+            final int hammingDistance = hammingDistance(kmerBases, candidateBases, maxDistance);
+            if (hammingDistance <= maxDistance && hammingDistance < minimumDistance) {
                 minimumDistance = hammingDistance;
-                closestKmer = candidateKmer.getKmer();
-                System.arraycopy(differingBases,0,closestDifferingBases,0,differingBases.length);
-                System.arraycopy(differingIndeces,0,closestDifferingIndices,0,differingIndeces.length);
+                closestKmerBases = candidateBases;
+            }
+        }
+
+        if (minimumDistance == Integer.MAX_VALUE) {
+            return null;
+        }
+        if (closestKmerBases == null) {
+            closestKmerBases = PackedKmer.unpack(closestPackedKmer, kmerLength);
+        }
+        final KmerCorrection correction = new KmerCorrection(minimumDistance);
+        for (int i = 0, k = 0; i < kmerLength; i++) {
+            if (kmerBases[i] != closestKmerBases[i]) {
+                correction.differingIndices[k] = i;
+                correction.differingBases[k++] = closestKmerBases[i];
+            }
+        }
+        return correction;
+    }
+
+    /**
+     * Hamming distance between a k-mer and a packed k-mer, giving up as soon as it exceeds maxDistance
+     */
+    private static int hammingDistance(final byte[] kmerBases, final long packedCandidate, final int maxDistance) {
+        int distance = 0;
+        for (int i = 0; i < kmerBases.length && distance <= maxDistance; i++) {
+            if (kmerBases[i] != PackedKmer.baseAt(packedCandidate, kmerBases.length, i)) {
+                distance++;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Hamming distance between two k-mers, giving up as soon as it exceeds maxDistance
+     */
+    private static int hammingDistance(final byte[] kmerBases, final byte[] candidateBases, final int maxDistance) {
+        int distance = 0;
+        for (int i = 0; i < kmerBases.length && distance <= maxDistance; i++) {
+            if (kmerBases[i] != candidateBases[i]) {
+                distance++;
             }
         }
-        return Pair.of(closestKmer, Pair.of(closestDifferingIndices,closestDifferingBases));
+        return distance;
     }
 
 
@@ -388,6 +457,19 @@ public final class ReadErrorCorrector {
         return maxRun;
     }
 
+    /**
+     * Positions of a k-mer that differ from its nearest neighbor, and the bases of the neighbor at those positions
+     */
+    private static final class KmerCorrection {
+        private final int[] differingIndices;
+        private final byte[] differingBases;
+
+        private KmerCorrection(final int distance) {
+            differingIndices = new int[distance];
+            differingBases = new byte[distance];
+        }
+    }
+
     private static final class ReadErrorCorrectionStats {
         public int numReadsCorrected;
         public int numReadsUncorrected;
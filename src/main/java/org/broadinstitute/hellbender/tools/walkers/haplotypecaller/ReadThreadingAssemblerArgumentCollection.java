@@ -111,6 +111,15 @@ public final class ReadThreadingAssemblerArgumentCollection implements Serializa
     @Argument(fullName="minPruning", shortName="minPruning", doc = "Minimum support to not prune paths in the graph", optional = true)
     public int minPruneFactor = 2;
 
+    /**
+     * The graphs for the different kmer sizes of an active region are independent, so they can be built and cleaned up
+     * concurrently. The assembly results are merged in the same order as in single-threaded mode, so they do not depend
+     * on this value. This is useful for regions with many reads that would otherwise stall a whole shard on one core.
+     */
+    @Advanced
+    @Argument(fullName="numAssemblerThreads", shortName="numAssemblerThreads", doc="Number of threads used to build the assembly graphs for different kmer sizes", optional = true)
+    public int numAssemblerThreads = 1;
+
     @Hidden
     @Argument(fullName="debugGraphTransformations", shortName="debugGraphTransformations", doc="Write DOT formatted graph files out of the assembler for only this graph size", optional = true)
     public boolean debugGraphTransformations = false;
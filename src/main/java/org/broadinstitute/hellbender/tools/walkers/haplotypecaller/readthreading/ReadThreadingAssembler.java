@@ -9,6 +9,7 @@ import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
@@ -26,6 +27,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public final class ReadThreadingAssembler {
     private static final Logger logger = LogManager.getLogger(ReadThreadingAssembler.class);
@@ -67,6 +73,12 @@ public final class ReadThreadingAssembler {
     private File debugGraphOutputPath = null;  //Where to write debug graphs, if unset it defaults to the current working dir
     private File graphOutputPath = null;
 
+    /**
+     * Pool used to build the graphs of different kmer sizes concurrently; {@code null} when assembling on a single thread
+     */
+    private ForkJoinPool assemblerThreadPool = null;
+    private int numAssemblerThreads = 1;
+
     public ReadThreadingAssembler(final int maxAllowedPathsForReadThreadingAssembler, final List<Integer> kmerSizes, final boolean dontIncreaseKmerSizesForCycles, final boolean allowNonUniqueKmersInRef, final int numPruningSamples) {
         Utils.validateArg( maxAllowedPathsForReadThreadingAssembler >= 1, "numBestHaplotypesPerGraph should be >= 1 but got " + maxAllowedPathsForReadThreadingAssembler);
         this.kmerSizes = kmerSizes;
@@ -383,8 +395,8 @@ public final class ReadThreadingAssembler {
         final List<AssemblyResult> results = new LinkedList<>();
 
         // first, try using the requested kmer sizes
-        for ( final int kmerSize : kmerSizes ) {
-            addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header));
+        for ( final AssemblyResult result : createGraphs(kmerSizes.size(), i -> createGraph(reads, refHaplotype, kmerSizes.get(i), givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header)) ) {
+            addResult(results, result);
         }
 
         // if none of those worked, iterate over larger sizes if allowed to do so
@@ -392,17 +404,66 @@ public final class ReadThreadingAssembler {
             int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
             int numIterations = 1;
             while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
-                // on the last attempt we will allow low complexity graphs
-                final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
-                addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, lastAttempt, lastAttempt, header));
-                kmerSize += KMER_SIZE_ITERATION_INCREASE;
-                numIterations++;
+                // with several assembler threads we speculatively try the next few kmer sizes at once, but only keep
+                // the first one that succeeds so that the result is the same as when trying them one at a time
+                final int batchSize = Math.min(numAssemblerThreads, MAX_KMER_ITERATIONS_TO_ATTEMPT - numIterations + 1);
+                final int firstKmerSize = kmerSize;
+                final int firstIteration = numIterations;
+                final List<AssemblyResult> batchResults = createGraphs(batchSize, i -> {
+                    // on the last attempt we will allow low complexity graphs
+                    final boolean lastAttempt = firstIteration + i == MAX_KMER_ITERATIONS_TO_ATTEMPT;
+                    return createGraph(reads, refHaplotype, firstKmerSize + i * KMER_SIZE_ITERATION_INCREASE, givenHaplotypes, lastAttempt, lastAttempt, header);
+                });
+                for ( final AssemblyResult result : batchResults ) {
+                    addResult(results, result);
+                    kmerSize += KMER_SIZE_ITERATION_INCREASE;
+                    numIterations++;
+                    if ( ! results.isEmpty() ) {
+                        break;
+                    }
+                }
             }
         }
 
         return results;
     }
 
+    /**
+     * Creates several graphs, concurrently if this assembler has more than one thread.
+     *
+     * <p>
+     *     Graphs for different kmer sizes share no mutable state, so they can be built and cleaned up independently.
+     * </p>
+     *
+     * @param numGraphs the number of graphs to create.
+     * @param graphCreator creates the i-th graph, as in {@link #createGraph}.
+     * @return a non-null list with the result of {@code graphCreator} for each index in order, possibly containing {@code null}s.
+     */
+    private List<AssemblyResult> createGraphs(final int numGraphs, final IntFunction<AssemblyResult> graphCreator) {
+        if ( assemblerThreadPool == null || numGraphs < 2 ) {
+            final List<AssemblyResult> results = new ArrayList<>(numGraphs);
+            for ( int i = 0; i < numGraphs; i++ ) {
+                results.add(graphCreator.apply(i));
+            }
+            return results;
+        }
+
+        try {
+            return assemblerThreadPool.submit(() -> IntStream.range(0, numGraphs)
+                    .parallel()
+                    .mapToObj(graphCreator)
+                    .collect(Collectors.toList())).get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted during concurrent assembly graph construction", e);
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Failure in concurrent assembly graph construction", e);
+        }
+    }
+
     private static int arrayMaxInt(final List<Integer> array) {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
@@ -628,4 +689,38 @@ public final class ReadThreadingAssembler {
     public void setRemovePathsNotConnectedToRef(final boolean removePathsNotConnectedToRef) {
         this.removePathsNotConnectedToRef = removePathsNotConnectedToRef;
     }
+
+    public int getNumAssemblerThreads() {
+        return numAssemblerThreads;
+    }
+
+    /**
+     * Set the number of threads used to build the graphs for the different kmer sizes of each region.
+     *
+     * <p>
+     *     The assembly results do not depend on this value. Call {@link #shutdown()} when done with this assembler
+     *     to release the threads.
+     * </p>
+     *
+     * @param numAssemblerThreads 1 or greater; 1 means that graphs are built serially on the calling thread.
+     */
+    public void setNumAssemblerThreads(final int numAssemblerThreads) {
+        ParamUtils.isPositive(numAssemblerThreads, "the number of assembler threads must be positive");
+        shutdown();
+        this.numAssemblerThreads = numAssemblerThreads;
+        if ( numAssemblerThreads > 1 ) {
+            assemblerThreadPool = new ForkJoinPool(numAssemblerThreads);
+        }
+    }
+
+    /**
+     * Release the threads used by this assembler, if any. The assembler falls back to single-threaded assembly afterwards.
+     */
+    public void shutdown() {
+        if ( assemblerThreadPool != null ) {
+            assemblerThreadPool.shutdown();
+            assemblerThreadPool = null;
+        }
+        numAssemblerThreads = 1;
+    }
 }
\ No newline at end of file
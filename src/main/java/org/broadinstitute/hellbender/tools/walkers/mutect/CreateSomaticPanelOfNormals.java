@@ -1,13 +1,23 @@
 package org.broadinstitute.hellbender.tools.walkers.mutect;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.MergingIterator;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.Tribble;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.index.tabix.TabixUtils;
+import htsjdk.tribble.util.LittleEndianOutputStream;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.variantcontext.VariantContextComparator;
 import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFCodec;
 import htsjdk.variant.vcf.VCFFileReader;
 import htsjdk.variant.vcf.VCFHeader;
 import htsjdk.variant.vcf.VCFUtils;
@@ -16,16 +26,20 @@ import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.VariantProgramGroup;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyBasedCallerUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.text.XReadLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -61,6 +75,10 @@ import java.util.stream.StreamSupport;
  *  Note that multiple .list files may be passed in by specifying the -vcfs option multiple times. It's also possible
  *  to just provide the VCFs explicitly on the command line, rather than via .list files.
  *
+ *  If every input VCF is indexed and the output is a VCF (plain or block-compressed), the inputs are merged separately
+ *  for each contig with -numThreads contigs merged concurrently, and the per-contig results are then copied into the
+ *  output as they are, without being parsed again.  Note that each thread keeps all the input VCFs open.
+ *
  * Created by David Benjamin on 2/17/17.
  */
 @CommandLineProgramProperties(
@@ -87,26 +105,129 @@ public class CreateSomaticPanelOfNormals extends CommandLineProgram {
             doc="Output vcf", optional = false)
     private File outputVcf = null;
 
+    @Argument(fullName = "numThreads", shortName = "numThreads", doc = "Number of contigs to merge concurrently when all input VCFs are indexed", optional = true)
+    private int numThreads = 1;
+
     public Object doWork() {
+        Utils.validateArg(numThreads > 0, () -> "numThreads must be positive but got " + numThreads);
         final List<File> inputVcfs = new ArrayList<>(vcfs);
-        final Collection<CloseableIterator<VariantContext>> iterators = new ArrayList<>(inputVcfs.size());
         final Collection<VCFHeader> headers = new HashSet<>(inputVcfs.size());
-        final VCFHeader headerOfFirstVcf = new VCFFileReader(inputVcfs.get(0), false).getFileHeader();
+        final VCFHeader headerOfFirstVcf = readHeader(inputVcfs.get(0));
         final SAMSequenceDictionary sequenceDictionary = headerOfFirstVcf.getSequenceDictionary();
         final VariantContextComparator comparator = headerOfFirstVcf.getVCFRecordComparator();
 
-
         for (final File vcf : inputVcfs) {
-            final VCFFileReader reader = new VCFFileReader(vcf, false);
-            iterators.add(reader.iterator());
-            final VCFHeader header = reader.getFileHeader();
+            final VCFHeader header = readHeader(vcf);
             Utils.validateArg(comparator.isCompatible(header.getContigLines()), () -> vcf.getAbsolutePath() + " has incompatible contigs.");
             headers.add(header);
         }
+        final VCFHeader outputHeader = new VCFHeader(VCFUtils.smartMergeHeaders(headers, false));
+
+        final boolean allInputsIndexed = inputVcfs.stream().allMatch(vcf -> Tribble.indexFile(vcf).exists() || Tribble.tabixIndexFile(vcf).exists());
+        final boolean blockCompressedOutput = AbstractFeatureReader.hasBlockCompressedExtension(outputVcf.getName());
+        final boolean vcfOutput = blockCompressedOutput || outputVcf.getName().endsWith(".vcf");
+        if (numThreads > 1 && allInputsIndexed && sequenceDictionary != null && vcfOutput) {
+            final List<File> contigParts = mergeContigsConcurrently(inputVcfs, sequenceDictionary, outputHeader, comparator);
+            try {
+                concatenateContigParts(outputHeader, contigParts, blockCompressedOutput);
+            } catch (final IOException ex) {
+                throw new UserException.CouldNotCreateOutputFile(outputVcf, "could not write the merged contigs", ex);
+            }
+        } else {
+            final VariantContextWriter writer = GATKVariantContextUtils.createVCFWriter(outputVcf, sequenceDictionary, false, Options.INDEX_ON_THE_FLY);
+            writer.writeHeader(outputHeader);
+            final List<VCFFileReader> readers = inputVcfs.stream().map(vcf -> new VCFFileReader(vcf, false)).collect(Collectors.toList());
+            mergeVariants(readers.stream().map(VCFFileReader::iterator).collect(Collectors.toList()), comparator, writer);
+            readers.forEach(VCFFileReader::close);
+            writer.close();
+        }
+
+        return "SUCCESS";
+    }
+
+    private static VCFHeader readHeader(final File vcf) {
+        try (final VCFFileReader reader = new VCFFileReader(vcf, false)) {
+            return reader.getFileHeader();
+        }
+    }
+
+    /**
+     * Merges each contig into its own temporary VCF body, with up to {@link #numThreads} contigs merged at the same time.
+     * @return the temporary VCFs in the order of the contigs of {@code sequenceDictionary}.
+     */
+    private List<File> mergeContigsConcurrently(final List<File> inputVcfs, final SAMSequenceDictionary sequenceDictionary,
+                                                final VCFHeader outputHeader, final VariantContextComparator comparator) {
+        final ForkJoinPool forkJoinPool = new ForkJoinPool(numThreads);
+        try {
+            return forkJoinPool.submit(() -> sequenceDictionary.getSequences().parallelStream()
+                    .map(contig -> mergeContig(inputVcfs, contig, sequenceDictionary, outputHeader, comparator))
+                    .collect(Collectors.toList())).get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while merging input VCFs by contig", ex);
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof UserException) {
+                throw (UserException) ex.getCause();
+            }
+            throw new GATKException("Failure while merging input VCFs by contig", ex);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    private static File mergeContig(final List<File> inputVcfs, final SAMSequenceRecord contig, final SAMSequenceDictionary sequenceDictionary,
+                                    final VCFHeader outputHeader, final VariantContextComparator comparator) {
+        final File contigPart = IOUtils.createTempFile("pon-" + contig.getSequenceIndex() + "-", ".vcf");
+        // the part only holds the records, the header is written once into the output
+        final VariantContextWriter writer = new VariantContextWriterBuilder().setOutputFile(contigPart)
+                .setReferenceDictionary(sequenceDictionary)
+                .unsetOption(Options.INDEX_ON_THE_FLY).build();
+        writer.setHeader(outputHeader);
+        final List<VCFFileReader> readers = inputVcfs.stream().map(vcf -> new VCFFileReader(vcf, true)).collect(Collectors.toList());
+        try {
+            mergeVariants(readers.stream().map(reader -> reader.query(contig.getSequenceName(), 1, Math.max(contig.getSequenceLength(), 1)))
+                    .collect(Collectors.toList()), comparator, writer);
+        } finally {
+            readers.forEach(VCFFileReader::close);
+            writer.close();
+        }
+        return contigPart;
+    }
 
-        final VariantContextWriter writer = GATKVariantContextUtils.createVCFWriter(outputVcf, sequenceDictionary, false, Options.INDEX_ON_THE_FLY);
-        writer.writeHeader(new VCFHeader(VCFUtils.smartMergeHeaders(headers, false)));
+    /**
+     * Writes the header followed by the bytes of the contig parts into the output, deletes the parts and indexes the output.
+     */
+    private void concatenateContigParts(final VCFHeader outputHeader, final List<File> contigParts, final boolean blockCompressed) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (final VariantContextWriter headerWriter = new VariantContextWriterBuilder().setOutputStream(header)
+                .unsetOption(Options.INDEX_ON_THE_FLY).build()) {
+            headerWriter.writeHeader(outputHeader);
+        }
+        try (final OutputStream output = blockCompressed ? new BlockCompressedOutputStream(outputVcf)
+                : new BufferedOutputStream(new FileOutputStream(outputVcf))) {
+            header.writeTo(output);
+            for (final File contigPart : contigParts) {
+                Files.copy(contigPart.toPath(), output);
+                contigPart.delete();
+            }
+        }
+        if (blockCompressed) {
+            final Index index = IndexFactory.createIndex(outputVcf, new VCFCodec(), IndexFactory.IndexType.TABIX);
+            try (final LittleEndianOutputStream indexOutput = new LittleEndianOutputStream(
+                    new BlockCompressedOutputStream(new File(outputVcf.getPath() + TabixUtils.STANDARD_INDEX_EXTENSION)))) {
+                index.write(indexOutput);
+            }
+        } else {
+            final Index index = IndexFactory.createDynamicIndex(outputVcf, new VCFCodec());
+            try (final LittleEndianOutputStream indexOutput = new LittleEndianOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(Tribble.indexFile(outputVcf))))) {
+                index.write(indexOutput);
+            }
+        }
+    }
 
+    private static void mergeVariants(final Collection<CloseableIterator<VariantContext>> iterators, final VariantContextComparator comparator,
+                                      final VariantContextWriter writer) {
         final MergingIterator<VariantContext> mergingIterator = new MergingIterator<>(comparator, iterators);
         SimpleInterval currentPosition = new SimpleInterval("FAKE", 1, 1);
         final List<VariantContext> variantsAtThisPosition = new ArrayList<>(20);
@@ -117,12 +238,12 @@ public class CreateSomaticPanelOfNormals extends CommandLineProgram {
                 variantsAtThisPosition.clear();
                 currentPosition = new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart());
             }
-            variantsAtThisPosition.add(vc);
+            // genotypes are decoded lazily and the panel is sites-only, so drop them before they are ever parsed
+            variantsAtThisPosition.add(new VariantContextBuilder(vc).noGenotypes().make());
         }
+        // the variants at the last position are not followed by a variant at another position that would flush them
+        processVariantsAtSamePosition(variantsAtThisPosition, writer);
         mergingIterator.close();
-        writer.close();
-
-        return "SUCCESS";
     }
 
     //TODO: this is the old Mutect behavior that just looks for multiple hits
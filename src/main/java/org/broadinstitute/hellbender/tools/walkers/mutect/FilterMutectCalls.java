@@ -1,23 +1,39 @@
 package org.broadinstitute.hellbender.tools.walkers.mutect;
 
+import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFFileReader;
 import htsjdk.variant.vcf.VCFFilterHeaderLine;
 import htsjdk.variant.vcf.VCFHeader;
 import htsjdk.variant.vcf.VCFHeaderLine;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.VariantProgramGroup;
 import org.broadinstitute.hellbender.engine.*;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
 import java.util.*;
 
+/**
+ * Filters the calls of Mutect2.
+ *
+ * <p>
+ *     By default each call is filtered and written as soon as it is visited, so memory use does not depend on the
+ *     size of the callset. With {@code --twoPassFiltering} the calls are first spilled to a temporary block-compressed
+ *     VCF and filtered in a second pass over that file, which is the place to gather callset-level statistics before
+ *     filtering without holding the callset on the heap.
+ * </p>
+ */
 @CommandLineProgramProperties(
         summary = "Filter somatic SNPs and indels called by Mutect2",
         oneLineSummary = "Filter somatic SNPs and indels called by Mutect2",
@@ -33,10 +49,17 @@ public final class FilterMutectCalls extends VariantWalker {
     @ArgumentCollection
     protected M2FiltersArgumentCollection MTFAC = new M2FiltersArgumentCollection();
 
+    @Advanced
+    @Argument(fullName = "twoPassFiltering", optional = true, doc = "Spill the unfiltered calls to a temporary file and filter them in a second pass")
+    public boolean twoPassFiltering = false;
+
     private VariantContextWriter vcfWriter;
 
-    private final List<VariantContext> unfilteredCalls = new ArrayList<>();
+    private Mutect2FilteringEngine filteringEngine;
 
+    // unfiltered calls of the first pass; only used with twoPassFiltering
+    private File firstPassVcf;
+    private VariantContextWriter firstPassWriter;
 
     @Override
     public void onTraversalStart() {
@@ -54,28 +77,53 @@ public final class FilterMutectCalls extends VariantWalker {
         final VCFHeader vcfHeader = new VCFHeader(headerLines, inputHeader.getGenotypeSamples());
         vcfWriter = createVCFWriter(new File(outputVcf));
         vcfWriter.writeHeader(vcfHeader);
+
+        final String tumorSample = inputHeader.getMetaDataLine(Mutect2Engine.TUMOR_SAMPLE_KEY_IN_VCF_HEADER).getValue();
+        filteringEngine = new Mutect2FilteringEngine(MTFAC, tumorSample);
+
+        if (twoPassFiltering) {
+            firstPassVcf = IOUtils.createTempFile("filter-mutect-calls-first-pass", ".vcf.gz");
+            firstPassWriter = new VariantContextWriterBuilder().setOutputFile(firstPassVcf)
+                    .setOutputFileType(VariantContextWriterBuilder.OutputType.BLOCK_COMPRESSED_VCF)
+                    .unsetOption(Options.INDEX_ON_THE_FLY).build();
+            firstPassWriter.writeHeader(inputHeader);
+        }
     }
 
     @Override
     public Object onTraversalSuccess() {
-        final String tumorSample = getHeaderForVariants().getMetaDataLine(Mutect2Engine.TUMOR_SAMPLE_KEY_IN_VCF_HEADER).getValue();
-        final Mutect2FilteringEngine filteringEngine = new Mutect2FilteringEngine(MTFAC, tumorSample);
-        // TODO: implement sophisticated filtering
-        for (final VariantContext vc : unfilteredCalls) {
-            final VariantContextBuilder vcb = new VariantContextBuilder(vc);
-            vcb.filters(filteringEngine.calculateFilters(MTFAC, vc));
-            vcfWriter.add(vcb.make());
+        if (twoPassFiltering) {
+            firstPassWriter.close();
+            firstPassWriter = null;
+            // TODO: implement sophisticated filtering using statistics of the whole callset
+            try (final VCFFileReader reader = new VCFFileReader(firstPassVcf, false);
+                 final CloseableIterator<VariantContext> unfilteredCalls = reader.iterator()) {
+                unfilteredCalls.forEachRemaining(this::filterAndWrite);
+            }
         }
         return "SUCCESS";
     }
 
     @Override
     public void apply(final VariantContext vc, final ReadsContext readsContext, final ReferenceContext refContext, final FeatureContext fc) {
-        unfilteredCalls.add(vc);
+        if (twoPassFiltering) {
+            firstPassWriter.add(vc);
+        } else {
+            filterAndWrite(vc);
+        }
+    }
+
+    private void filterAndWrite(final VariantContext vc) {
+        final VariantContextBuilder vcb = new VariantContextBuilder(vc);
+        vcb.filters(filteringEngine.calculateFilters(MTFAC, vc));
+        vcfWriter.add(vcb.make());
     }
 
     @Override
     public void closeTool() {
+        if ( firstPassWriter != null ) {
+            firstPassWriter.close();
+        }
         if ( vcfWriter != null ) {
             vcfWriter.close();
         }
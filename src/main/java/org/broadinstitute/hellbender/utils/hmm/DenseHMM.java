@@ -0,0 +1,122 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.List;
+
+/**
+ * {@link HMM} that provides all its probabilities at a position, or between two positions, at once in primitive arrays.
+ *
+ * <p>
+ *     The forward-backward and Viterbi algorithms only ever need every prior, transition or emission probability at a
+ *     position, so an HMM that can compute them together (e.g. looking up a transition matrix once per pair of
+ *     positions rather than once per pair of states) should implement this interface and override the default methods.
+ *     The defaults simply call the corresponding {@link HMM} method once per state or pair of states.
+ * </p>
+ * <p>
+ *     Hidden states are identified by their index in {@link #hiddenStates()} throughout.
+ * </p>
+ * <p>
+ *     Any other {@link HMM} can be used where a {@link DenseHMM} is required by wrapping it with {@link #of}.
+ * </p>
+ *
+ * @param <D> is the observed data component.
+ * @param <T> represent the observation position type.
+ * @param <S> is the state component.
+ */
+public interface DenseHMM<D, T, S> extends HMM<D, T, S> {
+
+    /**
+     * Calculates the prior probabilities of every hidden state at a position.
+     *
+     * @param position the query position.
+     * @param result where to store the log prior probabilities, indexed by hidden state. Its length must be at least
+     *               the number of hidden states.
+     * @throws IllegalArgumentException if {@code position} is not recognized by the model.
+     */
+    default void logPriorProbabilities(final T position, final double[] result) {
+        final List<S> states = hiddenStates();
+        for (int i = 0; i < states.size(); i++) {
+            result[i] = logPriorProbability(states.get(i), position);
+        }
+    }
+
+    /**
+     * Calculates the transition probabilities between every pair of hidden states from one position to the next.
+     *
+     * @param currentPosition the source position.
+     * @param nextPosition the destination position.
+     * @param result where to store the log transition probabilities, so that the probability of going from the
+     *               ith state to the jth state is found at {@code i * numStates + j}. Its length must be at least the
+     *               square of the number of hidden states.
+     * @throws IllegalArgumentException if either position is not recognized by the model.
+     */
+    default void logTransitionProbabilities(final T currentPosition, final T nextPosition, final double[] result) {
+        final List<S> states = hiddenStates();
+        final int numStates = states.size();
+        for (int i = 0, offset = 0; i < numStates; i++, offset += numStates) {
+            final S currentState = states.get(i);
+            for (int j = 0; j < numStates; j++) {
+                result[offset + j] = logTransitionProbability(currentState, currentPosition, states.get(j), nextPosition);
+            }
+        }
+    }
+
+    /**
+     * Calculates the transition probabilities from one position to the next when they have the "stay or jump" form,
+     * in which the chain either stays in its current state or jumps to a state chosen regardless of the current one.
+     *
+     * <p>
+     *     In that case the transition probabilities into the jth state take only two values: that of staying in the
+     *     jth state, and a common one for coming from any other state. Viterbi can then find the best previous state
+     *     of every state in time linear, rather than quadratic, in the number of states.
+     * </p>
+     * <p>
+     *     The default implementation returns {@code false}. Models with transitions of this form should override it,
+     *     writing exactly the values that {@link #logTransitionProbabilities} returns for the same positions.
+     * </p>
+     *
+     * @param currentPosition the source position.
+     * @param nextPosition the destination position.
+     * @param logStayProbabilities where to store the log probability of going from the jth state to itself, indexed
+     *                             by j.
+     * @param logJumpProbabilities where to store the log probability of going from any other state to the jth
+     *                             state, indexed by j.
+     * @return {@code true} iff the transitions between these two positions have this form and both arrays have been
+     *         filled in.
+     * @throws IllegalArgumentException if either position is not recognized by the model.
+     */
+    default boolean logStayOrJumpProbabilities(final T currentPosition, final T nextPosition,
+                                               final double[] logStayProbabilities,
+                                               final double[] logJumpProbabilities) {
+        return false;
+    }
+
+    /**
+     * Calculates the emission probabilities of a datum given each hidden state.
+     *
+     * @param data the observed data value.
+     * @param position the observation position.
+     * @param result where to store the log emission probabilities, indexed by hidden state. Its length must be at
+     *               least the number of hidden states.
+     * @throws IllegalArgumentException if {@code position} is not recognized by the model.
+     */
+    default void logEmissionProbabilities(final D data, final T position, final double[] result) {
+        final List<S> states = hiddenStates();
+        for (int i = 0; i < states.size(); i++) {
+            result[i] = logEmissionProbability(data, states.get(i), position);
+        }
+    }
+
+    /**
+     * Returns a {@link DenseHMM} view of a model.
+     *
+     * @param model the input model.
+     * @return {@code model} itself if it already is a {@link DenseHMM}, otherwise a view that delegates to it
+     *         using the default implementations.
+     */
+    static <D, T, S> DenseHMM<D, T, S> of(final HMM<D, T, S> model) {
+        Utils.nonNull(model, "the input model cannot be null");
+        return model instanceof DenseHMM ? (DenseHMM<D, T, S>) model : new DenseHMMAdapter<>(model);
+    }
+}
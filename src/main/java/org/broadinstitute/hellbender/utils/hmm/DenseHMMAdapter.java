@@ -0,0 +1,56 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link DenseHMM} view of a plain {@link HMM} as returned by {@link DenseHMM#of}.
+ * <p>
+ *     The hidden states are retrieved only once, as some models compose a new list on every call.
+ * </p>
+ */
+final class DenseHMMAdapter<D, T, S> implements DenseHMM<D, T, S>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HMM<D, T, S> model;
+    private final List<S> hiddenStates;
+
+    DenseHMMAdapter(final HMM<D, T, S> model) {
+        this.model = Utils.nonNull(model, "the input model cannot be null");
+        hiddenStates = Collections.unmodifiableList(Utils.nonNull(model.hiddenStates(), "the model hidden states cannot be null"));
+    }
+
+    @Override
+    public List<S> hiddenStates() {
+        return hiddenStates;
+    }
+
+    @Override
+    public double logPriorProbability(final S state, final T position) {
+        return model.logPriorProbability(state, position);
+    }
+
+    @Override
+    public double logTransitionProbability(final S currentState, final T currentPosition, final S nextState, final T nextPosition) {
+        return model.logTransitionProbability(currentState, currentPosition, nextState, nextPosition);
+    }
+
+    @Override
+    public double logEmissionProbability(final D data, final S state, final T position) {
+        return model.logEmissionProbability(data, state, position);
+    }
+
+    @Override
+    public List<S> generateHiddenStateChain(final List<T> positions) {
+        return model.generateHiddenStateChain(positions);
+    }
+
+    @Override
+    public double calculateLogChainPriorProbability(final List<T> positions) {
+        return model.calculateLogChainPriorProbability(positions);
+    }
+}
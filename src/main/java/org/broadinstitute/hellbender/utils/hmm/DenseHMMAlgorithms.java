@@ -0,0 +1,422 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forward, backward and Viterbi recursions over the primitive arrays provided by a {@link DenseHMM}.
+ *
+ * <p>
+ *     Each step works on one pair of contiguous positions and uses a transition matrix laid out as described in
+ *     {@link DenseHMM#logTransitionProbabilities}. The inner loops run over contiguous arrays, and log-sums are
+ *     calculated shifting the exponents by their maximum without filling an intermediate buffer per cell.
+ * </p>
+ * <p>
+ *     Emission probabilities are calculated once per position and state and shared by the forward and backward
+ *     passes, whereas the generic recursions used to evaluate them once per pair of states in the backward pass.
+ * </p>
+ */
+final class DenseHMMAlgorithms {
+
+    private DenseHMMAlgorithms() {}
+
+    /**
+     * Calculates the log emission probabilities of a data sequence.
+     *
+     * @return never {@code null}, an array with one row per position and one column per hidden state.
+     */
+    static <D, T, S> double[][] logEmissionProbabilities(final DenseHMM<D, T, S> model,
+                                                         final List<D> data,
+                                                         final List<T> positions) {
+        final int numStates = model.hiddenStates().size();
+        final double[][] result = new double[data.size()][numStates];
+        for (int positionIndex = 0; positionIndex < result.length; positionIndex++) {
+            model.logEmissionProbabilities(data.get(positionIndex), positions.get(positionIndex), result[positionIndex]);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the log forward probabilities of every position.
+     *
+     * @param logEmissionProbabilities as returned by {@link #logEmissionProbabilities}.
+     * @return never {@code null}, an array with one row per position and one column per hidden state.
+     */
+    static <T> double[][] logForwardProbabilities(final DenseHMM<?, T, ?> model,
+                                                  final List<T> positions,
+                                                  final double[][] logEmissionProbabilities) {
+        final int numStates = model.hiddenStates().size();
+        final int length = positions.size();
+        final double[][] result = new double[length][numStates];
+        if (length == 0) {
+            return result;
+        }
+        initializeLogForwardProbabilities(model, positions.get(0), logEmissionProbabilities[0], result[0]);
+        final double[] logTransitionProbabilities = new double[numStates * numStates];
+        final double[] buffer = new double[numStates];
+        for (int positionIndex = 1; positionIndex < length; positionIndex++) {
+            model.logTransitionProbabilities(positions.get(positionIndex - 1), positions.get(positionIndex), logTransitionProbabilities);
+            logForwardStep(result[positionIndex - 1], logTransitionProbabilities, logEmissionProbabilities[positionIndex],
+                    result[positionIndex], buffer);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the log backward probabilities of every position.
+     *
+     * @param logEmissionProbabilities as returned by {@link #logEmissionProbabilities}.
+     * @return never {@code null}, an array with one row per position and one column per hidden state.
+     */
+    static <T> double[][] logBackwardProbabilities(final DenseHMM<?, T, ?> model,
+                                                   final List<T> positions,
+                                                   final double[][] logEmissionProbabilities) {
+        final int numStates = model.hiddenStates().size();
+        final int length = positions.size();
+        // the last row stays at 0 (i.e. log(1)).
+        final double[][] result = new double[length][numStates];
+        final double[] logTransitionProbabilities = new double[numStates * numStates];
+        final double[] buffer = new double[numStates];
+        for (int positionIndex = length - 2; positionIndex >= 0; positionIndex--) {
+            model.logTransitionProbabilities(positions.get(positionIndex), positions.get(positionIndex + 1), logTransitionProbabilities);
+            logBackwardStep(result[positionIndex + 1], logTransitionProbabilities, logEmissionProbabilities[positionIndex + 1],
+                    result[positionIndex], buffer);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the log forward probabilities at the first position.
+     */
+    static <T> void initializeLogForwardProbabilities(final DenseHMM<?, T, ?> model, final T position,
+                                                      final double[] logEmissionProbabilities, final double[] result) {
+        model.logPriorProbabilities(position, result);
+        for (int i = 0; i < logEmissionProbabilities.length; i++) {
+            result[i] += logEmissionProbabilities[i];
+        }
+    }
+
+    /**
+     * Calculates the log forward probabilities at a position given those at the previous position.
+     *
+     * @param previous the forward probabilities at the previous position.
+     * @param logTransitionProbabilities the transitions from the previous position to this one.
+     * @param logEmissionProbabilities the emission probabilities at this position.
+     * @param result where to store the forward probabilities at this position.
+     * @param buffer scratch array as long as the number of states.
+     */
+    static void logForwardStep(final double[] previous, final double[] logTransitionProbabilities,
+                               final double[] logEmissionProbabilities, final double[] result, final double[] buffer) {
+        final int numStates = previous.length;
+        // result first holds the maximum term of each destination state and buffer the sum of the shifted exponentials.
+        System.arraycopy(logTransitionProbabilities, 0, result, 0, numStates);
+        for (int j = 0; j < numStates; j++) {
+            result[j] += previous[0];
+        }
+        for (int i = 1, offset = numStates; i < numStates; i++, offset += numStates) {
+            final double previousValue = previous[i];
+            for (int j = 0; j < numStates; j++) {
+                final double term = previousValue + logTransitionProbabilities[offset + j];
+                if (term > result[j]) {
+                    result[j] = term;
+                }
+            }
+        }
+        Arrays.fill(buffer, 0);
+        for (int i = 0, offset = 0; i < numStates; i++, offset += numStates) {
+            final double previousValue = previous[i];
+            if (previousValue == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            for (int j = 0; j < numStates; j++) {
+                final double term = previousValue + logTransitionProbabilities[offset + j];
+                if (term != Double.NEGATIVE_INFINITY) {
+                    buffer[j] += Math.exp(term - result[j]);
+                }
+            }
+        }
+        for (int j = 0; j < numStates; j++) {
+            result[j] = (result[j] == Double.NEGATIVE_INFINITY ? Double.NEGATIVE_INFINITY : result[j] + Math.log(buffer[j]))
+                    + logEmissionProbabilities[j];
+        }
+    }
+
+    /**
+     * Calculates the log backward probabilities at a position given those at the next position.
+     *
+     * @param next the backward probabilities at the next position.
+     * @param logTransitionProbabilities the transitions from this position to the next one.
+     * @param nextLogEmissionProbabilities the emission probabilities at the next position.
+     * @param result where to store the backward probabilities at this position.
+     * @param buffer scratch array as long as the number of states.
+     */
+    static void logBackwardStep(final double[] next, final double[] logTransitionProbabilities,
+                                final double[] nextLogEmissionProbabilities, final double[] result, final double[] buffer) {
+        final int numStates = next.length;
+        for (int j = 0; j < numStates; j++) {
+            buffer[j] = next[j] + nextLogEmissionProbabilities[j];
+        }
+        for (int i = 0, offset = 0; i < numStates; i++, offset += numStates) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < numStates; j++) {
+                final double term = buffer[j] + logTransitionProbabilities[offset + j];
+                if (term > max) {
+                    max = term;
+                }
+            }
+            if (max == Double.NEGATIVE_INFINITY) {
+                result[i] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            double sum = 0;
+            for (int j = 0; j < numStates; j++) {
+                final double term = buffer[j] + logTransitionProbabilities[offset + j];
+                if (term != Double.NEGATIVE_INFINITY) {
+                    sum += Math.exp(term - max);
+                }
+            }
+            result[i] = max + Math.log(sum);
+        }
+    }
+
+    /**
+     * Calculates the most likely hidden state sequence.
+     *
+     * <p>
+     *     Only the scores of the best paths that end in each state at the current position are kept, and the best
+     *     previous state of each state at each position is stored in the narrowest integer type that can hold a state
+     *     index (a byte per state and position for up to 256 states).
+     * </p>
+     * <p>
+     *     Between positions whose transitions have the form described in {@link DenseHMM#logStayOrJumpProbabilities},
+     *     the best previous state of each state is either the state itself or the best of all others, so each step
+     *     takes time linear in the number of states.
+     * </p>
+     * <p>
+     *     Ties are resolved in favour of the state with the lowest index.
+     * </p>
+     *
+     * @return never {@code null}, the index of the hidden state of each position.
+     */
+    static <D, T, S> int[] viterbi(final DenseHMM<D, T, S> model, final List<D> data, final List<T> positions) {
+        final int numStates = model.hiddenStates().size();
+        final int length = data.size();
+        final int[] result = new int[length];
+        if (length == 0) {
+            return result;
+        }
+        // best path log probabilities ending in each state at the previous and current position.
+        double[] previousScores = new double[numStates];
+        double[] currentScores = new double[numStates];
+        final double[] logEmissionProbabilities = new double[numStates];
+        final double[] logStayProbabilities = new double[numStates];
+        final double[] logJumpProbabilities = new double[numStates];
+        // only allocated if some pair of positions needs the full transition matrix.
+        double[] logTransitionProbabilities = null;
+        final int[] bestPreviousStates = new int[numStates];
+        final BackPointers backPointers = BackPointers.create(length, numStates);
+
+        model.logEmissionProbabilities(data.get(0), positions.get(0), logEmissionProbabilities);
+        initializeLogForwardProbabilities(model, positions.get(0), logEmissionProbabilities, previousScores);
+        for (int positionIndex = 1; positionIndex < length; positionIndex++) {
+            final T previousPosition = positions.get(positionIndex - 1);
+            final T thisPosition = positions.get(positionIndex);
+            if (model.logStayOrJumpProbabilities(previousPosition, thisPosition, logStayProbabilities, logJumpProbabilities)) {
+                viterbiStayOrJumpStep(previousScores, logStayProbabilities, logJumpProbabilities, currentScores, bestPreviousStates);
+            } else {
+                if (logTransitionProbabilities == null) {
+                    logTransitionProbabilities = new double[numStates * numStates];
+                }
+                model.logTransitionProbabilities(previousPosition, thisPosition, logTransitionProbabilities);
+                viterbiStep(previousScores, logTransitionProbabilities, currentScores, bestPreviousStates);
+            }
+            model.logEmissionProbabilities(data.get(positionIndex), thisPosition, logEmissionProbabilities);
+            for (int j = 0; j < numStates; j++) {
+                currentScores[j] += logEmissionProbabilities[j];
+            }
+            backPointers.set(positionIndex, bestPreviousStates);
+            final double[] swap = previousScores;
+            previousScores = currentScores;
+            currentScores = swap;
+        }
+
+        int bestState = 0;
+        for (int j = 1; j < numStates; j++) {
+            if (previousScores[j] > previousScores[bestState]) {
+                bestState = j;
+            }
+        }
+        for (int positionIndex = length - 1; positionIndex > 0; positionIndex--) {
+            result[positionIndex] = bestState;
+            bestState = backPointers.get(positionIndex, bestState);
+        }
+        result[0] = bestState;
+        return result;
+    }
+
+    /**
+     * Calculates the best path scores at a position, before adding emissions, given those at the previous position.
+     *
+     * @param previousScores the best path scores at the previous position.
+     * @param logTransitionProbabilities the transitions from the previous position to this one.
+     * @param result where to store the best path scores at this position.
+     * @param bestPreviousStates where to store the best previous state of each state.
+     */
+    private static void viterbiStep(final double[] previousScores, final double[] logTransitionProbabilities,
+                                    final double[] result, final int[] bestPreviousStates) {
+        final int numStates = previousScores.length;
+        Arrays.fill(bestPreviousStates, 0);
+        for (int j = 0; j < numStates; j++) {
+            result[j] = previousScores[0] + logTransitionProbabilities[j];
+        }
+        for (int i = 1, offset = numStates; i < numStates; i++, offset += numStates) {
+            final double previousScore = previousScores[i];
+            for (int j = 0; j < numStates; j++) {
+                final double candidate = previousScore + logTransitionProbabilities[offset + j];
+                if (candidate > result[j]) {
+                    result[j] = candidate;
+                    bestPreviousStates[j] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #viterbiStep} for "stay or jump" transitions.
+     *
+     * <p>
+     *     The best state to jump from into the jth state is the best previous state other than j, which is either the
+     *     best or the second best previous state overall. It is compared to staying in j, resolving ties and
+     *     impossible states exactly as {@link #viterbiStep} does.
+     * </p>
+     */
+    private static void viterbiStayOrJumpStep(final double[] previousScores, final double[] logStayProbabilities,
+                                              final double[] logJumpProbabilities, final double[] result,
+                                              final int[] bestPreviousStates) {
+        final int numStates = previousScores.length;
+        int first = 0;
+        for (int i = 1; i < numStates; i++) {
+            if (previousScores[i] > previousScores[first]) {
+                first = i;
+            }
+        }
+        // meaningless if there is a single state, as there is no other state to jump from.
+        int second = first == 0 ? 1 : 0;
+        for (int i = second + 1; i < numStates; i++) {
+            if (i != first && previousScores[i] > previousScores[second]) {
+                second = i;
+            }
+        }
+        for (int j = 0; j < numStates; j++) {
+            double best = previousScores[j] + logStayProbabilities[j];
+            int bestState = j;
+            if (numStates > 1) {
+                final int other = j == first ? second : first;
+                final double candidate = previousScores[other] + logJumpProbabilities[j];
+                if (candidate > best || (candidate == best && other < j)) {
+                    best = candidate;
+                    bestState = other;
+                }
+            }
+            result[j] = best;
+            bestPreviousStates[j] = best == Double.NEGATIVE_INFINITY ? 0 : bestState;
+        }
+    }
+
+    /**
+     * Best previous state of every state at every position.
+     */
+    private abstract static class BackPointers {
+
+        protected final int numStates;
+
+        private BackPointers(final int length, final int numStates) {
+            Utils.validateArg((long) length * numStates <= Integer.MAX_VALUE,
+                    "the sequence is too long to be decoded with this many hidden states");
+            this.numStates = numStates;
+        }
+
+        /**
+         * Creates a table using the narrowest type that can hold every state index.
+         */
+        private static BackPointers create(final int length, final int numStates) {
+            if (numStates <= 1 << Byte.SIZE) {
+                return new ByteBackPointers(length, numStates);
+            } else if (numStates <= 1 << Short.SIZE) {
+                return new ShortBackPointers(length, numStates);
+            } else {
+                return new IntBackPointers(length, numStates);
+            }
+        }
+
+        abstract void set(final int positionIndex, final int[] bestPreviousStates);
+
+        abstract int get(final int positionIndex, final int stateIndex);
+    }
+
+    private static final class ByteBackPointers extends BackPointers {
+
+        private final byte[] values;
+
+        private ByteBackPointers(final int length, final int numStates) {
+            super(length, numStates);
+            values = new byte[length * numStates];
+        }
+
+        @Override
+        void set(final int positionIndex, final int[] bestPreviousStates) {
+            for (int j = 0, offset = positionIndex * numStates; j < numStates; j++, offset++) {
+                values[offset] = (byte) bestPreviousStates[j];
+            }
+        }
+
+        @Override
+        int get(final int positionIndex, final int stateIndex) {
+            return values[positionIndex * numStates + stateIndex] & 0xFF;
+        }
+    }
+
+    private static final class ShortBackPointers extends BackPointers {
+
+        private final short[] values;
+
+        private ShortBackPointers(final int length, final int numStates) {
+            super(length, numStates);
+            values = new short[length * numStates];
+        }
+
+        @Override
+        void set(final int positionIndex, final int[] bestPreviousStates) {
+            for (int j = 0, offset = positionIndex * numStates; j < numStates; j++, offset++) {
+                values[offset] = (short) bestPreviousStates[j];
+            }
+        }
+
+        @Override
+        int get(final int positionIndex, final int stateIndex) {
+            return values[positionIndex * numStates + stateIndex] & 0xFFFF;
+        }
+    }
+
+    private static final class IntBackPointers extends BackPointers {
+
+        private final int[] values;
+
+        private IntBackPointers(final int length, final int numStates) {
+            super(length, numStates);
+            values = new int[length * numStates];
+        }
+
+        @Override
+        void set(final int positionIndex, final int[] bestPreviousStates) {
+            System.arraycopy(bestPreviousStates, 0, values, positionIndex * numStates, numStates);
+        }
+
+        @Override
+        int get(final int positionIndex, final int stateIndex) {
+            return values[positionIndex * numStates + stateIndex];
+        }
+    }
+}
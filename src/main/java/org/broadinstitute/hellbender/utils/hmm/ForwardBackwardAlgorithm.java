@@ -308,198 +308,96 @@ public final class ForwardBackwardAlgorithm {
         final List<T> positionList = Collections.unmodifiableList(new ArrayList<>(positions));
         Utils.validateArg(dataList.size()== positionList.size(), "the data sequence and position sequence must have the same number of elements");
 
-        final double[][] forwardProbabilities = calculateLogForwardProbabilities(model, dataList, positionList);
-        final double[][] backwardProbabilities = calculateLogBackwardProbabilities(model, dataList, positionList);
+        final DenseHMM<D, T, S> denseModel = DenseHMM.of(model);
+        final double[][] logEmissionProbabilities = DenseHMMAlgorithms.logEmissionProbabilities(denseModel, dataList, positionList);
+        final double[][] forwardProbabilities = DenseHMMAlgorithms.logForwardProbabilities(denseModel, positionList, logEmissionProbabilities);
+        final double[][] backwardProbabilities = DenseHMMAlgorithms.logBackwardProbabilities(denseModel, positionList, logEmissionProbabilities);
 
         return new ArrayResult<>(dataList, positionList, model, forwardProbabilities, backwardProbabilities);
     }
 
     /**
-     * Calculates the forward probabilities (the forward phase of the algorithm). These are in log scale.
+     * Runs the forward-backward algorithm like {@link #apply} but keeping only some of the forward and backward
+     * probabilities in memory.
      * <p>
-     *     The returned array is uni-dimensional. Forward probabilities are arranged by position, thus the
-     *     forward probability for the ith hidden state and jth position is stored in the
-     *     index: i + j * number-of-hidden-states.
+     *     The forward and backward probabilities are stored only every {@code B = ceil(sqrt(L))} positions; those of
+     *     the block of positions around a query are recalculated from the nearest stored values when needed, and the
+     *     last block is kept so that queries on nearby positions do not repeat the work. The memory size of the result
+     *     is therefore of the order of {@code O(sqrt(L)*N)} rather than {@code O(L*N)}, at the cost of calculating
+     *     every probability about twice as many times when the result is queried across the whole sequence.
      * </p>
-     * @param model the HMM model.
-     * @param data the observed data sequence.
-     * @param positions the observation time/position points.
-     * @param <D> the observed data type.
-     * @param <T> the observation time/position type.
-     * @param <S> the hidden state type.
-     * @return never {@code null}, the calling code can modify this array at will.
-     * @throws IllegalArgumentException if the {@code model} does not recognize any of the values in {@code data}
-     *   or {@code positions}.
-     */
-    private static <D, T, S> double[][] calculateLogForwardProbabilities(
-            final HMM<D, T, S> model,
-            final List<D> data,
-            final List<T> positions) {
-
-        final List<S> states = model.hiddenStates();
-        final int numStates = states.size();
-        final int length = data.size();
-        final double[][] result = new double[length][numStates];
-        // Empty data? then we just return the empty array:
-        if (length == 0) {
-            return result;
-        }
-        // We first initialize the probabilities at the first position.
-        final T position0 = positions.get(0);
-        final D datum0 = data.get(0);
-        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
-            final S state = states.get(stateIndex);
-            result[0][stateIndex] =
-                    model.logPriorProbability(state, position0)
-                + model.logEmissionProbability(datum0, state, position0);
-        }
-
-        // Then we do the rest t_1, t_2, ... and so on.
-        // Array re-used to hold the elements of log-sum-exp operations:
-        final double[] logSumBuffer = new double[states.size()];
-        for (int thisPositionIndex = 1; thisPositionIndex < data.size(); thisPositionIndex++) {
-            final int previousPositionIndex = thisPositionIndex - 1;
-            final T previousPosition = positions.get(previousPositionIndex);
-            final T thisPosition = positions.get(thisPositionIndex);
-            for (int thisStateIndex = 0; thisStateIndex < numStates; thisStateIndex++) {
-                final S thisState = states.get(thisStateIndex);
-                for (int previousStateIndex = 0; previousStateIndex < numStates; previousStateIndex++) {
-                    logSumBuffer[previousStateIndex] =
-                            result[previousPositionIndex][previousStateIndex]
-                                    + model.logTransitionProbability(states.get(previousStateIndex),
-                                        previousPosition, thisState, thisPosition);
-                }
-                result[thisPositionIndex][thisStateIndex] = GATKProtectedMathUtils.logSumExp(logSumBuffer)
-                        + model.logEmissionProbability(data.get(thisPositionIndex), thisState, thisPosition);
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Calculates the backward probabilities (the backward phase of the algorithm). These are in log scale.
      * <p>
-     *     The returned array is uni-dimensional. Back probabilities are arranged by position, thus the
-     *     back probability for the ith hidden state and jth position is stored in the
-     *     index: i + j * number-of-hidden-states.
+     *     The returned {@link Result} gives the same answers as the one returned by {@link #apply}.
      * </p>
+     *
+     * @param data the observed data sequence.
+     * @param positions the observation time/position points.
      * @param model the HMM model.
-     * @param dataList the observed data sequence.
-     * @param positionList the observation time/position points.
      * @param <D> the observed data type.
      * @param <T> the observation time/position type.
      * @param <S> the hidden state type.
-     * @return never {@code null}, the calling code can modify this array at will.
-     * @throws IllegalArgumentException if the {@code model} does not recognize any of the values in {@code dataList}
-     *   or {@code positionList}.
+     * @return never {@code null}.
+     * @throws IllegalArgumentException if any of the arguments is {@code null}, {@code data} and {@code positions}
+     *   have different length, or if the {@code model} does not recognized any of the values in {@code data} or {@code}
+     *   positions.
      */
-    private static <D, T, S> double[][] calculateLogBackwardProbabilities(final HMM<D, T, S> model,
-                                                                        final List<D> dataList,
-                                                                        final List<T> positionList) {
-
-        final List<S> states = model.hiddenStates();
-        final int numStates = states.size();
-        final int length = dataList.size();
-
-        // result contains is implicitly initialized to all 0.
-        final double[][] result = new double[length][numStates];
+    public static <D, T, S> Result<D, T, S> applyCheckpointed(final List<D> data, final List<T> positions,
+                                                             final HMM<D, T, S> model) {
+        Utils.nonNull(data, "the input data sequence cannot be null.");
+        Utils.nonNull(positions, "the input position sequence cannot be null.");
+        Utils.nonNull(model, "the input model cannot be null");
 
-        // Empty data? then we just return the empty array:
-        if (length == 0) {
-            return result;
-        }
+        final List<D> dataList = Collections.unmodifiableList(new ArrayList<>(data));
+        final List<T> positionList = Collections.unmodifiableList(new ArrayList<>(positions));
+        Utils.validateArg(dataList.size()== positionList.size(), "the data sequence and position sequence must have the same number of elements");
 
-        // result already contain the correct value for the
-        // last position in the input data/position sequence.
-        // = 0 (i.e. log(1))
-        // thus we proceed directly to t_L - 1.
-
-        // "small" buffer array reused to do the log-sum-exp trick:
-        final double[] logSumBuffer = new double[states.size()];
-
-        for (int thisPositionIndex = length - 2; thisPositionIndex >= 0; --thisPositionIndex) {
-            final int nextPositionIndex = thisPositionIndex + 1;
-            final T thisPosition = positionList.get(thisPositionIndex);
-            final T nextPosition = positionList.get(nextPositionIndex);
-            for (int thisStateIndex = 0; thisStateIndex < numStates; thisStateIndex++) {
-                final S thisState = states.get(thisStateIndex);
-                for (int nextStateIndex = 0; nextStateIndex < numStates; nextStateIndex++) {
-                    logSumBuffer[nextStateIndex] = result[nextPositionIndex][nextStateIndex]
-                                    + model.logTransitionProbability(thisState, thisPosition,
-                                                states.get(nextStateIndex), nextPosition)
-                                    + model.logEmissionProbability(dataList.get(nextPositionIndex),
-                                                states.get(nextStateIndex), nextPosition);
-                }
-                result[thisPositionIndex][thisStateIndex] = GATKProtectedMathUtils.logSumExp(logSumBuffer);
-            }
-        }
-        return result;
+        return new CheckpointedResult<>(dataList, positionList, model);
     }
 
     /**
-     * Implementation of the interface {@link Result} returned by the {@link #apply} method.
+     * Common implementation of the queries of the interface {@link Result}, given the forward and backward
+     * probabilities and the data likelihood at each position.
      * @param <D> the observed data type.
      * @param <T> the observation time/position type.
      * @param <S> the hidden state type.
      */
-    private static class ArrayResult<D, T, S> implements Result<D, T, S>, Serializable {
+    private abstract static class AbstractResult<D, T, S> implements Result<D, T, S>, Serializable {
 
         private static final long serialVersionUID = -8556604447304292642L;
 
-        private final List<D> data;
+        protected final List<D> data;
 
-        private final List<T> positions;
+        protected final List<T> positions;
         private final IntRange positionIndexRange;
 
-        private final HMM<D, T, S> model;
+        protected final HMM<D, T, S> model;
 
         private final Object2IntMap<T> positionIndex;
         private final Object2IntMap<S> stateIndex;
 
-        private final double[][] logForwardProbabilities;
-
-        private final double[][] logBackwardProbabilities;
-        private final double[] logDataLikelihood;
-
-        private ArrayResult(final List<D> data, final List<T> positions,
-                            final HMM<D, T, S> model,
-                            final double[][] logForwardProbabilities,
-                            final double[][] logBackwardProbabilities) {
+        private AbstractResult(final List<D> data, final List<T> positions, final HMM<D, T, S> model) {
             this.data = Collections.unmodifiableList(new ArrayList<>(data));
             this.positions = Collections.unmodifiableList(new ArrayList<>(positions));
             positionIndexRange = new IntRange(0, positions.size() - 1);
             this.model = model;
             positionIndex = composeIndexMap(this.positions);
             stateIndex = composeIndexMap(model.hiddenStates());
-            this.logBackwardProbabilities = logBackwardProbabilities;
-            this.logForwardProbabilities = logForwardProbabilities;
-            logDataLikelihood = calculateLogDataLikelihood(logForwardProbabilities, logBackwardProbabilities);
         }
 
         /**
-         * Calculates the data likelihood in log scale.
-         * <p>
-         *     This value can be obtained by adding up the posterior probabilities at any position; their sum is supposed
-         *     to be the same across at each position.
-         * </p>
-         * <p>
-         *     This implementation uses always uses the first position.
-         * </p>
-         * @param logForwardProbabilities the log forward probabilities array.
-         * @param logBackwardProbabilities the log backward probabilities array.
-         * @return a valid probability in log scale (between -Inf and 0 inclusive).
+         * Returns the log forward probability given valid position and state indices.
          */
-        private static double[] calculateLogDataLikelihood(final double[][] logForwardProbabilities,
-                                                           final double[][] logBackwardProbabilities) {
-            return IntStream.range(0, logForwardProbabilities.length)
-                    .mapToObj(i ->
-                            IntStream.range(0, logForwardProbabilities[i].length)
-                                    .mapToDouble(j -> logBackwardProbabilities[i][j]
-                                                    + logForwardProbabilities[i][j])
-                                    .toArray())
-                    .mapToDouble(GATKProtectedMathUtils::logSumExp)
-                    .toArray();
-        }
+        protected abstract double logForwardProbabilityAt(final int positionIndex, final int stateIndex);
+
+        /**
+         * Returns the log backward probability given valid position and state indices.
+         */
+        protected abstract double logBackwardProbabilityAt(final int positionIndex, final int stateIndex);
+
+        /**
+         * Returns the log data likelihood as evaluated at a valid position index.
+         */
+        protected abstract double logDataLikelihoodAt(final int positionIndex);
 
         /**
          * Composes a object ot index map given an object list.
@@ -536,37 +434,37 @@ public final class ForwardBackwardAlgorithm {
         public double logForwardProbability(final int positionIndex, final S state) {
             ParamUtils.inRange(positionIndexRange, positionIndex, "position index");
             final int stateIndex = validStateIndex(state);
-            return logForwardProbabilities[positionIndex][stateIndex];
+            return logForwardProbabilityAt(positionIndex, stateIndex);
         }
 
         @Override
         public double logForwardProbability(final T position, final S state) {
             final int positionIndex = validPositionIndex(position);
             final int stateIndex = validStateIndex(state);
-            return logForwardProbabilities[positionIndex][stateIndex];
+            return logForwardProbabilityAt(positionIndex, stateIndex);
         }
 
         @Override
         public double logBackwardProbability(final int positionIndex, S state) {
             ParamUtils.inRange(positionIndexRange, positionIndex, "position index");
             final int stateIndex = validStateIndex(state);
-            return logBackwardProbabilities[positionIndex][stateIndex];
+            return logBackwardProbabilityAt(positionIndex, stateIndex);
         }
 
         @Override
         public double logBackwardProbability(final T position, final S state) {
             final int stateIndex = validStateIndex(state);
             final int positionIndex = validPositionIndex(position);
-            return logBackwardProbabilities[positionIndex][stateIndex];
+            return logBackwardProbabilityAt(positionIndex, stateIndex);
         }
 
         @Override
         public double logProbability(final int positionIndex, final S state) {
             final int stateIndex = validStateIndex(state);
             ParamUtils.inRange(positionIndexRange, positionIndex, "position index");
-            return logBackwardProbabilities[positionIndex][stateIndex]
-                    + logForwardProbabilities[positionIndex][stateIndex]
-                    - logDataLikelihood[positionIndex];
+            return logBackwardProbabilityAt(positionIndex, stateIndex)
+                    + logForwardProbabilityAt(positionIndex, stateIndex)
+                    - logDataLikelihoodAt(positionIndex);
         }
 
         @Override
@@ -575,8 +473,8 @@ public final class ForwardBackwardAlgorithm {
             final int positionIndex = this.positionIndex.getOrDefault(position, -1);
             Utils.validateArg(stateIndex != -1, "the input state is not recognized by the model");
             Utils.validateArg(positionIndex != -1, "unknown input position");
-            return logBackwardProbabilities[positionIndex][stateIndex]
-                        + logForwardProbabilities[positionIndex][stateIndex] - logDataLikelihood[positionIndex];
+            return logBackwardProbabilityAt(positionIndex, stateIndex)
+                        + logForwardProbabilityAt(positionIndex, stateIndex) - logDataLikelihoodAt(positionIndex);
         }
 
         @Override
@@ -602,7 +500,7 @@ public final class ForwardBackwardAlgorithm {
                     result += model.logEmissionProbability(data.get(dataOffset), states.get(statesOffset), positions.get(dataOffset));
                 }
                 result += logBackwardProbability(positions.get(lastIndex), states.get(statesLength - 1));
-                result -= logDataLikelihood[lastIndex];
+                result -= logDataLikelihoodAt(lastIndex);
                 return result;
             }
         }
@@ -627,7 +525,7 @@ public final class ForwardBackwardAlgorithm {
                 List<S>  currentStates = new ArrayList<>(Utils.nonNull(stateConstraints.get(0)));
                 double[] currentLikelihoods = currentStates.stream()
                         .mapToInt(stateIndex::getInt)
-                        .mapToDouble(i -> logForwardProbabilities[startIndex][i])
+                        .mapToDouble(i -> logForwardProbabilityAt(startIndex, i))
                         .toArray();
                 // We move forward across contiguous positions updating the current state likelihoods
                 // with the previous ones honoring transition and emission probabilities:
@@ -659,9 +557,9 @@ public final class ForwardBackwardAlgorithm {
                 // finally we add the backward-probabilities at the last position.
                 final List<S> lastStates = currentStates;
                 for (int i = 0; i < currentLikelihoods.length; i++) {
-                    currentLikelihoods[i] += logBackwardProbabilities[lastIndex][stateIndex.getInt(lastStates.get(i))];
+                    currentLikelihoods[i] += logBackwardProbabilityAt(lastIndex, stateIndex.getInt(lastStates.get(i)));
                 }
-                return GATKProtectedMathUtils.logSumExp(currentLikelihoods) - logDataLikelihood[lastIndex];
+                return GATKProtectedMathUtils.logSumExp(currentLikelihoods) - logDataLikelihoodAt(lastIndex);
             }
         }
 
@@ -672,18 +570,18 @@ public final class ForwardBackwardAlgorithm {
 
         @Override
         public double logDataLikelihood() {
-            return logDataLikelihood.length == 0 ? 0 : logDataLikelihood[0];
+            return positions.isEmpty() ? 0 : logDataLikelihoodAt(0);
         }
 
         @Override
         public double logDataLikelihood(final int positionIndex) {
             ParamUtils.inRange(positionIndexRange, positionIndex, "position index");
-            return logDataLikelihood[positionIndex];
+            return logDataLikelihoodAt(positionIndex);
         }
 
         @Override
         public double logDataLikelihood(final T position) {
-            return logDataLikelihood[validPositionIndex(position)];
+            return logDataLikelihoodAt(validPositionIndex(position));
         }
 
         @Override
@@ -728,4 +626,267 @@ public final class ForwardBackwardAlgorithm {
         }
     }
 
+
+    /**
+     * Implementation of the interface {@link Result} returned by the {@link #apply} method.
+     * @param <D> the observed data type.
+     * @param <T> the observation time/position type.
+     * @param <S> the hidden state type.
+     */
+    private static final class ArrayResult<D, T, S> extends AbstractResult<D, T, S> {
+
+        private static final long serialVersionUID = 4213513404004553440L;
+
+        private final double[][] logForwardProbabilities;
+
+        private final double[][] logBackwardProbabilities;
+        private final double[] logDataLikelihood;
+
+        private ArrayResult(final List<D> data, final List<T> positions,
+                            final HMM<D, T, S> model,
+                            final double[][] logForwardProbabilities,
+                            final double[][] logBackwardProbabilities) {
+            super(data, positions, model);
+            this.logBackwardProbabilities = logBackwardProbabilities;
+            this.logForwardProbabilities = logForwardProbabilities;
+            logDataLikelihood = calculateLogDataLikelihood(logForwardProbabilities, logBackwardProbabilities);
+        }
+
+        /**
+         * Calculates the data likelihood in log scale.
+         * <p>
+         *     This value can be obtained by adding up the posterior probabilities at any position; their sum is supposed
+         *     to be the same across at each position.
+         * </p>
+         * @param logForwardProbabilities the log forward probabilities array.
+         * @param logBackwardProbabilities the log backward probabilities array.
+         * @return the data likelihood as evaluated at each position, valid probabilities in log scale
+         *   (between -Inf and 0 inclusive).
+         */
+        private static double[] calculateLogDataLikelihood(final double[][] logForwardProbabilities,
+                                                           final double[][] logBackwardProbabilities) {
+            return IntStream.range(0, logForwardProbabilities.length)
+                    .mapToObj(i ->
+                            IntStream.range(0, logForwardProbabilities[i].length)
+                                    .mapToDouble(j -> logBackwardProbabilities[i][j]
+                                                    + logForwardProbabilities[i][j])
+                                    .toArray())
+                    .mapToDouble(GATKProtectedMathUtils::logSumExp)
+                    .toArray();
+        }
+
+        @Override
+        protected double logForwardProbabilityAt(final int positionIndex, final int stateIndex) {
+            return logForwardProbabilities[positionIndex][stateIndex];
+        }
+
+        @Override
+        protected double logBackwardProbabilityAt(final int positionIndex, final int stateIndex) {
+            return logBackwardProbabilities[positionIndex][stateIndex];
+        }
+
+        @Override
+        protected double logDataLikelihoodAt(final int positionIndex) {
+            return logDataLikelihood[positionIndex];
+        }
+    }
+
+    /**
+     * Implementation of the interface {@link Result} returned by the {@link #applyCheckpointed} method.
+     * <p>
+     *     Positions are split in blocks of {@code ceil(sqrt(L))} consecutive positions, and only the forward
+     *     probabilities at the first position and the backward probabilities at the last position of each block are
+     *     kept. Those of the other positions of a block are recalculated from them the first time a query needs them,
+     *     and the {@value #CACHED_BLOCKS} most recently used blocks are kept, so that queries that go back and forth
+     *     across a block boundary, like those of a segment, do not recalculate them each time.
+     * </p>
+     * @param <D> the observed data type.
+     * @param <T> the observation time/position type.
+     * @param <S> the hidden state type.
+     */
+    private static final class CheckpointedResult<D, T, S> extends AbstractResult<D, T, S> {
+
+        private static final long serialVersionUID = -2753860577316453781L;
+
+        private static final int CACHED_BLOCKS = 2;
+
+        private final DenseHMM<D, T, S> denseModel;
+
+        private final int blockSize;
+
+        /**
+         * Forward probabilities at the first position of each block.
+         */
+        private final double[][] forwardCheckpoints;
+
+        /**
+         * Backward probabilities at the last position of each block.
+         */
+        private final double[][] backwardCheckpoints;
+
+        /**
+         * Most recently used blocks first; the array is never modified once published, but replaced.
+         */
+        private transient volatile Block[] cachedBlocks;
+
+        private CheckpointedResult(final List<D> data, final List<T> positions, final HMM<D, T, S> model) {
+            super(data, positions, model);
+            denseModel = DenseHMM.of(model);
+            final int numStates = denseModel.hiddenStates().size();
+            final int length = positions.size();
+            blockSize = Math.max(1, (int) Math.ceil(Math.sqrt(length)));
+            final int numBlocks = (length + blockSize - 1) / blockSize;
+            forwardCheckpoints = new double[numBlocks][];
+            backwardCheckpoints = new double[numBlocks][];
+            if (length == 0) {
+                return;
+            }
+
+            // We alternate between the two arrays as we move along the positions.
+            double[] current = new double[numStates];
+            double[] next = new double[numStates];
+            final double[] logEmissionProbabilities = new double[numStates];
+            final double[] logTransitionProbabilities = new double[numStates * numStates];
+            final double[] buffer = new double[numStates];
+
+            denseModel.logEmissionProbabilities(data.get(0), positions.get(0), logEmissionProbabilities);
+            DenseHMMAlgorithms.initializeLogForwardProbabilities(denseModel, positions.get(0), logEmissionProbabilities, current);
+            forwardCheckpoints[0] = current.clone();
+            for (int positionIndex = 1; positionIndex < length; positionIndex++) {
+                denseModel.logTransitionProbabilities(positions.get(positionIndex - 1), positions.get(positionIndex), logTransitionProbabilities);
+                denseModel.logEmissionProbabilities(data.get(positionIndex), positions.get(positionIndex), logEmissionProbabilities);
+                DenseHMMAlgorithms.logForwardStep(current, logTransitionProbabilities, logEmissionProbabilities, next, buffer);
+                final double[] swap = current;
+                current = next;
+                next = swap;
+                if (positionIndex % blockSize == 0) {
+                    forwardCheckpoints[positionIndex / blockSize] = current.clone();
+                }
+            }
+
+            Arrays.fill(current, 0);
+            backwardCheckpoints[numBlocks - 1] = current.clone();
+            for (int positionIndex = length - 2; positionIndex >= 0; positionIndex--) {
+                denseModel.logTransitionProbabilities(positions.get(positionIndex), positions.get(positionIndex + 1), logTransitionProbabilities);
+                denseModel.logEmissionProbabilities(data.get(positionIndex + 1), positions.get(positionIndex + 1), logEmissionProbabilities);
+                DenseHMMAlgorithms.logBackwardStep(current, logTransitionProbabilities, logEmissionProbabilities, next, buffer);
+                final double[] swap = current;
+                current = next;
+                next = swap;
+                if ((positionIndex + 1) % blockSize == 0) {
+                    backwardCheckpoints[positionIndex / blockSize] = current.clone();
+                }
+            }
+        }
+
+        @Override
+        protected double logForwardProbabilityAt(final int positionIndex, final int stateIndex) {
+            final Block block = block(positionIndex);
+            return block.logForwardProbabilities[positionIndex - block.start][stateIndex];
+        }
+
+        @Override
+        protected double logBackwardProbabilityAt(final int positionIndex, final int stateIndex) {
+            final Block block = block(positionIndex);
+            return block.logBackwardProbabilities[positionIndex - block.start][stateIndex];
+        }
+
+        @Override
+        protected double logDataLikelihoodAt(final int positionIndex) {
+            final Block block = block(positionIndex);
+            return block.logDataLikelihood[positionIndex - block.start];
+        }
+
+        /**
+         * Returns the block that contains a position, recalculating it if it is not amongst the cached ones.
+         * <p>
+         *     Concurrent queries may recalculate the same block more than once but always see a complete block.
+         * </p>
+         */
+        private Block block(final int positionIndex) {
+            final int blockIndex = positionIndex / blockSize;
+            final Block[] published = cachedBlocks;
+            final Block[] cached = published == null ? new Block[0] : published;
+            Block result = null;
+            for (final Block block : cached) {
+                if (block.index == blockIndex) {
+                    result = block;
+                    break;
+                }
+            }
+            if (result == null) {
+                result = calculateBlock(blockIndex);
+            } else if (result == cached[0]) {
+                return result;
+            }
+            // moves the block to the front, dropping the least recently used one if the cache is full.
+            final Block[] updated = new Block[Math.min(CACHED_BLOCKS, cached.length + 1)];
+            updated[0] = result;
+            int size = 1;
+            for (int i = 0; i < cached.length && size < updated.length; i++) {
+                if (cached[i] != result) {
+                    updated[size++] = cached[i];
+                }
+            }
+            cachedBlocks = size == updated.length ? updated : Arrays.copyOf(updated, size);
+            return result;
+        }
+
+        private Block calculateBlock(final int blockIndex) {
+            final int start = blockIndex * blockSize;
+            final int end = Math.min(start + blockSize, positions.size());
+            final int numStates = denseModel.hiddenStates().size();
+            final double[][] logEmissionProbabilities = DenseHMMAlgorithms.logEmissionProbabilities(denseModel,
+                    data.subList(start, end), positions.subList(start, end));
+            final double[][] logForwardProbabilities = new double[end - start][];
+            final double[][] logBackwardProbabilities = new double[end - start][];
+            final double[] logTransitionProbabilities = new double[numStates * numStates];
+            final double[] buffer = new double[numStates];
+
+            logForwardProbabilities[0] = forwardCheckpoints[blockIndex];
+            for (int i = 1; i < logForwardProbabilities.length; i++) {
+                denseModel.logTransitionProbabilities(positions.get(start + i - 1), positions.get(start + i), logTransitionProbabilities);
+                logForwardProbabilities[i] = new double[numStates];
+                DenseHMMAlgorithms.logForwardStep(logForwardProbabilities[i - 1], logTransitionProbabilities,
+                        logEmissionProbabilities[i], logForwardProbabilities[i], buffer);
+            }
+
+            logBackwardProbabilities[logBackwardProbabilities.length - 1] = backwardCheckpoints[blockIndex];
+            for (int i = logBackwardProbabilities.length - 2; i >= 0; i--) {
+                denseModel.logTransitionProbabilities(positions.get(start + i), positions.get(start + i + 1), logTransitionProbabilities);
+                logBackwardProbabilities[i] = new double[numStates];
+                DenseHMMAlgorithms.logBackwardStep(logBackwardProbabilities[i + 1], logTransitionProbabilities,
+                        logEmissionProbabilities[i + 1], logBackwardProbabilities[i], buffer);
+            }
+
+            final double[] logDataLikelihood = new double[end - start];
+            for (int i = 0; i < logDataLikelihood.length; i++) {
+                for (int j = 0; j < numStates; j++) {
+                    buffer[j] = logForwardProbabilities[i][j] + logBackwardProbabilities[i][j];
+                }
+                logDataLikelihood[i] = GATKProtectedMathUtils.logSumExp(buffer);
+            }
+            return new Block(blockIndex, start, logForwardProbabilities, logBackwardProbabilities, logDataLikelihood);
+        }
+
+        /**
+         * Forward and backward probabilities, and data likelihoods, of the positions of a block.
+         */
+        private static final class Block {
+            private final int index;
+            private final int start;
+            private final double[][] logForwardProbabilities;
+            private final double[][] logBackwardProbabilities;
+            private final double[] logDataLikelihood;
+
+            private Block(final int index, final int start, final double[][] logForwardProbabilities,
+                          final double[][] logBackwardProbabilities, final double[] logDataLikelihood) {
+                this.index = index;
+                this.start = start;
+                this.logForwardProbabilities = logForwardProbabilities;
+                this.logBackwardProbabilities = logBackwardProbabilities;
+                this.logDataLikelihood = logDataLikelihood;
+            }
+        }
+    }
 }
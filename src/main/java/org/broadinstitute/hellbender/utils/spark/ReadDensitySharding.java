@@ -0,0 +1,135 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.spark.api.java.JavaRDD;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Divides intervals into shards of variable size so that every shard has about the same number of reads.
+ * <p>
+ *     Fixed-size shards are very unbalanced around high-depth loci (e.g. centromeres or amplicons), where a few shards
+ *     contain most of the reads, and in sparsely covered regions, where many shards contain almost none.
+ *     Here the read density is first estimated from a sample of the read start positions in bins of
+ *     {@code minShardSize} bases. Then each interval is cut greedily into consecutive shards that hold as many reads
+ *     as the average fixed-size shard of {@code targetShardSize} bases would; hot shards are thus split down to
+ *     {@code minShardSize} bases and sparse ones are coalesced up to {@code maxShardSize} bases.
+ * </p>
+ * <p>
+ *     Shards tile the input intervals without overlapping, exactly as fixed-size shards do, and are padded in the
+ *     same way.
+ * </p>
+ */
+public final class ReadDensitySharding {
+    private static final Logger logger = LogManager.getLogger(ReadDensitySharding.class);
+
+    private ReadDensitySharding() {}
+
+    /**
+     * Divides intervals into shards based on the read density estimated from a sample of the reads.
+     *
+     * @param reads the reads; they are traversed once to sample them, so callers that shard them afterwards should persist them.
+     * @param dictionary the sequence dictionary of the reads.
+     * @param intervals the intervals to divide, they must not overlap.
+     * @param sampleFraction fraction of the reads sampled to estimate the read density, in (0, 1].
+     * @param targetShardSize size of the shards if the read density was uniform.
+     * @param minShardSize minimum size of a shard, except for those at the ends of an interval.
+     * @param maxShardSize maximum size of a shard.
+     * @param shardPadding number of bases to pad each shard with on each side.
+     * @return never {@code null}.
+     */
+    public static List<ShardBoundary> divideIntervalsByReadDensity(final JavaRDD<GATKRead> reads, final SAMSequenceDictionary dictionary,
+                                                                   final List<SimpleInterval> intervals, final double sampleFraction,
+                                                                   final int targetShardSize, final int minShardSize,
+                                                                   final int maxShardSize, final int shardPadding) {
+        Utils.nonNull(reads, "the reads cannot be null");
+        Utils.nonNull(dictionary, "the dictionary cannot be null");
+        Utils.nonNull(intervals, "the intervals cannot be null");
+        Utils.validateArg(sampleFraction > 0 && sampleFraction <= 1, "the sample fraction must be in (0, 1]");
+        ParamUtils.isPositive(minShardSize, "the minimum shard size must be positive");
+        Utils.validateArg(minShardSize <= targetShardSize && targetShardSize <= maxShardSize,
+                "the target shard size must be between the minimum and maximum shard sizes");
+
+        final Map<Long, Long> sampledReadCountsByBin = reads
+                .sample(false, sampleFraction, 0)
+                .filter(read -> !read.isUnmapped() && dictionary.getSequenceIndex(read.getContig()) >= 0)
+                .mapToPair(read -> new Tuple2<>(binKey(dictionary.getSequenceIndex(read.getContig()), (read.getStart() - 1) / minShardSize), 1L))
+                .reduceByKey(Long::sum)
+                .collectAsMap();
+        final long sampledReadCount = sampledReadCountsByBin.values().stream().mapToLong(Long::longValue).sum();
+        final long intervalsLength = intervals.stream().mapToLong(SimpleInterval::size).sum();
+        // the number of (sampled) reads of a shard of the target size with an average density.
+        final double targetReads = Math.max(1.0, (double) sampledReadCount * targetShardSize / Math.max(1, intervalsLength));
+
+        final List<ShardBoundary> result = new ArrayList<>();
+        for (final SimpleInterval interval : intervals) {
+            result.addAll(divideIntervalByReadDensity(interval, sampledReadCountsByBin, targetReads, minShardSize, maxShardSize, shardPadding, dictionary));
+        }
+        logger.info(String.format("Divided the intervals into %d shards based on %d sampled reads", result.size(), sampledReadCount));
+        return result;
+    }
+
+    /**
+     * Divides an interval into shards given the number of reads that start within each bin.
+     *
+     * @param interval the interval to divide.
+     * @param readCountsByBin read counts of bins of {@code minShardSize} bases, keyed by {@link #binKey}; bins
+     *                        without reads may be absent.
+     * @param targetReads number of reads to put into each shard.
+     * @param minShardSize minimum size of a shard, except for those at the ends of the interval; also the bin size.
+     * @param maxShardSize maximum size of a shard.
+     * @param shardPadding number of bases to pad each shard with on each side.
+     * @param dictionary the sequence dictionary.
+     * @return never {@code null}.
+     */
+    static List<ShardBoundary> divideIntervalByReadDensity(final SimpleInterval interval, final Map<Long, Long> readCountsByBin,
+                                                           final double targetReads, final int minShardSize, final int maxShardSize,
+                                                           final int shardPadding, final SAMSequenceDictionary dictionary) {
+        final int contigIndex = dictionary.getSequenceIndex(interval.getContig());
+        Utils.validateArg(contigIndex >= 0, () -> "unknown contig " + interval.getContig());
+        final List<ShardBoundary> result = new ArrayList<>();
+        int shardStart = interval.getStart();
+        double shardReads = 0;
+        int pieceStart = interval.getStart();
+        while (pieceStart <= interval.getEnd()) {
+            // pieces are the intersections of the interval with bins.
+            final int bin = (pieceStart - 1) / minShardSize;
+            final int pieceEnd = Math.min(interval.getEnd(), (bin + 1) * minShardSize);
+            final double pieceReads = readCountsByBin.getOrDefault(binKey(contigIndex, bin), 0L)
+                    * (double) (pieceEnd - pieceStart + 1) / minShardSize;
+            final int shardSize = pieceStart - shardStart;
+            if (shardSize > 0 && (shardReads + pieceReads > targetReads || shardSize + pieceEnd - pieceStart + 1 > maxShardSize)) {
+                result.add(shardBoundary(interval.getContig(), shardStart, pieceStart - 1, shardPadding, dictionary));
+                shardStart = pieceStart;
+                shardReads = 0;
+            }
+            shardReads += pieceReads;
+            pieceStart = pieceEnd + 1;
+        }
+        result.add(shardBoundary(interval.getContig(), shardStart, interval.getEnd(), shardPadding, dictionary));
+        return result;
+    }
+
+    private static ShardBoundary shardBoundary(final String contig, final int start, final int end, final int shardPadding,
+                                               final SAMSequenceDictionary dictionary) {
+        final SimpleInterval shardInterval = new SimpleInterval(contig, start, end);
+        return new ShardBoundary(shardInterval, shardInterval.expandWithinContig(shardPadding, dictionary));
+    }
+
+    /**
+     * Returns the key of a bin in the read count maps.
+     */
+    static long binKey(final int contigIndex, final int bin) {
+        return ((long) contigIndex << 32) | bin;
+    }
+}
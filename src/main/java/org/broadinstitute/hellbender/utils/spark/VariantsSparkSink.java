@@ -0,0 +1,233 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.Tribble;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.index.tabix.TabixUtils;
+import htsjdk.tribble.util.LittleEndianOutputStream;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.broadcast.Broadcast;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes an RDD of variants into a single sorted and indexed VCF file without collecting them in the driver.
+ * <p>
+ *     Variants are range-partitioned and sorted by contig and start position in a single shuffle. Each partition is
+ *     then streamed by its executor into a block-compressed part file with no header. Finally the driver writes the header, concatenates the parts into the output file and
+ *     indexes it, so that the driver never holds more than a buffer of the output in memory.
+ * </p>
+ * <p>
+ *     The output is block-compressed and indexed with a tabix index if its name has a block-compressed extension
+ *     (e.g. {@code .vcf.gz}), otherwise it is plain text with a Tribble index.
+ * </p>
+ */
+public final class VariantsSparkSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] TERMINATOR = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK;
+
+    private VariantsSparkSink() {}
+
+    /**
+     * Writes variants into a single sorted VCF file.
+     *
+     * @param ctx the spark context.
+     * @param output the output VCF file, must be a local file.
+     * @param partsPathPrefix prefix of the part file paths; it must be accessible both by the executors and the driver.
+     * @param variants the variants to write, in any order.
+     * @param header the output VCF header; its sequence dictionary determines the output order.
+     * @param writerDecorator transforms the VCF writer of the header and of each part before records are written into it,
+     *                        e.g. into a GVCF writer. Part writers have their header already set.
+     */
+    public static void writeVariants(final JavaSparkContext ctx, final String output, final String partsPathPrefix,
+                                     final JavaRDD<VariantContext> variants, final VCFHeader header,
+                                     final Function<VariantContextWriter, VariantContextWriter> writerDecorator) {
+        Utils.nonNull(ctx, "the spark context cannot be null");
+        Utils.nonNull(output, "the output cannot be null");
+        Utils.nonNull(partsPathPrefix, "the parts path prefix cannot be null");
+        Utils.nonNull(variants, "the variants cannot be null");
+        Utils.nonNull(header, "the header cannot be null");
+        Utils.nonNull(writerDecorator, "the writer decorator cannot be null");
+        final SAMSequenceDictionary dictionary = Utils.nonNull(header.getSequenceDictionary(), "the header must have a sequence dictionary");
+
+        final Broadcast<VCFHeader> headerBroadcast = ctx.broadcast(header);
+        final List<String> parts = variants
+                .sortBy(vc -> sortKey(vc, dictionary), true, variants.getNumPartitions())
+                .mapPartitionsWithIndex((index, partition) ->
+                        writePart(partition, partPath(partsPathPrefix, index), headerBroadcast.getValue(), dictionary, writerDecorator), false)
+                .collect();
+
+        final File outputFile = new File(output);
+        final boolean blockCompressed = AbstractFeatureReader.hasBlockCompressedExtension(outputFile.getName());
+        try {
+            concatenateParts(outputFile, blockCompressed, headerBytes(header, writerDecorator), parts);
+            for (final String part : parts) {
+                BucketUtils.deleteFile(part);
+            }
+            writeIndex(outputFile, blockCompressed);
+        } catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(outputFile, "could not write the variants", ex);
+        }
+    }
+
+    /**
+     * Returns a key that sorts variants by contig, in the order of the dictionary, and start position.
+     */
+    private static long sortKey(final VariantContext vc, final SAMSequenceDictionary dictionary) {
+        final int contigIndex = dictionary.getSequenceIndex(vc.getContig());
+        if (contigIndex < 0) {
+            throw new GATKException(String.format("the variant at %s:%d is on a contig that is not in the sequence dictionary", vc.getContig(), vc.getStart()));
+        }
+        return ((long) contigIndex << 32) | vc.getStart();
+    }
+
+    private static String partPath(final String partsPathPrefix, final int index) {
+        return String.format("%s.part-%05d", partsPathPrefix, index);
+    }
+
+    /**
+     * Writes the variants of a partition, that are already sorted, into a block-compressed part file without header.
+     * @return the path of the part file, or nothing if the partition is empty.
+     */
+    private static Iterator<String> writePart(final Iterator<VariantContext> partition, final String path, final VCFHeader header,
+                                              final SAMSequenceDictionary dictionary,
+                                              final Function<VariantContextWriter, VariantContextWriter> writerDecorator) throws Exception {
+        if (!partition.hasNext()) {
+            return Collections.emptyIterator();
+        }
+        final VariantContextWriter vcfWriter = new VariantContextWriterBuilder()
+                .setOutputStream(new BlockCompressedOutputStream(BucketUtils.createFile(path), null))
+                .unsetOption(Options.INDEX_ON_THE_FLY)
+                .build();
+        vcfWriter.setHeader(header);
+        try (final VariantContextWriter writer = writerDecorator.call(vcfWriter)) {
+            long previousKey = Long.MIN_VALUE;
+            while (partition.hasNext()) {
+                final VariantContext vc = partition.next();
+                final long key = sortKey(vc, dictionary);
+                if (key < previousKey) {
+                    throw new GATKException(String.format("the variant at %s:%d is out of order in part %s", vc.getContig(), vc.getStart(), path));
+                }
+                previousKey = key;
+                writer.add(vc);
+            }
+        }
+        return Collections.singletonList(path).iterator();
+    }
+
+    /**
+     * Returns the header as written by a decorated writer.
+     */
+    private static byte[] headerBytes(final VCFHeader header, final Function<VariantContextWriter, VariantContextWriter> writerDecorator) {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final VariantContextWriter vcfWriter = new VariantContextWriterBuilder()
+                .setOutputStream(result)
+                .unsetOption(Options.INDEX_ON_THE_FLY)
+                .build();
+        try (final VariantContextWriter writer = writerDecorator.call(vcfWriter)) {
+            writer.writeHeader(header);
+        } catch (final Exception ex) {
+            throw new GATKException("could not create the VCF header writer", ex);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Writes the header followed by the content of the parts into the output file.
+     * <p>
+     *     When the output is block-compressed, the compressed blocks of the parts are copied as they are, save for their
+     *     terminator block, so that the part content is never decompressed.
+     * </p>
+     */
+    private static void concatenateParts(final File outputFile, final boolean blockCompressed, final byte[] header,
+                                         final List<String> parts) throws IOException {
+        try (final OutputStream output = new BufferedOutputStream(new FileOutputStream(outputFile), BUFFER_SIZE)) {
+            if (blockCompressed) {
+                final ByteArrayOutputStream compressedHeader = new ByteArrayOutputStream();
+                try (final BlockCompressedOutputStream headerOutput = new BlockCompressedOutputStream(compressedHeader, null)) {
+                    headerOutput.write(header);
+                }
+                copyWithoutTerminator(new ByteArrayInputStream(compressedHeader.toByteArray()), output);
+                for (final String part : parts) {
+                    try (final InputStream input = BucketUtils.openFile(part)) {
+                        copyWithoutTerminator(input, output);
+                    }
+                }
+                output.write(TERMINATOR);
+            } else {
+                output.write(header);
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                for (final String part : parts) {
+                    try (final InputStream input = new BlockCompressedInputStream(BucketUtils.openFile(part))) {
+                        int length;
+                        while ((length = input.read(buffer)) >= 0) {
+                            output.write(buffer, 0, length);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a block-compressed stream leaving out its final terminator block, if present.
+     */
+    private static void copyWithoutTerminator(final InputStream input, final OutputStream output) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE + TERMINATOR.length];
+        // the last bytes read are held back until we know they are not the terminator.
+        int pending = 0;
+        int length;
+        while ((length = input.read(buffer, pending, buffer.length - pending)) >= 0) {
+            pending += length;
+            if (pending > TERMINATOR.length) {
+                output.write(buffer, 0, pending - TERMINATOR.length);
+                System.arraycopy(buffer, pending - TERMINATOR.length, buffer, 0, TERMINATOR.length);
+                pending = TERMINATOR.length;
+            }
+        }
+        if (!Arrays.equals(Arrays.copyOf(buffer, pending), TERMINATOR)) {
+            output.write(buffer, 0, pending);
+        }
+    }
+
+    /**
+     * Indexes the output file by reading it sequentially.
+     */
+    private static void writeIndex(final File outputFile, final boolean blockCompressed) throws IOException {
+        if (blockCompressed) {
+            final Index index = IndexFactory.createIndex(outputFile, new VCFCodec(), IndexFactory.IndexType.TABIX);
+            final File indexFile = new File(outputFile.getPath() + TabixUtils.STANDARD_INDEX_EXTENSION);
+            try (final LittleEndianOutputStream indexOutput = new LittleEndianOutputStream(new BlockCompressedOutputStream(indexFile))) {
+                index.write(indexOutput);
+            }
+        } else {
+            final Index index = IndexFactory.createDynamicIndex(outputFile, new VCFCodec());
+            try (final LittleEndianOutputStream indexOutput = new LittleEndianOutputStream(new BufferedOutputStream(new FileOutputStream(Tribble.indexFile(outputFile))))) {
+                index.write(indexOutput);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.broadinstitute.hellbender.utils.svd;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.util.FastMath;
+import org.apache.commons.math3.util.Precision;
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * {@link SVD} given by its factors {@code U S V^T}, where {@code U} and {@code V} have orthonormal columns, typically
+ * fewer than the dimensions of the decomposed matrix.
+ *
+ * <p>
+ *     {@link #update} computes the factors of a low-rank modification of the decomposed matrix, {@code U S V^T + X Y^T},
+ *     without reconstructing it, following Brand, "Fast low-rank modifications of the thin singular value
+ *     decomposition" (Linear Algebra and its Applications 415, 2006). Appending columns or rows to the matrix is the
+ *     special case where {@code V} or {@code U} have been padded with rows of zeros and {@code Y} or {@code X} contains
+ *     an identity block.
+ * </p>
+ */
+public final class LowRankSVD implements SVD {
+
+    /**
+     * A column whose norm drops below this fraction of its original norm when orthogonalized against the previous ones
+     * is considered linearly dependent on them.
+     */
+    private static final double RANK_TOLERANCE = 1e-12;
+
+    private final RealMatrix u;
+    private final double[] singularValues;
+    private final RealMatrix v;
+    private RealMatrix pinv;
+
+    /**
+     * Creates the SVD from its factors.
+     *
+     * @param u the left singular vectors as the columns of a rows x rank matrix, never {@code null}.
+     * @param singularValues the rank singular values in decreasing order, never {@code null}.
+     * @param v the right singular vectors as the columns of a columns x rank matrix, never {@code null}.
+     */
+    public LowRankSVD(final RealMatrix u, final double[] singularValues, final RealMatrix v) {
+        Utils.nonNull(u, "U cannot be null.");
+        Utils.nonNull(singularValues, "The singular values cannot be null.");
+        Utils.nonNull(v, "V cannot be null.");
+        Utils.validateArg(u.getColumnDimension() == singularValues.length && v.getColumnDimension() == singularValues.length,
+                "U and V must have as many columns as there are singular values.");
+        this.u = u;
+        this.singularValues = singularValues;
+        this.v = v;
+    }
+
+    @Override
+    public RealMatrix getU() {
+        return u;
+    }
+
+    @Override
+    public RealMatrix getV() {
+        return v;
+    }
+
+    @Override
+    public double[] getSingularValues() {
+        return singularValues;
+    }
+
+    /**
+     * Returns the pseudo-inverse {@code V S^+ U^T}, a columns x rows matrix.
+     */
+    @Override
+    public synchronized RealMatrix getPinv() {
+        if (pinv == null) {
+            pinv = pseudoInverse(u, singularValues, v);
+        }
+        return pinv;
+    }
+
+    /**
+     * Computes the SVD of {@code U S V^T + X Y^T}, truncated to its leading singular values.
+     *
+     * <p>
+     *     The cost is {@code O((m + n) (k + r)^2)} for an {@code m x n} matrix of rank {@code k} and an update of
+     *     rank {@code r}, independent of the rank of the full matrix that {@code U S V^T} may approximate.
+     * </p>
+     *
+     * @param x a rows x r matrix, never {@code null}.
+     * @param y a columns x r matrix, never {@code null}.
+     * @param rank the number of singular values and vectors to keep, in [1, k + r].
+     * @return never {@code null}.
+     */
+    public LowRankSVD update(final RealMatrix x, final RealMatrix y, final int rank) {
+        Utils.nonNull(x, "X cannot be null.");
+        Utils.nonNull(y, "Y cannot be null.");
+        Utils.validateArg(x.getRowDimension() == u.getRowDimension(), "X must have as many rows as U.");
+        Utils.validateArg(y.getRowDimension() == v.getRowDimension(), "Y must have as many rows as V.");
+        Utils.validateArg(x.getColumnDimension() == y.getColumnDimension(), "X and Y must have the same number of columns.");
+        Utils.validateArg(x.getColumnDimension() > 0, "The update must have at least one column.");
+        final int k = singularValues.length;
+        final int r = x.getColumnDimension();
+        Utils.validateArg(rank > 0 && rank <= k + r, () -> String.format("The rank (%d) must be in [1, %d].", rank, k + r));
+
+        // X = U (U^T X) + P Ra and Y = V (V^T Y) + Q Rb, with P and Q orthonormal and orthogonal to U and V respectively
+        final RealMatrix uTx = u.transpose().multiply(x);
+        final RealMatrix xResidual = x.subtract(u.multiply(uTx));
+        final RealMatrix p = new Array2DRowRealMatrix(orthonormalizeColumns(xResidual.getData()), false);
+        final RealMatrix ra = p.transpose().multiply(xResidual);
+        final RealMatrix vTy = v.transpose().multiply(y);
+        final RealMatrix yResidual = y.subtract(v.multiply(vTy));
+        final RealMatrix q = new Array2DRowRealMatrix(orthonormalizeColumns(yResidual.getData()), false);
+        final RealMatrix rb = q.transpose().multiply(yResidual);
+
+        // U S V^T + X Y^T = [U P] K [V Q]^T with K = [S 0; 0 0] + [U^T X; Ra] [V^T Y; Rb]^T
+        final RealMatrix k1 = stackRows(uTx, ra);
+        final RealMatrix k2 = stackRows(vTy, rb);
+        final RealMatrix kernel = k1.multiply(k2.transpose());
+        for (int i = 0; i < k; i++) {
+            kernel.addToEntry(i, i, singularValues[i]);
+        }
+        final SingularValueDecomposition kernelSVD = new SingularValueDecomposition(kernel);
+
+        final double[] updatedSingularValues = new double[rank];
+        System.arraycopy(kernelSVD.getSingularValues(), 0, updatedSingularValues, 0, rank);
+        final RealMatrix updatedU = concatenateColumns(u, p).multiply(kernelSVD.getU().getSubMatrix(0, k + r - 1, 0, rank - 1));
+        final RealMatrix updatedV = concatenateColumns(v, q).multiply(kernelSVD.getV().getSubMatrix(0, k + r - 1, 0, rank - 1));
+        return new LowRankSVD(updatedU, updatedSingularValues, updatedV);
+    }
+
+    /**
+     * Returns {@code V S^+ U^T}, excluding singular values deemed zero within numerical precision as
+     * Apache Commons Math does.
+     */
+    static RealMatrix pseudoInverse(final RealMatrix u, final double[] singularValues, final RealMatrix v) {
+        final double largest = singularValues.length == 0 ? 0 : singularValues[0];
+        final double tolerance = FastMath.max(Math.max(u.getRowDimension(), v.getRowDimension()) * largest * Precision.EPSILON,
+                FastMath.sqrt(Precision.SAFE_MIN));
+        final RealMatrix scaledV = v.copy();
+        for (int j = 0; j < singularValues.length; j++) {
+            scaledV.setColumnVector(j, scaledV.getColumnVector(j).mapMultiply(singularValues[j] > tolerance ? 1 / singularValues[j] : 0));
+        }
+        return scaledV.multiply(u.transpose());
+    }
+
+    /**
+     * Orthonormalizes the columns of a matrix in place by modified Gram-Schmidt with one round of re-orthogonalization.
+     * Columns that are linearly dependent on the previous ones are set to zero.
+     *
+     * @return {@code x}.
+     */
+    static double[][] orthonormalizeColumns(final double[][] x) {
+        final int numRows = x.length;
+        final int numColumns = numRows == 0 ? 0 : x[0].length;
+        for (int j = 0; j < numColumns; j++) {
+            final double originalNorm = columnNorm(x, j);
+            for (int pass = 0; pass < 2; pass++) {
+                for (int k = 0; k < j; k++) {
+                    double dot = 0;
+                    for (final double[] row : x) {
+                        dot += row[k] * row[j];
+                    }
+                    for (final double[] row : x) {
+                        row[j] -= dot * row[k];
+                    }
+                }
+            }
+            final double norm = columnNorm(x, j);
+            final double scale = norm > RANK_TOLERANCE * originalNorm ? 1 / norm : 0;
+            for (int i = 0; i < numRows; i++) {
+                x[i][j] *= scale;
+            }
+        }
+        return x;
+    }
+
+    private static double columnNorm(final double[][] x, final int column) {
+        double sum = 0;
+        for (final double[] row : x) {
+            sum += row[column] * row[column];
+        }
+        return FastMath.sqrt(sum);
+    }
+
+    private static RealMatrix stackRows(final RealMatrix top, final RealMatrix bottom) {
+        final RealMatrix result = new Array2DRowRealMatrix(top.getRowDimension() + bottom.getRowDimension(), top.getColumnDimension());
+        result.setSubMatrix(top.getData(), 0, 0);
+        result.setSubMatrix(bottom.getData(), top.getRowDimension(), 0);
+        return result;
+    }
+
+    private static RealMatrix concatenateColumns(final RealMatrix left, final RealMatrix right) {
+        final RealMatrix result = new Array2DRowRealMatrix(left.getRowDimension(), left.getColumnDimension() + right.getColumnDimension());
+        result.setSubMatrix(left.getData(), 0, 0);
+        result.setSubMatrix(right.getData(), 0, left.getColumnDimension());
+        return result;
+    }
+}
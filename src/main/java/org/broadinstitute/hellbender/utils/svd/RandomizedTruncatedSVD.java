@@ -0,0 +1,365 @@
+package org.broadinstitute.hellbender.utils.svd;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.util.FastMath;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Truncated {@link SVD} computed with a randomized range finder followed by subspace (power) iterations, as described
+ * by Halko, Martinsson and Tropp in "Finding structure with randomness" (SIAM Review 53, 2011).
+ *
+ * <p>
+ *     Only the leading {@code k} singular values and vectors of an {@code m x n} matrix {@code A} are computed.
+ *     {@code A} is only ever used in products with thin matrices of {@code l = k + p} columns, {@code p} being the
+ *     oversampling, and these products are evaluated one block of rows at a time, either locally or as Spark tasks
+ *     over an RDD of row blocks. Besides the input itself, memory is then {@code O((m + n) l)} rather than the
+ *     {@code O(m n)} of a full decomposition, and the only dense decomposition left is that of an {@code n x l} matrix.
+ * </p>
+ * <p>
+ *     On Spark, the input is broadcast once and each executor cuts its blocks of rows out of its own copy, so the
+ *     driver only holds the serialized broadcast, that can spill to disk, next to the input.
+ * </p>
+ * <p>
+ *     The pseudo-inverse returned by {@link #getPinv()} is that of the rank-{@code k} approximation {@code U S V^T}, not
+ *     that of {@code A}. {@link #getRelativeApproximationError()} tells how far the approximation is from {@code A}.
+ * </p>
+ */
+public final class RandomizedTruncatedSVD implements SVD {
+
+    public static final int DEFAULT_OVERSAMPLING = 10;
+
+    public static final int DEFAULT_NUMBER_OF_POWER_ITERATIONS = 2;
+
+    /**
+     * Approximate number of matrix entries in each block of rows.
+     */
+    private static final int ENTRIES_PER_BLOCK = 1 << 20;
+
+    private final RealMatrix u;
+    private final double[] singularValues;
+    private final RealMatrix v;
+    private final double relativeApproximationError;
+    private RealMatrix pinv;
+
+    private RandomizedTruncatedSVD(final RealMatrix u, final double[] singularValues, final RealMatrix v,
+                                   final double relativeApproximationError) {
+        this.u = u;
+        this.singularValues = singularValues;
+        this.v = v;
+        this.relativeApproximationError = relativeApproximationError;
+    }
+
+    /**
+     * Computes the truncated SVD of a matrix.
+     *
+     * @param m the input matrix, never {@code null}.
+     * @param rank number of singular values and vectors to compute, in [1, min(rows, columns)].
+     * @param oversampling number of extra random directions used to sample the range of {@code m}; a few are enough
+     *                     for the leading singular vectors to be captured with high probability.
+     * @param numberOfPowerIterations number of passes of subspace iteration, which improve accuracy when the singular
+     *                                values of {@code m} decay slowly, at the cost of two products with {@code m} each.
+     * @param rng source of the random directions, never {@code null}.
+     * @param ctx if {@code null}, the products with {@code m} are computed locally, otherwise on Spark.
+     * @return never {@code null}.
+     */
+    public static RandomizedTruncatedSVD create(final RealMatrix m, final int rank, final int oversampling,
+                                                final int numberOfPowerIterations, final RandomGenerator rng,
+                                                final JavaSparkContext ctx) {
+        Utils.nonNull(m, "Cannot perform SVD on a null.");
+        Utils.nonNull(rng, "The random generator cannot be null.");
+        final int numRows = m.getRowDimension();
+        final int numColumns = m.getColumnDimension();
+        Utils.validateArg(rank > 0 && rank <= Math.min(numRows, numColumns),
+                () -> String.format("The rank (%d) must be in [1, %d].", rank, Math.min(numRows, numColumns)));
+        ParamUtils.isPositiveOrZero(oversampling, "The oversampling cannot be negative.");
+        ParamUtils.isPositiveOrZero(numberOfPowerIterations, "The number of power iterations cannot be negative.");
+
+        final int numSamples = Math.min(rank + oversampling, Math.min(numRows, numColumns));
+        final RowBlocks blocks = ctx == null ? new LocalRowBlocks(m) : new SparkRowBlocks(m, ctx);
+        try {
+            final double[][] omega = new double[numColumns][numSamples];
+            for (final double[] row : omega) {
+                for (int j = 0; j < numSamples; j++) {
+                    row[j] = rng.nextGaussian();
+                }
+            }
+
+            // range finder: Q spans the range of (A A^T)^q A Omega
+            double[][] q = LowRankSVD.orthonormalizeColumns(blocks.multiply(omega));
+            for (int i = 0; i < numberOfPowerIterations; i++) {
+                q = LowRankSVD.orthonormalizeColumns(blocks.multiply(LowRankSVD.orthonormalizeColumns(blocks.transposeMultiply(q))));
+            }
+
+            // A ~ Q Q^T A = Q Z^T with Z = A^T Q, hence with Z = Uz Sz Vz^T, A ~ (Q Vz) Sz Uz^T
+            final SingularValueDecomposition zSVD =
+                    new SingularValueDecomposition(new Array2DRowRealMatrix(blocks.transposeMultiply(q), false));
+            final double[] singularValues = new double[rank];
+            System.arraycopy(zSVD.getSingularValues(), 0, singularValues, 0, rank);
+            final RealMatrix v = zSVD.getU().getSubMatrix(0, numColumns - 1, 0, rank - 1);
+            final RealMatrix u = new Array2DRowRealMatrix(q, false)
+                    .multiply(zSVD.getV().getSubMatrix(0, numSamples - 1, 0, rank - 1));
+
+            // U S V^T is the orthogonal projection of A onto the span of U, so the squared norm of the residual is
+            // that of A minus the sum of the squared singular values that were kept.
+            final double frobeniusNormSquared = blocks.frobeniusNormSquared();
+            double keptNormSquared = 0;
+            for (final double value : singularValues) {
+                keptNormSquared += value * value;
+            }
+            final double relativeApproximationError = frobeniusNormSquared == 0 ? 0
+                    : FastMath.sqrt(Math.max(0, frobeniusNormSquared - keptNormSquared) / frobeniusNormSquared);
+            return new RandomizedTruncatedSVD(u, singularValues, v, relativeApproximationError);
+        } finally {
+            blocks.close();
+        }
+    }
+
+    /**
+     * Returns the left singular vectors as the columns of a rows x rank matrix.
+     */
+    @Override
+    public RealMatrix getU() {
+        return u;
+    }
+
+    /**
+     * Returns the right singular vectors as the columns of a columns x rank matrix.
+     */
+    @Override
+    public RealMatrix getV() {
+        return v;
+    }
+
+    /**
+     * Returns the leading rank singular values, in decreasing order.
+     */
+    @Override
+    public double[] getSingularValues() {
+        return singularValues;
+    }
+
+    /**
+     * Returns the pseudo-inverse {@code V S^+ U^T} of the rank-k approximation, a columns x rows matrix.
+     * <p>
+     *     Singular values deemed zero within numerical precision are excluded, as in Apache Commons Math.
+     * </p>
+     */
+    @Override
+    public synchronized RealMatrix getPinv() {
+        if (pinv == null) {
+            pinv = LowRankSVD.pseudoInverse(u, singularValues, v);
+        }
+        return pinv;
+    }
+
+    /**
+     * Returns the Frobenius norm of {@code A - U S V^T} relative to that of {@code A}, where {@code A} is the input.
+     * It is zero if the input is exactly of the requested rank or less.
+     */
+    public double getRelativeApproximationError() {
+        return relativeApproximationError;
+    }
+
+    /**
+     * Returns the product of a block of rows of the input with a thin matrix.
+     */
+    private static double[][] multiplyRows(final double[][] rows, final double[][] x) {
+        final int width = x[0].length;
+        final double[][] result = new double[rows.length][width];
+        for (int i = 0; i < rows.length; i++) {
+            final double[] row = rows[i];
+            final double[] resultRow = result[i];
+            for (int k = 0; k < row.length; k++) {
+                final double value = row[k];
+                final double[] xRow = x[k];
+                for (int j = 0; j < width; j++) {
+                    resultRow[j] += value * xRow[j];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the product of the transpose of a block of rows of the input, starting at {@code firstRow}, with the
+     * corresponding rows of a thin matrix.
+     */
+    private static double[][] addTransposeMultiplyRows(final double[][] rows, final int firstRow, final double[][] y,
+                                                       final double[][] result) {
+        final int width = y[0].length;
+        for (int i = 0; i < rows.length; i++) {
+            final double[] row = rows[i];
+            final double[] yRow = y[firstRow + i];
+            for (int k = 0; k < row.length; k++) {
+                final double value = row[k];
+                final double[] resultRow = result[k];
+                for (int j = 0; j < width; j++) {
+                    resultRow[j] += value * yRow[j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double sumOfSquares(final double[][] rows) {
+        double sum = 0;
+        for (final double[] row : rows) {
+            for (final double value : row) {
+                sum += value * value;
+            }
+        }
+        return sum;
+    }
+
+    private static double[][] add(final double[][] a, final double[][] b) {
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a[i].length; j++) {
+                a[i][j] += b[i][j];
+            }
+        }
+        return a;
+    }
+
+    private static int rowsPerBlock(final RealMatrix m) {
+        return Math.max(1, ENTRIES_PER_BLOCK / m.getColumnDimension());
+    }
+
+    /**
+     * Products of the input matrix, streamed in blocks of rows, with thin dense matrices.
+     */
+    private interface RowBlocks extends AutoCloseable {
+
+        /**
+         * Returns {@code A X} for a columns x l matrix {@code X}.
+         */
+        double[][] multiply(final double[][] x);
+
+        /**
+         * Returns {@code A^T Y} for a rows x l matrix {@code Y}.
+         */
+        double[][] transposeMultiply(final double[][] y);
+
+        double frobeniusNormSquared();
+
+        @Override
+        default void close() {}
+    }
+
+    private static final class LocalRowBlocks implements RowBlocks {
+        private final RealMatrix m;
+        private final int rowsPerBlock;
+
+        private LocalRowBlocks(final RealMatrix m) {
+            this.m = m;
+            this.rowsPerBlock = rowsPerBlock(m);
+        }
+
+        private double[][] block(final int firstRow) {
+            final int lastRow = Math.min(firstRow + rowsPerBlock, m.getRowDimension()) - 1;
+            return m.getSubMatrix(firstRow, lastRow, 0, m.getColumnDimension() - 1).getData();
+        }
+
+        @Override
+        public double[][] multiply(final double[][] x) {
+            final double[][] result = new double[m.getRowDimension()][];
+            for (int firstRow = 0; firstRow < m.getRowDimension(); firstRow += rowsPerBlock) {
+                final double[][] product = multiplyRows(block(firstRow), x);
+                System.arraycopy(product, 0, result, firstRow, product.length);
+            }
+            return result;
+        }
+
+        @Override
+        public double[][] transposeMultiply(final double[][] y) {
+            final double[][] result = new double[m.getColumnDimension()][y[0].length];
+            for (int firstRow = 0; firstRow < m.getRowDimension(); firstRow += rowsPerBlock) {
+                addTransposeMultiplyRows(block(firstRow), firstRow, y, result);
+            }
+            return result;
+        }
+
+        @Override
+        public double frobeniusNormSquared() {
+            double sum = 0;
+            for (int firstRow = 0; firstRow < m.getRowDimension(); firstRow += rowsPerBlock) {
+                sum += sumOfSquares(block(firstRow));
+            }
+            return sum;
+        }
+    }
+
+    private static final class SparkRowBlocks implements RowBlocks {
+        private final JavaSparkContext ctx;
+        private final Broadcast<double[][]> rows;
+        private final JavaRDD<Tuple2<Integer, double[][]>> blocks;
+        private final int numRows;
+        private final int numColumns;
+
+        private SparkRowBlocks(final RealMatrix m, final JavaSparkContext ctx) {
+            this.ctx = ctx;
+            numRows = m.getRowDimension();
+            numColumns = m.getColumnDimension();
+            final int rowsPerBlock = rowsPerBlock(m);
+            final List<Integer> firstRows = new ArrayList<>();
+            for (int firstRow = 0; firstRow < numRows; firstRow += rowsPerBlock) {
+                firstRows.add(firstRow);
+            }
+            // only the first row of each block is parallelized; the blocks are views over the broadcast rows
+            // built by the executors, so they do not copy the row arrays
+            final Broadcast<double[][]> rows = ctx.broadcast(m instanceof Array2DRowRealMatrix ? ((Array2DRowRealMatrix) m).getDataRef() : m.getData());
+            final int numRows = this.numRows;
+            this.rows = rows;
+            blocks = ctx.parallelize(firstRows, Math.min(firstRows.size(), Math.max(1, ctx.defaultParallelism())))
+                    .map(firstRow -> new Tuple2<>(firstRow, Arrays.copyOfRange(rows.value(), firstRow, Math.min(firstRow + rowsPerBlock, numRows))))
+                    .cache();
+        }
+
+        @Override
+        public double[][] multiply(final double[][] x) {
+            final Broadcast<double[][]> broadcastX = ctx.broadcast(x);
+            final List<Tuple2<Integer, double[][]>> products =
+                    blocks.map(b -> new Tuple2<>(b._1(), multiplyRows(b._2(), broadcastX.value()))).collect();
+            broadcastX.destroy();
+            final double[][] result = new double[numRows][];
+            for (final Tuple2<Integer, double[][]> product : products) {
+                System.arraycopy(product._2(), 0, result, product._1(), product._2().length);
+            }
+            return result;
+        }
+
+        @Override
+        public double[][] transposeMultiply(final double[][] y) {
+            final Broadcast<double[][]> broadcastY = ctx.broadcast(y);
+            final int numColumns = this.numColumns;
+            final int width = y[0].length;
+            final double[][] result = blocks
+                    .map(b -> addTransposeMultiplyRows(b._2(), b._1(), broadcastY.value(), new double[numColumns][width]))
+                    .reduce(RandomizedTruncatedSVD::add);
+            broadcastY.destroy();
+            return result;
+        }
+
+        @Override
+        public double frobeniusNormSquared() {
+            return blocks.map(b -> sumOfSquares(b._2())).reduce(Double::sum);
+        }
+
+        @Override
+        public void close() {
+            blocks.unpersist();
+            rows.destroy();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package org.broadinstitute.hellbender.utils.svd;
 
 import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.random.RandomGeneratorFactory;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.utils.Utils;
 
+import java.util.Random;
+
 /**
  * Entry point for creating an instance of SVD.  When the object is created, all of the calculation will be done as well.
  */
 public final class SVDFactory {
 
+    private static final long TRUNCATED_SVD_SEED = 1337L;
+
     /**
      * Create a SVD instance using Apache Commons Math.
      *
@@ -34,4 +39,23 @@ public final class SVDFactory {
         }
         return new SparkSingularValueDecomposer(ctx).createSVD(m);
     }
+
+    /**
+     * Create a truncated SVD instance, with only the leading singular values and vectors, using
+     * {@link RandomizedTruncatedSVD} with its default oversampling and number of power iterations.
+     *
+     * <p>This is much cheaper than {@link #createSVD} when {@code rank} is small compared to the dimensions of
+     * {@code m}.  The random directions are drawn from a fixed seed, so the result is reproducible.</p>
+     *
+     * @param m matrix that is not {@code null}
+     * @param rank number of singular values and vectors to compute, in [1, min(rows, columns)]
+     * @param ctx JavaSparkContext.  {@code null} is allowed, in which case all calculations are done locally.
+     * @return SVD instance that is never {@code null}
+     */
+    public static RandomizedTruncatedSVD createTruncatedSVD(final RealMatrix m, final int rank, final JavaSparkContext ctx) {
+        Utils.nonNull(m, "Cannot create SVD from a null matrix.");
+        return RandomizedTruncatedSVD.create(m, rank, RandomizedTruncatedSVD.DEFAULT_OVERSAMPLING,
+                RandomizedTruncatedSVD.DEFAULT_NUMBER_OF_POWER_ITERATIONS,
+                RandomGeneratorFactory.createRandomGenerator(new Random(TRUNCATED_SVD_SEED)), ctx);
+    }
 }
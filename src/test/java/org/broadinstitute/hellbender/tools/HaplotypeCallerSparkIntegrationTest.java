@@ -15,13 +15,18 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeCalculation
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerArgumentCollection;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.broadinstitute.hellbender.utils.test.IntegrationTestSpec;
 import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerIntegrationTest;
 
@@ -60,6 +65,84 @@ public class HaplotypeCallerSparkIntegrationTest extends CommandLineProgramTest
         Assert.assertTrue(concordance >= 0.99, "Concordance with GATK 3.5 in VCF mode is < 99% (" +  concordance + ")");
     }
 
+    @Test
+    public void testVCFModeIsConcordantWithGATK3_5ResultsWithAssemblyRegionThreads() throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testVCFModeIsConcordantWithGATK3_5ResultsWithAssemblyRegionThreads", ".vcf");
+        final File gatk3Output = new File(TEST_FILES_DIR + "expected.testVCFMode.gatk3.5.vcf");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_2bit_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "-stand_call_conf", "30.0",
+                "-assemblyRegionThreads", "3"
+        };
+
+        runCommandLine(args);
+
+        final double concordance = HaplotypeCallerIntegrationTest.calculateConcordance(output, gatk3Output);
+        Assert.assertTrue(concordance >= 0.99, "Concordance with GATK 3.5 in VCF mode with several assembly region threads is < 99% (" +  concordance + ")");
+
+        // the calls must not depend on the number of threads.
+        Utils.resetRandomGenerator();
+        final File singleThreadOutput = createTempFile("testVCFModeIsConcordantWithGATK3_5ResultsWithOneAssemblyRegionThread", ".vcf");
+        args[args.length - 1] = "1";
+        args[Arrays.asList(args).indexOf("-O") + 1] = singleThreadOutput.getAbsolutePath();
+        runCommandLine(args);
+
+        IntegrationTestSpec.assertEqualTextFiles(output, singleThreadOutput, "#");
+    }
+
+    @Test
+    public void testAdaptiveReadShardsWithShardTimingOutput() throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testAdaptiveReadShardsWithShardTimingOutput", ".vcf");
+        final File shardTimingOutput = createTempFile("testAdaptiveReadShardsWithShardTimingOutput", ".tsv");
+        final File gatk3Output = new File(TEST_FILES_DIR + "expected.testVCFMode.gatk3.5.vcf");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_2bit_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "-stand_call_conf", "30.0",
+                "-adaptiveReadShards",
+                "-adaptiveReadShardsSampleFraction", "0.5",
+                "-shardTimingOutput", shardTimingOutput.getAbsolutePath()
+        };
+
+        runCommandLine(args);
+
+        final double concordance = HaplotypeCallerIntegrationTest.calculateConcordance(output, gatk3Output);
+        Assert.assertTrue(concordance >= 0.99, "Concordance with GATK 3.5 in VCF mode with adaptive read shards is < 99% (" +  concordance + ")");
+
+        final List<String> lines = Files.readAllLines(shardTimingOutput.toPath()).stream()
+                .filter(line -> !line.startsWith("#"))
+                .collect(Collectors.toList());
+        Assert.assertEquals(lines.get(0), "contig\tstart\tend\tassemblyRegions\tvariants\telapsedMillis");
+        Assert.assertTrue(lines.size() > 1, "no shard was timed");
+        long previousElapsedMillis = Long.MAX_VALUE;
+        for (final String line : lines.subList(1, lines.size())) {
+            final String[] fields = line.split("\t");
+            Assert.assertEquals(fields.length, 6);
+            Assert.assertEquals(fields[0], "20");
+            final int start = Integer.parseInt(fields[1]);
+            final int end = Integer.parseInt(fields[2]);
+            Assert.assertTrue(10000000 <= start && start <= end && end <= 10100000, "shard outside of the interval: " + line);
+            Assert.assertTrue(Integer.parseInt(fields[3]) > 0, "shard without assembly regions: " + line);
+            Assert.assertTrue(Integer.parseInt(fields[4]) >= 0);
+            final long elapsedMillis = Long.parseLong(fields[5]);
+            Assert.assertTrue(elapsedMillis <= previousElapsedMillis, "shards are not sorted slowest first");
+            previousElapsedMillis = elapsedMillis;
+        }
+    }
+
     /**
      * Test that in VCF mode we're >= 99% concordant with GATK3.5 results
      * THIS TEST explodes with an exception because Allele-Specific annotations are not supported in vcf mode yet.
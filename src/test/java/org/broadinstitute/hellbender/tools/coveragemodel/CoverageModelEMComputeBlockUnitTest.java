@@ -1,13 +1,22 @@
 package org.broadinstitute.hellbender.tools.coveragemodel;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import org.broadinstitute.hellbender.tools.coveragemodel.cachemanager.ComputableNodeFunction;
+import org.broadinstitute.hellbender.tools.coveragemodel.cachemanager.Duplicable;
+import org.broadinstitute.hellbender.tools.coveragemodel.cachemanager.DuplicableNDArray;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.testng.internal.junit.ArrayAsserts;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
 /**
  * Unit tests for {@link CoverageModelEMComputeBlock}
  *
@@ -64,6 +73,83 @@ public class CoverageModelEMComputeBlockUnitTest extends BaseTest {
                 cor.get(NDArrayIndex.all(), NDArrayIndex.interval(2, 3)));
     }
 
+    @Test
+    public void testSnapshotValuesRoundTrip() {
+        final int numSamples = 3;
+        final int numTargets = 4;
+        final LinearlySpacedIndexBlock targetBlock = new LinearlySpacedIndexBlock(0, numTargets, 0);
+        final INDArray n_st = Nd4j.rand(numSamples, numTargets);
+        final INDArray m_t = Nd4j.rand(1, numTargets);
+        final INDArray log_d_s = Nd4j.rand(numSamples, 1);
+        final CoverageModelEMComputeBlock block = new CoverageModelEMComputeBlock(targetBlock, numSamples, 0, false)
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.n_st, n_st)
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.m_t, m_t)
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.log_d_s, log_d_s);
+
+        /* data nodes and uninitialized nodes are not included */
+        final Map<String, INDArray> snapshotValues = block.getSnapshotValues();
+        Assert.assertEquals(snapshotValues.keySet().size(), 2);
+        assertNDArrayEquals(snapshotValues.get(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.m_t.name()), m_t);
+        assertNDArrayEquals(snapshotValues.get(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.log_d_s.name()), log_d_s);
+
+        final CoverageModelEMComputeBlock restoredBlock = new CoverageModelEMComputeBlock(targetBlock, numSamples, 0, false)
+                .cloneWithRestoredSnapshotValues(snapshotValues);
+        assertNDArrayEquals(restoredBlock.getINDArrayFromCache(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.m_t), m_t);
+        assertNDArrayEquals(restoredBlock.getINDArrayFromCache(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.log_d_s), log_d_s);
+    }
+
+    @Test
+    public void testKryoSerializationRoundTrip() {
+        final int numSamples = 3;
+        final int numTargets = 4;
+        final LinearlySpacedIndexBlock targetBlock = new LinearlySpacedIndexBlock(4, 4 + numTargets, 1);
+        final INDArray n_st = Nd4j.rand(numSamples, numTargets);
+        final INDArray m_t = Nd4j.rand(1, numTargets);
+        final INDArray log_d_s = Nd4j.rand(numSamples, 1);
+        final CoverageModelEMComputeBlock block = new CoverageModelEMComputeBlock(targetBlock, numSamples, 0, false)
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.n_st, n_st)
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.m_t,
+                        m_t.get(NDArrayIndex.all(), NDArrayIndex.all())) /* a view */
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.log_d_s, log_d_s);
+
+        final CoverageModelEMComputeBlock deserializedBlock = kryoRoundTrip(block);
+
+        Assert.assertEquals(deserializedBlock.getTargetSpaceBlock(), targetBlock);
+        Assert.assertEquals(deserializedBlock.getTargetSpaceBlock().hashCode(), targetBlock.hashCode());
+        Assert.assertEquals(deserializedBlock.getNumSamples(), numSamples);
+        Assert.assertEquals(deserializedBlock.getNumLatents(), 0);
+        Assert.assertEquals(deserializedBlock.getStoredValues().keySet(), block.getStoredValues().keySet());
+        assertNDArrayEquals(deserializedBlock.getINDArrayFromCache(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.n_st), n_st);
+        assertNDArrayEquals(deserializedBlock.getINDArrayFromCache(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.m_t), m_t);
+        assertNDArrayEquals(deserializedBlock.getINDArrayFromCache(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.log_d_s), log_d_s);
+
+        /* the current caches of computable nodes are written and restored as current */
+        final CoverageModelEMComputeBlock evaluatedBlock = block
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.M_st, Nd4j.ones(numSamples, numTargets))
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.Psi_t, Nd4j.rand(1, numTargets))
+                .cloneWithUpdatedPrimitive(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.gamma_s, Nd4j.rand(numSamples, 1))
+                .cloneWithUpdatedCachesByTag(CoverageModelEMComputeBlock.CoverageModelICGCacheTag.E_STEP_D);
+        final Map<String, Duplicable> storedValues = evaluatedBlock.getStoredValues();
+        Assert.assertTrue(storedValues.containsKey(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.log_n_st.name()));
+        Assert.assertTrue(storedValues.containsKey(CoverageModelEMComputeBlock.CoverageModelICGCacheNode.M_Psi_inv_st.name()));
+
+        final Map<String, Duplicable> deserializedStoredValues = kryoRoundTrip(evaluatedBlock).getStoredValues();
+        Assert.assertEquals(deserializedStoredValues.keySet(), storedValues.keySet());
+        for (final String nodeKey : storedValues.keySet()) {
+            assertNDArrayEquals(DuplicableNDArray.of(deserializedStoredValues.get(nodeKey)), DuplicableNDArray.of(storedValues.get(nodeKey)));
+        }
+    }
+
+    private static CoverageModelEMComputeBlock kryoRoundTrip(final CoverageModelEMComputeBlock block) {
+        final Kryo kryo = new Kryo();
+        new CoverageModelKryoRegistrator().registerClasses(kryo);
+        final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        final Output output = new Output(byteStream);
+        kryo.writeObject(output, block);
+        output.close();
+        return kryo.readObject(new Input(byteStream.toByteArray()), CoverageModelEMComputeBlock.class);
+    }
+
     private void assertNDArrayEquals(final INDArray arr1, final INDArray arr2) {
         ArrayAsserts.assertArrayEquals(arr1.dup().data().asDouble(), arr2.dup().data().asDouble(), EPSILON);
     }
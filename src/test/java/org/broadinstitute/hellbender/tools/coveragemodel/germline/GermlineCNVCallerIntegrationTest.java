@@ -21,6 +21,7 @@ import org.broadinstitute.hellbender.tools.exome.sexgenotyper.SexGenotypeDataCol
 import org.broadinstitute.hellbender.utils.SparkToggleCommandLineProgram;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.testng.Assert;
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
@@ -29,8 +30,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -97,10 +100,14 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
     private static final File CALLING_POSTERIORS_OUTPUT_PATH = new File(CALLING_OUTPUT_PATH,
             GermlineCNVCaller.FINAL_POSTERIORS_SUBDIR);
 
-    /* for Spark tests */
+    /* for Spark tests, and for local tests on several compute blocks */
     private static final int SPARK_NUMBER_OF_PARTITIONS = 7;
+    private static final int LOCAL_NUMBER_OF_THREADS = 4;
     private static final File SPARK_CHECKPOINTING_PATH = createTempDir("coverage_model_spark_checkpoint");
 
+    /* relative tolerance of the comparison of the posteriors of a resumed run with those of an uninterrupted run */
+    private static final double POSTERIORS_TOLERANCE = 1e-6;
+
     private static GermlinePloidyAnnotatedTargetCollection GERMLINE_PLOIDY_ANNOTATIONS;
     private static SexGenotypeDataCollection LEARNING_SEX_GENOTYPES_DATA;
     private static SexGenotypeDataCollection CALLING_SEX_GENOTYPES_DATA;
@@ -118,10 +125,6 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
         return ArrayUtils.addAll(new String[] {
                 "--" + CoverageModelArgumentCollection.MAPPING_ERROR_RATE_LONG_NAME,
                     String.valueOf(MAPPING_ERROR_RATE),
-                "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_PATH_LONG_NAME,
-                    CHECKPOINTING_PATH.getAbsolutePath(),
-                "--" + CoverageModelArgumentCollection.NUMBER_OF_TARGET_SPACE_PARTITIONS_LONG_NAME,
-                    String.valueOf(SPARK_NUMBER_OF_PARTITIONS),
                 "--" + GermlineCNVCaller.COPY_NUMBER_TRANSITION_PRIOR_TABLE_LONG_NAME,
                     TEST_HMM_PRIORS_TABLE_FILE.getAbsolutePath(),
                 "--" + GermlineCNVCaller.CONTIG_PLOIDY_ANNOTATIONS_TABLE_LONG_NAME,
@@ -151,6 +154,8 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
                     String.valueOf(MIN_LEARNING_READ_COUNT),
                 "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_ENABLED_LONG_NAME,
                     "false",
+                "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_PATH_LONG_NAME,
+                    CHECKPOINTING_PATH.getAbsolutePath(),
                 "--" + CoverageModelArgumentCollection.SAMPLE_SPECIFIC_VARIANCE_UPDATE_ENABLED_LONG_NAME,
                     String.valueOf(ENABLE_LEARNING_SAMPLE_SPECIFIC_VARIANCE),
                 "--" + CoverageModelArgumentCollection.ARD_ENABLED_LONG_NAME,
@@ -180,6 +185,8 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
                     String.valueOf(MAX_CALLING_EM_ITERATIONS),
                 "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_ENABLED_LONG_NAME,
                     "false",
+                "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_PATH_LONG_NAME,
+                    CHECKPOINTING_PATH.getAbsolutePath(),
                 "--" + CoverageModelArgumentCollection.SAMPLE_SPECIFIC_VARIANCE_UPDATE_ENABLED_LONG_NAME,
                     String.valueOf(ENABLE_CALLING_SAMPLE_SPECIFIC_VARIANCE),
                 "--" + CoverageModelArgumentCollection.ARD_ENABLED_LONG_NAME,
@@ -194,6 +201,15 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
     }
 
     private String[] getCallingOnExactModelArgs(final String... extraArgs) {
+        return getCallingOnExactModelArgs(CALLING_OUTPUT_PATH, MAX_CALLING_EM_ITERATIONS, null, extraArgs);
+    }
+
+    /**
+     * Arguments of case sample calling on the exact model parameters, with a given output path and a given maximum
+     * number of EM iterations; posteriors are checkpointed in every iteration if a run checkpointing path is given
+     */
+    private String[] getCallingOnExactModelArgs(final File outputPath, final int maxEMIterations,
+                                                final File runCheckpointingPath, final String... extraArgs) {
         return ArrayUtils.addAll(new String[] {
                 "--" + GermlineCNVCaller.JOB_TYPE_LONG_NAME,
                     GermlineCNVCaller.JobType.CALL_ONLY.name(),
@@ -202,11 +218,15 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
                 "--" + GermlineCNVCaller.SAMPLE_SEX_GENOTYPE_TABLE_LONG_NAME,
                     TEST_CALLING_SAMPLE_SEX_GENOTYPES_FILE.getAbsolutePath(),
                 "--" + GermlineCNVCaller.OUTPUT_PATH_LONG_NAME,
-                    CALLING_OUTPUT_PATH.getAbsolutePath(),
+                    outputPath.getAbsolutePath(),
+                "--" + GermlineCNVCaller.INPUT_MODEL_PATH_LONG_NAME,
+                    TEST_TRUTH_SIM_MODEL.getAbsolutePath(),
                 "--" + CoverageModelArgumentCollection.MAX_EM_ITERATIONS_LONG_NAME,
-                   String.valueOf(MAX_CALLING_EM_ITERATIONS),
+                   String.valueOf(maxEMIterations),
                 "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_ENABLED_LONG_NAME,
-                    "false",
+                    String.valueOf(runCheckpointingPath != null),
+                "--" + CoverageModelArgumentCollection.RUN_CHECKPOINTING_PATH_LONG_NAME,
+                    (runCheckpointingPath != null ? runCheckpointingPath : CHECKPOINTING_PATH).getAbsolutePath(),
                 "--" + CoverageModelArgumentCollection.SAMPLE_SPECIFIC_VARIANCE_UPDATE_ENABLED_LONG_NAME,
                     String.valueOf(ENABLE_CALLING_SAMPLE_SPECIFIC_VARIANCE),
                 "--" + CoverageModelArgumentCollection.ARD_ENABLED_LONG_NAME,
@@ -231,9 +251,7 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
     }
 
     private void runCaseSampleCallingTestOnExactModelParams(final String... extraArgs) {
-        runCommandLine(getCallingOnExactModelArgs(ArrayUtils.addAll(new String[] {
-                "--" + GermlineCNVCaller.INPUT_MODEL_PATH_LONG_NAME,
-                TEST_TRUTH_SIM_MODEL.getAbsolutePath() }, extraArgs)));
+        runCommandLine(getCallingOnExactModelArgs(extraArgs));
 
         final List<Target> callingTargets = TargetTableReader.readTargetFile(new File(CALLING_POSTERIORS_OUTPUT_PATH,
                 CoverageModelGlobalConstants.TARGET_LIST_OUTPUT_FILE));
@@ -256,32 +274,128 @@ public class GermlineCNVCallerIntegrationTest extends CommandLineProgramTest {
 
     @Test
     public void runLearningAndCallingTestLocal() {
-        runLearningAndCallingTest("--" + SparkToggleCommandLineProgram.DISABLE_SPARK_FULL_NAME, "true");
+        runLearningAndCallingTest(getLocalArgs(SPARK_NUMBER_OF_PARTITIONS, 1));
     }
 
     @Test(dependsOnMethods = "runLearningAndCallingTestLocal")
     public void runCaseSampleCallingTestOnLearnedModelParamsLocal() {
-        runCaseSampleCallingTestOnLearnedModelParams("--" + SparkToggleCommandLineProgram.DISABLE_SPARK_FULL_NAME, "true");
+        runCaseSampleCallingTestOnLearnedModelParams(getLocalArgs(SPARK_NUMBER_OF_PARTITIONS, 1));
     }
 
     @Test
     public void runCaseSampleCallingTestOnExactModelParamsLocal() {
-        runCaseSampleCallingTestOnExactModelParams("--" + SparkToggleCommandLineProgram.DISABLE_SPARK_FULL_NAME, "true");
+        runCaseSampleCallingTestOnExactModelParams(getLocalArgs(SPARK_NUMBER_OF_PARTITIONS, 1));
+    }
+
+    @Test
+    public void runCaseSampleCallingTestOnExactModelParamsLocalSingleBlock() {
+        runCaseSampleCallingTestOnExactModelParams(getLocalArgs(1, 1));
+    }
+
+    @Test
+    public void runCaseSampleCallingTestOnExactModelParamsLocalMultithreaded() {
+        runCaseSampleCallingTestOnExactModelParams(getLocalArgs(SPARK_NUMBER_OF_PARTITIONS, LOCAL_NUMBER_OF_THREADS));
+    }
+
+    @Test
+    public void runCaseSampleCallingTestResumedFromEMSnapshotLocal() {
+        final String[] localArgs = getLocalArgs(SPARK_NUMBER_OF_PARTITIONS, LOCAL_NUMBER_OF_THREADS);
+
+        /* uninterrupted run */
+        final File referenceOutputPath = createTempDir("coverage_model_em_snapshot_reference_output");
+        final File referenceCheckpointingPath = createTempDir("coverage_model_em_snapshot_reference_checkpointing");
+        runCommandLine(getCallingOnExactModelArgs(referenceOutputPath, MAX_CALLING_EM_ITERATIONS,
+                referenceCheckpointingPath, localArgs));
+
+        /* run interrupted after the first iteration, which leaves a snapshot to resume from the second one */
+        final File snapshotPath = createTempDir("coverage_model_em_snapshot");
+        final String[] snapshotArgs = ArrayUtils.addAll(localArgs,
+                "--" + CoverageModelArgumentCollection.EM_SNAPSHOT_ENABLED_LONG_NAME, "true",
+                "--" + CoverageModelArgumentCollection.EM_SNAPSHOT_PATH_LONG_NAME, snapshotPath.getAbsolutePath());
+        runCommandLine(getCallingOnExactModelArgs(createTempDir("coverage_model_em_snapshot_interrupted_output"), 1,
+                null, snapshotArgs));
+        Assert.assertTrue(new File(snapshotPath, CoverageModelGlobalConstants.EM_SNAPSHOT_FILE).isFile());
+
+        /* resumed run */
+        final File resumedOutputPath = createTempDir("coverage_model_em_snapshot_resumed_output");
+        final File resumedCheckpointingPath = createTempDir("coverage_model_em_snapshot_resumed_checkpointing");
+        runCommandLine(getCallingOnExactModelArgs(resumedOutputPath, MAX_CALLING_EM_ITERATIONS, resumedCheckpointingPath,
+                ArrayUtils.addAll(snapshotArgs, "--" + CoverageModelArgumentCollection.RESUME_FROM_EM_SNAPSHOT_LONG_NAME, "true")));
+
+        /* posteriors are checkpointed at the end of every iteration, after the iteration count is incremented; the
+         * resumed run must have skipped the first iteration and gone through the same iterations afterwards */
+        final Set<String> referenceCheckpoints = listPosteriorCheckpoints(referenceCheckpointingPath);
+        final Set<String> resumedCheckpoints = listPosteriorCheckpoints(resumedCheckpointingPath);
+        final String firstIterationCheckpoint = String.format("%s_iter_%d",
+                CoverageModelGlobalConstants.POSTERIOR_CHECKPOINT_PATH_PREFIX, 2);
+        Assert.assertTrue(referenceCheckpoints.contains(firstIterationCheckpoint));
+        Assert.assertFalse(resumedCheckpoints.contains(firstIterationCheckpoint));
+        Assert.assertFalse(resumedCheckpoints.isEmpty());
+        referenceCheckpoints.remove(firstIterationCheckpoint);
+        Assert.assertEquals(resumedCheckpoints, referenceCheckpoints);
+
+        for (final String posteriorsFileName : Arrays.asList(
+                CoverageModelGlobalConstants.SAMPLE_READ_DEPTH_POSTERIORS_FILENAME,
+                CoverageModelGlobalConstants.SAMPLE_LOG_LIKELIHOODS_FILENAME,
+                CoverageModelGlobalConstants.SAMPLE_UNEXPLAINED_VARIANCE_FILENAME,
+                CoverageModelGlobalConstants.SAMPLE_BIAS_LATENT_POSTERIORS_FILENAME,
+                CoverageModelGlobalConstants.COPY_RATIO_MAX_LIKELIHOOD_ESTIMATES_FILENAME,
+                CoverageModelGlobalConstants.COPY_RATIO_PRECISION_FILENAME,
+                CoverageModelGlobalConstants.COPY_RATIO_VITERBI_FILENAME,
+                CoverageModelGlobalConstants.TOTAL_UNEXPLAINED_VARIANCE_FILENAME,
+                CoverageModelGlobalConstants.TOTAL_COVARIATE_BIAS_FILENAME)) {
+            assertEqualPosteriors(
+                    new File(new File(resumedOutputPath, GermlineCNVCaller.FINAL_POSTERIORS_SUBDIR), posteriorsFileName),
+                    new File(new File(referenceOutputPath, GermlineCNVCaller.FINAL_POSTERIORS_SUBDIR), posteriorsFileName));
+        }
     }
 
     @Test(enabled = false)
     public void runLearningAndCallingTestSpark() {
-        runLearningAndCallingTest();
+        runLearningAndCallingTest(getSparkArgs());
     }
 
     @Test(enabled = false, dependsOnMethods = "runLearningAndCallingTestSpark")
     public void runCaseSampleCallingTestOnLearnedModelParamsSpark() {
-        runCaseSampleCallingTestOnLearnedModelParams();
+        runCaseSampleCallingTestOnLearnedModelParams(getSparkArgs());
     }
 
     @Test(enabled = false)
     public void runCaseSampleCallingTestOnExactModelParamsSpark() {
-        runCaseSampleCallingTestOnExactModelParams();
+        runCaseSampleCallingTestOnExactModelParams(getSparkArgs());
+    }
+
+    /**
+     * Arguments of a local run with a given number of compute blocks, processed by a given number of threads
+     */
+    private static String[] getLocalArgs(final int numBlocks, final int numThreads) {
+        return new String[] {
+                "--" + SparkToggleCommandLineProgram.DISABLE_SPARK_FULL_NAME, "true",
+                "--" + CoverageModelArgumentCollection.NUMBER_OF_TARGET_SPACE_PARTITIONS_LONG_NAME,
+                    String.valueOf(numBlocks),
+                "--" + CoverageModelArgumentCollection.NUMBER_OF_LOCAL_THREADS_LONG_NAME, String.valueOf(numThreads)};
+    }
+
+    private static Set<String> listPosteriorCheckpoints(final File runCheckpointingPath) {
+        final String[] checkpoints = runCheckpointingPath.list((dir, name) ->
+                name.startsWith(CoverageModelGlobalConstants.POSTERIOR_CHECKPOINT_PATH_PREFIX));
+        return new HashSet<>(Arrays.asList(Utils.nonNull(checkpoints)));
+    }
+
+    private static void assertEqualPosteriors(final File actualFile, final File expectedFile) {
+        final double[] actual = Nd4jIOUtils.readNDArrayMatrixFromTextFile(actualFile).dup().data().asDouble();
+        final double[] expected = Nd4jIOUtils.readNDArrayMatrixFromTextFile(expectedFile).dup().data().asDouble();
+        Assert.assertEquals(actual.length, expected.length);
+        for (int i = 0; i < actual.length; i++) {
+            Assert.assertEquals(actual[i], expected[i], POSTERIORS_TOLERANCE * Math.max(1, Math.abs(expected[i])),
+                    "Posteriors in " + actualFile.getName() + " differ at index " + i);
+        }
+    }
+
+    private static String[] getSparkArgs() {
+        return new String[] {
+                "--" + CoverageModelArgumentCollection.NUMBER_OF_TARGET_SPACE_PARTITIONS_LONG_NAME,
+                    String.valueOf(SPARK_NUMBER_OF_PARTITIONS)};
     }
 
     /* Shame on me for using {@link ReadCountCollection} to store copy numbers! */
@@ -203,6 +203,26 @@ public final class CalculateTargetCoverageIntegrationTest extends CommandLinePro
                         CalculateTargetCoverage.TargetOutInfo.COORDS,
                         new String[] { "-" + CalculateTargetCoverage.GROUP_BY_SHORT_NAME, CalculateTargetCoverage.GroupBy.READ_GROUP.name()}
                 },
+                {       ALL_BAMS,
+                        INTERVALS_LIST,
+                        SAMPLE_COUNT_EXPECTED_OUTPUT,
+                        SAMPLE_COUNT_EXPECTED_ROW_OUTPUT,
+                        SAMPLE_COUNT_EXPECTED_COLUMN_OUTPUT,
+                        CalculateTargetCoverage.Transform.RAW,
+                        CalculateTargetCoverage.TargetOutInfo.COORDS,
+                        new String[] { "-" + CalculateTargetCoverage.GROUP_BY_SHORT_NAME, CalculateTargetCoverage.GroupBy.SAMPLE.name(),
+                                "-" + CalculateTargetCoverage.NUMBER_OF_THREADS_SHORT_NAME, "3"}
+                },
+                {       ALL_BAMS,
+                        INTERVALS_LIST,
+                        READ_GROUP_COUNT_EXPECTED_PCOV_OUTPUT,
+                        READ_GROUP_COUNT_EXPECTED_ROW_OUTPUT,
+                        READ_GROUP_COUNT_EXPECTED_COLUMN_OUTPUT,
+                        CalculateTargetCoverage.Transform.PCOV,
+                        CalculateTargetCoverage.TargetOutInfo.COORDS,
+                        new String[] { "-" + CalculateTargetCoverage.GROUP_BY_SHORT_NAME, CalculateTargetCoverage.GroupBy.READ_GROUP.name(),
+                                "-" + CalculateTargetCoverage.NUMBER_OF_THREADS_SHORT_NAME, "2"}
+                },
                 {       ALL_BAMS,
                         INTERVALS_LIST,
                         COHORT_COUNT_EXPECTED_OUTPUT,
@@ -20,6 +20,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -153,6 +154,42 @@ public class CombineReadCountsIntegrationTest extends CommandLineProgramTest {
         output.delete();
     }
 
+    @Test(dataProvider="testData")
+    public void testBinaryOutputFewOpenFilesAndSmallTargetBlocks(final List<Target> targets, final List<String> sampleNames, final double[][] counts) throws IOException {
+        final List<File> inputFiles = createInputCountFiles(targets, sampleNames, counts, true, true);
+        final File targetFile = createTargetFile(targets);
+        final File output = runTool(targetFile, inputFiles, null, ReadCountCollectionBinaryFormat.FILE_EXTENSION,
+                "-" + CombineReadCounts.MAX_GROUP_SIZE_SHORT_NAME, "2", "-" + CombineReadCounts.TARGET_BLOCK_SIZE_SHORT_NAME, "13");
+        inputFiles.forEach(File::delete);
+        targetFile.delete();
+        Assert.assertTrue(ReadCountCollectionBinaryFormat.isBinaryReadCountFile(output));
+        Assert.assertFalse(new ReadCountCollectionBinaryFormat.RowReader(output).hasIntCounts());
+        assertOutputContents(output, targets, sampleNames, counts);
+        output.delete();
+    }
+
+    @Test(dataProvider="testData")
+    public void testBinaryOutputWithIntegerCounts(final List<Target> targets, final List<String> sampleNames, final double[][] counts) throws IOException {
+        final double[][] intCounts = Arrays.stream(counts)
+                .map(c -> Arrays.stream(c).map(v -> Math.floor(v * 100)).toArray())
+                .toArray(double[][]::new);
+        final List<File> inputFiles = createInputCountFiles(targets, sampleNames, intCounts, true, true);
+        final File targetFile = createTargetFile(targets);
+        final File output = runTool(targetFile, inputFiles, null, ReadCountCollectionBinaryFormat.FILE_EXTENSION,
+                "-" + CombineReadCounts.TARGET_BLOCK_SIZE_SHORT_NAME, "13");
+        inputFiles.forEach(File::delete);
+        Assert.assertTrue(new ReadCountCollectionBinaryFormat.RowReader(output).hasIntCounts());
+        assertOutputContents(output, targets, sampleNames, intCounts);
+
+        // binary inputs with int counts are merged as ints directly.
+        final File binaryOutput = runTool(targetFile, Collections.singletonList(output), null, ReadCountCollectionBinaryFormat.FILE_EXTENSION);
+        output.delete();
+        targetFile.delete();
+        Assert.assertTrue(new ReadCountCollectionBinaryFormat.RowReader(binaryOutput).hasIntCounts());
+        assertOutputContents(binaryOutput, targets, sampleNames, intCounts);
+        binaryOutput.delete();
+    }
+
     @Test(dataProvider="testData")
     public void testOneSampleOneFileOnlyNames(final List<Target> targets, final List<String> sampleNames, final double[][] counts) throws IOException {
         final List<File> inputFiles = createInputCountFiles(targets, sampleNames, counts, true, false);
@@ -238,6 +275,11 @@ public class CombineReadCountsIntegrationTest extends CommandLineProgramTest {
     }
 
     private File runTool(final File targetFile, final List<File> inputFiles, final File inputFileList) {
+        return runTool(targetFile, inputFiles, inputFileList, ".tab", "-" + CombineReadCounts.MAX_GROUP_SIZE_SHORT_NAME, "7");
+    }
+
+    private File runTool(final File targetFile, final List<File> inputFiles, final File inputFileList, final String outputExtension,
+                         final String... additionalArgs) {
         final List<String> args = new ArrayList<>();
         if (targetFile != null) {
             args.add("-" + TargetArgumentCollection.TARGET_FILE_SHORT_NAME);
@@ -251,11 +293,10 @@ public class CombineReadCountsIntegrationTest extends CommandLineProgramTest {
             args.add("-" + CombineReadCounts.READ_COUNT_FILES_SHORT_NAME);
             args.add(inputFile.getAbsolutePath());
         }
-        final File outputFile = createTempFile("output", ".tab");
+        final File outputFile = createTempFile("output", outputExtension);
         args.add("-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME);
         args.add(outputFile.getAbsolutePath());
-        args.add("-" + CombineReadCounts.MAX_GROUP_SIZE_SHORT_NAME);
-        args.add("7");
+        args.addAll(Arrays.asList(additionalArgs));
         runCommandLine(args);
         return outputFile;
     }
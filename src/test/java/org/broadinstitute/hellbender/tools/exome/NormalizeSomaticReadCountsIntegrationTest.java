@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.exome;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.DefaultRealMatrixChangingVisitor;
 import org.apache.commons.math3.linear.DefaultRealMatrixPreservingVisitor;
@@ -396,6 +397,63 @@ public class NormalizeSomaticReadCountsIntegrationTest extends CommandLineProgra
         runCommandLine(arguments);
     }
 
+    @Test
+    public void testInputListRun() throws IOException {
+        final ReadCountCollection input = ReadCountCollectionUtils.parse(FULL_READ_COUNTS_INPUT);
+        final List<File> sampleInputs = new ArrayList<>();
+        for (final String sample : input.columnNames()) {
+            final File sampleInput = createTempFile("sample-", ".txt");
+            ReadCountCollectionUtils.write(sampleInput, input.subsetColumns(Collections.singleton(sample)));
+            sampleInputs.add(sampleInput);
+        }
+        final File inputList = createTempFile("inputs-", ".list");
+        FileUtils.writeLines(inputList, Arrays.asList("# read count files", sampleInputs.get(0).getAbsolutePath(), "", sampleInputs.get(1).getAbsolutePath()));
+        final File outputDir = createTempDir("normalized");
+
+        final String[] arguments = {
+                "-" + NormalizeSomaticReadCounts.READ_COUNTS_FILE_LIST_SHORT_NAME, inputList.getAbsolutePath(),
+                "-" + ExomeStandardArgumentDefinitions.PON_FILE_SHORT_NAME, TEST_PON.getAbsolutePath(),
+                "-" + NormalizeSomaticReadCounts.OUTPUT_DIRECTORY_SHORT_NAME, outputDir.getAbsolutePath()
+        };
+        runCommandLine(arguments);
+
+        for (int i = 0; i < sampleInputs.size(); i++) {
+            final String sample = input.columnNames().get(i);
+            final File tangentNormalizationOutput = createTempFile("tangent-", ".txt");
+            final File preTangentNormalizationOutput = createTempFile("pre-tn-", ".txt");
+            runCommandLine(new String[] {
+                    "-" + NormalizeSomaticReadCounts.READ_COUNTS_FILE_SHORT_NAME, sampleInputs.get(i).getAbsolutePath(),
+                    "-" + ExomeStandardArgumentDefinitions.PON_FILE_SHORT_NAME, TEST_PON.getAbsolutePath(),
+                    "-" + ExomeStandardArgumentDefinitions.TANGENT_NORMALIZED_COUNTS_FILE_SHORT_NAME, tangentNormalizationOutput.getAbsolutePath(),
+                    "-" + ExomeStandardArgumentDefinitions.PRE_TANGENT_NORMALIZED_COUNTS_FILE_SHORT_NAME, preTangentNormalizationOutput.getAbsolutePath()
+            });
+            assertSameCounts(new File(outputDir, sample + NormalizeSomaticReadCounts.TANGENT_NORMALIZED_FILE_SUFFIX), tangentNormalizationOutput);
+            assertSameCounts(new File(outputDir, sample + NormalizeSomaticReadCounts.PRE_TANGENT_NORMALIZED_FILE_SUFFIX), preTangentNormalizationOutput);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testInputListWithRepeatedSample() throws IOException {
+        final File inputList = createTempFile("inputs-", ".list");
+        FileUtils.writeLines(inputList, Arrays.asList(FULL_READ_COUNTS_INPUT_ONE_SAMPLE.getAbsolutePath(), TARGET_NAME_ONLY_READ_COUNTS_INPUT_ONE_SAMPLE.getAbsolutePath()));
+
+        final String[] arguments = {
+                "-" + NormalizeSomaticReadCounts.READ_COUNTS_FILE_LIST_SHORT_NAME, inputList.getAbsolutePath(),
+                "-" + ExomeStandardArgumentDefinitions.PON_FILE_SHORT_NAME, TEST_PON.getAbsolutePath(),
+                "-" + NormalizeSomaticReadCounts.OUTPUT_DIRECTORY_SHORT_NAME, createTempDir("normalized").getAbsolutePath()
+        };
+        runCommandLine(arguments);
+    }
+
+    private static void assertSameCounts(final File actualFile, final File expectedFile) throws IOException {
+        final ReadCountCollection actual = ReadCountCollectionUtils.parse(actualFile);
+        final ReadCountCollection expected = ReadCountCollectionUtils.parse(expectedFile);
+        Assert.assertEquals(actual.columnNames(), expected.columnNames());
+        Assert.assertEquals(actual.targets(), expected.targets());
+        final RealMatrix difference = actual.counts().subtract(expected.counts());
+        Assert.assertEquals(difference.getNorm(), 0, 1e-10);
+    }
+
     @DataProvider(name="inputFileData")
     public Object[][] inputFileData() {
         return new Object[][] {
@@ -18,6 +18,7 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -228,6 +229,80 @@ public class ReadCountCollectionUtilsUnitTest {
         Assert.assertEquals(counts.getEntry(1, 1), -2.2E-8, 0.000000001);
     }
 
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        final List<Target> targets = Arrays.asList(new Target("tgt_0", new SimpleInterval("1", 100, 200)),
+                new Target("tgt_1", new SimpleInterval("2", 200, 300)), new Target("tgt_2", new SimpleInterval("1", 300, 400)));
+        final double[][] counts = {{1.1, 2.2}, {-1.1E-7, 0.25}, {0, 3}};
+        final ReadCountCollection expected = new ReadCountCollection(targets, Arrays.asList("SAMPLE1", "SAMPLE2"), new Array2DRowRealMatrix(counts));
+        final File testFile = createTempFile(ReadCountCollectionBinaryFormat.FILE_EXTENSION);
+        ReadCountCollectionUtils.write(testFile, expected, "comment 1");
+
+        Assert.assertTrue(ReadCountCollectionBinaryFormat.isBinaryReadCountFile(testFile));
+        Assert.assertFalse(ReadCountCollectionBinaryFormat.isBinaryReadCountFile(FULL_CORRECT_FILE));
+        Assert.assertEquals(ReadCountCollectionUtils.retrieveSampleNamesFromReadCountsFile(testFile), expected.columnNames());
+        final ReadCountCollection subject = ReadCountCollectionUtils.parse(testFile);
+        Assert.assertEquals(subject.columnNames(), expected.columnNames());
+        Assert.assertEquals(subject.targets(), expected.targets());
+        Assert.assertEquals(subject.targets().stream().map(Target::getInterval).collect(Collectors.toList()),
+                targets.stream().map(Target::getInterval).collect(Collectors.toList()));
+        for (int i = 0; i < counts.length; i++) {
+            Assert.assertEquals(subject.counts().getRow(i), counts[i]);
+        }
+    }
+
+    @Test
+    public void testBinaryRoundTripWithIntCountsAndNoIntervals() throws IOException {
+        final List<Target> targets = IntStream.range(0, 100).mapToObj(i -> new Target("tgt_" + i)).collect(Collectors.toList());
+        final double[][] counts = new double[targets.size()][3];
+        final Random random = new Random(13);
+        for (final double[] row : counts) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(1000);
+            }
+        }
+        final ReadCountCollection expected = new ReadCountCollection(targets, Arrays.asList("S1", "S2", "S3"), new Array2DRowRealMatrix(counts));
+        final File testFile = createTempFile(ReadCountCollectionBinaryFormat.FILE_EXTENSION);
+        ReadCountCollectionUtils.write(testFile, expected);
+        final File textFile = createTempFile();
+        ReadCountCollectionUtils.write(textFile, expected);
+
+        // int counts take 4 bytes each
+        Assert.assertTrue(testFile.length() < 100 * 4 * 3 + 100 * 16 + 200);
+        final ReadCountCollection subject = ReadCountCollectionUtils.parse(testFile);
+        final ReadCountCollection fromText = ReadCountCollectionUtils.parse(textFile);
+        Assert.assertEquals(subject.targets(), fromText.targets());
+        Assert.assertEquals(subject.columnNames(), fromText.columnNames());
+        Assert.assertEquals(subject.counts(), fromText.counts());
+    }
+
+    @Test
+    public void testBinaryFileWithTargetCollection() throws IOException {
+        final List<Target> targets = Arrays.asList(new Target("tgt_0", new SimpleInterval("1", 100, 200)),
+                new Target("tgt_1", new SimpleInterval("2", 200, 300)));
+        final ReadCountCollection counts = new ReadCountCollection(targets, Arrays.asList("SAMPLE1"),
+                new Array2DRowRealMatrix(new double[][] {{1}, {2}}));
+        final File testFile = createTempFile(ReadCountCollectionBinaryFormat.FILE_EXTENSION);
+        ReadCountCollectionUtils.write(testFile, counts);
+
+        final ReadCountCollection subject = ReadCountCollectionUtils.parse(testFile,
+                new HashedListTargetCollection<>(targets.subList(1, 2)), true);
+        Assert.assertEquals(subject.targets(), targets.subList(1, 2));
+        Assert.assertEquals(subject.counts().getEntry(0, 0), 2.0);
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testTruncatedBinaryFile() throws IOException {
+        final ReadCountCollection counts = new ReadCountCollection(Arrays.asList(new Target("tgt_0"), new Target("tgt_1")),
+                Arrays.asList("SAMPLE1"), new Array2DRowRealMatrix(new double[][] {{1.5}, {2.5}}));
+        final File testFile = createTempFile(ReadCountCollectionBinaryFormat.FILE_EXTENSION);
+        ReadCountCollectionUtils.write(testFile, counts);
+        try (final RandomAccessFile file = new RandomAccessFile(testFile, "rw")) {
+            file.setLength(testFile.length() - 1);
+        }
+        ReadCountCollectionUtils.parse(testFile);
+    }
+
     @Test(expectedExceptions = UserException.BadInput.class)
     public void testOneTooFewValueInLine() throws IOException {
         final File testFile = createTempFile();
@@ -446,7 +521,11 @@ public class ReadCountCollectionUtilsUnitTest {
     }
 
     private File createTempFile() throws IOException {
-        final File result = File.createTempFile("file", ".test");
+        return createTempFile(".test");
+    }
+
+    private File createTempFile(final String extension) throws IOException {
+        final File result = File.createTempFile("file", extension);
         result.deleteOnExit();
         return result;
     }
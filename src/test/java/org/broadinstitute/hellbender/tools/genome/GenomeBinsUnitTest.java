@@ -0,0 +1,79 @@
+package org.broadinstitute.hellbender.tools.genome;
+
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public final class GenomeBinsUnitTest extends BaseTest {
+
+    // bins 2:1-100, 2:101-150, 1:201-300 and 1:1-100.
+    private static final GenomeBins BINS = new GenomeBins(Arrays.asList(
+            new SimpleInterval("2", 1, 150), new SimpleInterval("1", 201, 300), new SimpleInterval("1", 1, 100)), 100);
+
+    @Test
+    public void testBinIndex() {
+        Assert.assertEquals(BINS.binCount(), 4);
+        Assert.assertEquals(BINS.binIndex("2", 1), 0);
+        Assert.assertEquals(BINS.binIndex("2", 100), 0);
+        Assert.assertEquals(BINS.binIndex("2", 101), 1);
+        Assert.assertEquals(BINS.binIndex("2", 150), 1);
+        Assert.assertEquals(BINS.binIndex("2", 151), -1);
+        Assert.assertEquals(BINS.binIndex("1", 50), 3);
+        Assert.assertEquals(BINS.binIndex("1", 150), -1);
+        Assert.assertEquals(BINS.binIndex("1", 201), 2);
+        Assert.assertEquals(BINS.binIndex("1", 301), -1);
+        Assert.assertEquals(BINS.binIndex("3", 1), -1);
+    }
+
+    @Test
+    public void testBins() {
+        Assert.assertEquals(BINS.bin(0), new SimpleInterval("2", 1, 100));
+        Assert.assertEquals(BINS.bin(1), new SimpleInterval("2", 101, 150));
+        Assert.assertEquals(BINS.bin(2), new SimpleInterval("1", 201, 300));
+        Assert.assertEquals(BINS.bin(3), new SimpleInterval("1", 1, 100));
+        Assert.assertEquals(BINS.targets().size(), 4);
+        Assert.assertEquals(BINS.targets().get(1).getInterval(), new SimpleInterval("2", 101, 150));
+        Assert.assertEquals(BINS.binIndicesInLexicographicalOrder(), new int[] {3, 2, 0, 1});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBinOutOfRange() {
+        BINS.bin(4);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOverlappingIntervals() {
+        new GenomeBins(Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("1", 100, 200)), 10);
+    }
+
+    @Test
+    public void testBinCounts() {
+        final Random random = new Random(13);
+        final long[] expected = new long[1000];
+        final GenomeBins.BinCounts[] partitionCounts = new GenomeBins.BinCounts[5];
+        for (int p = 0; p < partitionCounts.length; p++) {
+            partitionCounts[p] = new GenomeBins.BinCounts();
+            // partitions cover overlapping ranges, visited in both directions.
+            for (int i = 0; i < 2000; i++) {
+                final int bin = p * 150 + (p % 2 == 0 ? i / 5 : 399 - i / 5);
+                partitionCounts[p].increment(bin);
+                expected[bin]++;
+            }
+            partitionCounts[p].incrementUnbinned();
+        }
+        final GenomeBins.BinCounts total = new GenomeBins.BinCounts();
+        for (final int p : new int[] {3, 0, 4, 1, 2}) {
+            total.add(partitionCounts[p]).add(new GenomeBins.BinCounts());
+        }
+        for (int bin = 0; bin < expected.length; bin++) {
+            Assert.assertEquals(total.get(bin), expected[bin]);
+        }
+        Assert.assertEquals(total.get(5000), 0);
+        Assert.assertEquals(total.total(), 10000 + partitionCounts.length);
+        Assert.assertEquals(new GenomeBins.BinCounts().total(), 0);
+    }
+}
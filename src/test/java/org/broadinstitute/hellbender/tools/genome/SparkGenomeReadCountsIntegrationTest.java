@@ -1,11 +1,20 @@
 package org.broadinstitute.hellbender.tools.genome;
 
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.tools.exome.ReadCountCollection;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionBinaryFormat;
 import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionUtils;
 import org.broadinstitute.hellbender.tools.exome.Target;
 import org.broadinstitute.hellbender.tools.exome.TargetTableReader;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -110,6 +119,32 @@ public class SparkGenomeReadCountsIntegrationTest extends CommandLineProgramTest
         Assert.assertEquals(proportionalCoverage.targets().size(), targets.size());
     }
 
+    @Test
+    public void testSparkGenomeReadCountsBinaryOutput() throws IOException {
+        final File textOutputFile = createTempFile(BAM_FILE.getName(), ".cov");
+        final File binaryOutputFile = createTempFile(BAM_FILE.getName(), ReadCountCollectionBinaryFormat.FILE_EXTENSION);
+        for (final File outputFile : new File[] {textOutputFile, binaryOutputFile}) {
+            final String[] arguments = {
+                    "--disableSequenceDictionaryValidation",
+                    "-" + StandardArgumentDefinitions.REFERENCE_SHORT_NAME, REFERENCE_FILE.getAbsolutePath(),
+                    "-" + StandardArgumentDefinitions.INPUT_SHORT_NAME, BAM_FILE.getAbsolutePath(),
+                    "-" + SparkGenomeReadCounts.OUTPUT_FILE_SHORT_NAME, outputFile.getAbsolutePath(),
+                    "-" + SparkGenomeReadCounts.BINSIZE_SHORT_NAME, "2000",
+            };
+            runCommandLine(arguments);
+        }
+        Assert.assertTrue(ReadCountCollectionBinaryFormat.isBinaryReadCountFile(binaryOutputFile));
+        for (final String extension : new String[] {"", SparkGenomeReadCounts.RAW_COV_OUTPUT_EXTENSION}) {
+            final ReadCountCollection textCoverage = ReadCountCollectionUtils.parse(new File(textOutputFile.getAbsolutePath() + extension));
+            final ReadCountCollection binaryCoverage = ReadCountCollectionUtils.parse(new File(binaryOutputFile.getAbsolutePath() + extension));
+            Assert.assertEquals(binaryCoverage.targets(), textCoverage.targets());
+            Assert.assertEquals(binaryCoverage.columnNames(), textCoverage.columnNames());
+            for (int i = 0; i < textCoverage.targets().size(); i++) {
+                Assert.assertEquals(binaryCoverage.counts().getEntry(i, 0), textCoverage.counts().getEntry(i, 0), 1e-6);
+            }
+        }
+    }
+
     private ReadCountCollection loadReadCountCollection(File outputFile) {
         try {
             return ReadCountCollectionUtils.parse(outputFile);
@@ -173,6 +208,50 @@ public class SparkGenomeReadCountsIntegrationTest extends CommandLineProgramTest
         Assert.assertTrue(targets.stream().allMatch(t -> (t.getContig().equals("1")) || (t.getContig().equals("2"))));
     }
 
+    @Test
+    public void testSparkGenomeReadCountsProportionalCoverageWithIntervals() throws IOException {
+        final File outputFile = createTempFile(BAM_FILE.getName(), ".cov");
+        final SimpleInterval interval = new SimpleInterval("3", 2001, 16000);
+        final String[] arguments = {
+                "--disableSequenceDictionaryValidation",
+                "-" + StandardArgumentDefinitions.REFERENCE_SHORT_NAME, REFERENCE_FILE.getAbsolutePath(),
+                "-" + StandardArgumentDefinitions.INPUT_SHORT_NAME, BAM_FILE.getAbsolutePath(),
+                "-" + SparkGenomeReadCounts.OUTPUT_FILE_SHORT_NAME, outputFile.getAbsolutePath(),
+                "-" + SparkGenomeReadCounts.BINSIZE_SHORT_NAME, "2000",
+                "-L", interval.toString()
+        };
+        runCommandLine(arguments);
+
+        // the proportional coverage is relative to every read that passes the filters and overlaps the intervals,
+        // even if it starts before the first bin.
+        final long expectedTotalReads;
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(BAM_FILE);
+             final SAMRecordIterator records = reader.queryOverlapping(interval.getContig(), interval.getStart(), interval.getEnd())) {
+            final ReadFilter filter = new WellformedReadFilter(reader.getFileHeader())
+                    .and(ReadFilterLibrary.MAPPED)
+                    .and(ReadFilterLibrary.NOT_DUPLICATE)
+                    .and(ReadFilterLibrary.NON_ZERO_REFERENCE_LENGTH_ALIGNMENT)
+                    .and(ReadFilterLibrary.PASSES_VENDOR_QUALITY_CHECK);
+            long count = 0;
+            while (records.hasNext()) {
+                if (filter.test(new SAMRecordToGATKReadAdapter(records.next()))) {
+                    count++;
+                }
+            }
+            expectedTotalReads = count;
+        }
+        Assert.assertTrue(expectedTotalReads > 0);
+
+        final ReadCountCollection proportionalCoverage = loadReadCountCollection(outputFile);
+        final ReadCountCollection rawCoverage = loadReadCountCollection(new File(outputFile.getAbsolutePath() + SparkGenomeReadCounts.RAW_COV_OUTPUT_EXTENSION));
+        Assert.assertEquals(proportionalCoverage.targets(), rawCoverage.targets());
+        Assert.assertTrue(rawCoverage.counts().getColumnVector(0).getL1Norm() <= expectedTotalReads);
+        for (int i = 0; i < rawCoverage.targets().size(); i++) {
+            Assert.assertEquals(proportionalCoverage.counts().getEntry(i, 0),
+                    rawCoverage.counts().getEntry(i, 0) / expectedTotalReads, 1e-10);
+        }
+    }
+
     @Test
     public void testSparkGenomeReadCountsSubContig() {
         final File outputFile = createTempFile(BAM_FILE.getName(), ".cov");
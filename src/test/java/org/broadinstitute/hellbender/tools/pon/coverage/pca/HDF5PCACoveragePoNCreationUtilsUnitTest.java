@@ -14,7 +14,11 @@ import org.apache.logging.log4j.spi.AbstractLogger;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hdf5.HDF5File;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.exome.CreatePanelOfNormals;
 import org.broadinstitute.hellbender.tools.exome.ReadCountCollection;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionUtils;
+import org.broadinstitute.hellbender.tools.exome.TargetArgumentCollection;
 import org.broadinstitute.hellbender.tools.exome.Target;
 import org.broadinstitute.hellbender.tools.pon.PoNTestUtils;
 import org.broadinstitute.hellbender.utils.MatrixSummaryUtils;
@@ -29,7 +33,9 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.OptionalInt;
 import java.util.Random;
@@ -58,6 +64,118 @@ public final class HDF5PCACoveragePoNCreationUtilsUnitTest extends BaseTest {
         PoNTestUtils.assertEquivalentPoN(ponFile, tempOutputPoN);
     }
 
+    @Test
+    public void testUpdate() throws IOException {
+        // log2 coverage with a low-rank structure plus target and sample terms, so that the log-normalized panel has
+        // rank NUMBER_OF_LATENTS + 2 and truncating its SVD at that rank loses nothing; the coverage of the new normals
+        // depends more on the first latent factor, which changes the target medians non-uniformly
+        final int numTargets = 101;
+        final int numInputSamples = 30;
+        final int numNewSamples = 10;
+        final int numLatents = 3;
+        final int numEigensamples = numLatents + 2;
+        final Random rdn = new Random(17);
+        final double[][] targetLoadings = new double[numTargets][numLatents];
+        final double[] targetScales = new double[numTargets];
+        for (int i = 0; i < numTargets; i++) {
+            targetScales[i] = 0.5 + 1.5 * rdn.nextDouble();
+            for (int k = 0; k < numLatents; k++) {
+                targetLoadings[i][k] = 0.5 * rdn.nextGaussian();
+            }
+        }
+        final RealMatrix counts = new Array2DRowRealMatrix(numTargets, numInputSamples + numNewSamples);
+        for (int j = 0; j < numInputSamples + numNewSamples; j++) {
+            final double depth = 50 + 100 * rdn.nextDouble();
+            final double[] latents = rdn.doubles(numLatents).map(v -> 2 * v - 1).toArray();
+            if (j >= numInputSamples) {
+                latents[0] += 2;
+            }
+            for (int i = 0; i < numTargets; i++) {
+                double logCoverage = 0;
+                for (int k = 0; k < numLatents; k++) {
+                    logCoverage += targetLoadings[i][k] * latents[k];
+                }
+                counts.setEntry(i, j, depth * targetScales[i] * Math.pow(2, logCoverage));
+            }
+        }
+        final List<Target> targets = IntStream.range(0, numTargets)
+                .mapToObj(i -> new Target("target_" + i, new SimpleInterval("1", 100*i + 1, 100*i + 50)))
+                .collect(Collectors.toList());
+        final List<String> sampleNames = IntStream.range(0, numInputSamples + numNewSamples)
+                .mapToObj(j -> "sample_" + j).collect(Collectors.toList());
+        final List<String> newSampleNames = sampleNames.subList(numInputSamples, sampleNames.size());
+        final ReadCountCollection allCounts = new ReadCountCollection(targets, sampleNames, counts);
+        final File allCountsFile = IOUtils.createTempFile("update-pon-all-normals-", ".tsv");
+        ReadCountCollectionUtils.write(allCountsFile, allCounts);
+        final File inputCountsFile = IOUtils.createTempFile("update-pon-input-normals-", ".tsv");
+        ReadCountCollectionUtils.write(inputCountsFile, allCounts.subsetColumns(new HashSet<>(sampleNames.subList(0, numInputSamples))));
+        final File newNormalsFile = IOUtils.createTempFile("update-pon-new-normals-", ".tsv");
+        ReadCountCollectionUtils.write(newNormalsFile, allCounts.subsetColumns(new HashSet<>(newSampleNames)));
+
+        // the PoN to update is created without the new normals (blacklisting them would not do, as target factors are
+        // calculated before blacklisting) and the PoN rebuilt from scratch with all the samples.  Filters are turned
+        // off (percentiles small enough that nothing is dropped) as the update does not redo them.
+        final double noFilterPercentile = 1e-4;
+        final File inputPoNFile = IOUtils.createTempFile("update-pon-input-", ".pon");
+        HDF5PCACoveragePoNCreationUtils.create(null, inputPoNFile, HDF5File.OpenMode.CREATE, inputCountsFile,
+                TargetArgumentCollection.readTargetCollection(inputCountsFile), new ArrayList<>(), noFilterPercentile,
+                CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN, CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_TARGET,
+                noFilterPercentile, noFilterPercentile, OptionalInt.of(numEigensamples), false);
+        final File allPoNFile = IOUtils.createTempFile("update-pon-all-", ".pon");
+        HDF5PCACoveragePoNCreationUtils.create(null, allPoNFile, HDF5File.OpenMode.CREATE, allCountsFile,
+                TargetArgumentCollection.readTargetCollection(allCountsFile), new ArrayList<>(), noFilterPercentile,
+                CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN, CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_TARGET,
+                noFilterPercentile, noFilterPercentile, OptionalInt.of(numEigensamples), false);
+        final File updatedPoNFile = IOUtils.createTempFile("update-pon-output-", ".pon");
+        HDF5PCACoveragePoNCreationUtils.update(null, inputPoNFile, newNormalsFile, CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN,
+                noFilterPercentile, updatedPoNFile, HDF5File.OpenMode.CREATE);
+
+        try (final HDF5File inputFile = new HDF5File(inputPoNFile);
+             final HDF5File allFile = new HDF5File(allPoNFile);
+             final HDF5File updatedFile = new HDF5File(updatedPoNFile)) {
+            final PCACoveragePoN input = new HDF5PCACoveragePoN(inputFile);
+            final PCACoveragePoN all = new HDF5PCACoveragePoN(allFile);
+            final PCACoveragePoN updated = new HDF5PCACoveragePoN(updatedFile);
+
+            // the new normals must have moved the target factors, so that the row shifts of the update are exercised
+            final double[] inputTargetFactors = input.getTargetFactors();
+            final double[] updatedTargetFactors = updated.getTargetFactors();
+            final double[] targetFactorLogRatios = IntStream.range(0, numTargets)
+                    .mapToDouble(i -> Math.log(updatedTargetFactors[i] / inputTargetFactors[i])).toArray();
+            Assert.assertTrue(DoubleStream.of(targetFactorLogRatios).max().getAsDouble()
+                    - DoubleStream.of(targetFactorLogRatios).min().getAsDouble() > 0.1);
+
+            Assert.assertEquals(updated.getTargetNames(), all.getTargetNames());
+            Assert.assertEquals(updated.getSampleNames(), all.getSampleNames());
+            PoNTestUtils.assertEqualsDoubleArrays(updatedTargetFactors, all.getTargetFactors(), 1e-6);
+            assertEqualsMatrix(updated.getNormalizedCounts(), all.getNormalizedCounts(), 1e-6);
+
+            Assert.assertEquals(updated.getPanelTargetNames(), all.getPanelTargetNames());
+            Assert.assertEquals(updated.getPanelSampleNames(), all.getPanelSampleNames());
+            assertEqualsMatrix(updated.getLogNormalizedCounts(), all.getLogNormalizedCounts(), 1e-6);
+
+            // the reduced panels span the same subspace (each is invariant under the projection on the other) with the
+            // same singular values (the norms of their columns)
+            final RealMatrix reducedCounts = updated.getReducedPanelCounts();
+            final RealMatrix allReducedCounts = all.getReducedPanelCounts();
+            Assert.assertEquals(reducedCounts.getRowDimension(), numTargets);
+            Assert.assertEquals(reducedCounts.getColumnDimension(), numEigensamples);
+            assertPseudoInverse(reducedCounts, updated.getReducedPanelPInverseCounts());
+            assertEqualsMatrix(reducedCounts.multiply(updated.getReducedPanelPInverseCounts()).multiply(allReducedCounts), allReducedCounts, 1e-6);
+            assertEqualsMatrix(allReducedCounts.multiply(all.getReducedPanelPInverseCounts()).multiply(reducedCounts), reducedCounts, 1e-6);
+            PoNTestUtils.assertEqualsDoubleArrays(
+                    IntStream.range(0, numEigensamples).mapToDouble(j -> reducedCounts.getColumnVector(j).getNorm()).toArray(),
+                    IntStream.range(0, numEigensamples).mapToDouble(j -> allReducedCounts.getColumnVector(j).getNorm()).toArray(), 1e-6);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testUpdateWithSamplesAlreadyInPoN() {
+        final File ponFile = PoNTestUtils.createDummyHDF5FilePoN(TEST_PCOV_FILE, 20);
+        HDF5PCACoveragePoNCreationUtils.update(null, ponFile, TEST_PCOV_FILE, CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN,
+                CreatePanelOfNormals.DEFAULT_OUTLIER_TRUNCATE_PERCENTILE_THRESHOLD, IOUtils.createTempFile("update-pon-output-", ".pon"), HDF5File.OpenMode.CREATE);
+    }
+
     @Test
     public void testCalculateVariance() {
         /*
@@ -253,6 +371,44 @@ public final class HDF5PCACoveragePoNCreationUtilsUnitTest extends BaseTest {
         assertPseudoInverse(result.getReducedCounts(), result.getReducedPseudoInverse());
     }
 
+    @Test(dataProvider = "readCountOnlyWithDiverseShapeData")
+    public void testCalculateReducedPanelAndPInversesWithTruncatedSVD(final ReadCountCollection readCounts) {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final int numberOfEigensamples = Math.max(1, readCounts.columnNames().size() / 2);
+        final ReductionResult result = HDF5PCACoveragePoNCreationUtils.calculateReducedPanelAndPInverses(readCounts, OptionalInt.of(numberOfEigensamples), true, NULL_LOGGER, ctx);
+        final ReductionResult expected = HDF5PCACoveragePoNCreationUtils.calculateReducedPanelAndPInverses(readCounts, OptionalInt.of(numberOfEigensamples), NULL_LOGGER, ctx);
+        final RealMatrix counts = readCounts.counts();
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getAllSingularValues().length, numberOfEigensamples);
+        // the random counts have a flat spectrum past the first singular value, so only that one is expected to be accurate;
+        // the others can only be underestimated
+        Assert.assertEquals(result.getAllSingularValues()[0], expected.getAllSingularValues()[0], 1e-3 * expected.getAllSingularValues()[0]);
+        for (int i = 0; i < numberOfEigensamples; i++) {
+            Assert.assertTrue(result.getAllSingularValues()[i] <= expected.getAllSingularValues()[i] * (1 + 1e-6));
+        }
+        Assert.assertEquals(result.getReducedCounts().getRowDimension(), counts.getRowDimension());
+        Assert.assertEquals(result.getReducedCounts().getColumnDimension(), numberOfEigensamples);
+        Assert.assertEquals(result.getPseudoInverse().getRowDimension(), counts.getColumnDimension());
+        Assert.assertEquals(result.getPseudoInverse().getColumnDimension(), counts.getRowDimension());
+        assertPseudoInverse(result.getReducedCounts(), result.getReducedPseudoInverse());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTruncatedSVDRequiresNumberOfEigensamples() {
+        final ReadCountCollection readCounts = (ReadCountCollection) readCountOnlyWithDiverseShapeData()[0][0];
+        HDF5PCACoveragePoNCreationUtils.calculateReducedPanelAndPInverses(readCounts, OptionalInt.empty(), true, NULL_LOGGER, null);
+    }
+
+    private static void assertEqualsMatrix(final RealMatrix actual, final RealMatrix expected, final double tolerance) {
+        Assert.assertEquals(actual.getRowDimension(), expected.getRowDimension());
+        Assert.assertEquals(actual.getColumnDimension(), expected.getColumnDimension());
+        for (int i = 0; i < actual.getRowDimension(); i++) {
+            for (int j = 0; j < actual.getColumnDimension(); j++) {
+                Assert.assertEquals(actual.getEntry(i, j), expected.getEntry(i, j), tolerance);
+            }
+        }
+    }
+
     private static void assertPseudoInverse(final RealMatrix A, final RealMatrix pinvA) {
         Assert.assertEquals(A.getRowDimension(), pinvA.getColumnDimension());
         Assert.assertEquals(A.getColumnDimension(), pinvA.getRowDimension());
@@ -0,0 +1,113 @@
+package org.broadinstitute.hellbender.tools.pon.coverage.pca;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.utils.MathObjectAsserts;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for {@link TransposedRealMatrix}.
+ */
+public final class TransposedRealMatrixUnitTest extends BaseTest {
+
+    private static RealMatrix randomMatrix(final Random random, final int rowCount, final int columnCount) {
+        final double[][] values = new double[rowCount][columnCount];
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                values[i][j] = random.nextGaussian();
+            }
+        }
+        return new Array2DRowRealMatrix(values, false);
+    }
+
+    @Test
+    public void testViewMatchesTranspose() {
+        final Random random = new Random(13);
+        final RealMatrix stored = randomMatrix(random, 7, 11);
+        final RealMatrix expected = stored.transpose();
+        final TransposedRealMatrix view = new TransposedRealMatrix(stored.getData());
+
+        Assert.assertEquals(view.getRowDimension(), 11);
+        Assert.assertEquals(view.getColumnDimension(), 7);
+        MathObjectAsserts.assertRealMatrixEquals(view, expected);
+        MathObjectAsserts.assertRealMatrixEquals(view.transpose(), stored);
+        MathObjectAsserts.assertRealMatrixEquals(view.copy(), expected);
+        Assert.assertEquals(view.getColumn(3), expected.getColumn(3));
+        Assert.assertEquals(view.getRow(5), expected.getRow(5));
+
+        final RealMatrix other = randomMatrix(random, 7, 4);
+        MathObjectAsserts.assertRealMatrixEquals(view.multiply(other), expected.multiply(other));
+        final double[] vector = other.getColumn(0);
+        final double[] operated = view.operate(vector);
+        final double[] expectedOperated = expected.operate(vector);
+        for (int i = 0; i < operated.length; i++) {
+            Assert.assertEquals(operated[i], expectedOperated[i], 1e-10);
+        }
+        final double[] leftVector = randomMatrix(random, 11, 1).getColumn(0);
+        final double[] preMultiplied = view.preMultiply(leftVector);
+        final double[] expectedPreMultiplied = expected.preMultiply(leftVector);
+        for (int i = 0; i < preMultiplied.length; i++) {
+            Assert.assertEquals(preMultiplied[i], expectedPreMultiplied[i], 1e-10);
+        }
+    }
+
+    @Test
+    public void testWritesGoThroughToStorage() {
+        final double[][] storage = new double[3][2];
+        final TransposedRealMatrix view = new TransposedRealMatrix(storage);
+        view.setEntry(1, 2, 5.0);
+        view.addToEntry(1, 2, 1.0);
+        view.multiplyEntry(1, 2, 2.0);
+        Assert.assertEquals(storage[2][1], 12.0);
+        Assert.assertEquals(view.getEntry(1, 2), 12.0);
+
+        final RealMatrix copy = view.copy();
+        copy.setEntry(0, 0, 1.0);
+        Assert.assertEquals(storage[0][0], 0.0);
+    }
+
+    @Test
+    public void testTransposeSharesStorage() {
+        final double[][] storage = new double[3][2];
+        final TransposedRealMatrix view = new TransposedRealMatrix(storage);
+        final RealMatrix transpose = view.transpose();
+        transpose.setEntry(2, 1, 3.0);
+        Assert.assertEquals(view.getEntry(1, 2), 3.0);
+        view.setEntry(0, 1, 4.0);
+        Assert.assertEquals(transpose.getEntry(1, 0), 4.0);
+    }
+
+    @Test
+    public void testMultiplyPropagatesNonFiniteValues() {
+        final TransposedRealMatrix view = new TransposedRealMatrix(new double[][] {{Double.POSITIVE_INFINITY, 1}, {Double.NaN, 2}});
+        final RealMatrix expected = new Array2DRowRealMatrix(new double[][] {{Double.POSITIVE_INFINITY, Double.NaN}, {1, 2}});
+        final RealMatrix other = new Array2DRowRealMatrix(new double[][] {{0, 1}, {0, 0}});
+        final RealMatrix product = view.multiply(other);
+        final RealMatrix expectedProduct = expected.multiply(other);
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                Assert.assertEquals(product.getEntry(i, j), expectedProduct.getEntry(i, j));
+            }
+        }
+        Assert.assertTrue(Double.isNaN(product.getEntry(0, 0)));
+    }
+
+    @Test
+    public void testTransposedData() {
+        final Random random = new Random(17);
+        final RealMatrix matrix = randomMatrix(random, 5, 3);
+        MathObjectAsserts.assertRealMatrixEquals(new Array2DRowRealMatrix(TransposedRealMatrix.transposedData(matrix), false), matrix.transpose());
+
+        final double[][] storage = matrix.getData();
+        Assert.assertSame(TransposedRealMatrix.transposedData(new TransposedRealMatrix(storage)), storage);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRaggedStorage() {
+        new TransposedRealMatrix(new double[][] {{1, 2}, {3}});
+    }
+}
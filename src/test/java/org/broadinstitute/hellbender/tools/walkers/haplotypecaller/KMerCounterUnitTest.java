@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import org.broadinstitute.hellbender.utils.test.BaseTest;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.*;
@@ -86,4 +87,50 @@ public final class KMerCounterUnitTest extends BaseTest {
         Assert.assertEquals(list.get(0).getKmer().bases(), kmer2.getBytes());
         Assert.assertEquals(list.get(1).getKmer().bases(), kmer1.getBytes());
     }
+
+    @DataProvider(name = "kmerSizes")
+    public Object[][] kmerSizes() {
+        return new Object[][] {{1}, {7}, {31}, {32}, {40}};
+    }
+
+    @Test(dataProvider = "kmerSizes")
+    public void testAgainstHashMap(final int kmerSize) {
+        final Random random = new Random(17);
+        final byte[] alphabet = "ACGTN".getBytes();
+        final byte[] bases = new byte[3000];
+        for (int i = 0; i < bases.length; i++) {
+            // low complexity so that kmers repeat, with the occasional N that cannot be packed
+            bases[i] = alphabet[random.nextInt(50) == 0 ? 4 : random.nextInt(2)];
+        }
+
+        final KMerCounter counter = new KMerCounter(kmerSize);
+        final Map<Kmer, Integer> expected = new HashMap<>();
+        for (int i = 0; i + kmerSize <= bases.length; i++) {
+            counter.addKmer(bases, i, 1);
+            expected.merge(new Kmer(bases, i, kmerSize), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(counter.size(), expected.size());
+        for (final Map.Entry<Kmer, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(counter.getKmerCount(entry.getKey()), (int) entry.getValue());
+        }
+        for (int i = 0; i + kmerSize <= bases.length; i++) {
+            Assert.assertEquals(counter.getKmerCount(bases, i), (int) expected.get(new Kmer(bases, i, kmerSize)));
+        }
+
+        final Map<Kmer, Integer> actual = new HashMap<>();
+        for (final KMerCounter.CountedKmer countedKmer : counter.getCountedKmers()) {
+            Assert.assertNull(actual.put(countedKmer.getKmer(), countedKmer.getCount()));
+        }
+        Assert.assertEquals(actual, expected);
+
+        counter.clear();
+        Assert.assertEquals(counter.size(), 0);
+        Assert.assertEquals(counter.getKmerCount(bases, 0), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKmerOutOfBounds() {
+        new KMerCounter(5).addKmer("ACGTACG".getBytes(), 3, 1);
+    }
 }
@@ -0,0 +1,107 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class PackedKmerIndexUnitTest extends BaseTest {
+
+    @Test
+    public void testPackUnpack() {
+        final byte[] bases = "ACGTTGCAACGTACGTACGTTTTTGGGGCCCA".getBytes();
+        for (int length = 1; length <= PackedKmer.MAX_PACKED_LENGTH; length++) {
+            for (int start = 0; start + length <= bases.length; start++) {
+                final long packed = PackedKmer.pack(bases, start, length);
+                Assert.assertTrue(packed >= 0);
+                Assert.assertEquals(PackedKmer.unpack(packed, length), Arrays.copyOfRange(bases, start, start + length));
+            }
+        }
+    }
+
+    @Test
+    public void testUnpackable() {
+        Assert.assertEquals(PackedKmer.pack("ACNT".getBytes(), 0, 4), PackedKmer.UNPACKABLE);
+        Assert.assertEquals(PackedKmer.pack("ACgT".getBytes(), 0, 4), PackedKmer.UNPACKABLE);
+        Assert.assertEquals(PackedKmer.pack(new byte[PackedKmer.MAX_PACKED_LENGTH + 1], 0, PackedKmer.MAX_PACKED_LENGTH + 1), PackedKmer.UNPACKABLE);
+        Assert.assertNotEquals(PackedKmer.pack("ACAT".getBytes(), 0, 4), PackedKmer.UNPACKABLE);
+    }
+
+    @Test
+    public void testHammingDistance() {
+        final byte[] kmer = "ACGTACGTAC".getBytes();
+        final long packed = PackedKmer.pack(kmer, 0, kmer.length);
+        for (int i = 0; i < kmer.length; i++) {
+            Assert.assertEquals(PackedKmer.baseAt(packed, kmer.length, i), kmer[i]);
+        }
+        Assert.assertEquals(PackedKmer.hammingDistance(packed, packed), 0);
+        Assert.assertEquals(PackedKmer.hammingDistance(packed, PackedKmer.pack("ACGTACGTAA".getBytes(), 0, 10)), 1);
+        Assert.assertEquals(PackedKmer.hammingDistance(packed, PackedKmer.pack("TCGAACGTAC".getBytes(), 0, 10)), 2);
+        Assert.assertEquals(PackedKmer.hammingDistance(packed, PackedKmer.pack("CATGCATGCA".getBytes(), 0, 10)), 10);
+    }
+
+    @DataProvider(name = "kmerSizes")
+    public Object[][] kmerSizes() {
+        return new Object[][] {{1}, {5}, {10}, {25}, {31}, {32}, {45}};
+    }
+
+    @Test(dataProvider = "kmerSizes")
+    public void testAgainstHashMap(final int kmerSize) {
+        final Random random = new Random(13);
+        final byte[] alphabet = "ACGTN".getBytes();
+        final byte[] bases = new byte[5000];
+        for (int i = 0; i < bases.length; i++) {
+            // mostly ACGT with the occasional N to exercise the unpackable fallback
+            bases[i] = alphabet[random.nextInt(100) == 0 ? 4 : random.nextInt(4)];
+        }
+
+        final PackedKmerIndex<Integer> index = new PackedKmerIndex<>(kmerSize);
+        final Map<Kmer, Integer> expected = new HashMap<>();
+        for (int i = 0; i + kmerSize <= bases.length; i++) {
+            final Kmer kmer = new Kmer(bases, i, kmerSize);
+            if (random.nextInt(4) == 0) {
+                Assert.assertEquals(index.remove(bases, i), expected.remove(kmer));
+            } else {
+                Assert.assertEquals(index.put(bases, i, i), expected.put(kmer, i));
+            }
+            Assert.assertEquals(index.size(), expected.size());
+        }
+
+        for (int i = 0; i + kmerSize <= bases.length; i++) {
+            final Kmer kmer = new Kmer(bases, i, kmerSize);
+            Assert.assertEquals(index.get(bases, i), expected.get(kmer));
+            Assert.assertEquals(index.get(kmer), expected.get(kmer));
+            Assert.assertEquals(index.containsKey(bases, i), expected.containsKey(kmer));
+        }
+
+        final Map<Kmer, Integer> actual = new HashMap<>();
+        index.forEach(actual::put);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(new HashSet<>(index.values()), new HashSet<>(expected.values()));
+
+        index.clear();
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertNull(index.get(bases, 0));
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        final PackedKmerIndex<String> index = new PackedKmerIndex<>(3);
+        Assert.assertNull(index.putIfAbsent("ACGT".getBytes(), 1, "first"));
+        Assert.assertEquals(index.putIfAbsent("CGT".getBytes(), 0, "second"), "first");
+        Assert.assertEquals(index.get(new Kmer("CGT")), "first");
+        Assert.assertNull(index.get(new Kmer("CGTA")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOutOfBounds() {
+        new PackedKmerIndex<String>(3).get("ACGT".getBytes(), 2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullValue() {
+        new PackedKmerIndex<String>(3).put("ACGT".getBytes(), 0, null);
+    }
+}
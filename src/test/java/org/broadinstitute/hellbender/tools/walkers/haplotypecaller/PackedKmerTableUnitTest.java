@@ -0,0 +1,43 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class PackedKmerTableUnitTest extends BaseTest {
+
+    @Test
+    public void testIdsStayDenseAcrossResizesAndRemovals() {
+        final Random random = new Random(13);
+        final PackedKmerTable table = new PackedKmerTable(0);
+        final Map<Long, Integer> expectedIds = new HashMap<>();
+        for (int n = 0; n < 5000; n++) {
+            final long packed = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                final Integer expectedId = expectedIds.remove(packed);
+                final int id = table.remove(packed);
+                Assert.assertEquals(id, expectedId == null ? -1 : expectedId.intValue());
+                if (id != -1 && id != table.size()) {
+                    // the kmer with the last id takes the id of the removed one
+                    expectedIds.put(table.kmer(id), id);
+                }
+            } else {
+                final int id = table.add(packed);
+                Assert.assertEquals(id, expectedIds.computeIfAbsent(packed, k -> expectedIds.size()).intValue());
+            }
+            Assert.assertEquals(table.size(), expectedIds.size());
+        }
+        for (final Map.Entry<Long, Integer> entry : expectedIds.entrySet()) {
+            Assert.assertEquals(table.find(entry.getKey()), entry.getValue().intValue());
+            Assert.assertEquals(table.kmer(entry.getValue()), entry.getKey().longValue());
+        }
+        Assert.assertEquals(table.find(2000), -1);
+
+        final long someKmer = table.kmer(0);
+        table.clear();
+        Assert.assertEquals(table.size(), 0);
+        Assert.assertEquals(table.find(someKmer), -1);
+    }
+}
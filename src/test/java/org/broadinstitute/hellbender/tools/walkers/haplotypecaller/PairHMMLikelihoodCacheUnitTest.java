@@ -0,0 +1,87 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class PairHMMLikelihoodCacheUnitTest extends BaseTest {
+
+    private static PairHMMLikelihoodCache.ReadKey readKey(final String bases, final byte qual) {
+        final byte[] quals = new byte[bases.length()];
+        Arrays.fill(quals, qual);
+        return PairHMMLikelihoodCache.readKey(bases.getBytes(), quals, quals, quals, quals);
+    }
+
+    @Test
+    public void testGetAndPut() {
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(1 << 20);
+        final List<PairHMMLikelihoodCache.HaplotypeKey> haplotypes = Arrays.asList(
+                PairHMMLikelihoodCache.haplotypeKey("ACGTACGT".getBytes()), PairHMMLikelihoodCache.haplotypeKey("ACGAACGT".getBytes()));
+        final double[] likelihoods = new double[2];
+
+        Assert.assertFalse(cache.get(readKey("ACGT", (byte) 30), haplotypes, likelihoods));
+        cache.put(readKey("ACGT", (byte) 30), haplotypes, new double[] {-1.5, -7.25});
+
+        // keys are compared by content
+        Assert.assertTrue(cache.get(readKey("ACGT", (byte) 30), haplotypes, likelihoods));
+        Assert.assertEquals(likelihoods, new double[] {-1.5, -7.25});
+        Assert.assertTrue(cache.get(readKey("ACGT", (byte) 30), Collections.singletonList(PairHMMLikelihoodCache.haplotypeKey("ACGAACGT".getBytes())), likelihoods));
+        Assert.assertEquals(likelihoods[0], -7.25);
+
+        // any difference in the read content or an unknown haplotype is a miss
+        Assert.assertFalse(cache.get(readKey("ACGT", (byte) 31), haplotypes, likelihoods));
+        Assert.assertFalse(cache.get(readKey("ACGA", (byte) 30), haplotypes, likelihoods));
+        Assert.assertFalse(cache.get(readKey("ACGT", (byte) 30), Collections.singletonList(PairHMMLikelihoodCache.haplotypeKey("ACGT".getBytes())), likelihoods));
+
+        Assert.assertEquals(cache.getHitCount(), 3);
+        Assert.assertEquals(cache.getMissCount(), 7);
+        Assert.assertEquals(cache.getHitRate(), 0.3, 1e-10);
+        Assert.assertEquals(cache.getEvictionCount(), 0);
+        Assert.assertTrue(cache.getSizeInBytes() > 0);
+
+        cache.clear();
+        Assert.assertEquals(cache.getSizeInBytes(), 0);
+        Assert.assertFalse(cache.get(readKey("ACGT", (byte) 30), haplotypes, likelihoods));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        final List<PairHMMLikelihoodCache.HaplotypeKey> haplotypes = Collections.singletonList(PairHMMLikelihoodCache.haplotypeKey("ACGTACGT".getBytes()));
+        final double[] likelihoods = new double[1];
+
+        // measure the size of a single entry to size the cache for exactly 3 of them
+        final PairHMMLikelihoodCache probe = new PairHMMLikelihoodCache(1 << 20);
+        probe.put(readKey("AAAA", (byte) 30), haplotypes, new double[] {-1});
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(3 * probe.getSizeInBytes());
+
+        cache.put(readKey("AAAA", (byte) 30), haplotypes, new double[] {-1});
+        cache.put(readKey("CCCC", (byte) 30), haplotypes, new double[] {-2});
+        cache.put(readKey("GGGG", (byte) 30), haplotypes, new double[] {-3});
+        Assert.assertEquals(cache.getSizeInBytes(), 3 * probe.getSizeInBytes());
+
+        // touching AAAA makes CCCC the least recently used read
+        Assert.assertTrue(cache.get(readKey("AAAA", (byte) 30), haplotypes, likelihoods));
+        cache.put(readKey("TTTT", (byte) 30), haplotypes, new double[] {-4});
+
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+        Assert.assertTrue(cache.getSizeInBytes() <= cache.getMaxSizeInBytes());
+        Assert.assertFalse(cache.get(readKey("CCCC", (byte) 30), haplotypes, likelihoods));
+        for (final String bases : new String[] {"AAAA", "GGGG", "TTTT"}) {
+            Assert.assertTrue(cache.get(readKey(bases, (byte) 30), haplotypes, likelihoods), bases);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMismatchedReadArrays() {
+        PairHMMLikelihoodCache.readKey("ACGT".getBytes(), new byte[4], new byte[4], new byte[3], new byte[4]);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveSize() {
+        new PairHMMLikelihoodCache(0);
+    }
+}
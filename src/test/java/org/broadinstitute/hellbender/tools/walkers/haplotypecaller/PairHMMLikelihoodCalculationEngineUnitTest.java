@@ -7,6 +7,7 @@ import htsjdk.variant.variantcontext.Allele;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
@@ -133,7 +134,7 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends BaseTest {
 
         for ( int i = 1; i < insQuals.length; i++ ) {
 
-            final int repeatLengthFromCovariate = PairHMMLikelihoodCalculationEngine.findTandemRepeatUnits(readString.getBytes(), i-1).getRight();
+            final int repeatLengthFromCovariate = PairHMMLikelihoodCalculationEngine.findTandemRepeatLength(readString.getBytes(), i-1);
             final byte adjustedScore = PairHMMLikelihoodCalculationEngine.getErrorModelAdjustedQual(repeatLengthFromCovariate, 3.0);
 
             Assert.assertEquals(insQuals[i - 1], adjustedScore);
@@ -141,6 +142,24 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends BaseTest {
         }
     }
 
+    @DataProvider(name = "TandemRepeatLengthTestProvider")
+    public Object[][] makeTandemRepeatLengthTestProvider() {
+        return new Object[][] {
+                {"AAAACCC", 0, 4},   // inside the A repeat
+                {"AAAACCC", 3, 3},   // last A: the C repeat starts right after it
+                {"AAAACCC", 4, 3},   // first C
+                {"AAAACCC", 6, 3},   // last base: only the backward repeat is considered
+                {"ACACAC", 1, 3},    // dinucleotide repeat found forward and continued backward
+                {"ACGT", 1, 1},      // no repeat
+                {Strings.repeat("A", 30), 10, 20} // capped at the maximum repeat length
+        };
+    }
+
+    @Test(dataProvider = "TandemRepeatLengthTestProvider")
+    public void testFindTandemRepeatLength(final String bases, final int offset, final int expectedRepeatLength) {
+        Assert.assertEquals(PairHMMLikelihoodCalculationEngine.findTandemRepeatLength(bases.getBytes(), offset), expectedRepeatLength);
+    }
+
     //Private function to compare 2d arrays
     private static boolean compareDoubleArrays(final double[][] b1, final double[][] b2) {
         if( b1.length != b2.length ) {
@@ -204,4 +223,130 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends BaseTest {
         lce.close();
         new File(PairHMMLikelihoodCalculationEngine.LIKELIHOODS_FILENAME).delete();
     }
+
+    private static final String[] RANDOM_SAMPLES = {"sample1", "sample2", "sample3"};
+
+    private static AssemblyResultSet createRandomHaplotypes(final Random random, final byte[] refBases) {
+        final byte[] alphabet = "ACGT".getBytes();
+        final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+        for (int h = 0; h < 4; h++) {
+            final byte[] hapBases = refBases.clone();
+            if (h > 0) {
+                hapBases[random.nextInt(hapBases.length)] = alphabet[random.nextInt(alphabet.length)];
+            }
+            final Haplotype haplotype = new Haplotype(hapBases, h == 0);
+            haplotype.setGenomeLocation(new SimpleInterval("1", 1, hapBases.length));
+            assemblyResultSet.add(haplotype);
+        }
+        return assemblyResultSet;
+    }
+
+    private static Map<String, List<GATKRead>> createRandomReads(final Random random, final byte[] refBases, final int readLength) {
+        final byte[] alphabet = "ACGT".getBytes();
+        final Map<String, List<GATKRead>> perSampleReadList = new LinkedHashMap<>();
+        for (int s = 0; s < RANDOM_SAMPLES.length; s++) {
+            final List<GATKRead> reads = new ArrayList<>();
+            // uneven read counts, including a sample without reads
+            for (int r = 0; r < 11 * s; r++) {
+                final int start = random.nextInt(refBases.length - readLength + 1);
+                final byte[] readBases = Arrays.copyOfRange(refBases, start, start + readLength);
+                readBases[random.nextInt(readLength)] = alphabet[random.nextInt(alphabet.length)];
+                final byte[] quals = new byte[readLength];
+                for (int i = 0; i < readLength; i++) {
+                    quals[i] = (byte) (5 + random.nextInt(35));
+                }
+                final GATKRead read = ArtificialReadUtils.createArtificialRead(readBases, quals, readLength + "M");
+                read.setMappingQuality(60);
+                reads.add(read);
+            }
+            perSampleReadList.put(RANDOM_SAMPLES[s], reads);
+        }
+        return perSampleReadList;
+    }
+
+    private static byte[] createRandomBases(final Random random, final int length) {
+        final byte[] alphabet = "ACGT".getBytes();
+        final byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return bases;
+    }
+
+    private static PairHMMLikelihoodCalculationEngine createEngine(final int numPairHMMThreads, final int readBatchSize, final long likelihoodCacheSizeInBytes) {
+        final double log10MismappingRate = MathUtils.logToLog10(QualityUtils.qualToErrorProbLog10(new LikelihoodEngineArgumentCollection().phredScaledGlobalReadMismappingRate));
+        return new PairHMMLikelihoodCalculationEngine((byte) 10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, log10MismappingRate, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD, numPairHMMThreads, readBatchSize, likelihoodCacheSizeInBytes);
+    }
+
+    private static void assertIdenticalLikelihoods(final ReadLikelihoods<Haplotype> actual, final ReadLikelihoods<Haplotype> expected) {
+        Assert.assertEquals(actual.numberOfSamples(), expected.numberOfSamples());
+        for (int s = 0; s < expected.numberOfSamples(); s++) {
+            final LikelihoodMatrix<Haplotype> expectedMatrix = expected.sampleMatrix(s);
+            final LikelihoodMatrix<Haplotype> actualMatrix = actual.sampleMatrix(s);
+            Assert.assertEquals(actualMatrix.reads(), expectedMatrix.reads());
+            Assert.assertEquals(actualMatrix.alleles(), expectedMatrix.alleles());
+            for (int a = 0; a < expectedMatrix.numberOfAlleles(); a++) {
+                for (int r = 0; r < expectedMatrix.numberOfReads(); r++) {
+                    Assert.assertEquals(Double.doubleToLongBits(actualMatrix.get(a, r)), Double.doubleToLongBits(expectedMatrix.get(a, r)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMultithreadedLikelihoodsMatchSerial() {
+        PairHMMLikelihoodCalculationEngine.writeLikelihoodsToFile = false;
+        final Random random = new Random(17);
+        final int readLength = 20;
+        final byte[] refBases = createRandomBases(random, readLength + 10);
+        final AssemblyResultSet assemblyResultSet = createRandomHaplotypes(random, refBases);
+        final Map<String, List<GATKRead>> perSampleReadList = createRandomReads(random, refBases, readLength);
+        final SampleList samples = new IndexedSampleList(RANDOM_SAMPLES);
+
+        final PairHMMLikelihoodCalculationEngine serialEngine = createEngine(1, PairHMMLikelihoodCalculationEngine.DEFAULT_READ_BATCH_SIZE, 0);
+        final PairHMMLikelihoodCalculationEngine multithreadedEngine = createEngine(3, 4, 0);
+
+        final ReadLikelihoods<Haplotype> expected = serialEngine.computeReadLikelihoods(assemblyResultSet, samples, perSampleReadList);
+        final ReadLikelihoods<Haplotype> actual = multithreadedEngine.computeReadLikelihoods(assemblyResultSet, samples, perSampleReadList);
+        serialEngine.close();
+        multithreadedEngine.close();
+
+        assertIdenticalLikelihoods(actual, expected);
+    }
+
+    @Test
+    public void testCachedLikelihoodsMatchUncached() {
+        PairHMMLikelihoodCalculationEngine.writeLikelihoodsToFile = false;
+        final Random random = new Random(23);
+        final int readLength = 20;
+        final byte[] refBases = createRandomBases(random, readLength + 10);
+        final AssemblyResultSet assemblyResultSet = createRandomHaplotypes(random, refBases);
+        final SampleList samples = new IndexedSampleList(RANDOM_SAMPLES);
+        final Map<String, List<GATKRead>> firstReads = createRandomReads(random, refBases, readLength);
+        // the second "region" shares half of its reads with the first
+        final Map<String, List<GATKRead>> secondReads = createRandomReads(random, refBases, readLength);
+        for (final String sample : RANDOM_SAMPLES) {
+            final List<GATKRead> reads = secondReads.get(sample);
+            for (int r = 0; r < reads.size(); r += 2) {
+                reads.set(r, firstReads.get(sample).get(r).copy());
+            }
+        }
+
+        final PairHMMLikelihoodCalculationEngine uncachedEngine = createEngine(1, PairHMMLikelihoodCalculationEngine.DEFAULT_READ_BATCH_SIZE, 0);
+        final PairHMMLikelihoodCalculationEngine cachedEngine = createEngine(1, PairHMMLikelihoodCalculationEngine.DEFAULT_READ_BATCH_SIZE, 1 << 20);
+        Assert.assertNull(uncachedEngine.getLikelihoodCache());
+
+        for (final Map<String, List<GATKRead>> perSampleReadList : Arrays.asList(firstReads, secondReads)) {
+            assertIdenticalLikelihoods(cachedEngine.computeReadLikelihoods(assemblyResultSet, samples, perSampleReadList),
+                    uncachedEngine.computeReadLikelihoods(assemblyResultSet, samples, perSampleReadList));
+        }
+
+        final PairHMMLikelihoodCache cache = cachedEngine.getLikelihoodCache();
+        Assert.assertTrue(cache.getHitCount() > 0);
+        Assert.assertTrue(cache.getMissCount() > 0);
+        uncachedEngine.close();
+        cachedEngine.close();
+    }
 }
@@ -0,0 +1,94 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class ProcessedReadBatchUnitTest extends BaseTest {
+
+    private static GATKRead createRead(final String bases, final byte qual) {
+        final byte[] quals = new byte[bases.length()];
+        Arrays.fill(quals, qual);
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(bases.getBytes(), quals, bases.length() + "M");
+        ReadUtils.setInsertionBaseQualities(read, quals);
+        ReadUtils.setDeletionBaseQualities(read, quals);
+        return read;
+    }
+
+    @Test
+    public void testLoad() {
+        final ProcessedReadBatch batch = new ProcessedReadBatch((byte) 10);
+        Assert.assertEquals(batch.size(), 0);
+
+        final List<GATKRead> reads = Arrays.asList(createRead("ACGT", (byte) 20), createRead("ACGTAC", (byte) 30));
+        batch.load(reads);
+        Assert.assertEquals(batch.size(), 2);
+        for (int r = 0; r < reads.size(); r++) {
+            final GATKRead read = reads.get(r);
+            Assert.assertSame(batch.getRead(r), read);
+            Assert.assertEquals(batch.getBases(r), read.getBases());
+            Assert.assertEquals(batch.getBaseQualities(r), read.getBaseQualities());
+            Assert.assertEquals(batch.getInsertionQualities(r), ReadUtils.getBaseInsertionQualities(read));
+            Assert.assertEquals(batch.getDeletionQualities(r), ReadUtils.getBaseDeletionQualities(read));
+            final byte[] expectedGCP = new byte[read.getLength()];
+            Arrays.fill(expectedGCP, (byte) 10);
+            Assert.assertEquals(batch.getGapContinuationPenalties(r), expectedGCP);
+        }
+
+        // modifying the batch qualities leaves the reads untouched
+        batch.getBaseQualities(0)[0] = 5;
+        batch.getInsertionQualities(0)[0] = 5;
+        Assert.assertEquals(reads.get(0).getBaseQualities()[0], 20);
+        Assert.assertEquals(ReadUtils.getBaseInsertionQualities(reads.get(0))[0], 20);
+    }
+
+    @Test
+    public void testReuse() {
+        final ProcessedReadBatch batch = new ProcessedReadBatch((byte) 10);
+        batch.load(Arrays.asList(createRead("ACGT", (byte) 20), createRead("ACGTAC", (byte) 30)));
+        final byte[] firstQuals = batch.getBaseQualities(0);
+        final byte[] secondQuals = batch.getBaseQualities(1);
+        final byte[] gcp = batch.getGapContinuationPenalties(0);
+
+        batch.load(Arrays.asList(createRead("TTTT", (byte) 25), createRead("TT", (byte) 30), createRead("GGGG", (byte) 35)));
+        Assert.assertEquals(batch.size(), 3);
+        // same length arrays are reused, and penalties are shared by reads of the same length
+        Assert.assertSame(batch.getBaseQualities(0), firstQuals);
+        Assert.assertNotSame(batch.getBaseQualities(1), secondQuals);
+        Assert.assertSame(batch.getGapContinuationPenalties(0), gcp);
+        Assert.assertSame(batch.getGapContinuationPenalties(2), gcp);
+        Assert.assertEquals(batch.getBaseQualities(0), new byte[] {25, 25, 25, 25});
+        Assert.assertEquals(batch.getBases(2), "GGGG".getBytes());
+
+        batch.load(Collections.emptyList());
+        Assert.assertEquals(batch.size(), 0);
+    }
+
+    @Test
+    public void testClear() {
+        final ProcessedReadBatch batch = new ProcessedReadBatch((byte) 10);
+        batch.load(Collections.singletonList(createRead("ACGT", (byte) 20)));
+        final byte[] quals = batch.getBaseQualities(0);
+        batch.clear();
+        Assert.assertEquals(batch.size(), 0);
+
+        // the quality arrays survive the clear
+        batch.load(Collections.singletonList(createRead("TTTT", (byte) 25)));
+        Assert.assertSame(batch.getBaseQualities(0), quals);
+        Assert.assertEquals(batch.getBaseQualities(0), new byte[] {25, 25, 25, 25});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOutOfBounds() {
+        final ProcessedReadBatch batch = new ProcessedReadBatch((byte) 10);
+        batch.load(Collections.singletonList(createRead("ACGT", (byte) 20)));
+        batch.getBaseQualities(1);
+    }
+}
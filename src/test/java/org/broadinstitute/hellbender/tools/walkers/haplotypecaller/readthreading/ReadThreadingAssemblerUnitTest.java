@@ -223,6 +223,43 @@ public final class ReadThreadingAssemblerUnitTest extends BaseTest {
         Assert.assertEquals(haplotypes.get(1), altHaplotype);
     }
 
+    @DataProvider(name = "MultithreadedAssemblyTestData")
+    public Object[][] makeMultithreadedAssemblyTestData() {
+        // same cases as SimpleAssemblyTestData; the assemblers are created by the test
+        return Arrays.stream(makeSimpleAssemblyTestData())
+                .map(test -> new Object[]{test[0], test[2], test[3], test[4]})
+                .toArray(Object[][]::new);
+    }
+
+    @Test(dataProvider = "MultithreadedAssemblyTestData")
+    public void testMultithreadedAssemblyMatchesSerial(final String name, final SimpleInterval loc, final String ref, final String alt) {
+        final byte[] refBases = ref.getBytes();
+        final byte[] altBases = alt.getBytes();
+
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, loc.getContig(), loc.getContig(), loc.getStart(), altBases.clone(), Utils.dupBytes((byte) 30, altBases.length), altBases.length + "M");
+            reads.add(read);
+        }
+
+        final List<Integer> kmerSizes = Arrays.asList(10, 15, 25, 35);
+        final ReadThreadingAssembler serialAssembler = new ReadThreadingAssembler(128, kmerSizes);
+        final ReadThreadingAssembler parallelAssembler = new ReadThreadingAssembler(128, kmerSizes);
+        parallelAssembler.setNumAssemblerThreads(3);
+        try {
+            final List<Haplotype> expected = assemble(serialAssembler, refBases, loc, reads);
+            final List<Haplotype> actual = assemble(parallelAssembler, refBases, loc, reads);
+            Assert.assertEquals(actual, expected);
+            for ( int i = 0; i < expected.size(); i++ ) {
+                Assert.assertEquals(actual.get(i).getCigar(), expected.get(i).getCigar());
+                Assert.assertEquals(actual.get(i).getScore(), expected.get(i).getScore());
+            }
+        } finally {
+            parallelAssembler.shutdown();
+        }
+        Assert.assertEquals(parallelAssembler.getNumAssemblerThreads(), 1);
+    }
+
     private static class TestAssembler {
         final ReadThreadingAssembler assembler;
         private final SAMFileHeader header;
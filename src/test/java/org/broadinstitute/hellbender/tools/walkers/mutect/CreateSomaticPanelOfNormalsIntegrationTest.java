@@ -1,6 +1,11 @@
 package org.broadinstitute.hellbender.tools.walkers.mutect;
 
+import htsjdk.tribble.Tribble;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.util.LittleEndianOutputStream;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
 import org.apache.commons.io.FileUtils;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.Main;
@@ -9,7 +14,9 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -82,4 +89,59 @@ public class CreateSomaticPanelOfNormalsIntegrationTest extends CommandLineProgr
         Assert.assertTrue(vc5.getAlternateAllele(0).basesMatch("C"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testConcurrentMergeOfIndexedVcfs() throws IOException {
+        final List<File> indexedVcfs = createIndexedCopies(Arrays.asList("sample1.vcf", "sample2.vcf"));
+
+        final List<VariantContext> serialVariants = createPon(indexedVcfs, 1);
+        final List<VariantContext> concurrentVariants = createPon(indexedVcfs, 2);
+        Assert.assertEquals(concurrentVariants.size(), 5);
+        Assert.assertEquals(concurrentVariants.stream().map(VariantContext::toStringWithoutGenotypes).collect(Collectors.toList()),
+                serialVariants.stream().map(VariantContext::toStringWithoutGenotypes).collect(Collectors.toList()));
+    }
+
+    /**
+     * Two copies of sample1.vcf share all their sites, including the last one of the contig (20:8957515), that must not
+     * be lost when the merge reaches the end of the inputs.
+     */
+    @Test
+    public void testLastPositionIsMerged() throws IOException {
+        final List<File> indexedVcfs = createIndexedCopies(Arrays.asList("sample1.vcf", "sample1.vcf"));
+        for (final int numThreads : new int[] {1, 2}) {
+            final List<VariantContext> ponVariants = createPon(indexedVcfs, numThreads);
+            Assert.assertEquals(ponVariants.size(), 8);
+            Assert.assertEquals(ponVariants.get(ponVariants.size() - 1).getStart(), 8957515);
+        }
+    }
+
+    private List<File> createIndexedCopies(final List<String> samples) throws IOException {
+        final List<File> result = new ArrayList<>(samples.size());
+        for (final String sample : samples) {
+            final File vcf = createTempFile(sample, ".vcf");
+            FileUtils.copyFile(new File(PON_VCFS_DIR, sample), vcf);
+            final Index index = IndexFactory.createIndex(vcf, new VCFCodec(), IndexFactory.IndexType.LINEAR);
+            try (final LittleEndianOutputStream stream = new LittleEndianOutputStream(new FileOutputStream(Tribble.indexFile(vcf)))) {
+                index.write(stream);
+            }
+            Tribble.indexFile(vcf).deleteOnExit();
+            result.add(vcf);
+        }
+        return result;
+    }
+
+    private List<VariantContext> createPon(final List<File> inputVcfs, final int numThreads) throws IOException {
+        final File vcfInputFile = createTempFile("vcfs", ".list");
+        FileUtils.writeLines(vcfInputFile, inputVcfs.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+
+        final File outputVcf = createTempFile("pon", ".vcf");
+        final String[] args = {
+                "-" + CreateSomaticPanelOfNormals.INPUT_VCFS_LIST_SHORT_NAME, vcfInputFile.getAbsolutePath(),
+                "-O", outputVcf.getAbsolutePath(),
+                "-numThreads", String.valueOf(numThreads)
+        };
+        runCommandLine(args);
+
+        return StreamSupport.stream(new FeatureDataSource<VariantContext>(outputVcf).spliterator(), false)
+                .collect(Collectors.toList());
+    }
+}
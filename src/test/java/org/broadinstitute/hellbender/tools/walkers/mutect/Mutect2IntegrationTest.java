@@ -16,6 +16,7 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -70,6 +71,14 @@ public class Mutect2IntegrationTest extends CommandLineProgramTest {
         // run FilterMutectCalls
         new Main().instanceMain(makeCommandLineArgs(Arrays.asList("-V", unfilteredVcf.getAbsolutePath(), "-O", filteredVcf.getAbsolutePath()), "FilterMutectCalls"));
 
+        // filtering in two passes through a temporary file must give the same result as streaming
+        final File twoPassFilteredVcf = createTempFile("two-pass-filtered", ".vcf");
+        new Main().instanceMain(makeCommandLineArgs(Arrays.asList("-V", unfilteredVcf.getAbsolutePath(), "-O", twoPassFilteredVcf.getAbsolutePath(), "--twoPassFiltering"), "FilterMutectCalls"));
+        final List<String> filteredCalls = StreamSupport.stream(new FeatureDataSource<VariantContext>(filteredVcf).spliterator(), false)
+                .map(vc -> vc.getContig() + ":" + vc.getStart() + " " + vc.getAlleles() + " " + new TreeSet<>(vc.getFilters())).collect(Collectors.toList());
+        final List<String> twoPassFilteredCalls = StreamSupport.stream(new FeatureDataSource<VariantContext>(twoPassFilteredVcf).spliterator(), false)
+                .map(vc -> vc.getContig() + ":" + vc.getStart() + " " + vc.getAlleles() + " " + new TreeSet<>(vc.getFilters())).collect(Collectors.toList());
+        Assert.assertEquals(twoPassFilteredCalls, filteredCalls);
 
         // run Concordance
         final File concordanceSummary = createTempFile("concordance", ".txt");
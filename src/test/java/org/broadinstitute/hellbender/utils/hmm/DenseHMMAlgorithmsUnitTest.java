@@ -0,0 +1,402 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for {@link DenseHMMAlgorithms} and {@link DenseHMM}, and for the checkpointed forward-backward result
+ * built on them.
+ */
+public final class DenseHMMAlgorithmsUnitTest extends BaseTest {
+
+    private static final double EPSILON = 1e-10;
+
+    @DataProvider(name = "models")
+    public Object[][] models() {
+        return new Object[][] {
+                { new RandomHMM(new Random(13), 1, 10, false), 10 },
+                { new RandomHMM(new Random(11), 5, 3, false), 10 },
+                { new RandomHMM(new Random(17), 4, 10, false), 200 },
+                { new RandomHMM(new Random(19), 7, 5, true), 300 },
+                { new RandomHMM(new Random(23), 3, 4, true), 1 },
+                { new RandomHMM(new Random(29), 3, 4, true), 0 },
+        };
+    }
+
+    @Test(dataProvider = "models")
+    public void testForwardBackward(final RandomHMM model, final int length) {
+        final List<Integer> positions = IntStream.range(0, length).boxed().collect(Collectors.toList());
+        final List<Integer> data = model.generateData(positions, new Random(31));
+        final DenseHMM<Integer, Integer, Integer> denseModel = DenseHMM.of(model);
+        final double[][] logEmissionProbabilities = DenseHMMAlgorithms.logEmissionProbabilities(denseModel, data, positions);
+        assertEquals(DenseHMMAlgorithms.logForwardProbabilities(denseModel, positions, logEmissionProbabilities),
+                naiveLogForwardProbabilities(model, data, positions));
+        assertEquals(DenseHMMAlgorithms.logBackwardProbabilities(denseModel, positions, logEmissionProbabilities),
+                naiveLogBackwardProbabilities(model, data, positions));
+    }
+
+    @Test(dataProvider = "models")
+    public void testCheckpointedForwardBackward(final RandomHMM model, final int length) {
+        final List<Integer> positions = IntStream.range(0, length).boxed().collect(Collectors.toList());
+        final List<Integer> data = model.generateData(positions, new Random(43));
+        final ForwardBackwardAlgorithm.Result<Integer, Integer, Integer> expected =
+                ForwardBackwardAlgorithm.apply(data, positions, model);
+        final ForwardBackwardAlgorithm.Result<Integer, Integer, Integer> actual =
+                ForwardBackwardAlgorithm.applyCheckpointed(data, positions, model);
+        Assert.assertEquals(actual.positions(), expected.positions());
+        Assert.assertEquals(actual.logDataLikelihood(), expected.logDataLikelihood());
+        // visits the blocks backwards so that every query switches the cached block at least once.
+        for (int i = length - 1; i >= 0; i--) {
+            for (final Integer state : model.hiddenStates()) {
+                Assert.assertEquals(actual.logForwardProbability(i, state), expected.logForwardProbability(i, state));
+                Assert.assertEquals(actual.logBackwardProbability(i, state), expected.logBackwardProbability(i, state));
+                Assert.assertEquals(actual.logProbability(i, state), expected.logProbability(i, state));
+            }
+        }
+        if (length > 0) {
+            for (final Integer state : model.hiddenStates()) {
+                Assert.assertEquals(actual.logProbability(0, length, state), expected.logProbability(0, length, state));
+            }
+        }
+    }
+
+    /**
+     * Queries that alternate between two adjacent blocks must calculate each block only once.
+     */
+    @Test
+    public void testCheckpointedBlocksAcrossBoundary() {
+        final int length = 100; // hence blocks of 10 positions.
+        final EmissionCountingHMM model = new EmissionCountingHMM(new RandomHMM(new Random(73), 3, 4, false));
+        final List<Integer> positions = IntStream.range(0, length).boxed().collect(Collectors.toList());
+        final List<Integer> data = model.model.generateData(positions, new Random(79));
+        final ForwardBackwardAlgorithm.Result<Integer, Integer, Integer> result =
+                ForwardBackwardAlgorithm.applyCheckpointed(data, positions, model);
+        model.emissionCount = 0;
+        for (int repeat = 0; repeat < 5; repeat++) {
+            for (int i = 5; i < 15; i++) {
+                result.logProbability(i, 0);
+                result.logProbability(19 - i, 0);
+            }
+        }
+        // one emission per state and position of the two blocks.
+        Assert.assertEquals(model.emissionCount, 2 * 10 * model.hiddenStates().size());
+    }
+
+    @Test(dataProvider = "models")
+    public void testViterbi(final RandomHMM model, final int length) {
+        final List<Integer> positions = IntStream.range(0, length).boxed().collect(Collectors.toList());
+        final List<Integer> data = model.generateData(positions, new Random(37));
+        final int[] expected = naiveViterbi(model, data, positions);
+        Assert.assertEquals(DenseHMMAlgorithms.viterbi(DenseHMM.of(model), data, positions), expected);
+        Assert.assertEquals(ViterbiAlgorithm.apply(data, positions, model),
+                IntStream.of(expected).boxed().collect(Collectors.toList()));
+    }
+
+    @DataProvider(name = "stayOrJumpModels")
+    public Object[][] stayOrJumpModels() {
+        return new Object[][] {
+                { new StayOrJumpHMM(new Random(47), 1, false), 20 },
+                { new StayOrJumpHMM(new Random(53), 2, false), 100 },
+                { new StayOrJumpHMM(new Random(59), 6, false), 500 },
+                { new StayOrJumpHMM(new Random(61), 6, true), 500 },
+                { new StayOrJumpHMM(new Random(67), 300, false), 50 },
+        };
+    }
+
+    @Test(dataProvider = "stayOrJumpModels")
+    public void testStayOrJumpViterbi(final StayOrJumpHMM model, final int length) {
+        final List<Integer> positions = IntStream.range(0, length).boxed().collect(Collectors.toList());
+        final List<Integer> data = model.generateData(positions, new Random(71));
+        final double[] logStayProbabilities = new double[model.states.size()];
+        final double[] logJumpProbabilities = new double[model.states.size()];
+        Assert.assertTrue(model.logStayOrJumpProbabilities(0, 1, logStayProbabilities, logJumpProbabilities));
+        Assert.assertEquals(DenseHMMAlgorithms.viterbi(model, data, positions), naiveViterbi(model, data, positions));
+    }
+
+    @Test
+    public void testOf() {
+        final RandomHMM model = new RandomHMM(new Random(41), 3, 3, false);
+        final DenseHMM<Integer, Integer, Integer> denseModel = DenseHMM.of(model);
+        Assert.assertSame(DenseHMM.of(denseModel), denseModel);
+        Assert.assertEquals(denseModel.hiddenStates(), model.hiddenStates());
+        final double[] logTransitionProbabilities = new double[9];
+        denseModel.logTransitionProbabilities(0, 1, logTransitionProbabilities);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                Assert.assertEquals(logTransitionProbabilities[i * 3 + j], model.logTransitionProbability(i, 0, j, 1));
+            }
+        }
+    }
+
+    private static void assertEquals(final double[][] actual, final double[][] expected) {
+        Assert.assertEquals(actual.length, expected.length);
+        for (int i = 0; i < actual.length; i++) {
+            Assert.assertEquals(actual[i].length, expected[i].length);
+            for (int j = 0; j < actual[i].length; j++) {
+                if (Double.isInfinite(expected[i][j])) {
+                    Assert.assertEquals(actual[i][j], expected[i][j]);
+                } else {
+                    Assert.assertEquals(actual[i][j], expected[i][j], EPSILON * Math.max(1, Math.abs(expected[i][j])));
+                }
+            }
+        }
+    }
+
+    private static double[][] naiveLogForwardProbabilities(final HMM<Integer, Integer, Integer> model,
+                                                           final List<Integer> data, final List<Integer> positions) {
+        final List<Integer> states = model.hiddenStates();
+        final double[][] result = new double[data.size()][states.size()];
+        final double[] buffer = new double[states.size()];
+        for (int t = 0; t < data.size(); t++) {
+            for (final int j : states) {
+                if (t == 0) {
+                    result[t][j] = model.logPriorProbability(j, positions.get(t));
+                } else {
+                    for (final int i : states) {
+                        buffer[i] = result[t - 1][i] + model.logTransitionProbability(i, positions.get(t - 1), j, positions.get(t));
+                    }
+                    result[t][j] = GATKProtectedMathUtils.logSumExp(buffer);
+                }
+                result[t][j] += model.logEmissionProbability(data.get(t), j, positions.get(t));
+            }
+        }
+        return result;
+    }
+
+    private static double[][] naiveLogBackwardProbabilities(final HMM<Integer, Integer, Integer> model,
+                                                            final List<Integer> data, final List<Integer> positions) {
+        final List<Integer> states = model.hiddenStates();
+        final double[][] result = new double[data.size()][states.size()];
+        final double[] buffer = new double[states.size()];
+        for (int t = data.size() - 2; t >= 0; t--) {
+            for (final int i : states) {
+                for (final int j : states) {
+                    buffer[j] = result[t + 1][j] + model.logTransitionProbability(i, positions.get(t), j, positions.get(t + 1))
+                            + model.logEmissionProbability(data.get(t + 1), j, positions.get(t + 1));
+                }
+                result[t][i] = GATKProtectedMathUtils.logSumExp(buffer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Viterbi following the definition, with ties resolved in favour of the lowest state index.
+     */
+    private static int[] naiveViterbi(final HMM<Integer, Integer, Integer> model,
+                                      final List<Integer> data, final List<Integer> positions) {
+        final List<Integer> states = model.hiddenStates();
+        final int length = data.size();
+        final double[][] scores = new double[length][states.size()];
+        final int[][] backPointers = new int[length][states.size()];
+        for (int t = 0; t < length; t++) {
+            for (final int j : states) {
+                if (t == 0) {
+                    scores[t][j] = model.logPriorProbability(j, positions.get(t));
+                } else {
+                    scores[t][j] = Double.NEGATIVE_INFINITY;
+                    for (final int i : states) {
+                        final double candidate = scores[t - 1][i]
+                                + model.logTransitionProbability(i, positions.get(t - 1), j, positions.get(t));
+                        if (i == 0 || candidate > scores[t][j]) {
+                            scores[t][j] = candidate;
+                            backPointers[t][j] = i;
+                        }
+                    }
+                }
+                scores[t][j] += model.logEmissionProbability(data.get(t), j, positions.get(t));
+            }
+        }
+        final int[] result = new int[length];
+        if (length == 0) {
+            return result;
+        }
+        for (final int j : states) {
+            if (scores[length - 1][j] > scores[length - 1][result[length - 1]]) {
+                result[length - 1] = j;
+            }
+        }
+        for (int t = length - 1; t > 0; t--) {
+            result[t - 1] = backPointers[t][result[t]];
+        }
+        return result;
+    }
+
+    /**
+     * HMM that either stays in its state or jumps to a state chosen with fixed weights, as in the segmenters.
+     * <p>
+     *     With {@code ties} set, all weights and emissions are the same so that most paths are equally likely.
+     * </p>
+     */
+    private static final class StayOrJumpHMM implements DenseHMM<Integer, Integer, Integer> {
+
+        private final List<Integer> states;
+        private final double[] weights;
+        private final double[] stayProbabilities;
+        private final double[][] logEmissions;
+
+        private StayOrJumpHMM(final Random random, final int numStates, final boolean ties) {
+            states = Collections.unmodifiableList(IntStream.range(0, numStates).boxed().collect(Collectors.toList()));
+            weights = new double[numStates];
+            for (int i = 0; i < numStates; i++) {
+                // some states cannot be jumped into.
+                weights[i] = ties ? 1.0 / numStates : (i > 0 && random.nextInt(4) == 0 ? 0 : random.nextDouble());
+            }
+            final double sum = Arrays.stream(weights).sum();
+            for (int i = 0; i < numStates; i++) {
+                weights[i] /= sum;
+            }
+            stayProbabilities = random.doubles(7, 0.5, 1).toArray();
+            logEmissions = new double[numStates][];
+            for (int i = 0; i < numStates; i++) {
+                logEmissions[i] = ties ? new double[4] : RandomHMM.randomLogDistribution(random, 4, false);
+            }
+        }
+
+        private List<Integer> generateData(final List<Integer> positions, final Random random) {
+            return positions.stream().map(p -> random.nextInt(4)).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Integer> hiddenStates() {
+            return new ArrayList<>(states);
+        }
+
+        @Override
+        public double logPriorProbability(final Integer state, final Integer position) {
+            return Math.log(weights[state]);
+        }
+
+        @Override
+        public double logTransitionProbability(final Integer currentState, final Integer currentPosition,
+                                               final Integer nextState, final Integer nextPosition) {
+            final double stay = stayProbabilities[currentPosition % stayProbabilities.length];
+            return Math.log((currentState.equals(nextState) ? stay : 0) + (1 - stay) * weights[nextState]);
+        }
+
+        @Override
+        public boolean logStayOrJumpProbabilities(final Integer currentPosition, final Integer nextPosition,
+                                                  final double[] logStayProbabilities, final double[] logJumpProbabilities) {
+            final double stay = stayProbabilities[currentPosition % stayProbabilities.length];
+            for (int j = 0; j < weights.length; j++) {
+                logStayProbabilities[j] = Math.log(stay + (1 - stay) * weights[j]);
+                logJumpProbabilities[j] = Math.log(0 + (1 - stay) * weights[j]);
+            }
+            return true;
+        }
+
+        @Override
+        public double logEmissionProbability(final Integer data, final Integer state, final Integer position) {
+            return logEmissions[state][data];
+        }
+    }
+
+    /**
+     * Counts the emission probabilities requested from a model.
+     */
+    private static final class EmissionCountingHMM implements HMM<Integer, Integer, Integer> {
+
+        private final RandomHMM model;
+        private int emissionCount = 0;
+
+        private EmissionCountingHMM(final RandomHMM model) {
+            this.model = model;
+        }
+
+        @Override
+        public List<Integer> hiddenStates() {
+            return model.hiddenStates();
+        }
+
+        @Override
+        public double logPriorProbability(final Integer state, final Integer position) {
+            return model.logPriorProbability(state, position);
+        }
+
+        @Override
+        public double logTransitionProbability(final Integer currentState, final Integer currentPosition,
+                                               final Integer nextState, final Integer nextPosition) {
+            return model.logTransitionProbability(currentState, currentPosition, nextState, nextPosition);
+        }
+
+        @Override
+        public double logEmissionProbability(final Integer data, final Integer state, final Integer position) {
+            emissionCount++;
+            return model.logEmissionProbability(data, state, position);
+        }
+    }
+
+    /**
+     * HMM with random position-dependent transitions; some of them may be impossible.
+     */
+    private static final class RandomHMM implements HMM<Integer, Integer, Integer> {
+
+        private final List<Integer> states;
+        private final double[] logPriors;
+        private final double[][][] logTransitions;
+        private final double[][] logEmissions;
+
+        private RandomHMM(final Random random, final int numStates, final int numTransitionMatrices, final boolean sparse) {
+            states = Collections.unmodifiableList(IntStream.range(0, numStates).boxed().collect(Collectors.toList()));
+            logPriors = randomLogDistribution(random, numStates, false);
+            logTransitions = new double[numTransitionMatrices][numStates][];
+            for (final double[][] matrix : logTransitions) {
+                for (int i = 0; i < numStates; i++) {
+                    matrix[i] = randomLogDistribution(random, numStates, sparse);
+                }
+            }
+            logEmissions = new double[numStates][];
+            for (int i = 0; i < numStates; i++) {
+                logEmissions[i] = randomLogDistribution(random, 4, false);
+            }
+        }
+
+        private static double[] randomLogDistribution(final Random random, final int size, final boolean sparse) {
+            final double[] result = new double[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = sparse && i > 0 && random.nextBoolean() ? 0 : Math.exp(-20 * random.nextDouble());
+            }
+            final double sum = Arrays.stream(result).sum();
+            for (int i = 0; i < size; i++) {
+                result[i] = Math.log(result[i] / sum);
+            }
+            return result;
+        }
+
+        private List<Integer> generateData(final List<Integer> positions, final Random random) {
+            return positions.stream().map(p -> random.nextInt(4)).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Integer> hiddenStates() {
+            return new ArrayList<>(states);
+        }
+
+        @Override
+        public double logPriorProbability(final Integer state, final Integer position) {
+            return logPriors[state];
+        }
+
+        @Override
+        public double logTransitionProbability(final Integer currentState, final Integer currentPosition,
+                                               final Integer nextState, final Integer nextPosition) {
+            return logTransitions[currentPosition % logTransitions.length][currentState][nextState];
+        }
+
+        @Override
+        public double logEmissionProbability(final Integer data, final Integer state, final Integer position) {
+            return logEmissions[state][data];
+        }
+    }
+}
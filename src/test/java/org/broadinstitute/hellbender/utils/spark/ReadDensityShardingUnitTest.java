@@ -0,0 +1,85 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ReadDensityShardingUnitTest extends BaseTest {
+
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Arrays.asList(
+            new SAMSequenceRecord("1", 100000), new SAMSequenceRecord("2", 50000)));
+
+    private static final int BIN_SIZE = 100;
+
+    @Test
+    public void testUniformDensity() {
+        final Map<Long, Long> counts = new HashMap<>();
+        for (int bin = 0; bin < 100; bin++) {
+            counts.put(ReadDensitySharding.binKey(1, bin), 10L);
+        }
+        final SimpleInterval interval = new SimpleInterval("2", 1, 10000);
+        final List<ShardBoundary> shards = ReadDensitySharding.divideIntervalByReadDensity(interval, counts, 50, BIN_SIZE, 10000, 0, DICTIONARY);
+        assertTiles(shards, interval);
+        Assert.assertEquals(shards.size(), 20);
+        shards.forEach(shard -> Assert.assertEquals(shard.getInterval().size(), 500));
+    }
+
+    @Test
+    public void testHotBinsAreSplitAndSparseBinsAreCoalesced() {
+        final Map<Long, Long> counts = new HashMap<>();
+        // a single hot bin at [1001, 1100], everything else is empty.
+        counts.put(ReadDensitySharding.binKey(0, 10), 1000L);
+        final SimpleInterval interval = new SimpleInterval("1", 1, 5000);
+        final List<ShardBoundary> shards = ReadDensitySharding.divideIntervalByReadDensity(interval, counts, 50, BIN_SIZE, 2000, 0, DICTIONARY);
+        assertTiles(shards, interval);
+        Assert.assertEquals(shards.get(0).getInterval(), new SimpleInterval("1", 1, 1000));
+        Assert.assertEquals(shards.get(1).getInterval(), new SimpleInterval("1", 1001, 1100));
+        Assert.assertEquals(shards.get(2).getInterval(), new SimpleInterval("1", 1101, 3100));
+        Assert.assertEquals(shards.get(3).getInterval(), new SimpleInterval("1", 3101, 5000));
+        Assert.assertEquals(shards.size(), 4);
+    }
+
+    @Test
+    public void testUnalignedIntervalAndPadding() {
+        final SimpleInterval interval = new SimpleInterval("2", 49951, 50000);
+        final List<ShardBoundary> shards = ReadDensitySharding.divideIntervalByReadDensity(interval, Collections.emptyMap(), 1, BIN_SIZE, 1000, 30, DICTIONARY);
+        Assert.assertEquals(shards.size(), 1);
+        Assert.assertEquals(shards.get(0).getInterval(), interval);
+        Assert.assertEquals(shards.get(0).getPaddedInterval(), new SimpleInterval("2", 49921, 50000));
+
+        final SimpleInterval otherInterval = new SimpleInterval("1", 150, 449);
+        final Map<Long, Long> counts = new HashMap<>();
+        for (int bin = 0; bin < 5; bin++) {
+            counts.put(ReadDensitySharding.binKey(0, bin), 100L);
+        }
+        final List<ShardBoundary> otherShards = ReadDensitySharding.divideIntervalByReadDensity(otherInterval, counts, 60, BIN_SIZE, 1000, 30, DICTIONARY);
+        assertTiles(otherShards, otherInterval);
+        Assert.assertEquals(otherShards.get(0).getInterval(), new SimpleInterval("1", 150, 200));
+        Assert.assertEquals(otherShards.get(0).getPaddedInterval(), new SimpleInterval("1", 120, 230));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownContig() {
+        ReadDensitySharding.divideIntervalByReadDensity(new SimpleInterval("3", 1, 100), Collections.emptyMap(), 1, BIN_SIZE, 1000, 0, DICTIONARY);
+    }
+
+    private static void assertTiles(final List<ShardBoundary> shards, final SimpleInterval interval) {
+        Assert.assertFalse(shards.isEmpty());
+        Assert.assertEquals(shards.get(0).getInterval().getStart(), interval.getStart());
+        Assert.assertEquals(shards.get(shards.size() - 1).getInterval().getEnd(), interval.getEnd());
+        for (int i = 1; i < shards.size(); i++) {
+            Assert.assertEquals(shards.get(i).getInterval().getContig(), interval.getContig());
+            Assert.assertEquals(shards.get(i).getInterval().getStart(), shards.get(i - 1).getInterval().getEnd() + 1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.tribble.Tribble;
+import htsjdk.tribble.index.tabix.TabixUtils;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFFileReader;
+import htsjdk.variant.vcf.VCFHeader;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public final class VariantsSparkSinkUnitTest extends BaseTest {
+
+    private static final List<String> CONTIGS = Arrays.asList("1", "2", "10", "X");
+
+    @DataProvider(name = "outputExtensions")
+    public Object[][] outputExtensions() {
+        return new Object[][] { { ".vcf" }, { ".vcf.gz" } };
+    }
+
+    @Test(dataProvider = "outputExtensions")
+    public void testWriteSortedVariants(final String extension) {
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(CONTIGS.stream()
+                .map(contig -> new SAMSequenceRecord(contig, 1000000)).collect(Collectors.toList()));
+        final VCFHeader header = new VCFHeader();
+        header.setSequenceDictionary(dictionary);
+
+        final Random random = new Random(13);
+        final List<VariantContext> variants = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final String contig = CONTIGS.get(random.nextInt(CONTIGS.size()));
+            final int start = random.nextInt(10000) + 1;
+            variants.add(new VariantContextBuilder("test", contig, start, start, Arrays.asList(Allele.create("A", true), Allele.create("C"))).make());
+        }
+        final List<VariantContext> expected = new ArrayList<>(variants);
+        expected.sort((v1, v2) -> {
+            final int contigComparison = Integer.compare(CONTIGS.indexOf(v1.getContig()), CONTIGS.indexOf(v2.getContig()));
+            return contigComparison != 0 ? contigComparison : Integer.compare(v1.getStart(), v2.getStart());
+        });
+        Collections.shuffle(variants, random);
+
+        final File output = createTempFile("variants", extension);
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        VariantsSparkSink.writeVariants(ctx, output.getAbsolutePath(), output.getAbsolutePath(), ctx.parallelize(variants, 7), header, writer -> writer);
+
+        final File index = extension.endsWith(".gz") ? new File(output.getPath() + TabixUtils.STANDARD_INDEX_EXTENSION) : Tribble.indexFile(output);
+        Assert.assertTrue(index.exists());
+        index.deleteOnExit();
+        try (final VCFFileReader reader = new VCFFileReader(output, true)) {
+            final List<VariantContext> actual = new ArrayList<>();
+            reader.iterator().forEachRemaining(actual::add);
+            Assert.assertEquals(actual.size(), expected.size());
+            for (int i = 0; i < actual.size(); i++) {
+                Assert.assertEquals(actual.get(i).getContig(), expected.get(i).getContig());
+                Assert.assertEquals(actual.get(i).getStart(), expected.get(i).getStart());
+            }
+            final List<VariantContext> queried = new ArrayList<>();
+            reader.query("2", 1, 5000).forEachRemaining(queried::add);
+            Assert.assertEquals(queried.size(), expected.stream().filter(vc -> vc.getContig().equals("2") && vc.getStart() <= 5000).count());
+        }
+        Assert.assertFalse(new File(output.getPath() + ".part-00000").exists());
+    }
+}
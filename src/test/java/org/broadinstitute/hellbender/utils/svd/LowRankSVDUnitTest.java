@@ -0,0 +1,115 @@
+package org.broadinstitute.hellbender.utils.svd;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorFactory;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public final class LowRankSVDUnitTest extends BaseTest {
+
+    private static final double EPSILON = 1e-8;
+
+    /**
+     * Shifts every row and every column of a low-rank matrix and appends columns to it, which is how a coverage PoN is
+     * updated. When all the singular values are kept, the update must be exact.
+     */
+    @Test
+    public void testShiftAndAppendColumns() {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(17));
+        final int numRows = 50;
+        final int numColumns = 12;
+        final int rank = 4;
+        final int numNewColumns = 3;
+        final RealMatrix m = randomMatrix(numRows, rank, rng).multiply(randomMatrix(rank, numColumns, rng));
+        final SingularValueDecomposition fullSVD = new SingularValueDecomposition(m);
+        final RealMatrix v = new Array2DRowRealMatrix(numColumns + numNewColumns, rank);
+        v.setSubMatrix(fullSVD.getV().getSubMatrix(0, numColumns - 1, 0, rank - 1).getData(), 0, 0);
+        final double[] singularValues = new double[rank];
+        System.arraycopy(fullSVD.getSingularValues(), 0, singularValues, 0, rank);
+        final LowRankSVD svd = new LowRankSVD(fullSVD.getU().getSubMatrix(0, numRows - 1, 0, rank - 1), singularValues, v);
+
+        final RealMatrix rowShifts = randomMatrix(numRows, 1, rng);
+        final RealMatrix columnShifts = randomMatrix(numColumns, 1, rng);
+        final RealMatrix newColumns = randomMatrix(numRows, numNewColumns, rng);
+        final RealMatrix x = new Array2DRowRealMatrix(numRows, numNewColumns + 2);
+        x.setColumnMatrix(0, rowShifts);
+        for (int i = 0; i < numRows; i++) {
+            x.setEntry(i, 1, 1);
+        }
+        x.setSubMatrix(newColumns.getData(), 0, 2);
+        final RealMatrix y = new Array2DRowRealMatrix(numColumns + numNewColumns, numNewColumns + 2);
+        for (int j = 0; j < numColumns; j++) {
+            y.setEntry(j, 0, 1);
+            y.setEntry(j, 1, columnShifts.getEntry(j, 0));
+        }
+        for (int j = 0; j < numNewColumns; j++) {
+            y.setEntry(numColumns + j, j + 2, 1);
+        }
+
+        final RealMatrix expected = new Array2DRowRealMatrix(numRows, numColumns + numNewColumns);
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < numColumns; j++) {
+                expected.setEntry(i, j, m.getEntry(i, j) + rowShifts.getEntry(i, 0) + columnShifts.getEntry(j, 0));
+            }
+            for (int j = 0; j < numNewColumns; j++) {
+                expected.setEntry(i, numColumns + j, newColumns.getEntry(i, j));
+            }
+        }
+        final double[] expectedSingularValues = new SingularValueDecomposition(expected).getSingularValues();
+
+        final int updatedRank = rank + numNewColumns + 2;
+        final LowRankSVD updated = svd.update(x, y, updatedRank);
+        Assert.assertEquals(updated.getSingularValues().length, updatedRank);
+        for (int i = 0; i < updatedRank; i++) {
+            Assert.assertEquals(updated.getSingularValues()[i], expectedSingularValues[i], EPSILON * expectedSingularValues[0]);
+        }
+        assertEqualMatrices(updated.getU().transpose().multiply(updated.getU()), MatrixUtils.createRealIdentityMatrix(updatedRank));
+        assertEqualMatrices(updated.getV().transpose().multiply(updated.getV()), MatrixUtils.createRealIdentityMatrix(updatedRank));
+        assertEqualMatrices(updated.getU().multiply(MatrixUtils.createRealDiagonalMatrix(updated.getSingularValues()))
+                .multiply(updated.getV().transpose()), expected);
+
+        // truncating keeps the leading singular values
+        final LowRankSVD truncated = svd.update(x, y, rank);
+        for (int i = 0; i < rank; i++) {
+            Assert.assertEquals(truncated.getSingularValues()[i], expectedSingularValues[i], EPSILON * expectedSingularValues[0]);
+        }
+        assertEqualMatrices(truncated.getPinv(), new SingularValueDecomposition(truncated.getU()
+                .multiply(MatrixUtils.createRealDiagonalMatrix(truncated.getSingularValues()))
+                .multiply(truncated.getV().transpose())).getSolver().getInverse());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUpdateWithWrongDimensions() {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(17));
+        final LowRankSVD svd = new LowRankSVD(randomMatrix(10, 2, rng), new double[] {2, 1}, randomMatrix(5, 2, rng));
+        svd.update(randomMatrix(10, 1, rng), randomMatrix(6, 1, rng), 2);
+    }
+
+    private static RealMatrix randomMatrix(final int numRows, final int numColumns, final RandomGenerator rng) {
+        final double[][] data = new double[numRows][numColumns];
+        for (final double[] row : data) {
+            for (int j = 0; j < numColumns; j++) {
+                row[j] = rng.nextGaussian();
+            }
+        }
+        return new Array2DRowRealMatrix(data, false);
+    }
+
+    private static void assertEqualMatrices(final RealMatrix actual, final RealMatrix expected) {
+        Assert.assertEquals(actual.getRowDimension(), expected.getRowDimension());
+        Assert.assertEquals(actual.getColumnDimension(), expected.getColumnDimension());
+        final double tolerance = 1e-6 * Math.max(1, expected.getNorm());
+        for (int i = 0; i < expected.getRowDimension(); i++) {
+            for (int j = 0; j < expected.getColumnDimension(); j++) {
+                Assert.assertEquals(actual.getEntry(i, j), expected.getEntry(i, j), tolerance);
+            }
+        }
+    }
+}
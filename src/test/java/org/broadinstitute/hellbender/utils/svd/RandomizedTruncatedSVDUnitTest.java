@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.utils.svd;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorFactory;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public final class RandomizedTruncatedSVDUnitTest extends BaseTest {
+
+    private static final double EPSILON = 1e-6;
+
+    @DataProvider(name = "lowRankPlusNoise")
+    public Object[][] lowRankPlusNoise() {
+        return new Object[][] {
+                // rows, columns, rank of the signal, rank requested, noise standard deviation, use Spark
+                {300, 40, 5, 5, 0.0, false},
+                {300, 40, 5, 3, 0.0, false},
+                {300, 40, 5, 5, 1e-3, false},
+                {5000, 25, 8, 8, 1e-3, false},
+                {40, 60, 4, 4, 1e-3, false},
+                {300, 40, 5, 5, 1e-3, true},
+                {5000, 25, 8, 4, 0.0, true},
+        };
+    }
+
+    @Test(dataProvider = "lowRankPlusNoise")
+    public void testAgainstFullSVD(final int numRows, final int numColumns, final int signalRank, final int rank,
+                                   final double noise, final boolean useSpark) {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(13));
+        final RealMatrix m = randomMatrix(numRows, signalRank, 1, rng).multiply(randomMatrix(signalRank, numColumns, 1, rng))
+                .add(randomMatrix(numRows, numColumns, noise, rng));
+        final JavaSparkContext ctx = useSpark ? SparkContextFactory.getTestSparkContext() : null;
+
+        final RandomizedTruncatedSVD svd = SVDFactory.createTruncatedSVD(m, rank, ctx);
+        final SingularValueDecomposition expected = new SingularValueDecomposition(m);
+
+        Assert.assertEquals(svd.getU().getRowDimension(), numRows);
+        Assert.assertEquals(svd.getU().getColumnDimension(), rank);
+        Assert.assertEquals(svd.getV().getRowDimension(), numColumns);
+        Assert.assertEquals(svd.getV().getColumnDimension(), rank);
+        Assert.assertEquals(svd.getSingularValues().length, rank);
+        for (int i = 0; i < rank; i++) {
+            Assert.assertEquals(svd.getSingularValues()[i], expected.getSingularValues()[i], EPSILON * expected.getSingularValues()[0]);
+        }
+
+        // singular vectors are orthonormal
+        assertEqualMatrices(svd.getU().transpose().multiply(svd.getU()), MatrixUtils.createRealIdentityMatrix(rank));
+        assertEqualMatrices(svd.getV().transpose().multiply(svd.getV()), MatrixUtils.createRealIdentityMatrix(rank));
+
+        // same rank-k approximation as the full SVD
+        final RealMatrix approximation = svd.getU().multiply(MatrixUtils.createRealDiagonalMatrix(svd.getSingularValues()))
+                .multiply(svd.getV().transpose());
+        final RealMatrix expectedApproximation = expected.getU().getSubMatrix(0, numRows - 1, 0, rank - 1)
+                .multiply(expected.getS().getSubMatrix(0, rank - 1, 0, rank - 1))
+                .multiply(expected.getV().getSubMatrix(0, numColumns - 1, 0, rank - 1).transpose());
+        assertEqualMatrices(approximation, expectedApproximation);
+
+        final double expectedError = m.subtract(expectedApproximation).getFrobeniusNorm() / m.getFrobeniusNorm();
+        Assert.assertEquals(svd.getRelativeApproximationError(), expectedError, EPSILON);
+
+        // pseudoinverse of the approximation: P A P = P and A P A = A
+        final RealMatrix pinv = svd.getPinv();
+        Assert.assertEquals(pinv.getRowDimension(), numColumns);
+        Assert.assertEquals(pinv.getColumnDimension(), numRows);
+        assertEqualMatrices(pinv.multiply(approximation).multiply(pinv), pinv);
+        assertEqualMatrices(approximation.multiply(pinv).multiply(approximation), approximation);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRankTooLarge() {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(13));
+        SVDFactory.createTruncatedSVD(randomMatrix(10, 5, 1, rng), 6, null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testZeroRank() {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(13));
+        SVDFactory.createTruncatedSVD(randomMatrix(10, 5, 1, rng), 0, null);
+    }
+
+    private static RealMatrix randomMatrix(final int numRows, final int numColumns, final double sd, final RandomGenerator rng) {
+        final double[][] data = new double[numRows][numColumns];
+        for (final double[] row : data) {
+            for (int j = 0; j < numColumns; j++) {
+                row[j] = sd * rng.nextGaussian();
+            }
+        }
+        return new Array2DRowRealMatrix(data, false);
+    }
+
+    private static void assertEqualMatrices(final RealMatrix actual, final RealMatrix expected) {
+        Assert.assertEquals(actual.getRowDimension(), expected.getRowDimension());
+        Assert.assertEquals(actual.getColumnDimension(), expected.getColumnDimension());
+        final double tolerance = EPSILON * Math.max(1, expected.getNorm());
+        for (int i = 0; i < expected.getRowDimension(); i++) {
+            for (int j = 0; j < expected.getColumnDimension(); j++) {
+                Assert.assertEquals(actual.getEntry(i, j), expected.getEntry(i, j), tolerance);
+            }
+        }
+    }
+}